@@ -65,12 +65,15 @@ public class BrokerServerBuilder {
   private static final String METRICS_CONFIG_PREFIX = "pinot.broker.metrics";
   private static final long DEFAULT_BROKER_DELAY_SHUTDOWN_TIME_MS = 10 * 1000L;
   private static final String BROKER_DELAY_SHUTDOWN_TIME_CONFIG = "pinot.broker.delayShutdownTimeMs";
+  // Number of threads to reduce large group by results, 0 to reduce them in the request thread
+  private static final String BROKER_NUM_REDUCE_THREADS_CONFIG = "pinot.broker.numReduceThreads";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerServerBuilder.class);
   // Connection Pool Related
   private KeyedPool<ServerInstance, NettyClientConnection> _connPool;
   private ScheduledThreadPoolExecutor _poolTimeoutExecutor;
   private ExecutorService _requestSenderPool;
+  private ExecutorService _reducePool;
 
   // Netty Specific
   private EventLoopGroup _eventLoopGroup;
@@ -181,7 +184,13 @@ public class BrokerServerBuilder {
    */
   private ReduceServiceRegistry buildReduceServiceRegistry() {
     ReduceServiceRegistry reduceServiceRegistry = new ReduceServiceRegistry();
-    BrokerReduceService reduceService = new BrokerReduceService();
+    int numReduceThreads =
+        _config.getInt(BROKER_NUM_REDUCE_THREADS_CONFIG, Runtime.getRuntime().availableProcessors());
+    LOGGER.info("Using {} threads to reduce group by results", numReduceThreads);
+    if (numReduceThreads > 0) {
+      _reducePool = Executors.newFixedThreadPool(numReduceThreads);
+    }
+    BrokerReduceService reduceService = new BrokerReduceService(_reducePool);
     reduceServiceRegistry.register(BrokerResponseFactory.ResponseType.BROKER_RESPONSE_TYPE_NATIVE,
         reduceService);
 
@@ -247,6 +256,9 @@ public class BrokerServerBuilder {
     _routingTable.shutdown();
     _poolTimeoutExecutor.shutdown();
     _requestSenderPool.shutdown();
+    if (_reducePool != null) {
+      _reducePool.shutdown();
+    }
     _state.set(State.SHUTDOWN);
     LOGGER.info("Network shutdown!!");
 
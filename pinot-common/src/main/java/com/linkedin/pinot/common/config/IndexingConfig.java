@@ -36,6 +36,8 @@ public class IndexingConfig {
   private Map<String, String> streamConfigs = new HashMap<String, String>();
   private String segmentFormatVersion;
   private String starTreeFormat;
+  private boolean warmUpEnabled;
+  private List<String> warmUpColumns;
 
   public IndexingConfig() {
 
@@ -128,4 +130,20 @@ public class IndexingConfig {
   public void setStarTreeFormat(String starTreeFormat) {
     this.starTreeFormat = starTreeFormat;
   }
+
+  public boolean isWarmUpEnabled() {
+    return warmUpEnabled;
+  }
+
+  public void setWarmUpEnabled(boolean warmUpEnabled) {
+    this.warmUpEnabled = warmUpEnabled;
+  }
+
+  public List<String> getWarmUpColumns() {
+    return warmUpColumns;
+  }
+
+  public void setWarmUpColumns(List<String> warmUpColumns) {
+    this.warmUpColumns = warmUpColumns;
+  }
 }
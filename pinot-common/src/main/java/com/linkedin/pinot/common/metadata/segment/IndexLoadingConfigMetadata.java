@@ -34,12 +34,16 @@ public class IndexLoadingConfigMetadata {
   public static final String KEY_OF_SEGMENT_FORMAT_VERSION = "segment.format.version";
   public static final String KEY_OF_ENABLE_DEFAULT_COLUMNS = "enable.default.columns";
   public static final String KEY_OF_STAR_TREE_FORMAT_VERSION = "startree.format.version";
+  public static final String KEY_OF_WARM_UP_ENABLED = "warm.up.enabled";
+  public static final String KEY_OF_WARM_UP_COLUMNS = "warm.up.columns";
 
   private final Set<String> _loadingInvertedIndexColumnSet = new HashSet<String>();
   private final String DEFAULT_SEGMENT_FORMAT = "v1";
   private String segmentVersionToLoad;
   private boolean enableDefaultColumns;
   private final String starTreeVersionToLoad;
+  private final boolean warmUpEnabled;
+  private final Set<String> _warmUpColumnSet = new HashSet<String>();
 
   public IndexLoadingConfigMetadata(Configuration tableDataManagerConfig) {
     List<String> valueOfLoadingInvertedIndexConfig = tableDataManagerConfig.getList(KEY_OF_LOADING_INVERTED_INDEX, null);
@@ -51,6 +55,11 @@ public class IndexLoadingConfigMetadata {
     enableDefaultColumns = tableDataManagerConfig.getBoolean(KEY_OF_ENABLE_DEFAULT_COLUMNS, false);
     starTreeVersionToLoad = tableDataManagerConfig.getString(KEY_OF_STAR_TREE_FORMAT_VERSION,
         CommonConstants.Server.DEFAULT_STAR_TREE_FORMAT_VERSION);
+    warmUpEnabled = tableDataManagerConfig.getBoolean(KEY_OF_WARM_UP_ENABLED, false);
+    List<String> valueOfWarmUpColumnsConfig = tableDataManagerConfig.getList(KEY_OF_WARM_UP_COLUMNS, null);
+    if (valueOfWarmUpColumnsConfig != null) {
+      _warmUpColumnSet.addAll(valueOfWarmUpColumnsConfig);
+    }
   }
 
   public void initLoadingInvertedIndexColumnSet(String[] columnCollections) {
@@ -84,4 +93,19 @@ public class IndexLoadingConfigMetadata {
   public String getStarTreeVersionToLoad() {
     return starTreeVersionToLoad;
   }
+
+  /**
+   * Returns true if memory mapped segments should be warmed up before being served.
+   */
+  public boolean isWarmUpEnabled() {
+    return warmUpEnabled;
+  }
+
+  /**
+   * Returns the columns for which the forward and inverted indexes should be warmed up, in addition to the
+   * dictionaries and sorted indexes of all columns.
+   */
+  public Set<String> getWarmUpColumns() {
+    return _warmUpColumnSet;
+  }
 }
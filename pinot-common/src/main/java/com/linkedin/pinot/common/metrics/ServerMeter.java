@@ -46,7 +46,10 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   LLC_CONTROLLER_RESPONSE_KEEP("messages", false),
   LLC_CONTROLLER_RESPONSE_NOT_LEADER("messages", false),
   LLC_CONTROLLER_RESPONSE_FAILED("messages", false),
-  LLC_CONTROLLER_RESPONSE_COMMIT_SUCCESS("messages", false);
+  LLC_CONTROLLER_RESPONSE_COMMIT_SUCCESS("messages", false),
+  SEGMENT_RESULT_CACHE_HITS("results", true),
+  SEGMENT_RESULT_CACHE_MISSES("results", true),
+  SEGMENT_RESULT_CACHE_EVICTIONS("results", true);
 
   private final String meterName;
   private final String unit;
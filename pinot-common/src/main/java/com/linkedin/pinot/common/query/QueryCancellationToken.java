@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.exception.QueryCancelledException;
+import javax.annotation.Nullable;
+
+
+/**
+ * Per-query token used to cooperatively stop the execution of a query once it has been cancelled (e.g. by the broker
+ * after a timeout) or has passed its deadline.
+ * <p>The token of the query being executed is registered to the executing threads (see
+ * {@link #registerThreadToToken(QueryCancellationToken)}), so that operators can check it at block boundaries through
+ * {@link #checkCurrentThread()} without having the token passed down the operator tree.
+ * <p>This class is thread-safe.
+ */
+public class QueryCancellationToken {
+  private static final ThreadLocal<QueryCancellationToken> _currentToken = new ThreadLocal<>();
+
+  private volatile boolean _isCancelled = false;
+  private volatile long _deadlineMs = Long.MAX_VALUE;
+
+  /**
+   * Cancels the query.
+   */
+  public void cancel() {
+    _isCancelled = true;
+  }
+
+  /**
+   * Sets the time (in milliseconds since epoch) after which the query is considered cancelled.
+   */
+  public void setDeadlineMs(long deadlineMs) {
+    _deadlineMs = deadlineMs;
+  }
+
+  public long getDeadlineMs() {
+    return _deadlineMs;
+  }
+
+  /**
+   * Returns true if the query has been cancelled or has passed its deadline.
+   */
+  public boolean isCancelled() {
+    return _isCancelled || System.currentTimeMillis() > _deadlineMs;
+  }
+
+  /**
+   * Throws a {@link QueryCancelledException} if the query has been cancelled or has passed its deadline.
+   */
+  public void checkNotCancelled() {
+    if (_isCancelled) {
+      throw new QueryCancelledException("Query has been cancelled");
+    }
+    if (System.currentTimeMillis() > _deadlineMs) {
+      throw new QueryCancelledException("Query has passed its deadline");
+    }
+  }
+
+  /**
+   * Registers the current thread to the given token. Must be paired with {@link #unregisterThreadFromToken()}.
+   */
+  public static void registerThreadToToken(@Nullable QueryCancellationToken token) {
+    _currentToken.set(token);
+  }
+
+  public static void unregisterThreadFromToken() {
+    _currentToken.remove();
+  }
+
+  /**
+   * Returns the token the current thread is registered to, or null if none.
+   */
+  @Nullable
+  public static QueryCancellationToken getTokenForCurrentThread() {
+    return _currentToken.get();
+  }
+
+  /**
+   * Throws a {@link QueryCancelledException} if the current thread is registered to a token of a query that has been
+   * cancelled or has passed its deadline.
+   */
+  public static void checkCurrentThread() {
+    QueryCancellationToken token = _currentToken.get();
+    if (token != null) {
+      token.checkNotCancelled();
+    }
+  }
+}
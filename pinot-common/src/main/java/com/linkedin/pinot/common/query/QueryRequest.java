@@ -48,6 +48,9 @@ public class QueryRequest {
 
   private final ServerMetrics serverMetrics;
 
+  // Token to cooperatively stop query execution on cancellation or timeout
+  private final QueryCancellationToken cancellationToken = new QueryCancellationToken();
+
   public QueryRequest(InstanceRequest request, ServerMetrics serverMetrics) {
     this.instanceRequest = request;
     this.serverMetrics = serverMetrics;
@@ -121,4 +124,12 @@ public class QueryRequest {
   public void setQueryWorkers(ListeningExecutorService queryWorkers) {
     this.queryWorkers = queryWorkers;
   }
+
+  /**
+   * Get the token used to cancel the execution of this query
+   * @return
+   */
+  public QueryCancellationToken getCancellationToken() {
+    return cancellationToken;
+  }
 }
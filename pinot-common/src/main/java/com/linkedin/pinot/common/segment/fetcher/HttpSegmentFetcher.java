@@ -17,13 +17,14 @@ package com.linkedin.pinot.common.segment.fetcher;
 
 import java.io.File;
 import java.util.Map;
-
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.utils.FileUploadUtils;
 
-public class HttpSegmentFetcher implements SegmentFetcher {
+public class HttpSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSegmentFetcher.class);
   private static final String MAX_RETRIES = "maxRetries";
@@ -62,4 +63,32 @@ public class HttpSegmentFetcher implements SegmentFetcher {
       }
     }
   }
+
+  @Override
+  public void fetchAndUntarSegmentToLocal(String uri, File outputDir, @Nullable Map<File, Long> fileChecksums)
+      throws Exception {
+    for (int retry = 1; retry <= maxRetryCount; ++retry) {
+      try {
+        final long httpGetResponseContentLength = FileUploadUtils.getAndUntarFile(uri, outputDir, fileChecksums);
+        LOGGER.info("Downloaded and untarred file from {} to {}; Length of httpGetResponseContent: {}", uri, outputDir,
+            httpGetResponseContentLength);
+        return;
+      } catch (Exception e) {
+        LOGGER.error("Failed to download and untar file from {}, retry: {}", uri, retry, e);
+        // Drop the partially untarred content before retrying
+        FileUtils.deleteQuietly(outputDir);
+        if (fileChecksums != null) {
+          fileChecksums.clear();
+        }
+        if (retry == maxRetryCount) {
+          LOGGER.error("Exceeded maximum retry count while fetching file from {} to local directory: {}, aborting.", uri,
+              outputDir, e);
+          throw e;
+        } else {
+          long backOffTimeInSec = 5 * retry;
+          Thread.sleep(backOffTimeInSec * 1000);
+        }
+      }
+    }
+  }
 }
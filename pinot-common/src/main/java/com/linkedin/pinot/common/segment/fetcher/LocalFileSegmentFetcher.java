@@ -15,14 +15,17 @@
  */
 package com.linkedin.pinot.common.segment.fetcher;
 
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import java.io.File;
+import java.io.FileInputStream;
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LocalFileSegmentFetcher implements SegmentFetcher {
+public class LocalFileSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileSegmentFetcher.class);
 
@@ -35,4 +38,11 @@ public class LocalFileSegmentFetcher implements SegmentFetcher {
     FileUtils.copyFile(new File(uri), tempFile);
     LOGGER.info("Copy file from {} to {}; Length of file: {}", uri, tempFile, tempFile.length());
   }
+
+  @Override
+  public void fetchAndUntarSegmentToLocal(String uri, File outputDir, @Nullable Map<File, Long> fileChecksums)
+      throws Exception {
+    TarGzCompressionUtils.unTar(new FileInputStream(new File(uri)), outputDir, fileChecksums);
+    LOGGER.info("Untarred file {} to {}", uri, outputDir);
+  }
 }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.File;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+
+/**
+ * Segment fetcher able to untar the segment tar.gz while it is fetched, so that the tar.gz file is never written to
+ * local disk.
+ */
+public interface StreamingSegmentFetcher extends SegmentFetcher {
+
+  /**
+   * Fetches the segment tar.gz from the given uri and untars it on the fly into the given directory.
+   * <p>If <code>fileChecksums</code> is not null, the Adler32 checksum of every untarred file is put into it, so that
+   * the segment CRC can be verified without reading the files back.
+   */
+  void fetchAndUntarSegmentToLocal(String uri, File outputDir, @Nullable Map<File, Long> fileChecksums)
+      throws Exception;
+}
@@ -189,6 +189,9 @@ public class CommonConstants {
     public static final String CONFIG_OF_SEGMENT_LOAD_MAX_RETRY_COUNT = "pinot.server.segment.loadMaxRetryCount";
     public static final String CONFIG_OF_SEGMENT_LOAD_MIN_RETRY_DELAY_MILLIS =
         "pinot.server.segment.minRetryDelayMillis";
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_PARALLELISM = "pinot.server.segment.downloadParallelism";
+    public static final String CONFIG_OF_SEGMENT_UNTAR_PARALLELISM = "pinot.server.segment.untarParallelism";
+    public static final String CONFIG_OF_SEGMENT_LOAD_PARALLELISM = "pinot.server.segment.loadParallelism";
     public static final String CONFIG_OF_SEGMENT_FORMAT_VERSION = "pinot.server.instance.segment.format.version";
     public static final String CONFIG_OF_ENABLE_DEFAULT_COLUMNS = "pinot.server.instance.enable.default.columns";
 
@@ -207,6 +210,9 @@ public class CommonConstants {
         "com.linkedin.pinot.server.request.SimpleRequestHandlerFactory";
     public static final String DEFAULT_SEGMENT_LOAD_MAX_RETRY_COUNT = "5";
     public static final String DEFAULT_SEGMENT_LOAD_MIN_RETRY_DELAY_MILLIS = "60000";
+    public static final String DEFAULT_SEGMENT_DOWNLOAD_PARALLELISM = "8";
+    public static final String DEFAULT_SEGMENT_UNTAR_PARALLELISM = "4";
+    // Segment load parallelism defaults to the number of available processors
     public static final String PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY = "pinot.server.segment.fetcher";
     public static final String DEFAULT_SEGMENT_FORMAT_VERSION = "v1";
     public static final String DEFAULT_STAR_TREE_FORMAT_VERSION = "OFF_HEAP";
@@ -0,0 +1,580 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.utils;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.utils.DataTableBuilder.DataSchema;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * Wire format of {@link DataTable.Version#V3}.
+ * <p>The table is written column by column after a shared string table holding the metadata, the column names and
+ * types, and the values of the string columns. Integral values and lengths are written as variable-length integers,
+ * floating point values as their raw bits, and objects as the bytes produced by the {@link DataTableSerDe} of the
+ * serializing side. Payloads larger than {@link #COMPRESSION_THRESHOLD_BYTES} are compressed if it makes them smaller.
+ * <p>Layout: VERSION (int) | FLAGS (byte) | [UNCOMPRESSED_LENGTH (varint)] | PAYLOAD, where the payload is:
+ * OBJECT_VERSION | NUM_ROWS | NUM_COLS | STRING_TABLE | METADATA | SCHEMA | COLUMNS.
+ * <p>De-serialized tables use the same in-memory layout as the tables of the previous versions.
+ */
+final class CompactDataTableFormat {
+  static final int COMPRESSION_THRESHOLD_BYTES = 4096;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final byte FLAG_COMPRESSED = 1;
+  // Id 0 of the string table is reserved for null
+  private static final int NULL_STRING_ID = 0;
+
+  private CompactDataTableFormat() {
+  }
+
+  static byte[] serialize(DataTable dataTable) {
+    StringTableBuilder stringTable = new StringTableBuilder();
+    Output body = new Output(1024);
+
+    // METADATA
+    Map<String, String> metadata = dataTable.metadata;
+    if (metadata == null) {
+      body.writeVarInt(0);
+    } else {
+      body.writeVarInt(metadata.size());
+      for (Map.Entry<String, String> entry : metadata.entrySet()) {
+        body.writeVarInt(stringTable.getId(entry.getKey()));
+        body.writeVarInt(stringTable.getId(entry.getValue()));
+      }
+    }
+
+    // SCHEMA
+    DataSchema schema = dataTable.schema;
+    int numColumns = (schema != null) ? schema.columnNames.length : 0;
+    for (int colId = 0; colId < numColumns; colId++) {
+      body.writeVarInt(stringTable.getId(schema.columnNames[colId]));
+      body.writeVarInt(stringTable.getId(schema.columnTypes[colId].name()));
+    }
+
+    // COLUMNS
+    int numRows = dataTable.numRows;
+    if (numColumns > 0 && numRows > 0) {
+      ByteBuffer fixedSizeData = ByteBuffer.wrap(dataTable.fixedSizeDataBytes);
+      ByteBuffer variableSizeData =
+          ByteBuffer.wrap(dataTable.variableSizeDataBytes != null ? dataTable.variableSizeDataBytes : new byte[0]);
+      for (int colId = 0; colId < numColumns; colId++) {
+        Map<Integer, String> dictionary =
+            (dataTable.dictionary != null) ? dataTable.dictionary.get(schema.columnNames[colId]) : null;
+        writeColumn(dataTable, schema.columnTypes[colId], dataTable.columnOffsets[colId], fixedSizeData,
+            variableSizeData, dictionary, stringTable, body);
+      }
+    }
+
+    Output payload = new Output(body.size() + stringTable.estimatedSizeInBytes() + 16);
+    payload.writeVarInt(dataTable.version.getValue());
+    payload.writeVarInt(numRows);
+    payload.writeVarInt(numColumns);
+    stringTable.writeTo(payload);
+    payload.writeBytes(body.buffer(), 0, body.size());
+
+    Output output = new Output(payload.size() + 16);
+    output.writeInt(DataTable.Version.V3.getValue());
+    if (payload.size() >= COMPRESSION_THRESHOLD_BYTES) {
+      byte[] compressed = compress(payload.buffer(), payload.size());
+      if (compressed != null) {
+        output.writeByte(FLAG_COMPRESSED);
+        output.writeVarInt(payload.size());
+        output.writeBytes(compressed, 0, compressed.length);
+        return output.toByteArray();
+      }
+    }
+    output.writeByte((byte) 0);
+    output.writeBytes(payload.buffer(), 0, payload.size());
+    return output.toByteArray();
+  }
+
+  /**
+   * De-serializes the table following the version of the input, and returns the version to use to de-serialize the
+   * objects in the table.
+   */
+  static DataTable.Version deserialize(ByteBuffer input, DataTable dataTable) {
+    byte flags = input.get();
+    ByteBuffer payload;
+    if ((flags & FLAG_COMPRESSED) != 0) {
+      int uncompressedLength = readVarInt(input);
+      payload = ByteBuffer.wrap(decompress(input, uncompressedLength));
+    } else {
+      payload = input.slice();
+    }
+
+    DataTable.Version objectVersion = DataTable.Version.valueOf(readVarInt(payload));
+    int numRows = readVarInt(payload);
+    int numColumns = readVarInt(payload);
+
+    // STRING TABLE, also used as the dictionary of the string columns
+    int numStrings = readVarInt(payload);
+    String[] strings = new String[numStrings + 1];
+    Map<Integer, String> dictionary = new HashMap<>(numStrings + 1);
+    for (int i = 1; i <= numStrings; i++) {
+      int length = readVarInt(payload);
+      strings[i] = new String(payload.array(), payload.arrayOffset() + payload.position(), length, UTF8);
+      payload.position(payload.position() + length);
+      dictionary.put(i, strings[i]);
+    }
+
+    // METADATA
+    int metadataSize = readVarInt(payload);
+    Map<String, String> metadata = new HashMap<>();
+    for (int i = 0; i < metadataSize; i++) {
+      String key = strings[readVarInt(payload)];
+      metadata.put(key, strings[readVarInt(payload)]);
+    }
+    dataTable.metadata = metadata;
+    dataTable.dictionary = new HashMap<>();
+    dataTable.numRows = numRows;
+
+    if (numColumns == 0) {
+      return objectVersion;
+    }
+
+    // SCHEMA
+    String[] columnNames = new String[numColumns];
+    DataType[] columnTypes = new DataType[numColumns];
+    for (int colId = 0; colId < numColumns; colId++) {
+      columnNames[colId] = strings[readVarInt(payload)];
+      columnTypes[colId] = DataType.valueOf(strings[readVarInt(payload)]);
+    }
+    DataSchema schema = new DataSchema(columnNames, columnTypes);
+    dataTable.setSchema(schema);
+
+    // COLUMNS
+    ByteBuffer fixedSizeData = ByteBuffer.allocate(numRows * dataTable.rowSizeInBytes);
+    Output variableSizeData = new Output(0);
+    for (int colId = 0; colId < numColumns; colId++) {
+      if (columnTypes[colId] == DataType.STRING || columnTypes[colId] == DataType.STRING_ARRAY) {
+        dataTable.dictionary.put(columnNames[colId], dictionary);
+      }
+      readColumn(objectVersion, columnTypes[colId], dataTable.columnOffsets[colId], dataTable.rowSizeInBytes,
+          numRows, payload, fixedSizeData, variableSizeData);
+    }
+    dataTable.setData(fixedSizeData.array(), variableSizeData.toByteArray());
+    return objectVersion;
+  }
+
+  private static void writeColumn(DataTable dataTable, DataType dataType, int columnOffset, ByteBuffer fixedSizeData,
+      ByteBuffer variableSizeData, Map<Integer, String> dictionary, StringTableBuilder stringTable, Output out) {
+    int numRows = dataTable.numRows;
+    int rowSizeInBytes = dataTable.rowSizeInBytes;
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      int offset = rowId * rowSizeInBytes + columnOffset;
+      switch (dataType) {
+        case BOOLEAN:
+        case BYTE:
+          out.writeByte(fixedSizeData.get(offset));
+          break;
+        case CHAR:
+          out.writeVarInt(fixedSizeData.getChar(offset));
+          break;
+        case SHORT:
+          out.writeZigZagVarInt(fixedSizeData.getShort(offset));
+          break;
+        case INT:
+          out.writeZigZagVarInt(fixedSizeData.getInt(offset));
+          break;
+        case LONG:
+          out.writeZigZagVarLong(fixedSizeData.getLong(offset));
+          break;
+        case FLOAT:
+          out.writeInt(fixedSizeData.getInt(offset));
+          break;
+        case DOUBLE:
+          out.writeLong(fixedSizeData.getLong(offset));
+          break;
+        case STRING:
+          out.writeVarInt(stringTable.getId(dictionary.get(fixedSizeData.getInt(offset))));
+          break;
+        case OBJECT: {
+          int position = fixedSizeData.getInt(offset);
+          int length = fixedSizeData.getInt(offset + 4);
+          if (dataTable.version == DataTable.Version.V2) {
+            out.writeVarInt(variableSizeData.getInt(position));
+            position += 4;
+          }
+          out.writeVarInt(length);
+          out.writeBytes(variableSizeData.array(), position, length);
+          break;
+        }
+        default:
+          writeArray(dataType, fixedSizeData.getInt(offset), fixedSizeData.getInt(offset + 4), variableSizeData,
+              dictionary, stringTable, out);
+          break;
+      }
+    }
+  }
+
+  private static void writeArray(DataType dataType, int position, int length, ByteBuffer variableSizeData,
+      Map<Integer, String> dictionary, StringTableBuilder stringTable, Output out) {
+    out.writeVarInt(length);
+    switch (dataType) {
+      case BYTE_ARRAY:
+        out.writeBytes(variableSizeData.array(), position, length);
+        break;
+      case CHAR_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeVarInt(variableSizeData.getChar(position + 2 * i));
+        }
+        break;
+      case SHORT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeZigZagVarInt(variableSizeData.getShort(position + 2 * i));
+        }
+        break;
+      case INT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeZigZagVarInt(variableSizeData.getInt(position + 4 * i));
+        }
+        break;
+      case LONG_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeZigZagVarLong(variableSizeData.getLong(position + 8 * i));
+        }
+        break;
+      case FLOAT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeInt(variableSizeData.getInt(position + 4 * i));
+        }
+        break;
+      case DOUBLE_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeLong(variableSizeData.getLong(position + 8 * i));
+        }
+        break;
+      case STRING_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeVarInt(stringTable.getId(dictionary.get(variableSizeData.getInt(position + 4 * i))));
+        }
+        break;
+      default:
+        throw new RuntimeException("Unsupported datatype:" + dataType);
+    }
+  }
+
+  private static void readColumn(DataTable.Version objectVersion, DataType dataType, int columnOffset,
+      int rowSizeInBytes, int numRows, ByteBuffer in, ByteBuffer fixedSizeData, Output variableSizeData) {
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      int offset = rowId * rowSizeInBytes + columnOffset;
+      switch (dataType) {
+        case BOOLEAN:
+        case BYTE:
+          fixedSizeData.put(offset, in.get());
+          break;
+        case CHAR:
+          fixedSizeData.putChar(offset, (char) readVarInt(in));
+          break;
+        case SHORT:
+          fixedSizeData.putShort(offset, (short) readZigZagVarInt(in));
+          break;
+        case INT:
+          fixedSizeData.putInt(offset, readZigZagVarInt(in));
+          break;
+        case LONG:
+          fixedSizeData.putLong(offset, readZigZagVarLong(in));
+          break;
+        case FLOAT:
+          fixedSizeData.putInt(offset, in.getInt());
+          break;
+        case DOUBLE:
+          fixedSizeData.putLong(offset, in.getLong());
+          break;
+        case STRING:
+          fixedSizeData.putInt(offset, readVarInt(in));
+          break;
+        case OBJECT: {
+          fixedSizeData.putInt(offset, variableSizeData.size());
+          if (objectVersion == DataTable.Version.V2) {
+            variableSizeData.writeInt(readVarInt(in));
+          }
+          int length = readVarInt(in);
+          fixedSizeData.putInt(offset + 4, length);
+          variableSizeData.writeBytes(in.array(), in.arrayOffset() + in.position(), length);
+          in.position(in.position() + length);
+          break;
+        }
+        default:
+          fixedSizeData.putInt(offset, variableSizeData.size());
+          fixedSizeData.putInt(offset + 4, readArray(dataType, in, variableSizeData));
+          break;
+      }
+    }
+  }
+
+  private static int readArray(DataType dataType, ByteBuffer in, Output out) {
+    int length = readVarInt(in);
+    switch (dataType) {
+      case BYTE_ARRAY:
+        out.writeBytes(in.array(), in.arrayOffset() + in.position(), length);
+        in.position(in.position() + length);
+        break;
+      case CHAR_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeShort(readVarInt(in));
+        }
+        break;
+      case SHORT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeShort(readZigZagVarInt(in));
+        }
+        break;
+      case INT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeInt(readZigZagVarInt(in));
+        }
+        break;
+      case LONG_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeLong(readZigZagVarLong(in));
+        }
+        break;
+      case FLOAT_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeInt(in.getInt());
+        }
+        break;
+      case DOUBLE_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeLong(in.getLong());
+        }
+        break;
+      case STRING_ARRAY:
+        for (int i = 0; i < length; i++) {
+          out.writeInt(readVarInt(in));
+        }
+        break;
+      default:
+        throw new RuntimeException("Unsupported datatype:" + dataType);
+    }
+    return length;
+  }
+
+  /**
+   * Returns the compressed bytes, or null if compressing does not make the payload smaller.
+   */
+  private static byte[] compress(byte[] bytes, int length) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(bytes, 0, length);
+      deflater.finish();
+      byte[] buffer = new byte[length];
+      int compressedLength = 0;
+      while (!deflater.finished() && compressedLength < length) {
+        compressedLength += deflater.deflate(buffer, compressedLength, length - compressedLength);
+      }
+      if (!deflater.finished()) {
+        return null;
+      }
+      return Arrays.copyOf(buffer, compressedLength);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] decompress(ByteBuffer input, int uncompressedLength) {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+      byte[] bytes = new byte[uncompressedLength];
+      int length = 0;
+      while (length < uncompressedLength) {
+        int inflated = inflater.inflate(bytes, length, uncompressedLength - length);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length != uncompressedLength) {
+        throw new RuntimeException(
+            "Expected " + uncompressedLength + " bytes after decompressing data table, got " + length);
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new RuntimeException("Caught exception while decompressing data table", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  static int readVarInt(ByteBuffer in) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  static long readVarLong(ByteBuffer in) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static int readZigZagVarInt(ByteBuffer in) {
+    int value = readVarInt(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static long readZigZagVarLong(ByteBuffer in) {
+    long value = readVarLong(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Assigns ids to the strings in order of first appearance.
+   */
+  private static class StringTableBuilder {
+    private final Map<String, Integer> _ids = new HashMap<>();
+    private final List<byte[]> _strings = new ArrayList<>();
+    private int _numBytes = 0;
+
+    int getId(String string) {
+      if (string == null) {
+        return NULL_STRING_ID;
+      }
+      Integer id = _ids.get(string);
+      if (id == null) {
+        byte[] bytes = string.getBytes(UTF8);
+        _strings.add(bytes);
+        _numBytes += bytes.length;
+        id = _strings.size();
+        _ids.put(string, id);
+      }
+      return id;
+    }
+
+    int estimatedSizeInBytes() {
+      return _numBytes + 5 * (_strings.size() + 1);
+    }
+
+    void writeTo(Output out) {
+      out.writeVarInt(_strings.size());
+      for (byte[] bytes : _strings) {
+        out.writeVarInt(bytes.length);
+        out.writeBytes(bytes, 0, bytes.length);
+      }
+    }
+  }
+
+  /**
+   * Growable big-endian byte array output, not synchronized unlike {@link java.io.ByteArrayOutputStream}.
+   */
+  static class Output {
+    private byte[] _buffer;
+    private int _size = 0;
+
+    Output(int initialCapacity) {
+      _buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    private void ensureCapacity(int numBytes) {
+      int minCapacity = _size + numBytes;
+      if (minCapacity > _buffer.length) {
+        _buffer = Arrays.copyOf(_buffer, Math.max(minCapacity, _buffer.length << 1));
+      }
+    }
+
+    void writeByte(byte value) {
+      ensureCapacity(1);
+      _buffer[_size++] = value;
+    }
+
+    void writeShort(int value) {
+      ensureCapacity(2);
+      _buffer[_size++] = (byte) (value >>> 8);
+      _buffer[_size++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+      ensureCapacity(4);
+      _buffer[_size++] = (byte) (value >>> 24);
+      _buffer[_size++] = (byte) (value >>> 16);
+      _buffer[_size++] = (byte) (value >>> 8);
+      _buffer[_size++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    void writeVarInt(int value) {
+      ensureCapacity(5);
+      while ((value & ~0x7F) != 0) {
+        _buffer[_size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_size++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        _buffer[_size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_size++] = (byte) value;
+    }
+
+    void writeZigZagVarInt(int value) {
+      writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void writeZigZagVarLong(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, offset, _buffer, _size, length);
+      _size += length;
+    }
+
+    int size() {
+      return _size;
+    }
+
+    byte[] buffer() {
+      return _buffer;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(_buffer, _size);
+    }
+  }
+}
@@ -50,7 +50,8 @@ public class DataTable {
   // Data Table version
   public enum Version {
     V1(1), // Keep the value of '1' for backward compatibility
-    V2(2);
+    V2(2),
+    V3(3); // Compact wire format, see CompactDataTableFormat. Objects keep the encoding of V1 or V2.
 
     private int value;
 
@@ -74,7 +75,8 @@ public class DataTable {
   }
 
   private final DataTableSerDe dataTableSerDe;
-  private final Version version;
+  // Version of the encoding of the objects in the table, V1 or V2
+  final Version version;
 
   int numRows;
 
@@ -82,21 +84,21 @@ public class DataTable {
 
   DataSchema schema;
 
-  private Map<String, Map<Integer, String>> dictionary;
+  Map<String, Map<Integer, String>> dictionary;
 
-  private Map<String, String> metadata;
+  Map<String, String> metadata;
 
   private ByteBuffer fixedSizeData;
 
   private ByteBuffer variableSizeData;
 
-  private int[] columnOffsets;
+  int[] columnOffsets;
 
-  private int rowSizeInBytes;
+  int rowSizeInBytes;
 
-  private byte[] fixedSizeDataBytes;
+  byte[] fixedSizeDataBytes;
 
-  private byte[] variableSizeDataBytes;
+  byte[] variableSizeDataBytes;
 
   /**
    *
@@ -206,8 +208,33 @@ public class DataTable {
     dataTableSerDe = DataTableSerDeRegistry.getInstance().get();
 
     // Assert that version can be de-serialized.
-    version = Version.valueOf(input.getInt());
-    deserializeDataTable(input);
+    Version serializedVersion = Version.valueOf(input.getInt());
+    if (serializedVersion == Version.V3) {
+      version = CompactDataTableFormat.deserialize(input, this);
+    } else {
+      version = serializedVersion;
+      deserializeDataTable(input);
+    }
+  }
+
+  /**
+   * Sets the schema of a table being de-serialized.
+   */
+  void setSchema(DataSchema schema) {
+    this.schema = schema;
+    numCols = schema.columnNames.length;
+    rowSizeInBytes = 0;
+    columnOffsets = computeColumnOffsets(schema);
+  }
+
+  /**
+   * Sets the data of a table being de-serialized, in the layout described by its schema.
+   */
+  void setData(byte[] fixedSizeDataBytes, byte[] variableSizeDataBytes) {
+    this.fixedSizeDataBytes = fixedSizeDataBytes;
+    this.variableSizeDataBytes = variableSizeDataBytes;
+    fixedSizeData = ByteBuffer.wrap(fixedSizeDataBytes);
+    variableSizeData = ByteBuffer.wrap(variableSizeDataBytes);
   }
 
   private void deserializeDataTable(ByteBuffer input) {
@@ -313,6 +340,9 @@ public class DataTable {
    * @throws Exception
    */
   public byte[] toBytes(Version version) throws Exception {
+    if (version == Version.V3) {
+      return CompactDataTableFormat.serialize(this);
+    }
     final byte[] dictionaryBytes = serializeDictionary();
     final byte[] metadataBytes = serializeMetadata();
     byte[] schemaBytes = new byte[0];
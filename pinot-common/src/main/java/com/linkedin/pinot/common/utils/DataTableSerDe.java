@@ -40,7 +40,9 @@ public interface DataTableSerDe {
     HyperLogLog(6),
     QuantileDigest(7),
     HashMap(8),
-    IntOpenHashSet(9);
+    IntOpenHashSet(9),
+    TDigest(10),
+    DistinctCountSketch(11);
 
     private int _value;
     private static Map<Integer, DataType> _map = new HashMap<>();
@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import java.nio.file.Path;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpVersion;
@@ -291,6 +293,36 @@ public class FileUploadUtils {
     }
   }
 
+  /**
+   * Downloads the tar.gz file at the given url and untars it into the given directory as it is received, without
+   * writing the tar.gz file to local disk.
+   *
+   * @return the content length of the response
+   */
+  public static long getAndUntarFile(String url, File outputDir, @Nullable Map<File, Long> fileChecksums)
+      throws Exception {
+    GetMethod httpget = null;
+    try {
+      httpget = new GetMethod(url);
+      int responseCode = FILE_UPLOAD_HTTP_CLIENT.executeMethod(httpget);
+      if (responseCode >= 400) {
+        throw new RuntimeException(
+            "Received error response from server while downloading file. url:" + url
+                + " response code:" + responseCode);
+      }
+      long ret = httpget.getResponseContentLength();
+      TarGzCompressionUtils.unTar(httpget.getResponseBodyAsStream(), outputDir, fileChecksums);
+      return ret;
+    } catch (Exception ex) {
+      LOGGER.error("Caught exception", ex);
+      throw ex;
+    } finally {
+      if (httpget != null) {
+        httpget.releaseConnection();
+      }
+    }
+  }
+
   public enum FileUploadType {
     URI,
     JSON,
@@ -27,6 +27,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedOutputStream;
+import javax.annotation.Nullable;
 
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
@@ -154,11 +158,35 @@ public class TarGzCompressionUtils {
       ArchiveException {
 
     LOGGER.debug(String.format("Untaring %s to dir %s.", inputFile.getAbsolutePath(), outputDir.getAbsolutePath()));
+    InputStream fileInputStream = null;
+    try {
+      fileInputStream = new FileInputStream(inputFile);
+      return unTar(fileInputStream, outputDir, null);
+    } finally {
+      IOUtils.closeQuietly(fileInputStream);
+    }
+  }
+
+  /** Untar a tar.gz input stream into the output folder as the stream is read, without storing the tar.gz file.
+   *
+   * The gzip CRC of the stream is verified while it is decompressed. If <code>fileChecksums</code> is not null, the
+   * Adler32 checksum of every untared file, computed while the file is written, is put into it.
+   *
+   * @param tarGzInputStream  the input tar.gz stream, closed by this method
+   * @param outputDir         the output directory file.
+   * @param fileChecksums     map to put the Adler32 checksums of the untared files into, or null.
+   * @throws IOException
+   *
+   * @return  The {@link List} of {@link File}s with the untared content.
+   * @throws ArchiveException
+   */
+  public static List<File> unTar(InputStream tarGzInputStream, final File outputDir,
+      @Nullable Map<File, Long> fileChecksums) throws IOException, ArchiveException {
     TarArchiveInputStream debInputStream = null;
     InputStream is = null;
     final List<File> untaredFiles = new LinkedList<File>();
     try {
-      is = new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+      is = new GzipCompressorInputStream(new BufferedInputStream(tarGzInputStream));
       debInputStream = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is);
       TarArchiveEntry entry = null;
       while ((entry = (TarArchiveEntry) debInputStream.getNextEntry()) != null) {
@@ -183,8 +211,17 @@ public class TarGzCompressionUtils {
           }
           OutputStream outputFileStream = null;
           try {
-            outputFileStream = new FileOutputStream(outputFile);
-            IOUtils.copy(debInputStream, outputFileStream);
+            outputFileStream = new BufferedOutputStream(new FileOutputStream(outputFile));
+            if (fileChecksums != null) {
+              CheckedOutputStream checkedOutputStream = new CheckedOutputStream(outputFileStream, new Adler32());
+              outputFileStream = checkedOutputStream;
+              IOUtils.copy(debInputStream, checkedOutputStream);
+              fileChecksums.put(outputFile, checkedOutputStream.getChecksum().getValue());
+            } else {
+              IOUtils.copy(debInputStream, outputFileStream);
+            }
+            // Close explicitly so that failures to flush the buffered content are not swallowed
+            outputFileStream.close();
           } finally {
             IOUtils.closeQuietly(outputFileStream);
           }
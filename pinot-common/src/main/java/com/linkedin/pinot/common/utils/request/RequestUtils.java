@@ -24,7 +24,9 @@ import com.linkedin.pinot.common.request.FilterQueryMap;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
+import com.linkedin.pinot.common.utils.DataTable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -35,10 +37,13 @@ import org.slf4j.LoggerFactory;
 
 
 public class RequestUtils {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestUtils.class);
+
   private RequestUtils() {
   }
 
   private static final String USE_STAR_TREE_KEY = "useStarTree";
+  public static final String MAX_DATA_TABLE_VERSION_KEY = "maxDataTableVersion";
 
   /**
    * Generates thrift compliant filterQuery and populate it in the broker request
@@ -109,6 +114,11 @@ public class RequestUtils {
     return q2;
   }
 
+  /**
+   * Aggregation functions that can be computed on the aggregated docs of the star tree, whose metrics only hold the
+   * sums (or merged HLLs) of the raw docs underneath. Other functions (e.g. count, min, max) would need per-node
+   * aggregates that the star tree does not store, so they are kept off the star tree.
+   */
   public static final Set<String> ALLOWED_AGGREGATION_FUNCTIONS = ImmutableSet.of("sum", "fasthll");
 
   /**
@@ -119,9 +129,9 @@ public class RequestUtils {
    * - The only aggregation function in the query should be in {@link #ALLOWED_AGGREGATION_FUNCTIONS}
    * - All group by columns and predicate columns are materialized
    * - Predicates do not contain any metric columns
-   * - Query consists only of simple predicates, conjoined by AND.
+   * - Query consists only of simple predicates or OR of simple predicates on the same column, conjoined by AND.
    *   <p>
-   *   e.g. WHERE d1 = d1v1 AND d2 = d2v2 AND d3 = d3v3 AND d4 between t1,t2
+   *   e.g. WHERE d1 = d1v1 AND (d2 = d2v2 OR d2 = d2v3) AND d3 <> d3v3 AND d4 between t1,t2
    *   </p>
    *
    */
@@ -155,7 +165,7 @@ public class RequestUtils {
       GroupBy groupBy = brokerRequest.getGroupBy();
       if (groupBy != null) {
         for (String groupByColumn : groupBy.getColumns()) {
-          if (skipMaterializationSet.contains(groupByColumn)) {
+          if (skipMaterializationSet.contains(TimeBucketExpression.getColumnName(groupByColumn))) {
             return false;
           }
         }
@@ -170,24 +180,27 @@ public class RequestUtils {
       }
     }
 
-    //if the filter tree has children, ensure that root is AND and all its children are leaves, and
-    //no metric columns appear in the predicates.
+    // If the filter tree is an AND, ensure that all its children are star tree predicates on distinct columns,
+    // otherwise the root itself should be a star tree predicate. No metric columns should appear in the predicates.
     Set<String> metricColumnSet = new HashSet<String>();
     metricColumnSet.addAll(segmentMetadata.getSchema().getMetricNames());
-    if (filterTree != null && filterTree.getChildren() != null && !filterTree.getChildren().isEmpty()) {
-      //ensure that its AND
-      if (filterTree.getOperator() != FilterOperator.AND) {
-        return false;
+    if (filterTree != null) {
+      List<FilterQueryTree> predicates;
+      if (filterTree.getOperator() == FilterOperator.AND) {
+        predicates = filterTree.getChildren();
+      } else {
+        predicates = Collections.singletonList(filterTree);
       }
-      //ensure that children are not nested further and only one predicate per column
+
       Set<String> predicateColumns = new HashSet<>();
-      for (FilterQueryTree child : filterTree.getChildren()) {
-        if (child.getChildren() != null && !child.getChildren().isEmpty()) {
-          //star tree index cannot support nested filter predicates
+      for (FilterQueryTree predicate : predicates) {
+        String column = getStarTreePredicateColumn(predicate);
+        //star tree index cannot support nested filter predicates other than OR on a single column
+        if (column == null) {
           return false;
         }
+
         //only one predicate per column is supported
-        String column = child.getColumn();
         if (predicateColumns.contains(column)) {
           return false;
         }
@@ -203,22 +216,43 @@ public class RequestUtils {
         }
         predicateColumns.add(column);
       }
-    } else if (filterTree != null){
-      // Predicate column of root node should be materialized.
-      String rootColumn = filterTree.getColumn();
-      if (skipMaterializationSet != null && skipMaterializationSet.contains(rootColumn)) {
-        return false;
-      }
-
-      // predicate should not contain metric columns.
-      if (metricColumnSet.contains(rootColumn)) {
-        return false;
-      }
     }
 
     return true;
   }
 
+  /**
+   * Returns the column of a predicate that can be solved with the star tree, or null if it cannot. Supported
+   * predicates are simple predicates (EQ, NEQ, IN, NOT IN, RANGE), and OR of simple predicates on the same column.
+   *
+   * @param filterTree Filter query tree for the predicate
+   * @return Column of the predicate, or null if the star tree cannot solve the predicate
+   */
+  public static String getStarTreePredicateColumn(FilterQueryTree filterTree) {
+    List<FilterQueryTree> children = filterTree.getChildren();
+    if (children == null || children.isEmpty()) {
+      return (filterTree.getOperator() == FilterOperator.REGEX) ? null : filterTree.getColumn();
+    }
+    if (filterTree.getOperator() != FilterOperator.OR) {
+      return null;
+    }
+    String column = null;
+    for (FilterQueryTree child : children) {
+      if (child.getChildren() != null && !child.getChildren().isEmpty()) {
+        return null;
+      }
+      if (child.getOperator() == FilterOperator.REGEX) {
+        return null;
+      }
+      if (column == null) {
+        column = child.getColumn();
+      } else if (!column.equals(child.getColumn())) {
+        return null;
+      }
+    }
+    return column;
+  }
+
   /**
    * This method returns the value of {@link #USE_STAR_TREE_KEY} boolean flag specified in the debug options
    * in broker request. If the flag is not specified in the debug options, it returns true.
@@ -234,4 +268,41 @@ public class RequestUtils {
     String useStarTreeString = debugOptions.get(USE_STAR_TREE_KEY);
     return (useStarTreeString != null) ? Boolean.valueOf(useStarTreeString) : true;
   }
+
+  /**
+   * Sets in the debug options of the broker request the highest {@link DataTable.Version} the broker can read, so
+   * that servers can use it for their responses.
+   *
+   * @param brokerRequest Broker Request
+   * @param maxDataTableVersion Highest data table version the broker can read
+   */
+  public static void setMaxDataTableVersion(BrokerRequest brokerRequest, DataTable.Version maxDataTableVersion) {
+    Map<String, String> debugOptions = new HashMap<>();
+    if (brokerRequest.getDebugOptions() != null) {
+      debugOptions.putAll(brokerRequest.getDebugOptions());
+    }
+    debugOptions.put(MAX_DATA_TABLE_VERSION_KEY, Integer.toString(maxDataTableVersion.getValue()));
+    brokerRequest.setDebugOptions(debugOptions);
+  }
+
+  /**
+   * This method returns the highest {@link DataTable.Version} value the broker can read, as specified in the debug
+   * options in broker request. Brokers not specifying it can read up to {@link DataTable.Version#V2}.
+   *
+   * @param brokerRequest Broker Request
+   * @return Highest data table version value the broker can read
+   */
+  public static int getMaxDataTableVersion(BrokerRequest brokerRequest) {
+    Map<String, String> debugOptions = brokerRequest.getDebugOptions();
+    String maxDataTableVersionString = (debugOptions != null) ? debugOptions.get(MAX_DATA_TABLE_VERSION_KEY) : null;
+    if (maxDataTableVersionString == null) {
+      return DataTable.Version.V2.getValue();
+    }
+    try {
+      return Integer.parseInt(maxDataTableVersionString);
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Invalid value: {} for debug option: {}", maxDataTableVersionString, MAX_DATA_TABLE_VERSION_KEY);
+      return DataTable.Version.V2.getValue();
+    }
+  }
 }
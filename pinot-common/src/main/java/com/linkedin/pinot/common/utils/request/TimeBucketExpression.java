@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.utils.request;
+
+import com.google.common.base.Preconditions;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>TimeBucketExpression</code> class represents a <code>timeBucket(column, bucketSize)</code> group-by
+ * expression, which groups the values of a numeric (time) column into buckets of <code>bucketSize</code> in the unit of
+ * the column, e.g. <code>timeBucket(hoursSinceEpoch, 24)</code> groups by day.
+ * <p>Each value is mapped to the start of its bucket, i.e. the largest multiple of the bucket size not greater than the
+ * value, and keeps the type of the value.
+ * <p>Inside the {@link com.linkedin.pinot.common.request.GroupBy}, the expression is stored as a group-by column in its
+ * canonical form <code>timeBucket(column,bucketSize)</code>.
+ */
+public class TimeBucketExpression {
+  public static final String FUNCTION_NAME = "timeBucket";
+  private static final String PREFIX = FUNCTION_NAME.toLowerCase() + "(";
+
+  private final String _column;
+  private final long _bucketSize;
+
+  public TimeBucketExpression(@Nonnull String column, long bucketSize) {
+    Preconditions.checkArgument(bucketSize > 0, "Bucket size must be positive, got: %s", bucketSize);
+    _column = column;
+    _bucketSize = bucketSize;
+  }
+
+  /**
+   * Parses a group-by column into a time bucket expression.
+   *
+   * @param groupByColumn group-by column.
+   * @return time bucket expression, or null if the group-by column is a plain column.
+   */
+  @Nullable
+  public static TimeBucketExpression fromGroupByColumn(@Nonnull String groupByColumn) {
+    String expression = groupByColumn.trim();
+    if (!expression.toLowerCase().startsWith(PREFIX) || !expression.endsWith(")")) {
+      return null;
+    }
+    String[] arguments = expression.substring(PREFIX.length(), expression.length() - 1).split(",");
+    Preconditions.checkArgument(arguments.length == 2, "Invalid time bucket expression: %s", groupByColumn);
+    try {
+      return new TimeBucketExpression(arguments[0].trim(), Long.parseLong(arguments[1].trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid bucket size in time bucket expression: " + groupByColumn, e);
+    }
+  }
+
+  /**
+   * Returns the column to read for a group-by column, which is the bucketed column for time bucket expressions.
+   *
+   * @param groupByColumn group-by column.
+   * @return column to read.
+   */
+  @Nonnull
+  public static String getColumnName(@Nonnull String groupByColumn) {
+    TimeBucketExpression timeBucketExpression = fromGroupByColumn(groupByColumn);
+    if (timeBucketExpression == null) {
+      return groupByColumn;
+    } else {
+      return timeBucketExpression.getColumn();
+    }
+  }
+
+  @Nonnull
+  public String getColumn() {
+    return _column;
+  }
+
+  public long getBucketSize() {
+    return _bucketSize;
+  }
+
+  /**
+   * Returns the start of the bucket of the given value, in the same type as the value.
+   *
+   * @param value INT, LONG, FLOAT or DOUBLE value.
+   * @return start of the bucket.
+   */
+  @Nonnull
+  public Object getBucketValue(@Nonnull Object value) {
+    if (value instanceof Integer) {
+      return (int) getBucketStart((Integer) value);
+    }
+    if (value instanceof Long) {
+      return getBucketStart((Long) value);
+    }
+    if (value instanceof Float) {
+      return (float) (Math.floor((Float) value / _bucketSize) * _bucketSize);
+    }
+    if (value instanceof Double) {
+      return Math.floor((Double) value / _bucketSize) * _bucketSize;
+    }
+    throw new IllegalArgumentException(
+        "Unsupported value type: " + value.getClass().getSimpleName() + " for time bucket on column: " + _column);
+  }
+
+  private long getBucketStart(long value) {
+    long bucket = value / _bucketSize;
+    // Division rounds towards zero, round negative values down instead.
+    if (value < 0 && bucket * _bucketSize != value) {
+      bucket--;
+    }
+    return bucket * _bucketSize;
+  }
+
+  /**
+   * Returns the canonical form of the expression, as stored in the group-by columns.
+   */
+  @Override
+  public String toString() {
+    return FUNCTION_NAME + "(" + _column + "," + _bucketSize + ")";
+  }
+}
@@ -17,7 +17,9 @@ package com.linkedin.pinot.pql.parsers.pql2.ast;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.pql.parsers.Pql2CompilationException;
+import java.util.List;
 
 
 /**
@@ -31,10 +33,32 @@ public class GroupByAstNode extends BaseAstNode {
       if (astNode instanceof IdentifierAstNode) {
         IdentifierAstNode node = (IdentifierAstNode) astNode;
         groupBy.addToColumns(node.getName());
+      } else if (astNode instanceof FunctionCallAstNode) {
+        groupBy.addToColumns(buildTimeBucketExpression((FunctionCallAstNode) astNode).toString());
       } else {
-        throw new Pql2CompilationException("Child of group by clause is not an identifier.");
+        throw new Pql2CompilationException("Child of group by clause is not an identifier or a time bucket.");
       }
     }
     brokerRequest.setGroupBy(groupBy);
   }
+
+  /**
+   * Builds the time bucket expression for a 'timeBucket(column, bucketSize)' function call.
+   */
+  private static TimeBucketExpression buildTimeBucketExpression(FunctionCallAstNode node) {
+    if (!TimeBucketExpression.FUNCTION_NAME.equalsIgnoreCase(node.getName())) {
+      throw new Pql2CompilationException("Unsupported function in group by clause: " + node.getName());
+    }
+    List<? extends AstNode> children = node.getChildren();
+    if (children == null || children.size() != 2 || !(children.get(0) instanceof IdentifierAstNode)
+        || !(children.get(1) instanceof IntegerLiteralAstNode)) {
+      throw new Pql2CompilationException("Time bucket in group by clause must be timeBucket(column, bucketSize).");
+    }
+    String column = ((IdentifierAstNode) children.get(0)).getName();
+    long bucketSize = ((IntegerLiteralAstNode) children.get(1)).getValue();
+    if (bucketSize <= 0) {
+      throw new Pql2CompilationException("Time bucket size must be positive, got: " + bucketSize);
+    }
+    return new TimeBucketExpression(column, bucketSize);
+  }
 }
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.exception.QueryCancelledException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class QueryCancellationTokenTest {
+
+  @Test
+  public void testCancel() {
+    QueryCancellationToken token = new QueryCancellationToken();
+    Assert.assertFalse(token.isCancelled());
+    token.checkNotCancelled();
+
+    token.cancel();
+    Assert.assertTrue(token.isCancelled());
+    try {
+      token.checkNotCancelled();
+      Assert.fail();
+    } catch (QueryCancelledException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testDeadline() {
+    QueryCancellationToken token = new QueryCancellationToken();
+    token.setDeadlineMs(System.currentTimeMillis() + 60_000L);
+    Assert.assertFalse(token.isCancelled());
+
+    token.setDeadlineMs(System.currentTimeMillis() - 1L);
+    Assert.assertTrue(token.isCancelled());
+  }
+
+  @Test
+  public void testCurrentThread() {
+    // No token registered.
+    QueryCancellationToken.checkCurrentThread();
+
+    QueryCancellationToken token = new QueryCancellationToken();
+    QueryCancellationToken.registerThreadToToken(token);
+    try {
+      Assert.assertSame(QueryCancellationToken.getTokenForCurrentThread(), token);
+      QueryCancellationToken.checkCurrentThread();
+      token.cancel();
+      try {
+        QueryCancellationToken.checkCurrentThread();
+        Assert.fail();
+      } catch (QueryCancelledException e) {
+        // Expected
+      }
+    } finally {
+      QueryCancellationToken.unregisterThreadFromToken();
+    }
+    Assert.assertNull(QueryCancellationToken.getTokenForCurrentThread());
+    QueryCancellationToken.checkCurrentThread();
+  }
+}
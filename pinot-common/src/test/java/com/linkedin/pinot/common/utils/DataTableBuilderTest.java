@@ -54,6 +54,10 @@ public class DataTableBuilderTest {
     String exceptionMsg =
         desDataTable.getMetadata().get("Exception" + QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode());
     org.testng.Assert.assertEquals(exceptionMsg, exception.toString());
+
+    desDataTable = new DataTable(dataTable.toBytes(DataTable.Version.V3));
+    exceptionMsg = desDataTable.getMetadata().get("Exception" + QueryException.EXECUTION_TIMEOUT_ERROR.getErrorCode());
+    org.testng.Assert.assertEquals(exceptionMsg, exception.toString());
   }
 
   @Test
@@ -158,6 +162,8 @@ public class DataTableBuilderTest {
     final DataTable newDataTable = new DataTable(bytes);
     validate(newDataTable, NUM_ROWS, schema, boolArr, cArr, bArr, sArr, iArr, fArr, lArr, dArr, strArr, oArr);
 
+    final DataTable compactDataTable = new DataTable(dataTable.toBytes(DataTable.Version.V3));
+    validate(compactDataTable, NUM_ROWS, schema, boolArr, cArr, bArr, sArr, iArr, fArr, lArr, dArr, strArr, oArr);
   }
 
   @Test
@@ -195,6 +201,11 @@ public class DataTableBuilderTest {
       validate(DataType.STRING_ARRAY, newDataTable, oStringArray, rowId, 0);
     }
 
+    DataTable compactDataTable = new DataTable(dataTable.toBytes(DataTable.Version.V3));
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      validate(DataType.STRING_ARRAY, compactDataTable, oStringArray, rowId, 0);
+    }
+
   }
 
   @Test
@@ -233,6 +244,11 @@ public class DataTableBuilderTest {
       validate(DataType.INT_ARRAY, newDataTable, oIntArr1, rowId, 0);
     }
 
+    DataTable compactDataTable = new DataTable(dataTable.toBytes(DataTable.Version.V3));
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      validate(DataType.INT_ARRAY, compactDataTable, oIntArr1, rowId, 0);
+    }
+
   }
 
   @Test
@@ -282,6 +298,59 @@ public class DataTableBuilderTest {
       validate(DataType.INT_ARRAY, newDataTable, oIntArr2, rowId, 1);
     }
 
+    DataTable compactDataTable = new DataTable(dataTable.toBytes(DataTable.Version.V3));
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      validate(DataType.INT_ARRAY, compactDataTable, oIntArr1, rowId, 0);
+      validate(DataType.INT_ARRAY, compactDataTable, oIntArr2, rowId, 1);
+    }
+  }
+
+  @Test
+  public void testCompactFormatSize() throws Exception {
+    DataType[] columnTypes = new DataType[] { DataType.STRING, DataType.INT, DataType.LONG, DataType.DOUBLE };
+    String[] columnNames = new String[] { "dimension", "count", "sum", "avg" };
+    DataSchema schema = new DataSchema(columnNames, columnTypes);
+    DataTableBuilder builder = new DataTableBuilder(schema);
+    builder.setDataTableSerDe(_dataTableSerDe);
+
+    builder.open();
+    Random r = new Random();
+    int NUM_ROWS = 10000;
+    Object[] strings = new Object[NUM_ROWS];
+    Object[] ints = new Object[NUM_ROWS];
+    Object[] longs = new Object[NUM_ROWS];
+    Object[] doubles = new Object[NUM_ROWS];
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      builder.startRow();
+      strings[rowId] = "dimension_value_" + r.nextInt(100);
+      ints[rowId] = r.nextInt(1000) - 500;
+      longs[rowId] = (long) r.nextInt(1000000);
+      doubles[rowId] = (double) r.nextInt(100);
+      builder.setColumn(0, (String) strings[rowId]);
+      builder.setColumn(1, (int) ints[rowId]);
+      builder.setColumn(2, (long) longs[rowId]);
+      builder.setColumn(3, (double) doubles[rowId]);
+      builder.finishRow();
+    }
+    builder.addMetaData("requestId", "3");
+    builder.seal();
+    DataTable dataTable = builder.build();
+
+    byte[] bytes = dataTable.toBytes();
+    byte[] compactBytes = dataTable.toBytes(DataTable.Version.V3);
+    Assert.assertTrue(compactBytes.length < bytes.length / 2,
+        "Compact size: " + compactBytes.length + ", size: " + bytes.length);
+
+    DataTable compactDataTable = new DataTable(compactBytes);
+    Assert.assertEquals(compactDataTable.getNumberOfRows(), NUM_ROWS);
+    Assert.assertEquals(compactDataTable.getDataSchema(), schema);
+    Assert.assertEquals(compactDataTable.getMetadata().get("requestId"), "3");
+    for (int rowId = 0; rowId < NUM_ROWS; rowId++) {
+      validate(DataType.STRING, compactDataTable, strings, rowId, 0);
+      validate(DataType.INT, compactDataTable, ints, rowId, 1);
+      validate(DataType.LONG, compactDataTable, longs, rowId, 2);
+      validate(DataType.DOUBLE, compactDataTable, doubles, rowId, 3);
+    }
   }
 
   private void validate(DataType type, DataTable dataTable, Object[] arr, int rowId, int colId) {
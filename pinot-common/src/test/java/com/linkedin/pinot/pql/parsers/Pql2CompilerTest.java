@@ -19,7 +19,10 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.pql.parsers.pql2.ast.TopAstNode;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -67,6 +70,32 @@ public class Pql2CompilerTest {
     testTopZeroFor(compiler, "select count(*) from someTable where c = 5 group by X top -1", TopAstNode.DEFAULT_TOP_N, true);
   }
 
+  @Test
+  public void testTimeBucketGroupBy() {
+    Pql2Compiler compiler = new Pql2Compiler();
+    BrokerRequest brokerRequest = compiler.compileToBrokerRequest(
+        "select count(*) from a group by timeBucket(hoursSinceEpoch, 24), country");
+    List<String> groupByColumns = brokerRequest.getGroupBy().getColumns();
+    Assert.assertEquals(groupByColumns, Arrays.asList("timeBucket(hoursSinceEpoch,24)", "country"));
+
+    TimeBucketExpression timeBucketExpression = TimeBucketExpression.fromGroupByColumn(groupByColumns.get(0));
+    Assert.assertNotNull(timeBucketExpression);
+    Assert.assertEquals(timeBucketExpression.getColumn(), "hoursSinceEpoch");
+    Assert.assertEquals(timeBucketExpression.getBucketSize(), 24L);
+    Assert.assertNull(TimeBucketExpression.fromGroupByColumn(groupByColumns.get(1)));
+    Assert.assertEquals(TimeBucketExpression.getColumnName(groupByColumns.get(1)), "country");
+
+    // Values are mapped to the start of their bucket, keeping their type
+    Assert.assertEquals(timeBucketExpression.getBucketValue(50), 48);
+    Assert.assertEquals(timeBucketExpression.getBucketValue(48L), 48L);
+    Assert.assertEquals(timeBucketExpression.getBucketValue(-1L), -24L);
+    Assert.assertEquals(timeBucketExpression.getBucketValue(25.5), 24.0);
+
+    assertCompilationFails(compiler, "select count(*) from a group by timeBucket(hoursSinceEpoch, 0)");
+    assertCompilationFails(compiler, "select count(*) from a group by timeBucket(hoursSinceEpoch)");
+    assertCompilationFails(compiler, "select count(*) from a group by foo(hoursSinceEpoch, 24)");
+  }
+
   private void assertCompilationFails(Pql2Compiler compiler, String query) {
     try {
       compiler.compileToBrokerRequest(query);
@@ -30,6 +30,22 @@ public abstract class BlockSingleValIterator implements BlockValIterator {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Read up to length int values starting from the current position into the given array,
+   * and advance the iterator past them.
+   *
+   * @param values output array
+   * @param length maximum number of values to read
+   * @return number of values read, 0 if the iterator is exhausted
+   */
+  public int nextIntVals(int[] values, int length) {
+    int numValuesRead = 0;
+    while (numValuesRead < length && hasNext()) {
+      values[numValuesRead++] = nextIntVal();
+    }
+    return numValuesRead;
+  }
+
   public float nextFloatVal(){
     throw new UnsupportedOperationException();
   }
@@ -117,6 +117,10 @@ public class TableDataManagerConfig {
         indexingConfig.getInvertedIndexColumns());
     _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_STAR_TREE_FORMAT_VERSION,
         indexingConfig.getStarTreeFormat());
+    _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_WARM_UP_ENABLED,
+        indexingConfig.isWarmUpEnabled());
+    _tableDataManagerConfig.setProperty(IndexLoadingConfigMetadata.KEY_OF_WARM_UP_COLUMNS,
+        indexingConfig.getWarmUpColumns());
     String segmentVersionKey = IndexLoadingConfigMetadata.KEY_OF_SEGMENT_FORMAT_VERSION;
     // Server configuration is always to DEFAULT or configured value
     // Apply table configuration only if the server configuration is set with table config
@@ -17,13 +17,11 @@ package com.linkedin.pinot.core.data.manager.offline;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
@@ -36,16 +34,19 @@ import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 
 public abstract  class AbstractTableDataManager implements TableDataManager {
   protected final List<String> _activeSegments = new ArrayList<String>();
   protected final List<String> _loadingSegments = new ArrayList<String>();
-  // This read-write lock protects the _segmentsMap and SegmentDataManager.refCnt
-  protected final ReadWriteLock _rwLock = new ReentrantReadWriteLock();
+  // Segments are acquired and released without locking: the map holds one reference to each segment, and a segment is
+  // only acquired (see SegmentDataManager.tryIncrementRefCnt()) while its reference count has not dropped to 0. Once a
+  // segment is replaced or removed from the map, the last thread releasing it destroys it.
   @VisibleForTesting
-  protected final Map<String, SegmentDataManager> _segmentsMap = new HashMap<String, SegmentDataManager>();
+  protected final Map<String, SegmentDataManager> _segmentsMap = new ConcurrentHashMap<String, SegmentDataManager>();
 
   protected Logger LOGGER = LoggerFactory.getLogger(AbstractTableDataManager.class);
   protected volatile boolean _isStarted = false;
@@ -60,7 +61,8 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
   protected IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
   protected ServerMetrics _serverMetrics;
   protected String _serverInstance;
-
+  // Result cache of the server instance, whose entries are invalidated when a segment is replaced or removed.
+  protected volatile SegmentResultCache _segmentResultCache = null;
 
   protected AbstractTableDataManager() {
 
@@ -129,6 +131,11 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
 
   protected abstract void doShutdown();
 
+  @Override
+  public void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
+  }
+
   /**
    * Add a segment (or replace it, if one exists with the same name.
    * Ensures that reference count of the old segment (if replaced) is reduced by 1, so that the
@@ -144,21 +151,16 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
     LOGGER.info("Trying to add a new segment {} of table {} with OfflineSegmentDataManager", segmentName, _tableName);
     OfflineSegmentDataManager newSegmentManager = new OfflineSegmentDataManager(indexSegmentToAdd);
     final int newNumDocs = indexSegmentToAdd.getSegmentMetadata().getTotalRawDocs();
-    SegmentDataManager oldSegmentManager;
     int refCnt = -1;
-    try {
-      _rwLock.writeLock().lock();
-      oldSegmentManager = _segmentsMap.put(segmentName, newSegmentManager);
-      if (oldSegmentManager != null) {
-        refCnt = oldSegmentManager.decrementRefCnt();
-      }
-    } finally {
-      _rwLock.writeLock().unlock();
+    SegmentDataManager oldSegmentManager = _segmentsMap.put(segmentName, newSegmentManager);
+    if (oldSegmentManager != null) {
+      refCnt = oldSegmentManager.decrementRefCnt();
     }
     if (oldSegmentManager == null) {
       LOGGER.info("Added new segment {} for table {}", segmentName, _tableName);
     } else {
       LOGGER.info("Replaced segment {}(refCnt {}) with new segment for table {}", segmentName, refCnt, _tableName);
+      invalidateCachedResults(segmentName);
     }
     if (refCnt == 0) {  // oldSegmentManager must be non-null.
       closeSegment(oldSegmentManager);
@@ -180,22 +182,24 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
       return;
     }
 
-    SegmentDataManager segmentDataManager;
     int refCnt = -1;
-    try {
-      _rwLock.writeLock().lock();
-      segmentDataManager = _segmentsMap.remove(segmentName);
-      if (segmentDataManager != null) {
-        refCnt = segmentDataManager.decrementRefCnt();
-      }
-    } finally {
-      _rwLock.writeLock().unlock();
+    SegmentDataManager segmentDataManager = _segmentsMap.remove(segmentName);
+    if (segmentDataManager != null) {
+      refCnt = segmentDataManager.decrementRefCnt();
+      invalidateCachedResults(segmentName);
     }
     if (refCnt == 0) {  // segmentDataManager must be non-null.
       closeSegment(segmentDataManager);
     }
   }
 
+  private void invalidateCachedResults(String segmentName) {
+    SegmentResultCache segmentResultCache = _segmentResultCache;
+    if (segmentResultCache != null) {
+      segmentResultCache.invalidateSegment(_tableName, segmentName);
+    }
+  }
+
   protected void closeSegment(SegmentDataManager segmentDataManager) {
     final String segmentName = segmentDataManager.getSegmentName();
     LOGGER.info("Closing segment {} for table {}", segmentName, _tableName);
@@ -221,49 +225,39 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
   @Override
   public ImmutableList<SegmentDataManager> acquireAllSegments() {
     ImmutableList.Builder<SegmentDataManager> segmentListBuilder = ImmutableList.builder();
-    try {
-      _rwLock.readLock().lock();
-      for (Map.Entry<String, SegmentDataManager> segmentEntry : _segmentsMap.entrySet()) {
-        SegmentDataManager segmentDataManager = segmentEntry.getValue();
-        segmentDataManager.incrementRefCnt();
+    for (String segmentName : _segmentsMap.keySet()) {
+      SegmentDataManager segmentDataManager = acquireSegment(segmentName);
+      if (segmentDataManager != null) {
         segmentListBuilder.add(segmentDataManager);
       }
-    } finally {
-      _rwLock.readLock().unlock();
     }
     return segmentListBuilder.build();
   }
 
   @Override
   public List<SegmentDataManager> acquireSegments(List<String> segmentList) {
-    List<SegmentDataManager> ret = new ArrayList<SegmentDataManager>();
-    try {
-      _rwLock.readLock().lock();
-      for (String segName : segmentList) {
-        SegmentDataManager segmentDataManager;
-        segmentDataManager = _segmentsMap.get(segName);
-        if (segmentDataManager != null) {
-          segmentDataManager.incrementRefCnt();
-          ret.add(segmentDataManager);
-        }
+    List<SegmentDataManager> ret = new ArrayList<SegmentDataManager>(segmentList.size());
+    for (String segName : segmentList) {
+      SegmentDataManager segmentDataManager = acquireSegment(segName);
+      if (segmentDataManager != null) {
+        ret.add(segmentDataManager);
       }
-    } finally {
-      _rwLock.readLock().unlock();
     }
     return ret;
   }
 
   @Override
   public SegmentDataManager acquireSegment(String segmentName) {
-    try {
-      _rwLock.readLock().lock();
+    while (true) {
       SegmentDataManager segmentDataManager = _segmentsMap.get(segmentName);
-      if (segmentDataManager != null) {
-        segmentDataManager.incrementRefCnt();
+      if (segmentDataManager == null) {
+        return null;
+      }
+      if (segmentDataManager.tryIncrementRefCnt()) {
+        return segmentDataManager;
       }
-      return segmentDataManager;
-    } finally {
-      _rwLock.readLock().unlock();
+      // The segment has been replaced or removed concurrently (its reference count only drops to 0 once it is no longer
+      // in the map), look it up again.
     }
   }
 
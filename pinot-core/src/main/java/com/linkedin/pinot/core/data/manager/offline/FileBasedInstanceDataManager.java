@@ -24,10 +24,12 @@ import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadataLoader;
 import com.linkedin.pinot.core.data.manager.config.FileBasedInstanceDataManagerConfig;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import java.io.File;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.helix.ZNRecord;
@@ -49,6 +51,7 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
   private Map<String, TableDataManager> _tableDataManagerMap = new HashMap<String, TableDataManager>();
   private boolean _isStarted = false;
   private SegmentMetadataLoader _segmentMetadataLoader;
+  private SegmentResultCache _segmentResultCache = null;
 
   public FileBasedInstanceDataManager() {
     //LOGGER.info("InstanceDataManager is a Singleton");
@@ -65,7 +68,7 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
       TableDataManagerConfig tableDataManagerConfig =
           _instanceDataManagerConfig.getTableDataManagerConfig(tableName);
       TableDataManager tableDataManager = TableDataManagerProvider.getTableDataManager(tableDataManagerConfig, null);
-      _tableDataManagerMap.put(tableName, tableDataManager);
+      addTableDataManager(tableName, tableDataManager);
     }
     _segmentMetadataLoader = getSegmentMetadataLoader(_instanceDataManagerConfig.getSegmentMetadataLoaderClass());
   }
@@ -83,7 +86,7 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
       TableDataManagerConfig tableDataManagerConfig =
           _instanceDataManagerConfig.getTableDataManagerConfig(tableName);
       TableDataManager tableDataManager = TableDataManagerProvider.getTableDataManager(tableDataManagerConfig, null);
-      _tableDataManagerMap.put(tableName, tableDataManager);
+      addTableDataManager(tableName, tableDataManager);
     }
     try {
       _segmentMetadataLoader = getSegmentMetadataLoader(_instanceDataManagerConfig.getSegmentMetadataLoaderClass());
@@ -105,7 +108,7 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
 
   public void addTable(TableDataManagerConfig tableConfig) {
     TableDataManager tableDataManager = TableDataManagerProvider.getTableDataManager(tableConfig, null);
-    _tableDataManagerMap.put(tableConfig.getTableName(), tableDataManager);
+    addTableDataManager(tableConfig.getTableName(), tableDataManager);
   }
 
   @Override
@@ -148,9 +151,18 @@ public class FileBasedInstanceDataManager implements InstanceDataManager {
   }
 
   public synchronized void addTableDataManager(String tableName, TableDataManager tableDataManager) {
+    tableDataManager.setSegmentResultCache(_segmentResultCache);
     _tableDataManagerMap.put(tableName, tableDataManager);
   }
 
+  @Override
+  public synchronized void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
+    for (TableDataManager tableDataManager : _tableDataManagerMap.values()) {
+      tableDataManager.setSegmentResultCache(segmentResultCache);
+    }
+  }
+
   @Override
   public Collection<TableDataManager> getTableDataManagers() {
     return _tableDataManagerMap.values();
@@ -19,6 +19,7 @@ import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.data.DataManager;
 import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import java.util.Collection;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,4 +40,10 @@ public interface InstanceDataManager extends DataManager {
   void addSegment(ZkHelixPropertyStore<ZNRecord> propertyStore, AbstractTableConfig tableConfig,
       InstanceZKMetadata instanceZKMetadata, SegmentZKMetadata segmentZKMetadata, String serverInstance) throws Exception;
 
+  /**
+   * Set the per-segment result cache of the server instance on all current and future table data managers.
+   * @param segmentResultCache result cache, null if disabled
+   */
+  void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache);
+
 }
@@ -19,9 +19,13 @@ import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.loader.SegmentWarmUpper;
+import com.linkedin.pinot.core.segment.memory.MmapBudgetManager;
 import java.io.File;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
@@ -48,9 +52,37 @@ public class OfflineTableDataManager extends AbstractTableDataManager {
   @Override
   public void addSegment(SegmentMetadata segmentMetadata, Schema schema)
       throws Exception {
-    IndexSegment indexSegment = ColumnarSegmentLoader.loadSegment(new File(segmentMetadata.getIndexDir()), _readMode,
-        _indexLoadingConfigMetadata, schema);
-    addSegment(indexSegment);
+    // Loading and warming up the segment reads its buffers the same way queries do
+    MmapBudgetManager mmapBudgetManager = MmapBudgetManager.getInstance();
+    long mmapTicket = (mmapBudgetManager != null) ? mmapBudgetManager.enterQuery() : -1L;
+    try {
+      IndexSegment indexSegment = ColumnarSegmentLoader.loadSegment(new File(segmentMetadata.getIndexDir()), _readMode,
+          _indexLoadingConfigMetadata, schema);
+      warmUpSegmentIfNeeded(indexSegment);
+      addSegment(indexSegment);
+    } finally {
+      if (mmapBudgetManager != null) {
+        mmapBudgetManager.exitQuery(mmapTicket);
+      }
+    }
+  }
+
+  /**
+   * Warms up memory mapped segments before they are made queryable if configured for the table. Failing to warm up a
+   * segment does not prevent it from being served.
+   */
+  private void warmUpSegmentIfNeeded(IndexSegment indexSegment) {
+    if (_readMode != ReadMode.mmap || _indexLoadingConfigMetadata == null
+        || !_indexLoadingConfigMetadata.isWarmUpEnabled() || !(indexSegment instanceof IndexSegmentImpl)) {
+      return;
+    }
+    try {
+      SegmentWarmUpper.getInstance()
+          .warmUp((IndexSegmentImpl) indexSegment, _indexLoadingConfigMetadata.getWarmUpColumns());
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while warming up segment: {} of table: {}", indexSegment.getSegmentName(),
+          _tableName, e);
+    }
   }
 
   @Override
@@ -33,6 +33,24 @@ public abstract class SegmentDataManager {
     return _refcnt.incrementAndGet();
   }
 
+  /**
+   * Increments the reference count unless it already dropped to 0, i.e. the segment has been removed and is being (or
+   * has been) destroyed.
+   *
+   * @return true if the reference count was incremented, false otherwise.
+   */
+  public boolean tryIncrementRefCnt() {
+    while (true) {
+      int refCnt = _refcnt.get();
+      if (refCnt == 0) {
+        return false;
+      }
+      if (_refcnt.compareAndSet(refCnt, refCnt + 1)) {
+        return true;
+      }
+    }
+  }
+
   public int decrementRefCnt() {
     return _refcnt.decrementAndGet();
   }
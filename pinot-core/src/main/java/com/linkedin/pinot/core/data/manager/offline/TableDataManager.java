@@ -29,6 +29,7 @@ import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import javax.annotation.Nonnull;
 
 
@@ -53,6 +54,14 @@ public interface TableDataManager {
 
   boolean isStarted();
 
+  /**
+   * Set the per-segment result cache of the server instance, whose entries for a segment are invalidated when the
+   * segment is replaced or removed.
+   *
+   * @param segmentResultCache result cache, null if disabled
+   */
+  void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache);
+
   /**
    * Adding an IndexSegment into the TableDataManager.
    * Used in testing only
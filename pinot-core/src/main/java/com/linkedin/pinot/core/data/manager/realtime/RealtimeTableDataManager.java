@@ -152,12 +152,7 @@ public class RealtimeTableDataManager extends AbstractTableDataManager {
             _indexDir.getAbsolutePath(), SchemaUtils.fromZNRecord(record), _serverMetrics);
       }
       LOGGER.info("Initialize RealtimeSegmentDataManager - " + segmentId);
-      try {
-        _rwLock.writeLock().lock();
-        _segmentsMap.put(segmentId, manager);
-      } finally {
-        _rwLock.writeLock().unlock();
-      }
+      _segmentsMap.put(segmentId, manager);
       _loadingSegments.add(segmentId);
     }
   }
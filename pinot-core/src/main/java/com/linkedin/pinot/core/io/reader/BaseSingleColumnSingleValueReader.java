@@ -68,6 +68,13 @@ public abstract class BaseSingleColumnSingleValueReader<T extends ReaderContext>
     throw new UnsupportedOperationException("not supported");
   }
 
+  @Override
+  public void getIntBatch(int startRow, int length, int[] values) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getInt(startRow + i);
+    }
+  }
+
   public int getInt(int rowId, T context) {
     throw new UnsupportedOperationException();
   }
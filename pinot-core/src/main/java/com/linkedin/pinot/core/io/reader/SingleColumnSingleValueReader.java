@@ -68,4 +68,13 @@ public interface SingleColumnSingleValueReader extends DataFileReader {
   byte[] getBytes(int row);
 
   void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos);
+
+  /**
+   * Read the int values for a contiguous range of rows, allowing implementations to decode the
+   * values in bulk instead of one row at a time.
+   * @param startRow first row to read
+   * @param length number of rows to read
+   * @param values output array, must have at least length elements
+   */
+  void getIntBatch(int startRow, int length, int[] values);
 }
@@ -56,4 +56,9 @@ public class FixedBitSingleValueReader extends BaseSingleColumnSingleValueReader
   public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
     dataFileReader.readValues(rows, 0, rowStartPos, rowSize, values, valuesStartPos);
   }
+
+  @Override
+  public void getIntBatch(int startRow, int length, int[] values) {
+    dataFileReader.getInt(startRow, length, 0, values);
+  }
 }
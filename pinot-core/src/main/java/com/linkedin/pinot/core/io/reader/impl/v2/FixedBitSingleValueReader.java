@@ -76,10 +76,12 @@ public class FixedBitSingleValueReader extends BaseSingleColumnSingleValueReader
   }
 
   /**
-   * @param startRow assumes rowIds are sorted
-   * @param values
+   * Reads a contiguous range of rows, unpacking each batch of 32 values only once.
+   * @param startRow
    * @param length
+   * @param values
    */
+  @Override
   public void getIntBatch(int startRow, int length, int[] values) {
     int counter = 0;
     BitUnpackResult tempResult = bitUnpackWrapper.get();
@@ -91,6 +93,7 @@ public class FixedBitSingleValueReader extends BaseSingleColumnSingleValueReader
           tempResult.compressed[i] = indexDataBuffer.getInt(startIndex + i * 4);
         }
         BitPacking.fastunpack(tempResult.compressed, 0, tempResult.uncompressed, 0, numBits);
+        tempResult.position = batchPosition;
       }
       int endRowId = (batchPosition + 1) * uncompressedSize;
       while (counter < length && (startRow + counter) < endRowId) {
@@ -116,6 +119,7 @@ public class FixedBitSingleValueReader extends BaseSingleColumnSingleValueReader
           tempResult.compressed[i] = indexDataBuffer.getInt(startIndex + i * 4);
         }
         BitPacking.fastunpack(tempResult.compressed, 0, tempResult.uncompressed, 0, numBits);
+        tempResult.position = batchPosition;
       }
       int endRowId = (batchPosition + 1) * uncompressedSize;
       while (counter < length && rowIds[counter] < endRowId) {
@@ -67,6 +67,13 @@ public class BaseSingleColumnSingleValueReaderWriter<T extends ReaderContext>
     throw new UnsupportedOperationException("not supported");
   }
 
+  @Override
+  public void getIntBatch(int startRow, int length, int[] values) {
+    for (int i = 0; i < length; i++) {
+      values[i] = getInt(startRow + i);
+    }
+  }
+
   public T createContext() {
     throw new UnsupportedOperationException();
   }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.operator;
 
+import com.linkedin.pinot.common.query.QueryCancellationToken;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
@@ -25,6 +26,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Any other Pinot Operators should extend BaseOperator
+ * <p>Checks for query cancellation before fetching each block, so that cancelled or timed-out queries stop consuming
+ * CPU within one block.
  */
 public abstract class BaseOperator implements Operator {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseOperator.class);
@@ -33,6 +36,7 @@ public abstract class BaseOperator implements Operator {
 
   @Override
   public final Block nextBlock() {
+    QueryCancellationToken.checkCurrentThread();
     long start = System.currentTimeMillis();
     Block ret = getNextBlock();
     long end = System.currentTimeMillis();
@@ -43,6 +47,7 @@ public abstract class BaseOperator implements Operator {
 
   @Override
   public final Block nextBlock(BlockId blockId) {
+    QueryCancellationToken.checkCurrentThread();
     long start = System.currentTimeMillis();
     Block ret = getNextBlock(blockId);
     long end = System.currentTimeMillis();
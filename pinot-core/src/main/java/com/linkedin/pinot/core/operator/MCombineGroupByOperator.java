@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.operator;
 
 import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.exception.QueryCancelledException;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
@@ -24,17 +25,15 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByResult;
-import com.linkedin.pinot.core.operator.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByCombineTable;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
 import java.io.Serializable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -49,18 +48,6 @@ import org.slf4j.LoggerFactory;
 public class MCombineGroupByOperator extends BaseOperator {
   private static final Logger LOGGER = LoggerFactory.getLogger(MCombineGroupByOperator.class);
 
-  // Choose a proper prime number for the number of locks.
-  // Use prime number to reduce the conflict rate of different hashcodes.
-  // Too small number of locks will cause high conflict rate.
-  // Too large number of locks will consume too much memory.
-  private static final int NUM_LOCKS = 10007;
-  private static final Object[] LOCKS = new Object[NUM_LOCKS];
-  static {
-    for (int i = 0; i < NUM_LOCKS; i++) {
-      LOCKS[i] = new Object();
-    }
-  }
-
   private final List<Operator> _operators;
   private final ExecutorService _executorService;
   private final BrokerRequest _brokerRequest;
@@ -68,7 +55,6 @@ public class MCombineGroupByOperator extends BaseOperator {
 
   /**
    * Constructor for the class.
-   * - Initializes lock objects to synchronize updating aggregation group-by results.
    *
    * @param operators List of operators, whose result needs to be combined.
    * @param executorService Executor service to use for multi-threaded portions of combine.
@@ -123,16 +109,13 @@ public class MCombineGroupByOperator extends BaseOperator {
    * This method combines the result blocks from underlying operators and builds a
    * merged, sorted and trimmed result block.
    * 1. Result blocks from underlying operators are merged concurrently into a
-   *   HashMap, with appropriate synchronizations. Result blocks themselves are stored
-   *   in the specified blocks[].
-   *   - The key in this concurrent map is the group-by key, and value is an array of
-   *     Serializables (one for each aggregation function).
-   *   - Synchronization is provided by locking the group-key that is to be modified.
-   *
-   * 2. The result of the concurrent map is then translated into what is expected by
-   *    the broker (Map<String, Serializable>).
+   *   {@link GroupByCombineTable}. Result blocks themselves are stored in the specified blocks[].
+   *   - The table is keyed on the values of the group-by columns, and accumulates the
+   *     results of simple aggregation functions into primitive arrays.
+   *   - Synchronization is provided by locking the partition of the table that is to be modified.
    *
-   * 3. This result is then sorted and then trimmed as per 'TOP N' in the brokerRequest.
+   * 2. The result of the table is then sorted and trimmed as per 'TOP N' in the brokerRequest,
+   *    and translated into what is expected by the broker (Map<String, Serializable>).
    *
    * @return IntermediateResultBlock containing the final results from combine operation.
    */
@@ -143,13 +126,13 @@ public class MCombineGroupByOperator extends BaseOperator {
     final CountDownLatch operatorLatch = new CountDownLatch(numOperators);
 
     final List<AggregationInfo> aggregationsInfo = _brokerRequest.getAggregationsInfo();
-    final int numAggrFunctions = aggregationsInfo.size();
 
     // TODO: use new aggregation functions to combine results.
     final List<AggregationFunction> aggregationFunctions =
         AggregationFunctionFactory.getAggregationFunction(_brokerRequest);
 
-    final Map<String, Serializable[]> resultsMap = new ConcurrentHashMap<>();
+    final GroupByCombineTable combineTable =
+        new GroupByCombineTable(aggregationsInfo, aggregationFunctions, _brokerRequest.getGroupBy().getColumnsSize());
 
     for (int i = 0; i < numOperators; i++) {
       final int index = i;
@@ -164,33 +147,11 @@ public class MCombineGroupByOperator extends BaseOperator {
             groupByResult = blocks[index].getAggregationGroupByResult();
 
             if (groupByResult != null) {
-              // Iterate over the group-by keys, for each key, update the group-by result in the resultsMap.
-              Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupByResult.getGroupKeyIterator();
-
-              while (groupKeyIterator.hasNext()) {
-                GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
-                String groupKeyString = groupKey.getStringKey();
-
-                // HashCode method might return negative value, make it non-negative
-                int lockIndex = (groupKeyString.hashCode() & Integer.MAX_VALUE) % NUM_LOCKS;
-                synchronized (LOCKS[lockIndex]) {
-                  Serializable[] results = resultsMap.get(groupKeyString);
-
-                  if (results == null) {
-                    results = new Serializable[numAggrFunctions];
-                    for (int j = 0; j < numAggrFunctions; j++) {
-                      results[j] = groupByResult.getResultForKey(groupKey, j);
-                    }
-                    resultsMap.put(groupKeyString, results);
-                  } else {
-                    for (int j = 0; j < numAggrFunctions; j++) {
-                      results[j] = aggregationFunctions.get(j)
-                          .combineTwoValues(results[j], groupByResult.getResultForKey(groupKey, j));
-                    }
-                  }
-                }
-              }
+              combineTable.merge(groupByResult);
             }
+          } catch (QueryCancelledException e) {
+            LOGGER.debug("Query cancelled while processing CombineGroupBy for index {}: {}", index, e.getMessage());
+            blocks[index] = new IntermediateResultsBlock(QueryException.EXECUTION_TIMEOUT_ERROR, e);
           } catch (Exception e) {
             LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}",
                 index, _operators.get(index).getClass().getName(), e);
@@ -202,18 +163,17 @@ public class MCombineGroupByOperator extends BaseOperator {
       });
     }
 
-    boolean opCompleted = operatorLatch.await(_timeOutMs, TimeUnit.SECONDS);
+    boolean opCompleted = operatorLatch.await(_timeOutMs, TimeUnit.MILLISECONDS);
     if (!opCompleted) {
       // If this happens, the broker side should already timed out, just log the error in server side.
       LOGGER.error("Timed out while combining group-by results, after {}ms.", _timeOutMs);
       return new IntermediateResultsBlock(new TimeoutException("CombineGroupBy timed out."));
     }
 
-    // Use aggregationGroupByOperatorService to trim the resultsMap
+    // Use aggregationGroupByOperatorService to trim the combined results
     AggregationGroupByOperatorService aggregationGroupByOperatorService =
         new AggregationGroupByOperatorService(_brokerRequest.getAggregationsInfo(), _brokerRequest.getGroupBy());
-    List<Map<String, Serializable>> trimmedResults =
-        aggregationGroupByOperatorService.trimToSize(resultsMap, numAggrFunctions);
+    List<Map<String, Serializable>> trimmedResults = aggregationGroupByOperatorService.trimToSize(combineTable);
 
     IntermediateResultsBlock mergedBlock = buildResultBlock(aggregationFunctions, trimmedResults, blocks);
     // Update execution statistics.
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.operator;
 
+import com.linkedin.pinot.common.exception.QueryCancelledException;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.common.Block;
@@ -111,6 +112,9 @@ public class MCombineOperator extends BaseOperator {
                 CombineService.mergeTwoBlocks(_brokerRequest, mergedBlock, blockToMerge);
               }
             }
+          } catch (QueryCancelledException e) {
+            LOGGER.debug("Query cancelled in the MCombine operator: {}", e.getMessage());
+            mergedBlock = new IntermediateResultsBlock(QueryException.EXECUTION_TIMEOUT_ERROR, e);
           } catch (Exception e) {
             LOGGER.error("exception in the MCombine operator ", e);
             mergedBlock = new IntermediateResultsBlock(e);
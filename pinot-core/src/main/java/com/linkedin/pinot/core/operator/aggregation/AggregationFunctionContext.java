@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.operator.aggregation;
 
+import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunctionFactory;
@@ -30,11 +31,11 @@ public class AggregationFunctionContext {
   /**
    * Constructor for the class.
    *
-   * @param aggFuncName
+   * @param aggregationInfo
    * @param aggrColumns
    */
-  public AggregationFunctionContext(String aggFuncName, String[] aggrColumns) {
-    _aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggFuncName);
+  public AggregationFunctionContext(AggregationInfo aggregationInfo, String[] aggrColumns) {
+    _aggregationFunction = AggregationFunctionFactory.getAggregationFunction(aggregationInfo);
     _aggrColumns = aggrColumns;
   }
 
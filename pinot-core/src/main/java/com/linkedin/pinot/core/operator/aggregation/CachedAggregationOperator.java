@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+
+
+/**
+ * Aggregation operator backed by the {@link SegmentResultCache}.
+ * <ul>
+ *   <li>On a cache hit, returns a copy of the cached per-segment result without touching the segment.</li>
+ *   <li>On a cache miss, runs the underlying aggregation operator and caches its result before returning it.</li>
+ * </ul>
+ */
+public class CachedAggregationOperator extends BaseOperator {
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.CacheKey _cacheKey;
+  private final SegmentResultCache.CachedResult _cachedResult;
+  private final Operator _aggregationOperator;
+  private int _nextBlockCallCounter = 0;
+  private ExecutionStatistics _executionStatistics;
+
+  /**
+   * Constructor for a cache hit.
+   *
+   * @param cachedResult Cached per-segment result.
+   */
+  public CachedAggregationOperator(SegmentResultCache.CachedResult cachedResult) {
+    Preconditions.checkNotNull(cachedResult);
+    _segmentResultCache = null;
+    _cacheKey = null;
+    _cachedResult = cachedResult;
+    _aggregationOperator = null;
+  }
+
+  /**
+   * Constructor for a cache miss.
+   *
+   * @param segmentResultCache Cache to put the result into.
+   * @param cacheKey Cache key of the result.
+   * @param aggregationOperator Aggregation operator computing the per-segment result.
+   */
+  public CachedAggregationOperator(SegmentResultCache segmentResultCache, SegmentResultCache.CacheKey cacheKey,
+      Operator aggregationOperator) {
+    Preconditions.checkNotNull(segmentResultCache);
+    Preconditions.checkNotNull(cacheKey);
+    Preconditions.checkNotNull(aggregationOperator);
+    _segmentResultCache = segmentResultCache;
+    _cacheKey = cacheKey;
+    _cachedResult = null;
+    _aggregationOperator = aggregationOperator;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return getNextBlock(new BlockId(_nextBlockCallCounter++));
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    if (blockId.getId() > 0) {
+      return null;
+    }
+
+    if (_cachedResult != null) {
+      _executionStatistics = _cachedResult.getExecutionStatistics();
+      return _cachedResult.getResultsBlock();
+    }
+
+    // The results block is put into the cache before being returned, as the combine operator merges into it.
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) _aggregationOperator.nextBlock();
+    _executionStatistics = _aggregationOperator.getExecutionStatistics();
+    _segmentResultCache.put(_cacheKey, resultsBlock, _executionStatistics);
+    return resultsBlock;
+  }
+
+  @Override
+  public boolean open() {
+    if (_aggregationOperator != null) {
+      _aggregationOperator.open();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean close() {
+    if (_aggregationOperator != null) {
+      _aggregationOperator.close();
+    }
+    return true;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics;
+  }
+}
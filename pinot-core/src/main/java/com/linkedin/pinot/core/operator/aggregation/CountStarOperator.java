@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.IndexBasedDocIdSets;
+import com.linkedin.pinot.core.operator.docidsets.SizeBasedDocIdSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Aggregation operator for queries with only COUNT(*) aggregations. The count is computed directly from the filter
+ * without projecting any column:
+ * <ul>
+ *   <li>If the filter is answered entirely from sorted/bitmap indexes, the count is the cardinality of the combined
+ *   bitmap.</li>
+ *   <li>If the filter matches the entire segment, the count is the number of docs.</li>
+ *   <li>Otherwise, the matching doc ids are counted through the filter iterator.</li>
+ * </ul>
+ */
+public class CountStarOperator extends BaseOperator {
+
+  private final List<AggregationInfo> _aggregationInfoList;
+  private final Operator _filterOperator;
+  private final long _numTotalRawDocs;
+  private int _nextBlockCallCounter = 0;
+  private ExecutionStatistics _executionStatistics;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param aggregationsInfoList List of AggregationInfo, all of which must be COUNT.
+   * @param filterOperator Filter operator.
+   * @param numTotalRawDocs Number of total raw documents.
+   */
+  public CountStarOperator(List<AggregationInfo> aggregationsInfoList, Operator filterOperator,
+      long numTotalRawDocs) {
+    Preconditions.checkArgument((aggregationsInfoList != null) && (aggregationsInfoList.size() > 0));
+    Preconditions.checkNotNull(filterOperator);
+
+    _aggregationInfoList = aggregationsInfoList;
+    _filterOperator = filterOperator;
+    _numTotalRawDocs = numTotalRawDocs;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return getNextBlock(new BlockId(_nextBlockCallCounter++));
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    if (blockId.getId() > 0) {
+      return null;
+    }
+
+    FilterBlockDocIdSet filterBlockDocIdSet =
+        (FilterBlockDocIdSet) _filterOperator.nextBlock().getBlockDocIdSet();
+    long count;
+    if (filterBlockDocIdSet instanceof SizeBasedDocIdSet) {
+      // Max doc id is exclusive for size based doc id set.
+      count = filterBlockDocIdSet.getMaxDocId();
+    } else if (IndexBasedDocIdSets.isIndexBased(filterBlockDocIdSet)) {
+      count = IndexBasedDocIdSets.getNumDocsInRange(IndexBasedDocIdSets.toBitmap(filterBlockDocIdSet),
+          filterBlockDocIdSet.getMinDocId(), filterBlockDocIdSet.getMaxDocId());
+    } else {
+      count = 0;
+      BlockDocIdIterator iterator = filterBlockDocIdSet.iterator();
+      while (iterator.next() != Constants.EOF) {
+        count++;
+      }
+    }
+
+    _executionStatistics =
+        new ExecutionStatistics(count, filterBlockDocIdSet.getNumEntriesScannedInFilter(), 0L, _numTotalRawDocs);
+
+    List<Serializable> aggregationResults = new ArrayList<>(_aggregationInfoList.size());
+    for (int i = 0; i < _aggregationInfoList.size(); i++) {
+      aggregationResults.add(new MutableLongValue(count));
+    }
+    return new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_aggregationInfoList),
+        aggregationResults);
+  }
+
+  @Override
+  public boolean open() {
+    _filterOperator.open();
+    return true;
+  }
+
+  @Override
+  public boolean close() {
+    _filterOperator.close();
+    return true;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics;
+  }
+}
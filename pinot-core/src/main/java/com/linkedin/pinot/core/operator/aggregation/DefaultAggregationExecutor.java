@@ -20,6 +20,7 @@ import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunctionFactory;
 import com.linkedin.pinot.core.operator.aggregation.function.PercentileestAggregationFunction;
@@ -27,11 +28,15 @@ import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import com.linkedin.pinot.core.operator.docvalsets.ProjectionBlockValSet;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest.TDigest;
 import com.linkedin.pinot.core.query.utils.Pair;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +53,9 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
   // Array of result holders, one for each aggregation.
   private final AggregationResultHolder[] _resultHolderArray;
 
+  // Reusable array for the min and max values of a block, for aggregations on sorted dictionaries.
+  private final double[] _reusableBoundValues = new double[2];
+
   boolean _inited = false;
   boolean _finished = false;
 
@@ -60,8 +68,7 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
     for (int i = 0; i < _numAggrFunc; i++) {
       AggregationInfo aggregationInfo = aggregationInfoList.get(i);
       String[] columns = aggregationInfo.getAggregationParams().get("column").trim().split(",");
-      _aggrFuncContextArray[i] = new AggregationFunctionContext(
-          aggregationInfo.getAggregationType(), columns);
+      _aggrFuncContextArray[i] = new AggregationFunctionContext(aggregationInfo, columns);
     }
     _resultHolderArray = new AggregationResultHolder[_numAggrFunc];
   }
@@ -149,11 +156,21 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
             (Object) blockValueSet.getSingleValues());
         break;
 
-      case AggregationFunctionFactory.SUM_AGGREGATION_FUNCTION:
-      case AggregationFunctionFactory.AVG_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.MAX_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.MIN_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.MINMAXRANGE_AGGREGATION_FUNCTION:
+        BlockMetadata blockMetadata = projectionBlock.getDataBlock(aggrColumn).getMetadata();
+        Dictionary dictionary = (blockMetadata != null) ? blockMetadata.getDictionary() : null;
+        if (isSortedNumericDictionary(dictionary)) {
+          aggregateOnDictionaryBounds(length, aggregationFunction, resultHolder, blockValueSet.getDictionaryIds(),
+              dictionary);
+        } else {
+          aggregationFunction.aggregate(length, resultHolder, (Object) blockValueSet.getSingleValues());
+        }
+        break;
+
+      case AggregationFunctionFactory.SUM_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.AVG_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILE50_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILE90_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILE95_AGGREGATION_FUNCTION:
@@ -162,6 +179,10 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
       case AggregationFunctionFactory.PERCENTILEEST90_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILEEST95_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILEEST99_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST50_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST90_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST95_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST99_AGGREGATION_FUNCTION:
         aggregationFunction.aggregate(length, resultHolder,
             (Object) blockValueSet.getSingleValues());
         break;
@@ -179,6 +200,10 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
       case AggregationFunctionFactory.PERCENTILEEST90_MV_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILEEST95_MV_AGGREGATION_FUNCTION:
       case AggregationFunctionFactory.PERCENTILEEST99_MV_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST50_MV_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST90_MV_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST95_MV_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILETDIGEST99_MV_AGGREGATION_FUNCTION:
         aggregationFunction.aggregate(length, resultHolder,
             (Object) blockValueSet.getMultiValues());
         break;
@@ -188,6 +213,46 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
     }
   }
 
+  /**
+   * Returns whether the dictionary is sorted on numeric values, i.e. the order of the dictionary ids is the order of
+   * the values. Dictionaries of immutable segments are sorted, but string values do not sort as numbers, and
+   * dictionaries of realtime segments are in insertion order.
+   */
+  private static boolean isSortedNumericDictionary(Dictionary dictionary) {
+    return (dictionary instanceof ImmutableDictionaryReader) && !(dictionary instanceof StringDictionary);
+  }
+
+  /**
+   * Helper method to perform 'min', 'max' or 'minmaxrange' aggregation on a column with a sorted dictionary.
+   * <p>The min and max values of the block are the values of its min and max dictionary ids, so the block is scanned
+   * on dictionary ids, and only these two values are converted and aggregated.
+   *
+   * @param length number of documents in the block.
+   * @param aggregationFunction 'min', 'max' or 'minmaxrange' aggregation function.
+   * @param resultHolder result holder.
+   * @param dictIds dictionary ids of the block.
+   * @param dictionary sorted dictionary of the column.
+   */
+  private void aggregateOnDictionaryBounds(int length, AggregationFunction aggregationFunction,
+      AggregationResultHolder resultHolder, int[] dictIds, Dictionary dictionary) {
+    if (length == 0) {
+      return;
+    }
+    int minDictId = dictIds[0];
+    int maxDictId = minDictId;
+    for (int i = 1; i < length; i++) {
+      int dictId = dictIds[i];
+      if (dictId < minDictId) {
+        minDictId = dictId;
+      } else if (dictId > maxDictId) {
+        maxDictId = dictId;
+      }
+    }
+    _reusableBoundValues[0] = dictionary.getDoubleValue(minDictId);
+    _reusableBoundValues[1] = dictionary.getDoubleValue(maxDictId);
+    aggregationFunction.aggregate(_reusableBoundValues.length, resultHolder, (Object) _reusableBoundValues);
+  }
+
   /**
    * {@inheritDoc}
    * Must be called after all calls to 'process' are done, and before getResult() can be called.
@@ -257,11 +322,11 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
         }
 
       case DISTINCTCOUNT_SET:
-        IntOpenHashSet intOpenHashSet = resultHolder.getResult();
-        if (intOpenHashSet == null) {
-          return new IntOpenHashSet();
+        DistinctCountSketch distinctCountSketch = resultHolder.getResult();
+        if (distinctCountSketch == null) {
+          return new DistinctCountSketch();
         } else {
-          return intOpenHashSet;
+          return distinctCountSketch;
         }
 
       case DISTINCTCOUNTHLL_HYPERLOGLOG:
@@ -296,6 +361,14 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
           return quantileDigest;
         }
 
+      case PERCENTILETDIGEST_TDIGEST:
+        TDigest tDigest = resultHolder.getResult();
+        if (tDigest == null) {
+          return new TDigest();
+        } else {
+          return tDigest;
+        }
+
       default:
         throw new RuntimeException(
             "Unsupported result data type " + resultDataType + " in class " + getClass().getName());
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Aggregation operator for queries whose filter matches the entire segment, with only COUNT, MIN, MAX and MINMAXRANGE
+ * aggregations. The results are computed from the segment metadata and dictionaries without reading any document:
+ * <ul>
+ *   <li>COUNT is the number of raw docs of the segment.</li>
+ *   <li>MIN and MAX are the first and last values of the sorted dictionary of the column.</li>
+ * </ul>
+ * See {@link com.linkedin.pinot.core.plan.MetadataBasedAggregationPlanNode} for the queries this operator applies to.
+ */
+public class MetadataBasedAggregationOperator extends BaseOperator {
+
+  private final List<AggregationInfo> _aggregationInfoList;
+  private final IndexSegment _indexSegment;
+  private int _nextBlockCallCounter = 0;
+  private ExecutionStatistics _executionStatistics;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param aggregationsInfoList List of AggregationInfo, all of which must be COUNT, MIN, MAX or MINMAXRANGE.
+   * @param indexSegment Immutable segment, with sorted dictionaries on the MIN, MAX and MINMAXRANGE columns.
+   */
+  public MetadataBasedAggregationOperator(List<AggregationInfo> aggregationsInfoList, IndexSegment indexSegment) {
+    Preconditions.checkArgument((aggregationsInfoList != null) && (aggregationsInfoList.size() > 0));
+    Preconditions.checkNotNull(indexSegment);
+
+    _aggregationInfoList = aggregationsInfoList;
+    _indexSegment = indexSegment;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return getNextBlock(new BlockId(_nextBlockCallCounter++));
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    if (blockId.getId() > 0) {
+      return null;
+    }
+
+    long numTotalRawDocs = _indexSegment.getSegmentMetadata().getTotalRawDocs();
+    List<Serializable> aggregationResults = new ArrayList<>(_aggregationInfoList.size());
+    for (AggregationInfo aggregationInfo : _aggregationInfoList) {
+      String aggregationType = aggregationInfo.getAggregationType().toLowerCase();
+      if (aggregationType.equals("count")) {
+        aggregationResults.add(new MutableLongValue(numTotalRawDocs));
+        continue;
+      }
+
+      String column = aggregationInfo.getAggregationParams().get("column").trim();
+      Dictionary dictionary = _indexSegment.getDataSource(column).getDictionary();
+      double minValue = dictionary.getDoubleValue(0);
+      double maxValue = dictionary.getDoubleValue(dictionary.length() - 1);
+      switch (aggregationType) {
+        case "min":
+          aggregationResults.add(minValue);
+          break;
+        case "max":
+          aggregationResults.add(maxValue);
+          break;
+        case "minmaxrange":
+          aggregationResults.add(new MinMaxRangeAggregationFunction.MinMaxRangePair(minValue, maxValue));
+          break;
+        default:
+          throw new UnsupportedOperationException(
+              "Unsupported aggregation function: " + aggregationType + " for metadata based aggregation");
+      }
+    }
+
+    // All the docs match, and no entry is scanned.
+    _executionStatistics = new ExecutionStatistics(numTotalRawDocs, 0L, 0L, numTotalRawDocs);
+
+    return new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_aggregationInfoList),
+        aggregationResults);
+  }
+
+  @Override
+  public boolean open() {
+    return true;
+  }
+
+  @Override
+  public boolean close() {
+    return true;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics;
+  }
+}
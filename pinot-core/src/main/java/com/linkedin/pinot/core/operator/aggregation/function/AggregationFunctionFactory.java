@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.operator.aggregation.function;
 
+import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
 
 
@@ -39,6 +40,10 @@ public class AggregationFunctionFactory {
   public static final String PERCENTILEEST90_AGGREGATION_FUNCTION = "percentileest90";
   public static final String PERCENTILEEST95_AGGREGATION_FUNCTION = "percentileest95";
   public static final String PERCENTILEEST99_AGGREGATION_FUNCTION = "percentileest99";
+  public static final String PERCENTILETDIGEST50_AGGREGATION_FUNCTION = "percentiletdigest50";
+  public static final String PERCENTILETDIGEST90_AGGREGATION_FUNCTION = "percentiletdigest90";
+  public static final String PERCENTILETDIGEST95_AGGREGATION_FUNCTION = "percentiletdigest95";
+  public static final String PERCENTILETDIGEST99_AGGREGATION_FUNCTION = "percentiletdigest99";
 
   public static final String COUNT_MV_AGGREGATION_FUNCTION = "countmv";
   public static final String MAX_MV_AGGREGATION_FUNCTION = "maxmv";
@@ -56,6 +61,29 @@ public class AggregationFunctionFactory {
   public static final String PERCENTILEEST90_MV_AGGREGATION_FUNCTION = "percentileest90mv";
   public static final String PERCENTILEEST95_MV_AGGREGATION_FUNCTION = "percentileest95mv";
   public static final String PERCENTILEEST99_MV_AGGREGATION_FUNCTION = "percentileest99mv";
+  public static final String PERCENTILETDIGEST50_MV_AGGREGATION_FUNCTION = "percentiletdigest50mv";
+  public static final String PERCENTILETDIGEST90_MV_AGGREGATION_FUNCTION = "percentiletdigest90mv";
+  public static final String PERCENTILETDIGEST95_MV_AGGREGATION_FUNCTION = "percentiletdigest95mv";
+  public static final String PERCENTILETDIGEST99_MV_AGGREGATION_FUNCTION = "percentiletdigest99mv";
+
+  /**
+   * Given the aggregation info, create and return a new instance of the corresponding aggregation function.
+   * <p>For 'fasthll', the log2m of the HLL values to merge is read from the aggregation params if set while
+   * pre-processing the request, and defaults to {@link HllConstants#DEFAULT_LOG2M} otherwise.
+   *
+   * @param aggregationInfo aggregation info
+   * @return aggregation function
+   */
+  public static AggregationFunction getAggregationFunction(AggregationInfo aggregationInfo) {
+    String functionName = aggregationInfo.getAggregationType();
+    if (functionName.equalsIgnoreCase(FASTHLL_AGGREGATION_FUNCTION)) {
+      String hllLog2m = aggregationInfo.getAggregationParams().get(HllConstants.HLL_LOG2M_AGGREGATION_PARAM);
+      if (hllLog2m != null) {
+        return new FastHllAggregationFunction(Integer.parseInt(hllLog2m));
+      }
+    }
+    return getAggregationFunction(functionName);
+  }
 
   /**
    * Given the name of aggregation function, create and return a new instance
@@ -91,7 +119,6 @@ public class AggregationFunctionFactory {
         return new DistinctCountHLLAggregationFunction();
 
       case FASTHLL_AGGREGATION_FUNCTION:
-        // TODO: Add support for configurable hll per segment.
         return new FastHllAggregationFunction(HllConstants.DEFAULT_LOG2M);
 
       case PERCENTILE50_AGGREGATION_FUNCTION:
@@ -118,6 +145,18 @@ public class AggregationFunctionFactory {
       case PERCENTILEEST99_AGGREGATION_FUNCTION:
         return new PercentileestAggregationFunction(99);
 
+      case PERCENTILETDIGEST50_AGGREGATION_FUNCTION:
+        return new PercentileTDigestAggregationFunction(50);
+
+      case PERCENTILETDIGEST90_AGGREGATION_FUNCTION:
+        return new PercentileTDigestAggregationFunction(90);
+
+      case PERCENTILETDIGEST95_AGGREGATION_FUNCTION:
+        return new PercentileTDigestAggregationFunction(95);
+
+      case PERCENTILETDIGEST99_AGGREGATION_FUNCTION:
+        return new PercentileTDigestAggregationFunction(99);
+
       case COUNT_MV_AGGREGATION_FUNCTION:
         return new CountMVAggregationFunction();
 
@@ -166,6 +205,18 @@ public class AggregationFunctionFactory {
       case PERCENTILEEST99_MV_AGGREGATION_FUNCTION:
         return new PercentileestMVAggregationFunction(99);
 
+      case PERCENTILETDIGEST50_MV_AGGREGATION_FUNCTION:
+        return new PercentileTDigestMVAggregationFunction(50);
+
+      case PERCENTILETDIGEST90_MV_AGGREGATION_FUNCTION:
+        return new PercentileTDigestMVAggregationFunction(90);
+
+      case PERCENTILETDIGEST95_MV_AGGREGATION_FUNCTION:
+        return new PercentileTDigestMVAggregationFunction(95);
+
+      case PERCENTILETDIGEST99_MV_AGGREGATION_FUNCTION:
+        return new PercentileTDigestMVAggregationFunction(99);
+
       default:
         throw new RuntimeException("Unsupported aggregation function: " + functionName);
     }
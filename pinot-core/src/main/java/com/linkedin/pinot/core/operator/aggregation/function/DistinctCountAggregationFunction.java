@@ -18,7 +18,7 @@ package com.linkedin.pinot.core.operator.aggregation.function;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.operator.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 import java.util.List;
 
 
@@ -45,14 +45,14 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
     final double[] values = (double[]) valueArray[0];
     Preconditions.checkState(length <= values.length);
 
-    IntOpenHashSet valueSet = resultHolder.getResult();
-    if (valueSet == null) {
-      valueSet = new IntOpenHashSet();
-      resultHolder.setValue(valueSet);
+    DistinctCountSketch sketch = resultHolder.getResult();
+    if (sketch == null) {
+      sketch = new DistinctCountSketch();
+      resultHolder.setValue(sketch);
     }
 
     for (int i = 0; i < length; i++) {
-      valueSet.add((int) values[i]);
+      sketch.offer((int) values[i]);
     }
   }
 
@@ -76,12 +76,12 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
 
     for (int i = 0; i < length; i++) {
       int groupKey = groupKeys[i];
-      IntOpenHashSet valueSet = resultHolder.getResult(groupKey);
-      if (valueSet == null) {
-        valueSet = new IntOpenHashSet();
-        resultHolder.setValueForKey(groupKey, valueSet);
+      DistinctCountSketch sketch = resultHolder.getResult(groupKey);
+      if (sketch == null) {
+        sketch = new DistinctCountSketch();
+        resultHolder.setValueForKey(groupKey, sketch);
       }
-      valueSet.add((int) values[i]);
+      sketch.offer((int) values[i]);
     }
   }
 
@@ -104,12 +104,12 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
     for (int i = 0; i < length; i++) {
       int value = (int) values[i];
       for (int groupKey : docIdToGroupKeys[i]) {
-        IntOpenHashSet valueSet = resultHolder.getResult(groupKey);
-        if (valueSet == null) {
-          valueSet = new IntOpenHashSet();
-          resultHolder.setValueForKey(groupKey, valueSet);
+        DistinctCountSketch sketch = resultHolder.getResult(groupKey);
+        if (sketch == null) {
+          sketch = new DistinctCountSketch();
+          resultHolder.setValueForKey(groupKey, sketch);
         }
-        valueSet.add(value);
+        sketch.offer(value);
       }
     }
   }
@@ -18,7 +18,7 @@ package com.linkedin.pinot.core.operator.aggregation.function;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.operator.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 
 import java.util.List;
 
@@ -46,15 +46,15 @@ public class DistinctCountMVAggregationFunction implements AggregationFunction {
     final double[][] values = (double[][]) valueArray[0];
     Preconditions.checkState(length <= values.length);
 
-    IntOpenHashSet valueSet = resultHolder.getResult();
-    if (valueSet == null) {
-      valueSet = new IntOpenHashSet();
-      resultHolder.setValue(valueSet);
+    DistinctCountSketch sketch = resultHolder.getResult();
+    if (sketch == null) {
+      sketch = new DistinctCountSketch();
+      resultHolder.setValue(sketch);
     }
 
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < values[i].length; ++j) {
-        valueSet.add((int) values[i][j]);
+        sketch.offer((int) values[i][j]);
       }
     }
   }
@@ -78,13 +78,13 @@ public class DistinctCountMVAggregationFunction implements AggregationFunction {
     Preconditions.checkState(length <= values.length);
     for (int i = 0; i < length; i++) {
       int groupKey = groupKeys[i];
-      IntOpenHashSet valueSet = resultHolder.getResult(groupKey);
-      if (valueSet == null) {
-        valueSet = new IntOpenHashSet();
-        resultHolder.setValueForKey(groupKey, valueSet);
+      DistinctCountSketch sketch = resultHolder.getResult(groupKey);
+      if (sketch == null) {
+        sketch = new DistinctCountSketch();
+        resultHolder.setValueForKey(groupKey, sketch);
       }
       for (double value : values[i]) {
-        valueSet.add((int) value);
+        sketch.offer((int) value);
       }
     }
   }
@@ -106,13 +106,13 @@ public class DistinctCountMVAggregationFunction implements AggregationFunction {
     Preconditions.checkState(length <= values.length);
     for (int i = 0; i < length; i++) {
       for (int groupKey : docIdToGroupKeys[i]) {
-        IntOpenHashSet valueSet = resultHolder.getResult(groupKey);
-        if (valueSet == null) {
-          valueSet = new IntOpenHashSet();
-          resultHolder.setValueForKey(groupKey, valueSet);
+        DistinctCountSketch sketch = resultHolder.getResult(groupKey);
+        if (sketch == null) {
+          sketch = new DistinctCountSketch();
+          resultHolder.setValueForKey(groupKey, sketch);
         }
         for (double value : values[i]) {
-          valueSet.add((int) value);
+          sketch.offer((int) value);
         }
       }
     }
@@ -20,10 +20,11 @@ import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest.TDigest;
 import com.linkedin.pinot.core.query.utils.Pair;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.Serializable;
 import java.util.Iterator;
 
@@ -57,6 +58,42 @@ public class AggregationGroupByResult {
     return _groupKeyGenerator.getUniqueGroupKeys();
   }
 
+  /**
+   * Returns an iterator for group-by keys carrying the values of the group-by columns instead of the string keys.
+   * @return
+   */
+  public Iterator<GroupKeyGenerator.GroupKey> getGroupKeyWithValuesIterator() {
+    return _groupKeyGenerator.getUniqueGroupKeysWithValues();
+  }
+
+  /**
+   * Returns the result data type of the aggregation function at the given index.
+   */
+  public AggregationFunction.ResultDataType getResultDataType(int index) {
+    return _resultDataType[index];
+  }
+
+  /**
+   * Given a group-by key and an index into the result holder array, returns the corresponding aggregation result as a
+   * primitive double, without boxing. Only supported for LONG and DOUBLE result data types.
+   *
+   * @param groupKey
+   * @param index
+   * @return
+   */
+  public double getDoubleResultForKey(GroupKeyGenerator.GroupKey groupKey, int index) {
+    switch (_resultDataType[index]) {
+      case LONG:
+      case DOUBLE:
+        return _resultHolder[index].getDoubleResult(groupKey.getFirst());
+
+      default:
+        throw new RuntimeException(
+            "Unsupported result data type " + _resultDataType[index] + " for double result in class "
+                + getClass().getName());
+    }
+  }
+
   /**
    *
    * Given a group-by key and an index into the result holder array, returns
@@ -94,7 +131,7 @@ public class AggregationGroupByResult {
             doubleDoublePair.getSecond());
 
       case DISTINCTCOUNT_SET:
-        return (IntOpenHashSet) _resultHolder[index].getResult(groupId);
+        return (DistinctCountSketch) _resultHolder[index].getResult(groupId);
 
       case DISTINCTCOUNTHLL_HYPERLOGLOG:
       case HLL_PREAGGREGATED:
@@ -106,6 +143,9 @@ public class AggregationGroupByResult {
       case PERCENTILEEST_QUANTILEDIGEST:
         return (QuantileDigest) _resultHolder[index].getResult(groupId);
 
+      case PERCENTILETDIGEST_TDIGEST:
+        return (TDigest) _resultHolder[index].getResult(groupId);
+
       default:
         throw new RuntimeException(
             "Unsupported result data type " + _resultDataType[index] + " in class " + getClass().getName());
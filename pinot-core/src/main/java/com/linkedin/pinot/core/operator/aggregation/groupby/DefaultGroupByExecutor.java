@@ -263,7 +263,7 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
       AggregationInfo aggregationInfo = aggregationInfoList.get(i);
       String[] columns = aggregationInfo.getAggregationParams().get("column").trim().split(",");
 
-      _aggrFuncContextArray[i] = new AggregationFunctionContext(aggregationInfo.getAggregationType(), columns);
+      _aggrFuncContextArray[i] = new AggregationFunctionContext(aggregationInfo, columns);
       _resultHolderArray[i] =
           ResultHolderFactory.getGroupByResultHolder(_aggrFuncContextArray[i].getAggregationFunction(), maxNumResults,
               trimSize);
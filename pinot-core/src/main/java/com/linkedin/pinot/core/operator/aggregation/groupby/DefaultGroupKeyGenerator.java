@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.core.operator.aggregation.groupby;
 
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.BlockValSet;
@@ -30,7 +32,9 @@ import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 
@@ -52,6 +56,10 @@ import java.util.NoSuchElementException;
  * the group-by column dictionary ids, and map the int arrays onto continuous indices, use the indices as the group key.
  * (ARRAY_MAP_BASED storage type)
  *
+ * Group-by columns can also be time bucket expressions (see {@link TimeBucketExpression}), in which case the dictionary
+ * ids of the column are mapped once per segment onto bucket ids, and the number of buckets is used as the cardinality
+ * of the column, which keeps the key space small when grouping by time.
+ *
  * All the logic is maintained internally, and to the outside world, the group keys are always int type.
  */
 public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
@@ -73,6 +81,13 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
 
   private final Dictionary[] _dictionaries;
 
+  // For time bucket group-by columns, mapping from dictionary id to bucket id and values of the buckets, null for other
+  // group-by columns.
+  private final int[][] _dictIdToBucketId;
+  private final Object[][] _bucketValues;
+  // Reusable arrays for the bucket ids of time bucket group-by columns.
+  private final int[][] _reusableBucketIds;
+
   // For projectionBlockValSet of columns.
   private final BlockValSet[] _blockValSets;
 
@@ -113,29 +128,41 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    * Constructor for the class. Initializes data members (reusable arrays).
    *
    * @param projectionBlock Projection block for which to generate group keys
-   * @param groupByColumns group-by columns.
+   * @param groupByColumns group-by columns or time bucket expressions.
    */
   public DefaultGroupKeyGenerator(ProjectionBlock projectionBlock, String[] groupByColumns) {
     _numGroupByColumns = groupByColumns.length;
-    _groupByColumns = groupByColumns;
+    _groupByColumns = new String[_numGroupByColumns];
 
     _cardinalities = new int[_numGroupByColumns];
     _isSingleValueGroupByColumn = new boolean[_numGroupByColumns];
     _dictionaries = new Dictionary[_numGroupByColumns];
     _blockValSets = new BlockValSet[_numGroupByColumns];
     _reusableSingleDictIds = new int[_numGroupByColumns][];
+    _dictIdToBucketId = new int[_numGroupByColumns][];
+    _bucketValues = new Object[_numGroupByColumns][];
+    _reusableBucketIds = new int[_numGroupByColumns][];
 
     // Track the max number of values among all multi value group-by columns.
     int maxNumMultiValues = 0;
 
     boolean longOverflow = false;
     for (int i = 0; i < _numGroupByColumns; i++) {
-      Block block = projectionBlock.getBlock(groupByColumns[i]);
+      TimeBucketExpression timeBucketExpression = TimeBucketExpression.fromGroupByColumn(groupByColumns[i]);
+      _groupByColumns[i] = (timeBucketExpression == null) ? groupByColumns[i] : timeBucketExpression.getColumn();
+      Block block = projectionBlock.getBlock(_groupByColumns[i]);
 
       // Store group-by column cardinalities and update cardinality product.
       BlockMetadata blockMetadata = block.getMetadata();
       _dictionaries[i] = blockMetadata.getDictionary();
-      int cardinality = _dictionaries[i].length();
+      int cardinality;
+      if (timeBucketExpression == null) {
+        cardinality = _dictionaries[i].length();
+      } else {
+        Preconditions.checkArgument(blockMetadata.isSingleValue(),
+            "Time bucket is only supported on single value columns, got: %s", _groupByColumns[i]);
+        cardinality = buildBuckets(i, timeBucketExpression);
+      }
       _cardinalities[i] = cardinality;
       if (!longOverflow) {
         if (_cardinalityProduct > Long.MAX_VALUE / cardinality) {
@@ -186,6 +213,76 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     }
   }
 
+  /**
+   * Helper method to build the mapping from dictionary id to bucket id for a time bucket group-by column.
+   *
+   * @param index index of the group-by column.
+   * @param timeBucketExpression time bucket expression of the group-by column.
+   * @return number of buckets.
+   */
+  private int buildBuckets(int index, TimeBucketExpression timeBucketExpression) {
+    Dictionary dictionary = _dictionaries[index];
+    int cardinality = dictionary.length();
+    int[] dictIdToBucketId = new int[cardinality];
+    List<Object> bucketValues = new ArrayList<>();
+    Object2IntOpenHashMap<Object> bucketValueToId = new Object2IntOpenHashMap<>();
+    bucketValueToId.defaultReturnValue(INVALID_ID);
+    for (int dictId = 0; dictId < cardinality; dictId++) {
+      Object bucketValue = timeBucketExpression.getBucketValue(dictionary.get(dictId));
+      int bucketId = bucketValueToId.getInt(bucketValue);
+      if (bucketId == INVALID_ID) {
+        bucketId = bucketValues.size();
+        bucketValueToId.put(bucketValue, bucketId);
+        bucketValues.add(bucketValue);
+      }
+      dictIdToBucketId[dictId] = bucketId;
+    }
+    _dictIdToBucketId[index] = dictIdToBucketId;
+    _bucketValues[index] = bucketValues.toArray();
+    return bucketValues.size();
+  }
+
+  /**
+   * Helper method to convert the dictionary ids of a single value group-by column to the ids used in the group keys,
+   * which are bucket ids for time bucket group-by columns, and dictionary ids otherwise.
+   *
+   * @param index index of the group-by column.
+   * @param dictIds dictionary ids.
+   * @param length number of dictionary ids.
+   * @return ids used in the group keys.
+   */
+  private int[] toGroupByIds(int index, int[] dictIds, int length) {
+    int[] dictIdToBucketId = _dictIdToBucketId[index];
+    if (dictIdToBucketId == null) {
+      return dictIds;
+    }
+    int[] bucketIds = _reusableBucketIds[index];
+    if (bucketIds == null || bucketIds.length < length) {
+      bucketIds = new int[length];
+      _reusableBucketIds[index] = bucketIds;
+    }
+    for (int i = 0; i < length; i++) {
+      bucketIds[i] = dictIdToBucketId[dictIds[i]];
+    }
+    return bucketIds;
+  }
+
+  /**
+   * Helper method to get the value of a group-by column for an id used in the group keys.
+   *
+   * @param index index of the group-by column.
+   * @param id bucket id for time bucket group-by columns, dictionary id otherwise.
+   * @return value of the group-by column.
+   */
+  private Object getValue(int index, int id) {
+    Object[] bucketValues = _bucketValues[index];
+    if (bucketValues == null) {
+      return _dictionaries[index].get(id);
+    } else {
+      return bucketValues[id];
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -219,7 +316,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     for (int i = 0; i < _numGroupByColumns; i++) {
       Block dataBlock = projectionBlock.getDataBlock(_groupByColumns[i]);
       BlockValSet blockValueSet = dataBlock.getBlockValueSet();
-      _reusableSingleDictIds[i] = blockValueSet.getDictionaryIds();
+      _reusableSingleDictIds[i] = toGroupByIds(i, blockValueSet.getDictionaryIds(), length);
     }
 
     // Calculate the group key and store it into the result buffer.
@@ -276,7 +373,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
       _blockValSets[i] = dataBlock.getBlockValueSet();
 
       if (_isSingleValueGroupByColumn[i]) {
-        _reusableSingleDictIds[i] = _blockValSets[i].getDictionaryIds();
+        _reusableSingleDictIds[i] = toGroupByIds(i, _blockValSets[i].getDictionaryIds(), length);
       }
     }
 
@@ -324,13 +421,25 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    */
   @Override
   public Iterator<GroupKey> getUniqueGroupKeys() {
+    return getUniqueGroupKeys(false);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<GroupKey> getUniqueGroupKeysWithValues() {
+    return getUniqueGroupKeys(true);
+  }
+
+  private Iterator<GroupKey> getUniqueGroupKeys(boolean withValues) {
     switch (_storageType) {
       case ARRAY_BASED:
-        return new ArrayBasedGroupKeyIterator();
+        return new ArrayBasedGroupKeyIterator(withValues);
       case LONG_MAP_BASED:
-        return new LongMapBasedGroupKeyIterator();
+        return new LongMapBasedGroupKeyIterator(withValues);
       case ARRAY_MAP_BASED:
-        return new ArrayMapBasedGroupKeyIterator();
+        return new ArrayMapBasedGroupKeyIterator(withValues);
       default:
         throw new RuntimeException("Unsupported storage type for key generator " + _storageType);
     }
@@ -613,7 +722,13 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private class ArrayBasedGroupKeyIterator implements Iterator<GroupKey> {
     final int _length = _groupKeyFlags.length;
     int _index = 0;
-    final GroupKey _groupKey = new GroupKey(INVALID_ID, null);
+    final GroupKey _groupKey;
+    final Object[] _values;
+
+    ArrayBasedGroupKeyIterator(boolean withValues) {
+      _values = withValues ? new Object[_numGroupByColumns] : null;
+      _groupKey = new GroupKey(INVALID_ID, _values);
+    }
 
     @Override
     public boolean hasNext() {
@@ -631,9 +746,12 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
       if (!hasNext()) {
         throw new NoSuchElementException();
       }
-      String stringGroupKey = groupKeyToStringGroupKey(_index);
+      if (_values != null) {
+        groupKeyToValues(_index, _values);
+      } else {
+        _groupKey.setSecond(groupKeyToStringGroupKey(_index));
+      }
       _groupKey.setFirst(_index++);
-      _groupKey.setSecond(stringGroupKey);
       return _groupKey;
     }
 
@@ -648,7 +766,13 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    */
   private class LongMapBasedGroupKeyIterator implements Iterator<GroupKey> {
     final ObjectIterator<Long2IntMap.Entry> _iterator = _groupKeyToId.long2IntEntrySet().fastIterator();
-    final GroupKey _groupKey = new GroupKey(INVALID_ID, null);
+    final GroupKey _groupKey;
+    final Object[] _values;
+
+    LongMapBasedGroupKeyIterator(boolean withValues) {
+      _values = withValues ? new Object[_numGroupByColumns] : null;
+      _groupKey = new GroupKey(INVALID_ID, _values);
+    }
 
     @Override
     public boolean hasNext() {
@@ -659,9 +783,12 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     public GroupKey next() {
       Long2IntMap.Entry entry = _iterator.next();
 
-      String stringGroupKey = rawKeyToStringGroupKey(entry.getLongKey());
+      if (_values != null) {
+        rawKeyToValues(entry.getLongKey(), _values);
+      } else {
+        _groupKey.setSecond(rawKeyToStringGroupKey(entry.getLongKey()));
+      }
       _groupKey.setFirst(entry.getIntValue());
-      _groupKey.setSecond(stringGroupKey);
       return _groupKey;
     }
 
@@ -677,7 +804,13 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private class ArrayMapBasedGroupKeyIterator implements  Iterator<GroupKey> {
     final ObjectIterator<Object2IntMap.Entry<IntArrayList>> _iterator =
         _arrayGroupKeyToId.object2IntEntrySet().fastIterator();
-    final GroupKey _groupKey = new GroupKey(INVALID_ID, null);
+    final GroupKey _groupKey;
+    final Object[] _values;
+
+    ArrayMapBasedGroupKeyIterator(boolean withValues) {
+      _values = withValues ? new Object[_numGroupByColumns] : null;
+      _groupKey = new GroupKey(INVALID_ID, _values);
+    }
 
     @Override
     public boolean hasNext() {
@@ -688,9 +821,12 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     public GroupKey next() {
       Object2IntMap.Entry<IntArrayList> entry = _iterator.next();
 
-      String stringGroupKey = rawKeyToStringGroupKey(entry.getKey());
+      if (_values != null) {
+        rawKeyToValues(entry.getKey(), _values);
+      } else {
+        _groupKey.setSecond(rawKeyToStringGroupKey(entry.getKey()));
+      }
       _groupKey.setFirst(entry.getIntValue());
-      _groupKey.setSecond(stringGroupKey);
       return _groupKey;
     }
 
@@ -711,16 +847,16 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private String groupKeyToStringGroupKey(int groupKey) {
     if (_numGroupByColumns == 1) {
       // Special case one group-by column for performance.
-      return _dictionaries[0].get(groupKey).toString();
+      return getValue(0, groupKey).toString();
     } else {
       // Decode the group key.
       int cardinality = _cardinalities[0];
-      StringBuilder builder = new StringBuilder(_dictionaries[0].get(groupKey % cardinality).toString());
+      StringBuilder builder = new StringBuilder(getValue(0, groupKey % cardinality).toString());
       groupKey /= cardinality;
       for (int i = 1; i < _numGroupByColumns; i++) {
         builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter);
         cardinality = _cardinalities[i];
-        builder.append(_dictionaries[i].get(groupKey % cardinality));
+        builder.append(getValue(i, groupKey % cardinality));
         groupKey /= cardinality;
       }
       return builder.toString();
@@ -738,16 +874,16 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private String rawKeyToStringGroupKey(long rawKey) {
     if (_numGroupByColumns == 1) {
       // Special case one group-by column for performance.
-      return _dictionaries[0].get((int) rawKey).toString();
+      return getValue(0, (int) rawKey).toString();
     } else {
       // Decode the raw key.
       int cardinality = _cardinalities[0];
-      StringBuilder builder = new StringBuilder(_dictionaries[0].get((int) (rawKey % cardinality)).toString());
+      StringBuilder builder = new StringBuilder(getValue(0, (int) (rawKey % cardinality)).toString());
       rawKey /= cardinality;
       for (int i = 1; i < _numGroupByColumns; i++) {
         builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter);
         cardinality = _cardinalities[i];
-        builder.append(_dictionaries[i].get((int) (rawKey % cardinality)));
+        builder.append(getValue(i, (int) (rawKey % cardinality)));
         rawKey /= cardinality;
       }
       return builder.toString();
@@ -764,11 +900,55 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    */
   private String rawKeyToStringGroupKey(IntArrayList rawKey) {
     int[] rawKeyArray = rawKey.elements();
-    StringBuilder builder = new StringBuilder(_dictionaries[0].get(rawKeyArray[0]).toString());
+    StringBuilder builder = new StringBuilder(getValue(0, rawKeyArray[0]).toString());
     for (int i = 1; i < _numGroupByColumns; i++) {
       builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter);
-      builder.append(_dictionaries[i].get(rawKeyArray[i]).toString());
+      builder.append(getValue(i, rawKeyArray[i]).toString());
     }
     return builder.toString();
   }
+
+  /**
+   * With an integer group key, decode the values of the group-by columns into the given array.
+   * (ARRAY_BASED storage type)
+   *
+   * @param groupKey integer group key.
+   * @param outValues buffer to return the values.
+   */
+  private void groupKeyToValues(int groupKey, Object[] outValues) {
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      int cardinality = _cardinalities[i];
+      outValues[i] = getValue(i, groupKey % cardinality);
+      groupKey /= cardinality;
+    }
+  }
+
+  /**
+   * With a long raw key, decode the values of the group-by columns into the given array.
+   * (LONG_BASED storage type)
+   *
+   * @param rawKey long raw key.
+   * @param outValues buffer to return the values.
+   */
+  private void rawKeyToValues(long rawKey, Object[] outValues) {
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      int cardinality = _cardinalities[i];
+      outValues[i] = getValue(i, (int) (rawKey % cardinality));
+      rawKey /= cardinality;
+    }
+  }
+
+  /**
+   * With a IntArrayList raw key, decode the values of the group-by columns into the given array.
+   * (ARRAY_MAP_BASED storage type)
+   *
+   * @param rawKey IntArrayList raw key.
+   * @param outValues buffer to return the values.
+   */
+  private void rawKeyToValues(IntArrayList rawKey, Object[] outValues) {
+    int[] rawKeyArray = rawKey.elements();
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      outValues[i] = getValue(i, rawKeyArray[i]);
+    }
+  }
 }
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation.groupby;
+
+import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunctionFactory;
+
+
+/**
+ * How the intermediate results of an aggregation function are accumulated when merging group-by results: aggregation
+ * functions with a numeric intermediate result are accumulated into primitive doubles, the other ones are combined as
+ * objects.
+ */
+public enum GroupByAccumulator {
+  COUNT,
+  SUM,
+  MIN,
+  MAX,
+  OBJECT;
+
+  public boolean isPrimitive() {
+    return this != OBJECT;
+  }
+
+  /**
+   * Accumulates a value into the accumulated value of a primitive accumulator.
+   */
+  public double accumulate(double accumulatedValue, double value) {
+    switch (this) {
+      case COUNT:
+      case SUM:
+        return accumulatedValue + value;
+      case MIN:
+        return Math.min(accumulatedValue, value);
+      case MAX:
+        return Math.max(accumulatedValue, value);
+      default:
+        throw new UnsupportedOperationException("Accumulator " + this + " is not primitive");
+    }
+  }
+
+  /**
+   * Returns the accumulator for the given aggregation type (e.g. 'sum' or 'distinctCount').
+   */
+  public static GroupByAccumulator forAggregationType(String aggregationType) {
+    switch (aggregationType.toLowerCase()) {
+      case AggregationFunctionFactory.COUNT_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.COUNT_MV_AGGREGATION_FUNCTION:
+        return COUNT;
+      case AggregationFunctionFactory.SUM_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.SUM_MV_AGGREGATION_FUNCTION:
+        return SUM;
+      case AggregationFunctionFactory.MIN_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.MIN_MV_AGGREGATION_FUNCTION:
+        return MIN;
+      case AggregationFunctionFactory.MAX_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.MAX_MV_AGGREGATION_FUNCTION:
+        return MAX;
+      default:
+        return OBJECT;
+    }
+  }
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation.groupby;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction.ResultDataType;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.core.util.BoundedLongHeap;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Table to combine the aggregation group-by results of multiple segments.
+ * <p>Groups are keyed on the values of the group-by columns instead of the string group keys, and the results of
+ * COUNT, SUM, MIN and MAX are accumulated into primitive double arrays. The results of the other aggregation functions
+ * are combined as objects with {@link AggregationFunction#combineTwoValues(Serializable, Serializable)}.
+ * <p>The table is partitioned on the hash of the group key, and each partition is guarded by its own lock, so that
+ * segments can be merged concurrently. String group keys are only built for the groups returned by
+ * {@link #getResults(int, int)}.
+ */
+public class GroupByCombineTable {
+  // Power of 2, to pick the partition from the high bits of the hash
+  private static final int NUM_PARTITIONS_LOG2 = 6;
+  private static final int NUM_PARTITIONS = 1 << NUM_PARTITIONS_LOG2;
+  private static final int INITIAL_PARTITION_CAPACITY = 128;
+  private static final String MIN_PREFIX = "min_";
+
+  private final List<AggregationFunction> _aggregationFunctions;
+  private final int _numAggrFunctions;
+  private final GroupByAccumulator[] _accumulators;
+  private final int _numGroupByColumns;
+  private final Partition[] _partitions;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param aggregationsInfo Aggregations of the query.
+   * @param aggregationFunctions Aggregation functions to combine the object results, in the order of the aggregations.
+   * @param numGroupByColumns Number of group-by columns.
+   */
+  public GroupByCombineTable(List<AggregationInfo> aggregationsInfo, List<AggregationFunction> aggregationFunctions,
+      int numGroupByColumns) {
+    Preconditions.checkArgument(aggregationsInfo.size() == aggregationFunctions.size());
+
+    _aggregationFunctions = aggregationFunctions;
+    _numAggrFunctions = aggregationFunctions.size();
+    _accumulators = new GroupByAccumulator[_numAggrFunctions];
+    for (int i = 0; i < _numAggrFunctions; i++) {
+      _accumulators[i] = GroupByAccumulator.forAggregationType(aggregationsInfo.get(i).getAggregationType());
+    }
+    _numGroupByColumns = numGroupByColumns;
+    _partitions = new Partition[NUM_PARTITIONS];
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      _partitions[i] = new Partition();
+    }
+  }
+
+  /**
+   * Merges the group-by result of a segment into the table. This method is thread-safe.
+   *
+   * @param groupByResult Group-by result of a segment.
+   */
+  public void merge(AggregationGroupByResult groupByResult) {
+    // Primitive accumulators require primitive results, which is the case unless the segment used another function
+    for (int i = 0; i < _numAggrFunctions; i++) {
+      if (_accumulators[i] != GroupByAccumulator.OBJECT) {
+        ResultDataType resultDataType = groupByResult.getResultDataType(i);
+        Preconditions.checkState(resultDataType == ResultDataType.LONG || resultDataType == ResultDataType.DOUBLE,
+            "Unexpected result data type %s for accumulator %s", resultDataType, _accumulators[i]);
+      }
+    }
+
+    // Probe key re-used for lookups, only copied when a new group is added
+    ValuesKey probeKey = (_numGroupByColumns == 1) ? null : new ValuesKey(null);
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupByResult.getGroupKeyWithValuesIterator();
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      Object[] values = groupKey.getValues();
+      Object key;
+      if (probeKey == null) {
+        key = values[0];
+      } else {
+        probeKey.set(values);
+        key = probeKey;
+      }
+      int hash = HashCommon.murmurHash3(key.hashCode());
+      Partition partition = _partitions[hash >>> (Integer.SIZE - NUM_PARTITIONS_LOG2)];
+      synchronized (partition) {
+        partition.merge(key, groupByResult, groupKey);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of groups in the table.
+   */
+  public int size() {
+    int size = 0;
+    for (Partition partition : _partitions) {
+      synchronized (partition) {
+        size += partition._numGroups;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the combined results, one map from string group key to result for each aggregation function. If there are
+   * more groups than the trim threshold, only the top groups (up to the trim size) are kept for each aggregation
+   * function. Must be called after all the merges are done.
+   *
+   * @param trimThreshold Number of groups above which the results are trimmed.
+   * @param trimSize Number of groups to keep for each aggregation function when trimming.
+   * @return List of maps from string group key to result.
+   */
+  public List<Map<String, Serializable>> getResults(int trimThreshold, int trimSize) {
+    List<Map<String, Serializable>> results = new ArrayList<>(_numAggrFunctions);
+    int numGroups = size();
+
+    if (numGroups <= trimThreshold) {
+      for (int i = 0; i < _numAggrFunctions; i++) {
+        results.add(new HashMap<String, Serializable>(numGroups));
+      }
+      for (Partition partition : _partitions) {
+        for (int id = 0; id < partition._numGroups; id++) {
+          String stringKey = partition.getStringKey(id);
+          for (int i = 0; i < _numAggrFunctions; i++) {
+            results.get(i).put(stringKey, partition.getResult(i, id));
+          }
+        }
+      }
+      return results;
+    }
+
+    for (int i = 0; i < _numAggrFunctions; i++) {
+      Map<String, Serializable> result;
+      if (_accumulators[i] == GroupByAccumulator.OBJECT && !(getFirstObjectResult(i) instanceof Comparable)) {
+        // Results that cannot be ordered are not trimmed
+        result = new HashMap<>(numGroups);
+        for (Partition partition : _partitions) {
+          for (int id = 0; id < partition._numGroups; id++) {
+            result.put(partition.getStringKey(id), partition.getResult(i, id));
+          }
+        }
+      } else {
+        long[] topGroups = selectTopGroups(i, trimSize);
+        result = new HashMap<>(topGroups.length);
+        for (long group : topGroups) {
+          Partition partition = _partitions[(int) (group >>> 32)];
+          int id = (int) group;
+          result.put(partition.getStringKey(id), partition.getResult(i, id));
+        }
+      }
+      results.add(result);
+    }
+    return results;
+  }
+
+  private Serializable getFirstObjectResult(int index) {
+    for (Partition partition : _partitions) {
+      if (partition._numGroups > 0) {
+        return partition._objectResults[index][0];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Selects the top groups for the aggregation function at the given index, ordered on the result: the smallest
+   * results for MIN functions, the largest results otherwise. Groups are referenced by their partition index in the
+   * high 32 bits, and their id in the partition in the low 32 bits.
+   */
+  private long[] selectTopGroups(final int index, int trimSize) {
+    final boolean reverseOrder = (_accumulators[index] == GroupByAccumulator.MIN)
+        || _aggregationFunctions.get(index).getFunctionName().startsWith(MIN_PREFIX);
+
+    BoundedLongHeap heap = new BoundedLongHeap(Math.min(trimSize, size())) {
+      @Override
+      protected int compare(long group1, long group2) {
+        return compareGroups(group1, group2, index, reverseOrder);
+      }
+    };
+    for (int partitionIndex = 0; partitionIndex < NUM_PARTITIONS; partitionIndex++) {
+      Partition partition = _partitions[partitionIndex];
+      for (int id = 0; id < partition._numGroups; id++) {
+        heap.offer(((long) partitionIndex << 32) | id);
+      }
+    }
+    return heap.getElements();
+  }
+
+  /**
+   * Compares the results of two groups, a positive value means the first group ranks higher.
+   */
+  @SuppressWarnings("unchecked")
+  private int compareGroups(long group1, long group2, int index, boolean reverseOrder) {
+    Partition partition1 = _partitions[(int) (group1 >>> 32)];
+    Partition partition2 = _partitions[(int) (group2 >>> 32)];
+    int cmp;
+    if (_accumulators[index] == GroupByAccumulator.OBJECT) {
+      Comparable result1 = (Comparable) partition1._objectResults[index][(int) group1];
+      Serializable result2 = partition2._objectResults[index][(int) group2];
+      cmp = result1.compareTo(result2);
+    } else {
+      cmp = Double.compare(partition1._primitiveResults[index][(int) group1],
+          partition2._primitiveResults[index][(int) group2]);
+    }
+    return reverseOrder ? -cmp : cmp;
+  }
+
+  /**
+   * Partition of the table, guarded by its own lock.
+   */
+  private class Partition {
+    final Object2IntOpenHashMap<Object> _keyToId = new Object2IntOpenHashMap<>();
+    Object[] _keys = new Object[INITIAL_PARTITION_CAPACITY];
+    final double[][] _primitiveResults = new double[_numAggrFunctions][];
+    final Serializable[][] _objectResults = new Serializable[_numAggrFunctions][];
+    int _numGroups = 0;
+
+    Partition() {
+      _keyToId.defaultReturnValue(-1);
+      for (int i = 0; i < _numAggrFunctions; i++) {
+        if (_accumulators[i] == GroupByAccumulator.OBJECT) {
+          _objectResults[i] = new Serializable[INITIAL_PARTITION_CAPACITY];
+        } else {
+          _primitiveResults[i] = new double[INITIAL_PARTITION_CAPACITY];
+        }
+      }
+    }
+
+    void merge(Object key, AggregationGroupByResult groupByResult, GroupKeyGenerator.GroupKey groupKey) {
+      int id = _keyToId.getInt(key);
+      if (id < 0) {
+        id = _numGroups++;
+        if (id == _keys.length) {
+          expand();
+        }
+        if (key instanceof ValuesKey) {
+          key = ((ValuesKey) key).copy();
+        }
+        _keyToId.put(key, id);
+        _keys[id] = key;
+        for (int i = 0; i < _numAggrFunctions; i++) {
+          if (_accumulators[i] == GroupByAccumulator.OBJECT) {
+            _objectResults[i][id] = groupByResult.getResultForKey(groupKey, i);
+          } else {
+            _primitiveResults[i][id] = groupByResult.getDoubleResultForKey(groupKey, i);
+          }
+        }
+      } else {
+        for (int i = 0; i < _numAggrFunctions; i++) {
+          if (_accumulators[i] == GroupByAccumulator.OBJECT) {
+            _objectResults[i][id] = _aggregationFunctions.get(i)
+                .combineTwoValues(_objectResults[i][id], groupByResult.getResultForKey(groupKey, i));
+          } else {
+            _primitiveResults[i][id] =
+                _accumulators[i].accumulate(_primitiveResults[i][id], groupByResult.getDoubleResultForKey(groupKey, i));
+          }
+        }
+      }
+    }
+
+    private void expand() {
+      int newCapacity = 2 * _keys.length;
+      _keys = Arrays.copyOf(_keys, newCapacity);
+      for (int i = 0; i < _numAggrFunctions; i++) {
+        if (_accumulators[i] == GroupByAccumulator.OBJECT) {
+          _objectResults[i] = Arrays.copyOf(_objectResults[i], newCapacity);
+        } else {
+          _primitiveResults[i] = Arrays.copyOf(_primitiveResults[i], newCapacity);
+        }
+      }
+    }
+
+    /**
+     * Returns the result of the aggregation function at the given index for the given group, in the same type as the
+     * results of {@link AggregationGroupByResult#getResultForKey(GroupKeyGenerator.GroupKey, int)}.
+     */
+    Serializable getResult(int index, int id) {
+      switch (_accumulators[index]) {
+        case COUNT:
+          return new MutableLongValue((long) _primitiveResults[index][id]);
+        case SUM:
+        case MIN:
+        case MAX:
+          return _primitiveResults[index][id];
+        default:
+          return _objectResults[index][id];
+      }
+    }
+
+    /**
+     * Builds the string group key for the given group, same as the one built by the group key generators.
+     */
+    String getStringKey(int id) {
+      Object key = _keys[id];
+      if (!(key instanceof ValuesKey)) {
+        return key.toString();
+      }
+      Object[] values = ((ValuesKey) key)._values;
+      StringBuilder builder = new StringBuilder(values[0].toString());
+      for (int i = 1; i < values.length; i++) {
+        builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter);
+        builder.append(values[i]);
+      }
+      return builder.toString();
+    }
+  }
+
+  /**
+   * Group key for multiple group-by columns, made of the values of the columns.
+   */
+  private static final class ValuesKey {
+    private Object[] _values;
+    private int _hashCode;
+
+    ValuesKey(Object[] values) {
+      if (values != null) {
+        set(values);
+      }
+    }
+
+    void set(Object[] values) {
+      _values = values;
+      _hashCode = Arrays.hashCode(values);
+    }
+
+    ValuesKey copy() {
+      return new ValuesKey(_values.clone());
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ValuesKey)) {
+        return false;
+      }
+      ValuesKey that = (ValuesKey) obj;
+      return _hashCode == that._hashCode && Arrays.equals(_values, that._values);
+    }
+  }
+}
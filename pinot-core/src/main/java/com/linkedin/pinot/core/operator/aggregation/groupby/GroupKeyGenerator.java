@@ -76,6 +76,16 @@ public interface GroupKeyGenerator {
    */
   Iterator<GroupKey> getUniqueGroupKeys();
 
+  /**
+   * Returns an iterator of group keys carrying the values of the group-by columns (see {@link GroupKey#getValues()})
+   * instead of the string group key, which is not built. Use this interface to match group keys across segments
+   * without paying for the string keys.
+   * <p>The returned group key and its values array are re-used by the iterator.
+   *
+   * @return iterator of group keys with values.
+   */
+  Iterator<GroupKey> getUniqueGroupKeysWithValues();
+
   /**
    * Purge the given group keys.
    * @param keysToPurge Group keys to purge
@@ -83,16 +93,29 @@ public interface GroupKeyGenerator {
   void purgeKeys(int[] keysToPurge);
 
   /**
-   * This class encapsulates the integer group key and the string group key.
+   * This class encapsulates the integer group key and the string group key, or the values of the group-by columns.
    */
   class GroupKey extends Pair<Integer, String> {
+    private Object[] _values;
 
     public GroupKey(Integer first, String second) {
       super(first, second);
     }
 
+    public GroupKey(Integer first, Object[] values) {
+      super(first, null);
+      _values = values;
+    }
+
     public String getStringKey() {
       return getSecond();
     }
+
+    /**
+     * Returns the values of the group-by columns, or null if the group key was generated with a string key.
+     */
+    public Object[] getValues() {
+      return _values;
+    }
   }
 }
@@ -25,7 +25,17 @@ import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 
 
+/**
+ * Scan based doc id iterator for single value columns.
+ *
+ * Sequential iteration (next/advance) reads the dictionary ids for a block of docs at a time from the
+ * forward index, and evaluates the predicate on the whole block, so that the inner loops stay tight
+ * and free of virtual calls. Random probes (isMatch/applyAnd) still evaluate one doc at a time.
+ */
 public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
+  // Number of docs scanned per block.
+  private static final int SCAN_BLOCK_SIZE = 256;
+
   int currentDocId = -1;
   BlockSingleValIterator valueIterator;
   private int startDocId;
@@ -34,6 +44,15 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
   private String datasourceName;
   private int _numEntriesScanned = 0;
 
+  // Dictionary ids and matching positions for the current block of docs.
+  private final int[] _dictIdBuffer = new int[SCAN_BLOCK_SIZE];
+  private final int[] _matchingPositions = new int[SCAN_BLOCK_SIZE];
+  private int _blockStartDocId;
+  private int _numMatchesInBlock;
+  private int _matchIndex;
+  // First doc id that has not been read into the block buffer yet.
+  private int _nextDocIdToScan;
+
   public SVScanDocIdIterator(String datasourceName, BlockValSet blockValSet, BlockMetadata blockMetadata,
       PredicateEvaluator evaluator) {
     this.datasourceName = datasourceName;
@@ -57,6 +76,7 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     currentDocId = startDocId - 1;
     valueIterator.skipTo(startDocId);
     this.startDocId = startDocId;
+    resetBlock(startDocId);
   }
 
   /**
@@ -91,11 +111,18 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     }
     if (currentDocId >= targetDocId) {
       return currentDocId;
+    }
+
+    if (targetDocId < _nextDocIdToScan) {
+      // Target is within the current block, skip the matches before it.
+      while (_matchIndex < _numMatchesInBlock && _blockStartDocId + _matchingPositions[_matchIndex] < targetDocId) {
+        _matchIndex++;
+      }
     } else {
-      currentDocId = targetDocId - 1;
-      valueIterator.skipTo(targetDocId);
-      return next();
+      resetBlock(targetDocId);
     }
+    currentDocId = targetDocId - 1;
+    return next();
   }
 
   @Override
@@ -103,20 +130,48 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     if (currentDocId == Constants.EOF) {
       return currentDocId;
     }
-    while (valueIterator.hasNext() && currentDocId < endDocId) {
-      currentDocId = currentDocId + 1;
-      _numEntriesScanned++;
-      int dictIdForCurrentDoc = valueIterator.nextIntVal();
-      if (evaluator.apply(dictIdForCurrentDoc)) {
-        // System.out.println("Returning deom " + this +"doc Id:"+ currentDocId + " dictId:"+
-        // dictIdForCurrentDoc);
+    while (true) {
+      if (_matchIndex < _numMatchesInBlock) {
+        currentDocId = _blockStartDocId + _matchingPositions[_matchIndex++];
         return currentDocId;
       }
+      if (!scanNextBlock()) {
+        break;
+      }
     }
     currentDocId = Constants.EOF;
     return Constants.EOF;
   }
 
+  /**
+   * Reads the dictionary ids for the next block of docs and evaluates the predicate on them.
+   *
+   * @return false if there are no more docs to scan.
+   */
+  private boolean scanNextBlock() {
+    if (_nextDocIdToScan > endDocId || !valueIterator.skipTo(_nextDocIdToScan)) {
+      return false;
+    }
+    int length = Math.min(SCAN_BLOCK_SIZE, endDocId - _nextDocIdToScan + 1);
+    int numDocsRead = valueIterator.nextIntVals(_dictIdBuffer, length);
+    if (numDocsRead == 0) {
+      return false;
+    }
+
+    _numEntriesScanned += numDocsRead;
+    _blockStartDocId = _nextDocIdToScan;
+    _nextDocIdToScan += numDocsRead;
+    _numMatchesInBlock = evaluator.applyBatch(_dictIdBuffer, numDocsRead, _matchingPositions);
+    _matchIndex = 0;
+    return true;
+  }
+
+  private void resetBlock(int nextDocIdToScan) {
+    _nextDocIdToScan = nextDocIdToScan;
+    _numMatchesInBlock = 0;
+    _matchIndex = 0;
+  }
+
   @Override
   public int currentDocId() {
     return currentDocId;
@@ -16,6 +16,8 @@
 package com.linkedin.pinot.core.operator.docidsets;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import org.roaringbitmap.IntIterator;
@@ -39,18 +41,57 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
    *
    */
   static final Logger LOGGER = LoggerFactory.getLogger(AndOperator.class);
+  private static final Comparator<ImmutableRoaringBitmap> BITMAP_CARDINALITY_COMPARATOR =
+      new Comparator<ImmutableRoaringBitmap>() {
+        @Override
+        public int compare(ImmutableRoaringBitmap o1, ImmutableRoaringBitmap o2) {
+          return Integer.compare(o1.getCardinality(), o2.getCardinality());
+        }
+      };
   public final AtomicLong timeMeasure = new AtomicLong(0);
   private List<FilterBlockDocIdSet> blockDocIdSets;
   private int minDocId = Integer.MIN_VALUE;
   private int maxDocId = Integer.MAX_VALUE;
   MutableRoaringBitmap answer = null;
   boolean validate = false;
+  private final boolean indexBased;
+  private MutableRoaringBitmap materializedBitmap = null;
 
   public AndBlockDocIdSet(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.blockDocIdSets = blockDocIdSets;
+    indexBased = IndexBasedDocIdSets.areIndexBased(blockDocIdSets);
     updateMinMaxRange();
   }
 
+  /**
+   * Returns true if all children are answered from sorted/bitmap indexes, in which case the result can be
+   * materialized as a bitmap with {@link #getBitmap()}.
+   */
+  public boolean isIndexBased() {
+    return indexBased;
+  }
+
+  /**
+   * Intersects the bitmaps of all the (index based) children, smallest first, bounded by [minDocId, maxDocId]. The
+   * result is computed once and cached.
+   */
+  public MutableRoaringBitmap getBitmap() {
+    if (materializedBitmap == null) {
+      List<ImmutableRoaringBitmap> childBitmaps = new ArrayList<>(blockDocIdSets.size());
+      for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
+        childBitmaps.add(IndexBasedDocIdSets.toBitmap(blockDocIdSet));
+      }
+      Collections.sort(childBitmaps, BITMAP_CARDINALITY_COMPARATOR);
+      MutableRoaringBitmap bitmap = childBitmaps.get(0).toMutableRoaringBitmap();
+      for (int i = 1; i < childBitmaps.size() && !bitmap.isEmpty(); i++) {
+        bitmap.and(childBitmaps.get(i));
+      }
+      IndexBasedDocIdSets.clip(bitmap, minDocId, maxDocId);
+      materializedBitmap = bitmap;
+    }
+    return materializedBitmap;
+  }
+
   private void updateMinMaxRange() {
     for (FilterBlockDocIdSet blockDocIdSet : blockDocIdSets) {
       minDocId = Math.max(minDocId, blockDocIdSet.getMinDocId());
@@ -64,6 +105,13 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public BlockDocIdIterator iterator() {
+    if (indexBased) {
+      answer = getBitmap();
+      BitmapDocIdIterator bitmapDocIdIterator = new BitmapDocIdIterator(answer.getIntIterator());
+      bitmapDocIdIterator.setStartDocId(minDocId);
+      bitmapDocIdIterator.setEndDocId(maxDocId);
+      return bitmapDocIdIterator;
+    }
     //TODO: Remove this validation code once we have enough testing
     if (validate) {
       BlockDocIdIterator slowIterator = slowIterator();
@@ -188,7 +236,10 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
           answer.add(pair.getLeft(), pair.getRight() + 1);
         }
       }
-      // handle bitmaps
+      // handle bitmaps, intersect the smallest ones first so that the intermediate answer stays small
+      if (childBitmaps.size() > 1) {
+        Collections.sort(childBitmaps, BITMAP_CARDINALITY_COMPARATOR);
+      }
       if (childBitmaps.size() > 0) {
         if (answer == null) {
           answer = childBitmaps.get(0).toMutableRoaringBitmap();
@@ -205,8 +256,12 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
       // At this point, we must have 'answer' to be non-null.
       assert (answer != null) : "sortedRangeSets=" + sortedRangeSets.size() + ",childBitmaps=" + childBitmaps.size();
 
-      // handle raw iterators
+      // handle raw iterators, in the order given by the planner (most selective first), so that each scan only
+      // probes the docs surviving the previous ones. Skip them altogether once nothing matches.
       for (FilterBlockDocIdSet scanBasedDocIdSet : scanBasedDocIdSets) {
+        if (answer.isEmpty()) {
+          break;
+        }
         ScanBasedDocIdIterator iterator = (ScanBasedDocIdIterator) scanBasedDocIdSet.iterator();
         MutableRoaringBitmap scanAnswer = iterator.applyAnd(answer);
         answer.and(scanAnswer);
@@ -247,12 +302,14 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
   @Override
   public void setStartDocId(int startDocId) {
     minDocId = Math.max(minDocId, startDocId);
+    materializedBitmap = null;
     updateMinMaxRange();
   }
 
   @Override
   public void setEndDocId(int endDocId) {
     maxDocId = Math.min(maxDocId, endDocId);
+    materializedBitmap = null;
     updateMinMaxRange();
   }
 
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import java.util.List;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Utility methods for filter doc id sets which can be answered entirely from sorted and bitmap inverted indexes. For
+ * such doc id sets, the matching docs can be materialized as a single bitmap by combining the underlying bitmaps,
+ * instead of being intersected/merged one doc id at a time through the doc id iterators.
+ */
+public class IndexBasedDocIdSets {
+  private IndexBasedDocIdSets() {
+  }
+
+  /**
+   * Returns true if the given doc id set is a sorted or bitmap index based doc id set, or an AND/OR of such doc id
+   * sets.
+   */
+  public static boolean isIndexBased(FilterBlockDocIdSet docIdSet) {
+    if (docIdSet instanceof SortedDocIdSet || docIdSet instanceof BitmapDocIdSet) {
+      return true;
+    }
+    if (docIdSet instanceof AndBlockDocIdSet) {
+      return ((AndBlockDocIdSet) docIdSet).isIndexBased();
+    }
+    if (docIdSet instanceof OrBlockDocIdSet) {
+      return ((OrBlockDocIdSet) docIdSet).isIndexBased();
+    }
+    return false;
+  }
+
+  /**
+   * Returns true if all the given doc id sets are index based.
+   */
+  public static boolean areIndexBased(List<FilterBlockDocIdSet> docIdSets) {
+    if (docIdSets.isEmpty()) {
+      return false;
+    }
+    for (FilterBlockDocIdSet docIdSet : docIdSets) {
+      if (!isIndexBased(docIdSet)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the bitmap of the matching docs for an index based doc id set. The returned bitmap must not be modified,
+   * as it can be backed by the inverted index. Docs outside of [minDocId, maxDocId] of a sorted or bitmap doc id set
+   * may be present in the bitmap, the bitmaps of AND/OR doc id sets are bounded by their range.
+   */
+  public static ImmutableRoaringBitmap toBitmap(FilterBlockDocIdSet docIdSet) {
+    if (docIdSet instanceof BitmapDocIdSet) {
+      return docIdSet.getRaw();
+    }
+    if (docIdSet instanceof SortedDocIdSet) {
+      List<IntPair> pairs = docIdSet.getRaw();
+      MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+      for (IntPair pair : pairs) {
+        // add takes [start, end) i.e inclusive start, exclusive end.
+        bitmap.add(pair.getLeft(), pair.getRight() + 1);
+      }
+      return bitmap;
+    }
+    if (docIdSet instanceof AndBlockDocIdSet) {
+      return ((AndBlockDocIdSet) docIdSet).getBitmap();
+    }
+    if (docIdSet instanceof OrBlockDocIdSet) {
+      return ((OrBlockDocIdSet) docIdSet).getBitmap();
+    }
+    throw new UnsupportedOperationException("Doc id set is not index based: " + docIdSet.getClass().getName());
+  }
+
+  /**
+   * Removes the docs outside of [startDocId, endDocId] (both inclusive) from the bitmap, e.g. docs outside of the
+   * segment range (star tree aggregated docs, realtime docs indexed after the query started) or outside of the range
+   * of the enclosing filter.
+   */
+  public static void clip(MutableRoaringBitmap bitmap, int startDocId, int endDocId) {
+    MutableRoaringBitmap range = new MutableRoaringBitmap();
+    if (endDocId >= startDocId) {
+      // add takes [start, end) i.e inclusive start, exclusive end.
+      range.add(startDocId, endDocId + 1);
+    }
+    bitmap.and(range);
+  }
+
+  /**
+   * Returns the number of docs in the bitmap within [startDocId, endDocId] (both inclusive).
+   */
+  public static int getNumDocsInRange(ImmutableRoaringBitmap bitmap, int startDocId, int endDocId) {
+    if (endDocId < startDocId) {
+      return 0;
+    }
+    long numDocs = bitmap.rank(endDocId);
+    if (startDocId > 0) {
+      numDocs -= bitmap.rank(startDocId - 1);
+    }
+    return (int) numDocs;
+  }
+}
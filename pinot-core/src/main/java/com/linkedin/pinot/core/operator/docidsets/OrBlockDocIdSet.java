@@ -38,12 +38,52 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
   private int minDocId = Integer.MAX_VALUE;
   private IntIterator intIterator;
   private BlockDocIdIterator[] docIdIterators;
+  private final boolean indexBased;
+  private MutableRoaringBitmap materializedBitmap = null;
+  // Range set by the enclosing filter. Unlike [minDocId, maxDocId], which is widened to cover all the children, it
+  // bounds the materialized bitmap.
+  private int boundStartDocId = Integer.MIN_VALUE;
+  private int boundEndDocId = Integer.MAX_VALUE;
 
   public OrBlockDocIdSet(List<FilterBlockDocIdSet> blockDocIdSets) {
     this.docIdSets = blockDocIdSets;
+    indexBased = IndexBasedDocIdSets.areIndexBased(blockDocIdSets);
     updateMinMaxRange();
   }
 
+  /**
+   * Returns true if all children are answered from sorted/bitmap indexes, in which case the result can be
+   * materialized as a bitmap with {@link #getBitmap()}.
+   */
+  public boolean isIndexBased() {
+    return indexBased;
+  }
+
+  /**
+   * Unions the bitmaps of all the (index based) children, bounded by the range of the children and by the range set
+   * by the enclosing filter. The result is computed once and cached.
+   */
+  public MutableRoaringBitmap getBitmap() {
+    if (materializedBitmap == null) {
+      ImmutableRoaringBitmap[] childBitmaps = new ImmutableRoaringBitmap[docIdSets.size()];
+      for (int i = 0; i < childBitmaps.length; i++) {
+        childBitmaps[i] = IndexBasedDocIdSets.toBitmap(docIdSets.get(i));
+      }
+      MutableRoaringBitmap bitmap = MutableRoaringBitmap.or(childBitmaps);
+      IndexBasedDocIdSets.clip(bitmap, getBoundedMinDocId(), getBoundedMaxDocId());
+      materializedBitmap = bitmap;
+    }
+    return materializedBitmap;
+  }
+
+  private int getBoundedMinDocId() {
+    return Math.max(minDocId, boundStartDocId);
+  }
+
+  private int getBoundedMaxDocId() {
+    return Math.min(maxDocId, boundEndDocId);
+  }
+
   private void updateMinMaxRange() {
     for (FilterBlockDocIdSet blockDocIdSet : docIdSets) {
       minDocId = Math.min(minDocId, blockDocIdSet.getMinDocId());
@@ -67,6 +107,12 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public BlockDocIdIterator iterator() {
+    if (indexBased) {
+      BitmapDocIdIterator bitmapDocIdIterator = new BitmapDocIdIterator(getBitmap().getIntIterator());
+      bitmapDocIdIterator.setStartDocId(getBoundedMinDocId());
+      bitmapDocIdIterator.setEndDocId(getBoundedMaxDocId());
+      return bitmapDocIdIterator;
+    }
     List<BlockDocIdIterator> rawIterators = new ArrayList<>();
     boolean useBitmapOr = false;
     for (BlockDocIdSet docIdSet : docIdSets) {
@@ -129,12 +175,16 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public void setStartDocId(int startDocId) {
+    boundStartDocId = startDocId;
+    materializedBitmap = null;
     minDocId = Math.min(minDocId, startDocId);
     updateMinMaxRange();
   }
 
   @Override
   public void setEndDocId(int endDocId) {
+    boundEndDocId = endDocId;
+    materializedBitmap = null;
     maxDocId = Math.max(maxDocId, endDocId);
     updateMinMaxRange();
   }
@@ -60,6 +60,18 @@ public final class UnSortedSingleValueIterator extends BlockSingleValIterator {
     return sVReader.getInt(counter++);
   }
 
+  @Override
+  public int nextIntVals(int[] values, int length) {
+    int numValuesRead = Math.min(length, columnMetadata.getTotalDocs() - counter);
+    if (numValuesRead <= 0) {
+      return 0;
+    }
+
+    sVReader.getIntBatch(counter, numValuesRead, values);
+    counter += numValuesRead;
+    return numValuesRead;
+  }
+
   @Override
   public boolean reset() {
     counter = 0;
@@ -39,6 +39,10 @@ public class AndOperator extends BaseFilterOperator {
     this.operators = operators;
   }
 
+  public List<Operator> getChildOperators() {
+    return operators;
+  }
+
   @Override
   public boolean open() {
     for (Operator operator : operators) {
@@ -21,6 +21,9 @@ import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.operator.BaseOperator;
 import com.linkedin.pinot.core.operator.blocks.BaseFilterBlock;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 
 /**
@@ -30,16 +33,36 @@ import com.linkedin.pinot.core.operator.blocks.BaseFilterBlock;
 public abstract class BaseFilterOperator extends BaseOperator {
 
   private Predicate predicate;
+  private PredicateEvaluator predicateEvaluator;
   private int nextBlockCallCounter = 0;
 
   public void setPredicate(Predicate predicate) {
     this.predicate = predicate;
+    predicateEvaluator = null;
   }
 
   public Predicate getPredicate() {
     return predicate;
   }
 
+  /**
+   * Sets the evaluator for the predicate when it is already built in the planning phase, so that it is not built
+   * again when the block is computed.
+   */
+  public void setPredicateEvaluator(PredicateEvaluator predicateEvaluator) {
+    this.predicateEvaluator = predicateEvaluator;
+  }
+
+  /**
+   * Returns the evaluator for the predicate, built on the given dictionary unless already set.
+   */
+  protected PredicateEvaluator getPredicateEvaluator(Dictionary dictionary) {
+    if (predicateEvaluator == null) {
+      predicateEvaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+    }
+    return predicateEvaluator;
+  }
+
   @Override
   public final BaseFilterBlock getNextBlock() {
     return getNextBlock(new BlockId(0));
@@ -19,7 +19,10 @@ import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.startree.StarTreeIndexNodeInterf;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,9 +38,11 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.DataSource;
@@ -81,10 +86,10 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     FilterQueryTree filterTree = RequestUtils.generateFilterQueryTree(brokerRequest);
     // Find all filter columns
     if (filterTree != null) {
-      if (filterTree.getChildren() != null && !filterTree.getChildren().isEmpty()) {
+      if (filterTree.getOperator() == FilterOperator.AND) {
         for (FilterQueryTree childFilter : filterTree.getChildren()) {
-          // Nested filters are not supported
-          assert childFilter.getChildren() == null || childFilter.getChildren().isEmpty();
+          // Nested filters other than OR on a single column are not supported
+          assert RequestUtils.getStarTreePredicateColumn(childFilter) != null;
           processFilterTree(childFilter);
         }
       } else {
@@ -94,28 +99,43 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     // Group by columns, we cannot lose group by columns during traversal
     GroupBy groupBy = brokerRequest.getGroupBy();
     if (groupBy != null) {
-      groupByColumns.addAll(groupBy.getColumns());
+      for (String groupByColumn : groupBy.getColumns()) {
+        groupByColumns.add(TimeBucketExpression.getColumnName(groupByColumn));
+      }
     }
   }
 
   private void processFilterTree(FilterQueryTree childFilter) {
-    String column = childFilter.getColumn();
-    // Only equality predicates are supported
-    Predicate predicate = Predicate.newPredicate(childFilter);
+    String column = RequestUtils.getStarTreePredicateColumn(childFilter);
     Dictionary dictionary = segment.getDataSource(column).getDictionary();
-    PredicateEntry predicateEntry = null;
 
-    PredicateEvaluator predicateEvaluator =
-        PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+    // Either a single predicate, or an OR of predicates on the same column
+    List<FilterQueryTree> predicateTrees;
+    if (childFilter.getChildren() == null || childFilter.getChildren().isEmpty()) {
+      predicateTrees = Collections.singletonList(childFilter);
+    } else {
+      predicateTrees = childFilter.getChildren();
+    }
+
+    List<Predicate> predicates = new ArrayList<>(predicateTrees.size());
+    List<PredicateEvaluator> predicateEvaluators = new ArrayList<>(predicateTrees.size());
+    boolean alwaysFalse = true;
+    for (FilterQueryTree predicateTree : predicateTrees) {
+      Predicate predicate = Predicate.newPredicate(predicateTree);
+      PredicateEvaluator predicateEvaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, dictionary);
+      alwaysFalse &= predicateEvaluator.alwaysFalse();
+      predicates.add(predicate);
+      predicateEvaluators.add(predicateEvaluator);
+    }
 
     // If dictionary does not have any values that satisfy the predicate, set emptyResults to
     // true.
-    if (predicateEvaluator.alwaysFalse()) {
+    if (alwaysFalse) {
       emptyResult = true;
     }
 
     // Store this predicate, we will have to apply it later
-    predicateEntry = new PredicateEntry(predicate, predicateEvaluator);
+    PredicateEntry predicateEntry = new PredicateEntry(predicates, predicateEvaluators);
     predicateColumns.add(column);
     predicatesMap.put(column, predicateEntry);
   }
@@ -299,6 +319,17 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
 
   private BaseFilterOperator createChildOperator(int startDocId, int endDocId, String column,
       PredicateEntry predicateEntry) {
+    if (predicateEntry.predicates.size() == 1) {
+      return createChildOperator(startDocId, endDocId, column, predicateEntry.predicates.get(0));
+    }
+    List<Operator> operators = new ArrayList<>(predicateEntry.predicates.size());
+    for (Predicate predicate : predicateEntry.predicates) {
+      operators.add(createChildOperator(startDocId, endDocId, column, predicate));
+    }
+    return new OrOperator(operators);
+  }
+
+  private BaseFilterOperator createChildOperator(int startDocId, int endDocId, String column, Predicate predicate) {
     DataSource dataSource = segment.getDataSource(column);
     DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
     BaseFilterOperator childOperator;
@@ -311,7 +342,7 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     } else {
       childOperator = new ScanBasedFilterOperator(dataSource, startDocId, endDocId);
     }
-    childOperator.setPredicate(predicateEntry.predicate);
+    childOperator.setPredicate(predicate);
     return childOperator;
   }
 
@@ -429,7 +460,7 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
       remainingPredicateColumns.remove(column);
       remainingGroupByColumns.remove(column);
 
-      int[] matchingDictionaryIds = predicateEntry.predicateEvaluator.getMatchingDictionaryIds();
+      int[] matchingDictionaryIds = predicateEntry.getMatchingDictionaryIds();
       for (int matchingDictionaryId : matchingDictionaryIds) {
         StarTreeIndexNodeInterf child = node.getChildForDimensionValue(matchingDictionaryId);
         if (child != null) {
@@ -491,13 +522,29 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     }
   }
 
+  /**
+   * Predicates on a single column, OR'ed together.
+   */
   class PredicateEntry {
-    Predicate predicate;
-    private PredicateEvaluator predicateEvaluator;
+    List<Predicate> predicates;
+    private List<PredicateEvaluator> predicateEvaluators;
+
+    public PredicateEntry(List<Predicate> predicates, List<PredicateEvaluator> predicateEvaluators) {
+      this.predicates = predicates;
+      this.predicateEvaluators = predicateEvaluators;
+    }
 
-    public PredicateEntry(Predicate predicate, PredicateEvaluator predicateEvaluator) {
-      this.predicate = predicate;
-      this.predicateEvaluator = predicateEvaluator;
+    public int[] getMatchingDictionaryIds() {
+      if (predicateEvaluators.size() == 1) {
+        return predicateEvaluators.get(0).getMatchingDictionaryIds();
+      }
+      IntSortedSet matchingDictionaryIds = new IntAVLTreeSet();
+      for (PredicateEvaluator predicateEvaluator : predicateEvaluators) {
+        for (int dictionaryId : predicateEvaluator.getMatchingDictionaryIds()) {
+          matchingDictionaryIds.add(dictionaryId);
+        }
+      }
+      return matchingDictionaryIds.toIntArray();
     }
   }
 }
@@ -77,6 +77,17 @@ public class EqualsPredicateEvaluator implements PredicateEvaluator {
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      // Unconditional store keeps the loop branch free.
+      matchingPositions[numMatching] = i;
+      numMatching += (dictionaryIds[i] == equalsMatchDictId) ? 1 : 0;
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return equalsMatchDictId < 0;
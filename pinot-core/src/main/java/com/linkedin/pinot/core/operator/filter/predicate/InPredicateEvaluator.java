@@ -84,6 +84,17 @@ public class InPredicateEvaluator implements PredicateEvaluator {
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      if (dictIdSet.contains(dictionaryIds[i])) {
+        matchingPositions[numMatching++] = i;
+      }
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return matchingIds == null || matchingIds.length == 0;
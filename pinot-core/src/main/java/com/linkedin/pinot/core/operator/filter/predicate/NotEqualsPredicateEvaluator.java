@@ -98,6 +98,16 @@ public class NotEqualsPredicateEvaluator implements PredicateEvaluator {
     return true;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      matchingPositions[numMatching] = i;
+      numMatching += (dictionaryIds[i] != neqDictValue) ? 1 : 0;
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return nonMatchingDictIds.length == dictionary.length();
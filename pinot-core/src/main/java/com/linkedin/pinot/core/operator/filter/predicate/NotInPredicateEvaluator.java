@@ -95,6 +95,17 @@ public class NotInPredicateEvaluator implements PredicateEvaluator {
     return true;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      if (!nonMatchingDictIdSet.contains(dictionaryIds[i])) {
+        matchingPositions[numMatching++] = i;
+      }
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return nonMatchingIds.length == dictionary.length();
@@ -36,6 +36,16 @@ public interface PredicateEvaluator {
    */
   public boolean apply(int[] dictionaryIds, int length);
 
+  /**
+   * Evaluates the predicate against a block of single value dictionary ids (one per doc).
+   * @param dictionaryIds dictionary ids for a contiguous block of docs
+   * @param length how many elements in the array should the predicate be evaluated against
+   * @param matchingPositions output array (at least length elements) filled with the positions
+   *                          within dictionaryIds that match the predicate, in increasing order
+   * @return number of matching positions written
+   */
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions);
+
   /**
    * @return matching dictionary Ids
    */
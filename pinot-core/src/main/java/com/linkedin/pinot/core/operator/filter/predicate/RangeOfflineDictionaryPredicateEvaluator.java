@@ -94,6 +94,13 @@ public class RangeOfflineDictionaryPredicateEvaluator implements PredicateEvalua
     return matchingIds;
   }
 
+  /**
+   * Returns the number of matching dictionary ids, without materializing them.
+   */
+  public int getNumMatchingDictionaryIds() {
+    return matchingSize;
+  }
+
   @Override
   public int[] getNonMatchingDictionaryIds() {
     throw new UnsupportedOperationException("Returning non matching values is expensive for predicateType:" + predicate.getType() );
@@ -110,6 +117,16 @@ public class RangeOfflineDictionaryPredicateEvaluator implements PredicateEvalua
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      matchingPositions[numMatching] = i;
+      numMatching += (dictionaryIds[i] >= rangeStartIndex && dictionaryIds[i] <= rangeEndIndex) ? 1 : 0;
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return ((rangeEndIndex - rangeStartIndex) + 1) <= 0;
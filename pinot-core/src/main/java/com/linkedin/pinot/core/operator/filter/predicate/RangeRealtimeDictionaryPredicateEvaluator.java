@@ -109,6 +109,20 @@ public class RangeRealtimeDictionaryPredicateEvaluator implements PredicateEvalu
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int[] matchingPositions) {
+    if (dictIdSet == null) {
+      return 0;
+    }
+    int numMatching = 0;
+    for (int i = 0; i < length; i++) {
+      if (dictIdSet.contains(dictionaryIds[i])) {
+        matchingPositions[numMatching++] = i;
+      }
+    }
+    return numMatching;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return matchingIds.length == 0;
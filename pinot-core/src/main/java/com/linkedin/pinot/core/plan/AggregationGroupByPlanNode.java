@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.plan;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
@@ -62,7 +63,9 @@ public class AggregationGroupByPlanNode implements PlanNode {
       String columns = aggregationInfo.getAggregationParams().get("column").trim();
       aggregationGroupByRelatedColumns.addAll(Arrays.asList(columns.split(",")));
     }
-    aggregationGroupByRelatedColumns.addAll(_groupBy.getColumns());
+    for (String groupByColumn : _groupBy.getColumns()) {
+      aggregationGroupByRelatedColumns.add(TimeBucketExpression.getColumnName(groupByColumn));
+    }
     return aggregationGroupByRelatedColumns.toArray(new String[aggregationGroupByRelatedColumns.size()]);
   }
 
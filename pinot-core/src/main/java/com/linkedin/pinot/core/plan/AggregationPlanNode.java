@@ -17,10 +17,12 @@ package com.linkedin.pinot.core.plan;
 
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.aggregation.AggregationOperator;
+import com.linkedin.pinot.core.operator.aggregation.CountStarOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionUtils;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
 import java.util.Arrays;
@@ -41,15 +43,36 @@ public class AggregationPlanNode implements PlanNode {
   private final IndexSegment _indexSegment;
   private final List<AggregationInfo> _aggregationInfos;
   private final ProjectionPlanNode _projectionPlanNode;
+  private final FilterPlanNode _filterPlanNode;
 
   public AggregationPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest) {
     _indexSegment = indexSegment;
     _aggregationInfos = brokerRequest.getAggregationsInfo();
-    _projectionPlanNode = new ProjectionPlanNode(_indexSegment, getAggregationRelatedColumns(),
-        new DocIdSetPlanNode(_indexSegment, brokerRequest));
     for (AggregationInfo aggregationInfo : _aggregationInfos) {
       AggregationFunctionUtils.ensureAggregationColumnsAreSingleValued(aggregationInfo, _indexSegment);
     }
+    if (isCountStarOnly()) {
+      // COUNT(*) only query, no need to project any column.
+      _projectionPlanNode = null;
+      _filterPlanNode = new FilterPlanNode(_indexSegment, brokerRequest);
+    } else {
+      _projectionPlanNode = new ProjectionPlanNode(_indexSegment, getAggregationRelatedColumns(),
+          new DocIdSetPlanNode(_indexSegment, brokerRequest));
+      _filterPlanNode = null;
+    }
+  }
+
+  /**
+   * Returns true if all the aggregations are COUNT. Such queries never use the star tree (see
+   * {@link RequestUtils#ALLOWED_AGGREGATION_FUNCTIONS}), so the filter always returns raw docs.
+   */
+  private boolean isCountStarOnly() {
+    for (AggregationInfo aggregationInfo : _aggregationInfos) {
+      if (!aggregationInfo.getAggregationType().equalsIgnoreCase("count")) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private String[] getAggregationRelatedColumns() {
@@ -65,6 +88,10 @@ public class AggregationPlanNode implements PlanNode {
 
   @Override
   public Operator run() {
+    if (_filterPlanNode != null) {
+      return new CountStarOperator(_aggregationInfos, _filterPlanNode.run(),
+          _indexSegment.getSegmentMetadata().getTotalRawDocs());
+    }
     MProjectionOperator projectionOperator = (MProjectionOperator) _projectionPlanNode.run();
     return new AggregationOperator(_aggregationInfos, projectionOperator,
         _indexSegment.getSegmentMetadata().getTotalRawDocs());
@@ -73,6 +100,14 @@ public class AggregationPlanNode implements PlanNode {
   @Override
   public void showTree(String prefix) {
     LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
+    if (_filterPlanNode != null) {
+      LOGGER.debug(prefix + "Operator: CountStarOperator");
+      LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+      LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
+      LOGGER.debug(prefix + "Argument 2: Filter -");
+      _filterPlanNode.showTree(prefix + "    ");
+      return;
+    }
     LOGGER.debug(prefix + "Operator: AggregationOperator");
     LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
     LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.aggregation.CachedAggregationOperator;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>CachedAggregationPlanNode</code> class wraps the aggregation only plan of a single segment with the
+ * {@link SegmentResultCache}. The underlying plan is only run on a cache miss.
+ */
+public class CachedAggregationPlanNode implements PlanNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CachedAggregationPlanNode.class);
+
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.CacheKey _cacheKey;
+  private final PlanNode _aggregationPlanNode;
+
+  public CachedAggregationPlanNode(SegmentResultCache segmentResultCache, SegmentResultCache.CacheKey cacheKey,
+      PlanNode aggregationPlanNode) {
+    _segmentResultCache = segmentResultCache;
+    _cacheKey = cacheKey;
+    _aggregationPlanNode = aggregationPlanNode;
+  }
+
+  @Override
+  public Operator run() {
+    SegmentResultCache.CachedResult cachedResult = _segmentResultCache.get(_cacheKey);
+    if (cachedResult != null) {
+      return new CachedAggregationOperator(cachedResult);
+    }
+    return new CachedAggregationOperator(_segmentResultCache, _cacheKey, _aggregationPlanNode.run());
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
+    LOGGER.debug(prefix + "Operator: CachedAggregationOperator");
+    LOGGER.debug(prefix + "Argument 0: Aggregation Plan -");
+    _aggregationPlanNode.showTree(prefix + "    ");
+  }
+}
@@ -69,8 +69,9 @@ public class CombinePlanNode implements PlanNode {
     int numPlanNodes = _planNodes.size();
     List<Operator> operators = new ArrayList<>(numPlanNodes);
 
-    if (numPlanNodes < NUM_PLAN_NODES_THRESHOLD_FOR_PARALLEL_RUN) {
-      // Small number of plan nodes, run them sequentially.
+    if (numPlanNodes < NUM_PLAN_NODES_THRESHOLD_FOR_PARALLEL_RUN || areAllPlanNodesLazy()) {
+      // Small number of plan nodes or lazy plan nodes, run them sequentially. Lazy plan nodes are cheap to run as they
+      // only build their operator tree inside the combine operator.
       for (PlanNode planNode : _planNodes) {
         operators.add(planNode.run());
       }
@@ -123,6 +124,15 @@ public class CombinePlanNode implements PlanNode {
     }
   }
 
+  private boolean areAllPlanNodesLazy() {
+    for (PlanNode planNode : _planNodes) {
+      if (!(planNode instanceof LazyPlanNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public void showTree(String prefix) {
     LOGGER.debug(prefix + "Instance Level Inter-Segments Combine Plan Node:");
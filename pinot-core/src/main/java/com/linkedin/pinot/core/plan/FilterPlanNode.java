@@ -29,6 +29,7 @@ import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.Pairs.IntPair;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.DataSourceMetadata;
@@ -43,16 +44,26 @@ import com.linkedin.pinot.core.operator.filter.OrOperator;
 import com.linkedin.pinot.core.operator.filter.ScanBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.SortedInvertedIndexBasedFilterOperator;
 import com.linkedin.pinot.core.operator.filter.StarTreeIndexOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangeOfflineDictionaryPredicateEvaluator;
 import com.linkedin.pinot.core.realtime.RealtimeSegment;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
 
 
 /**
  */
 public class FilterPlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(FilterPlanNode.class);
+  // Above this number of matching dictionary ids, fall back to the cardinality based estimate.
+  private static final int MAX_DICT_IDS_FOR_EXACT_ESTIMATE = 64;
   private final BrokerRequest _brokerRequest;
   private final IndexSegment _segment;
 
+  // Estimated fraction of documents matched by each constructed filter operator, used to order AND/OR children.
+  private final Map<Operator, Double> _selectivityMap = new HashMap<Operator, Double>();
+
   public FilterPlanNode(IndexSegment segment, BrokerRequest brokerRequest) {
     _segment = segment;
     _brokerRequest = brokerRequest;
@@ -95,10 +106,21 @@ public class FilterPlanNode implements PlanNode {
         case AND:
           reorder(operators);
           ret = new AndOperator(operators);
+          // Assume the children are independent.
+          double andSelectivity = 1.0;
+          for (Operator operator : operators) {
+            andSelectivity *= getSelectivity(operator);
+          }
+          _selectivityMap.put(ret, andSelectivity);
           break;
         case OR:
           reorder(operators);
           ret = new OrOperator(operators);
+          double orSelectivity = 0.0;
+          for (Operator operator : operators) {
+            orSelectivity += getSelectivity(operator);
+          }
+          _selectivityMap.put(ret, Math.min(1.0, orSelectivity));
           break;
         default:
           throw new UnsupportedOperationException(
@@ -132,13 +154,92 @@ public class FilterPlanNode implements PlanNode {
       }
       baseFilterOperator.setPredicate(predicate);
       ret = baseFilterOperator;
+      double selectivity = 1.0;
+      if (dataSourceMetadata.hasDictionary()) {
+        // Build the predicate evaluator once, for both the estimate and the operator.
+        PredicateEvaluator evaluator = null;
+        try {
+          evaluator = PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, ds.getDictionary());
+        } catch (UnsupportedOperationException e) {
+          // Unsupported predicate type, the operator reports the error when executed.
+          LOGGER.debug("Cannot build predicate evaluator for predicate: {}", predicate, e);
+        }
+        if (evaluator != null) {
+          baseFilterOperator.setPredicateEvaluator(evaluator);
+          selectivity = estimateSelectivity(ds, predicate, evaluator, baseFilterOperator);
+        }
+      }
+      _selectivityMap.put(ret, selectivity);
     }
     return ret;
   }
 
+  private double getSelectivity(Operator operator) {
+    Double selectivity = _selectivityMap.get(operator);
+    return (selectivity == null) ? 1.0 : selectivity;
+  }
+
+  /**
+   * Estimates the fraction of documents in the segment matching the given predicate.
+   * <ul>
+   *   <li>For sorted and bitmap based operators on an offline segment with EQ/IN predicates, this is exact, as the
+   *   number of docs for each matching dictionary id can be read from the index.</li>
+   *   <li>Otherwise, the number of matching dictionary ids relative to the column cardinality is used, which assumes
+   *   a uniform distribution of values.</li>
+   * </ul>
+   * Returns 1.0 when nothing can be inferred, so that the operator is not favored.
+   */
+  private double estimateSelectivity(DataSource dataSource, Predicate predicate, PredicateEvaluator evaluator,
+      BaseFilterOperator operator) {
+    int cardinality = dataSource.getDataSourceMetadata().cardinality();
+    int totalDocs = _segment.getSegmentMetadata().getTotalRawDocs();
+    if (cardinality <= 0 || totalDocs <= 0) {
+      return 1.0;
+    }
+
+    boolean isOffline = dataSource.getDictionary() instanceof ImmutableDictionaryReader;
+    switch (predicate.getType()) {
+      case EQ:
+      case IN:
+        int[] matchingDictIds = evaluator.getMatchingDictionaryIds();
+        if (isOffline && matchingDictIds.length <= MAX_DICT_IDS_FOR_EXACT_ESTIMATE) {
+          if (operator instanceof SortedInvertedIndexBasedFilterOperator) {
+            InvertedIndexReader invertedIndex = dataSource.getInvertedIndex();
+            long numMatchingDocs = 0L;
+            for (int dictId : matchingDictIds) {
+              IntPair range = invertedIndex.getMinMaxRangeFor(dictId);
+              numMatchingDocs += range.getRight() - range.getLeft() + 1;
+            }
+            return Math.min(1.0, (double) numMatchingDocs / totalDocs);
+          }
+          if (operator instanceof BitmapBasedFilterOperator) {
+            InvertedIndexReader invertedIndex = dataSource.getInvertedIndex();
+            long numMatchingDocs = 0L;
+            for (int dictId : matchingDictIds) {
+              numMatchingDocs += invertedIndex.getImmutable(dictId).getCardinality();
+            }
+            return Math.min(1.0, (double) numMatchingDocs / totalDocs);
+          }
+        }
+        return Math.min(1.0, (double) matchingDictIds.length / cardinality);
+      case NEQ:
+      case NOT_IN:
+        return Math.max(0.0, 1.0 - (double) evaluator.getNonMatchingDictionaryIds().length / cardinality);
+      case RANGE:
+        if (evaluator instanceof RangeOfflineDictionaryPredicateEvaluator) {
+          int numMatchingDictIds = ((RangeOfflineDictionaryPredicateEvaluator) evaluator).getNumMatchingDictionaryIds();
+          return Math.min(1.0, (double) numMatchingDictIds / cardinality);
+        }
+        return Math.min(1.0, (double) evaluator.getMatchingDictionaryIds().length / cardinality);
+      default:
+        return 1.0;
+    }
+  }
+
   /**
-   * Re orders operators, puts Sorted -> Inverted and then Raw scan. TODO: With Inverted, we can
-   * further optimize based on cardinality
+   * Re orders operators, puts Sorted -> Inverted and then Raw scan. Operators of the same kind are ordered by their
+   * estimated selectivity, so that the most selective ones drive the iteration and the more expensive ones only need
+   * to be evaluated on the surviving docs.
    * @param operators
    */
   private void reorder(List<Operator> operators) {
@@ -163,7 +264,11 @@ public class FilterPlanNode implements PlanNode {
     Comparator<? super Operator> comparator = new Comparator<Operator>() {
       @Override
       public int compare(Operator o1, Operator o2) {
-        return Integer.compare(operatorPriorityMap.get(o1), operatorPriorityMap.get(o2));
+        int result = Integer.compare(operatorPriorityMap.get(o1), operatorPriorityMap.get(o2));
+        if (result != 0) {
+          return result;
+        }
+        return Double.compare(getSelectivity(o1), getSelectivity(o2));
       }
     };
     Collections.sort(operators, comparator);
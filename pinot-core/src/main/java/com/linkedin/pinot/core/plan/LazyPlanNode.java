@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+
+
+/**
+ * The <code>LazyPlanNode</code> class defers building the inner-segment plan of a segment until its result is
+ * requested.
+ * <p>Running this plan node is cheap: it returns an operator that builds the underlying plan node and operator tree only
+ * when its block is fetched, i.e. inside the combine worker thread processing the segment. Plan building is thus
+ * parallelized across the combine threads, and the operator tree of a segment is only held while the segment is being
+ * processed.
+ */
+public abstract class LazyPlanNode implements PlanNode {
+
+  /**
+   * Builds the underlying plan node. Called from the combine worker threads, so must be thread-safe.
+   */
+  protected abstract PlanNode makePlanNode();
+
+  @Override
+  public Operator run() {
+    return new LazyOperator(this);
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    makePlanNode().showTree(prefix);
+  }
+
+  /**
+   * Operator building and running the underlying operator when its block is fetched.
+   */
+  private static class LazyOperator extends BaseOperator {
+    private final LazyPlanNode _lazyPlanNode;
+    private int _nextBlockCallCounter = 0;
+    private ExecutionStatistics _executionStatistics;
+
+    private LazyOperator(LazyPlanNode lazyPlanNode) {
+      _lazyPlanNode = lazyPlanNode;
+    }
+
+    @Override
+    public Block getNextBlock() {
+      return getNextBlock(new BlockId(_nextBlockCallCounter++));
+    }
+
+    @Override
+    public Block getNextBlock(BlockId blockId) {
+      if (blockId.getId() > 0) {
+        return null;
+      }
+
+      // The underlying operator is opened right before its block is fetched, and released as soon as it is fetched.
+      Operator operator = _lazyPlanNode.makePlanNode().run();
+      try {
+        operator.open();
+        Block block = operator.nextBlock();
+        _executionStatistics = operator.getExecutionStatistics();
+        return block;
+      } finally {
+        operator.close();
+      }
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+
+    @Override
+    public ExecutionStatistics getExecutionStatistics() {
+      return _executionStatistics;
+    }
+  }
+}
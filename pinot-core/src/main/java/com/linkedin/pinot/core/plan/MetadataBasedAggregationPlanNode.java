@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.aggregation.MetadataBasedAggregationOperator;
+import com.linkedin.pinot.core.operator.filter.predicate.RangeOfflineDictionaryPredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>MetadataBasedAggregationPlanNode</code> class provides the execution plan for aggregation only queries on
+ * a single segment that can be answered without reading any document:
+ * <ul>
+ *   <li>The segment is immutable, so its number of docs is fixed and its dictionaries are sorted.</li>
+ *   <li>The filter matches the entire segment: there is no filter, or its predicates match all the values of their
+ *   column, e.g. the time boundary filter of a hybrid table on a segment that lies entirely on one side of it.</li>
+ *   <li>All the aggregations are COUNT, or MIN, MAX and MINMAXRANGE on single-value numeric columns. The latter are not
+ *   answered on star tree segments, as the metric dictionaries also hold the values of the aggregated docs.</li>
+ * </ul>
+ */
+public class MetadataBasedAggregationPlanNode implements PlanNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetadataBasedAggregationPlanNode.class);
+
+  private final IndexSegment _indexSegment;
+  private final List<AggregationInfo> _aggregationInfos;
+
+  public MetadataBasedAggregationPlanNode(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    _indexSegment = indexSegment;
+    _aggregationInfos = brokerRequest.getAggregationsInfo();
+  }
+
+  /**
+   * Returns whether the given query can be answered on the given segment from the segment metadata and dictionaries.
+   */
+  public static boolean isFitForMetadataBasedPlan(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    if (!brokerRequest.isSetAggregationsInfo() || brokerRequest.isSetGroupBy()) {
+      return false;
+    }
+    if (!(indexSegment instanceof IndexSegmentImpl)) {
+      return false;
+    }
+
+    SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+    for (AggregationInfo aggregationInfo : brokerRequest.getAggregationsInfo()) {
+      switch (aggregationInfo.getAggregationType().toLowerCase()) {
+        case "count":
+          break;
+        case "min":
+        case "max":
+        case "minmaxrange":
+          if (segmentMetadata.hasStarTree()) {
+            return false;
+          }
+          String column = aggregationInfo.getAggregationParams().get("column").trim();
+          Dictionary dictionary = getImmutableDictionary(indexSegment, column);
+          if (dictionary == null || dictionary instanceof StringDictionary || dictionary.length() == 0
+              || !indexSegment.getDataSource(column).getDataSourceMetadata().isSingleValue()) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+
+    return matchesEntireSegment(indexSegment, RequestUtils.generateFilterQueryTree(brokerRequest));
+  }
+
+  /**
+   * Returns whether the filter matches all the docs of the segment. A leaf predicate matches all the docs if it
+   * matches all the values in the dictionary of its column, which is decided on the sorted dictionary for RANGE and
+   * EQUALITY predicates.
+   */
+  private static boolean matchesEntireSegment(IndexSegment indexSegment, FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null) {
+      return true;
+    }
+
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      switch (filterQueryTree.getOperator()) {
+        case AND:
+          for (FilterQueryTree child : children) {
+            if (!matchesEntireSegment(indexSegment, child)) {
+              return false;
+            }
+          }
+          return true;
+        case OR:
+          for (FilterQueryTree child : children) {
+            if (matchesEntireSegment(indexSegment, child)) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          return false;
+      }
+    }
+
+    ImmutableDictionaryReader dictionary = getImmutableDictionary(indexSegment, filterQueryTree.getColumn());
+    if (dictionary == null) {
+      return false;
+    }
+    FilterOperator filterOperator = filterQueryTree.getOperator();
+    if (filterOperator == FilterOperator.RANGE) {
+      RangeOfflineDictionaryPredicateEvaluator evaluator =
+          new RangeOfflineDictionaryPredicateEvaluator((RangePredicate) Predicate.newPredicate(filterQueryTree),
+              dictionary);
+      return evaluator.getNumMatchingDictionaryIds() == dictionary.length();
+    }
+    if (filterOperator == FilterOperator.EQUALITY) {
+      return dictionary.length() == 1 && dictionary.indexOf(filterQueryTree.getValue().get(0)) == 0;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the sorted dictionary of the given column, or null if the column does not exist or has no sorted
+   * dictionary.
+   */
+  private static ImmutableDictionaryReader getImmutableDictionary(IndexSegment indexSegment, String column) {
+    if (!indexSegment.getSegmentMetadata().getSchema().hasColumn(column)) {
+      return null;
+    }
+    DataSource dataSource = indexSegment.getDataSource(column);
+    if (!dataSource.getDataSourceMetadata().hasDictionary()) {
+      return null;
+    }
+    Dictionary dictionary = dataSource.getDictionary();
+    if (dictionary instanceof ImmutableDictionaryReader) {
+      return (ImmutableDictionaryReader) dictionary;
+    }
+    return null;
+  }
+
+  @Override
+  public Operator run() {
+    return new MetadataBasedAggregationOperator(_aggregationInfos, _indexSegment);
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    LOGGER.debug(prefix + "Segment Level Inner-Segment Plan Node:");
+    LOGGER.debug(prefix + "Operator: MetadataBasedAggregationOperator");
+    LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    LOGGER.debug(prefix + "Argument 1: Aggregations - " + _aggregationInfos);
+  }
+}
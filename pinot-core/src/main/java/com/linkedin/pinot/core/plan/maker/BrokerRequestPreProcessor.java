@@ -15,11 +15,13 @@
  */
 package com.linkedin.pinot.core.plan.maker;
 
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.startree.hll.HllConstants;
 import java.util.List;
 import java.util.Objects;
 
@@ -37,6 +39,7 @@ public class BrokerRequestPreProcessor {
    * <p>Will apply the changes directly to the passed in object.
    * <p>The following steps are performed:
    * <ul>
+   *   <li>Rewrite 'distinctcounthll' on HLL columns to 'fasthll'.</li>
    *   <li>Rewrite 'fasthll' column name.</li>
    * </ul>
    *
@@ -46,12 +49,55 @@ public class BrokerRequestPreProcessor {
   public static void preProcess(List<IndexSegment> indexSegments, BrokerRequest brokerRequest) {
     if (brokerRequest.isSetAggregationsInfo()) {
       List<AggregationInfo> aggregationsInfo = brokerRequest.getAggregationsInfo();
+      rewriteDistinctCountHllOnHllColumns(indexSegments, aggregationsInfo);
       rewriteFastHllColumnName(indexSegments, aggregationsInfo);
     }
   }
 
   /**
-   * Rewrite 'fasthll' column name.
+   * Rewrite 'distinctcounthll' on HLL columns (derived or ingested already serialized) to 'fasthll', so that the
+   * stored HLL values are merged instead of hashing their serialized strings.
+   *
+   * @param indexSegments list of index segments.
+   * @param aggregationsInfo list of aggregation info.
+   */
+  private static void rewriteDistinctCountHllOnHllColumns(List<IndexSegment> indexSegments,
+      List<AggregationInfo> aggregationsInfo) {
+    for (AggregationInfo aggregationInfo : aggregationsInfo) {
+      if (aggregationInfo.getAggregationType().equalsIgnoreCase("distinctcounthll")) {
+        String column = aggregationInfo.getAggregationParams().get("column").trim();
+        boolean isFirstSegment = true;
+        String firstSegmentName = null;
+        boolean isHllColumn = false;
+        for (IndexSegment indexSegment : indexSegments) {
+          SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
+          boolean isHllColumnToCheck = isHllColumn(segmentMetadata, column);
+          if (isFirstSegment) {
+            isFirstSegment = false;
+            firstSegmentName = segmentMetadata.getName();
+            isHllColumn = isHllColumnToCheck;
+          } else if (isHllColumn != isHllColumnToCheck) {
+            throw new RuntimeException(
+                "Found inconsistency HLL column: " + column + ". In segment " + firstSegmentName + ": " + isHllColumn
+                    + "; In segment " + segmentMetadata.getName() + ": " + isHllColumnToCheck);
+          }
+        }
+        if (isHllColumn) {
+          aggregationInfo.setAggregationType("fasthll");
+        }
+      }
+    }
+  }
+
+  private static boolean isHllColumn(SegmentMetadata segmentMetadata, String column) {
+    FieldSpec fieldSpec = segmentMetadata.getSchema().getFieldSpecFor(column);
+    return (fieldSpec instanceof MetricFieldSpec)
+        && ((MetricFieldSpec) fieldSpec).getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL;
+  }
+
+  /**
+   * Rewrite 'fasthll' column name, and set the log2m of the HLL values to merge.
+   * <p>The HLL values of all segments must share the same log2m to be merged.
    *
    * @param indexSegments list of index segments.
    * @param aggregationsInfo list of aggregation info.
@@ -65,6 +111,7 @@ public class BrokerRequestPreProcessor {
         boolean isFirstSegment = true;
         String firstSegmentName = null;
         String hllDerivedColumn = null;
+        int hllLog2m = HllConstants.DEFAULT_LOG2M;
         for (IndexSegment indexSegment : indexSegments) {
           SegmentMetadata segmentMetadata = indexSegment.getSegmentMetadata();
           if (isFirstSegment) {
@@ -75,6 +122,9 @@ public class BrokerRequestPreProcessor {
             if (hllDerivedColumn != null) {
               aggregationInfo.getAggregationParams().put("column", hllDerivedColumn);
             }
+            hllLog2m = segmentMetadata.getHllLog2m();
+            aggregationInfo.getAggregationParams()
+                .put(HllConstants.HLL_LOG2M_AGGREGATION_PARAM, Integer.toString(hllLog2m));
           } else {
             // Perform consistency check on other index segments.
             String hllDerivedColumnToCheck =
@@ -85,6 +135,12 @@ public class BrokerRequestPreProcessor {
                       + hllDerivedColumn + "; In segment " + segmentMetadata.getName() + ": "
                       + hllDerivedColumnToCheck);
             }
+            int hllLog2mToCheck = segmentMetadata.getHllLog2m();
+            if (hllLog2m != hllLog2mToCheck) {
+              throw new RuntimeException(
+                  "Found inconsistency HLL log2m for column: " + column + ". In segment " + firstSegmentName + ": "
+                      + hllLog2m + "; In segment " + segmentMetadata.getName() + ": " + hllLog2mToCheck);
+            }
           }
         }
       }
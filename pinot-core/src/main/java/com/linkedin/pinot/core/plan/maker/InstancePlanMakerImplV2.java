@@ -20,12 +20,16 @@ import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
 import com.linkedin.pinot.core.plan.AggregationPlanNode;
+import com.linkedin.pinot.core.plan.CachedAggregationPlanNode;
 import com.linkedin.pinot.core.plan.CombinePlanNode;
 import com.linkedin.pinot.core.plan.GlobalPlanImplV0;
 import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
+import com.linkedin.pinot.core.plan.LazyPlanNode;
+import com.linkedin.pinot.core.plan.MetadataBasedAggregationPlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import java.util.ArrayList;
 import java.util.List;
@@ -47,11 +51,15 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   // private static final int DEFAULT_NUM_AGGR_GROUPS_LIMIT = 100_000;
   private final int _numAggrGroupsLimit = Integer.MAX_VALUE;
 
+  // Cache of per-segment results for immutable segments, null if disabled.
+  private final SegmentResultCache _segmentResultCache;
+
   /**
    * Default constructor.
    */
   public InstancePlanMakerImplV2() {
 //    _numAggrGroupsLimit = DEFAULT_NUM_AGGR_GROUPS_LIMIT;
+    _segmentResultCache = null;
   }
 
   /**
@@ -63,9 +71,24 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
    * @param queryExecutorConfig query executor configuration.
    */
   public InstancePlanMakerImplV2(QueryExecutorConfig queryExecutorConfig) {
+    this(queryExecutorConfig, null);
+  }
+
+  /**
+   * Constructor for usage when client requires to pass {@link QueryExecutorConfig} to this class.
+   * <ul>
+   *   <li>Set limit on number of aggregation groups in query result.</li>
+   *   <li>Set the cache of per-segment results for immutable segments.</li>
+   * </ul>
+   *
+   * @param queryExecutorConfig query executor configuration.
+   * @param segmentResultCache cache of per-segment results, null to disable result caching.
+   */
+  public InstancePlanMakerImplV2(QueryExecutorConfig queryExecutorConfig, SegmentResultCache segmentResultCache) {
     // TODO: Read the limit on number of aggregation groups in query result from config.
     // _numAggrGroupsLimit = queryExecutorConfig.getConfig().getInt(NUM_AGGR_GROUPS_LIMIT, DEFAULT_NUM_AGGR_GROUPS_LIMIT);
     // LOGGER.info("Maximum number of allowed groups for group-by query results: '{}'", _numAggrGroupsLimit);
+    _segmentResultCache = segmentResultCache;
   }
 
   @Override
@@ -75,6 +98,9 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
       if (brokerRequest.isSetGroupBy()) {
         // Aggregation group-by query.
         return new AggregationGroupByPlanNode(indexSegment, brokerRequest, _numAggrGroupsLimit);
+      } else if (MetadataBasedAggregationPlanNode.isFitForMetadataBasedPlan(indexSegment, brokerRequest)) {
+        // Aggregation only query answered from the segment metadata and dictionaries without reading any document.
+        return new MetadataBasedAggregationPlanNode(indexSegment, brokerRequest);
       } else {
         // Aggregation only query.
         return new AggregationPlanNode(indexSegment, brokerRequest);
@@ -90,7 +116,7 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   }
 
   @Override
-  public Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, BrokerRequest brokerRequest,
+  public Plan makeInterSegmentPlan(List<SegmentDataManager> segmentDataManagers, final BrokerRequest brokerRequest,
       ExecutorService executorService, long timeOutMs) {
     // TODO: pass in List<IndexSegment> directly.
     List<IndexSegment> indexSegments = new ArrayList<>(segmentDataManagers.size());
@@ -99,9 +125,31 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
     BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
 
-    List<PlanNode> planNodes = new ArrayList<>();
-    for (IndexSegment indexSegment : indexSegments) {
-      planNodes.add(makeInnerSegmentPlan(indexSegment, brokerRequest));
+    // Per-segment plans are built lazily inside the combine worker threads, see LazyPlanNode.
+    List<PlanNode> planNodes = new ArrayList<>(indexSegments.size());
+    final String tableName = brokerRequest.getQuerySource().getTableName();
+    BrokerRequest normalizedBrokerRequest = null;
+    for (final IndexSegment indexSegment : indexSegments) {
+      final SegmentResultCache.CacheKey cacheKey;
+      if (_segmentResultCache != null && SegmentResultCache.isCacheable(indexSegment, brokerRequest)) {
+        if (normalizedBrokerRequest == null) {
+          normalizedBrokerRequest = SegmentResultCache.normalize(brokerRequest);
+        }
+        cacheKey = SegmentResultCache.createKey(tableName, indexSegment, normalizedBrokerRequest);
+      } else {
+        cacheKey = null;
+      }
+      planNodes.add(new LazyPlanNode() {
+        @Override
+        protected PlanNode makePlanNode() {
+          PlanNode planNode = makeInnerSegmentPlan(indexSegment, brokerRequest);
+          // Metadata based results are cheaper to compute than to cache.
+          if (cacheKey != null && !(planNode instanceof MetadataBasedAggregationPlanNode)) {
+            planNode = new CachedAggregationPlanNode(_segmentResultCache, cacheKey, planNode);
+          }
+          return planNode;
+        }
+      });
     }
     CombinePlanNode combinePlanNode = new CombinePlanNode(planNodes, brokerRequest, executorService, timeOutMs);
 
@@ -71,6 +71,10 @@ public class AggregationFunctionRegistry {
     keyToFunctionWithDictionary.put("percentile90", Percentile90.class);
     keyToFunctionWithDictionary.put("percentile95", Percentile95.class);
     keyToFunctionWithDictionary.put("percentile99", Percentile99.class);
+    keyToFunctionWithDictionary.put("percentiletdigest50", Percentiletdigest50.class);
+    keyToFunctionWithDictionary.put("percentiletdigest90", Percentiletdigest90.class);
+    keyToFunctionWithDictionary.put("percentiletdigest95", Percentiletdigest95.class);
+    keyToFunctionWithDictionary.put("percentiletdigest99", Percentiletdigest99.class);
     
     // multi-value
     keyToFunctionWithDictionary.put("countmv", CountAggregationFunction.class);
@@ -90,6 +94,10 @@ public class AggregationFunctionRegistry {
     keyToFunctionWithDictionary.put("percentile90mv", Percentile90.class);
     keyToFunctionWithDictionary.put("percentile95mv", Percentile95.class);
     keyToFunctionWithDictionary.put("percentile99mv", Percentile99.class);
+    keyToFunctionWithDictionary.put("percentiletdigest50mv", Percentiletdigest50.class);
+    keyToFunctionWithDictionary.put("percentiletdigest90mv", Percentiletdigest90.class);
+    keyToFunctionWithDictionary.put("percentiletdigest95mv", Percentiletdigest95.class);
+    keyToFunctionWithDictionary.put("percentiletdigest99mv", Percentiletdigest99.class);
   }
 
   static {
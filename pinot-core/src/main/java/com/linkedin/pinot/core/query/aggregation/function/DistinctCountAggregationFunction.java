@@ -16,7 +16,7 @@
 package com.linkedin.pinot.core.query.aggregation.function;
 
 import com.linkedin.pinot.common.Utils;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 
 import java.io.Serializable;
 import java.util.List;
@@ -37,7 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class DistinctCountAggregationFunction implements AggregationFunction<IntOpenHashSet, Integer> {
+public class DistinctCountAggregationFunction implements AggregationFunction<DistinctCountSketch, Integer> {
   private static final Logger LOGGER = LoggerFactory.getLogger(DistinctCountAggregationFunction.class);
 
   private String _distinctCountColumnName;
@@ -52,8 +52,8 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   }
 
   @Override
-  public IntOpenHashSet aggregate(Block docIdSetBlock, Block[] block) {
-    IntOpenHashSet ret = new IntOpenHashSet();
+  public DistinctCountSketch aggregate(Block docIdSetBlock, Block[] block) {
+    DistinctCountSketch ret = new DistinctCountSketch();
     int docId = 0;
     Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
     BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
@@ -64,9 +64,9 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
         if (blockValIterator.skipTo(docId)) {
           int dictionaryIndex = blockValIterator.nextIntVal();
           if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-            ret.add(dictionaryReader.get(dictionaryIndex).hashCode());
+            ret.offer(dictionaryReader.get(dictionaryIndex).hashCode());
           } else {
-            ret.add(Integer.MIN_VALUE);
+            ret.offer(Integer.MIN_VALUE);
           }
         }
       }
@@ -75,9 +75,9 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
         if (blockValIterator.skipTo(docId)) {
           int dictionaryIndex = blockValIterator.nextIntVal();
           if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-            ret.add(((Number) dictionaryReader.get(dictionaryIndex)).hashCode());
+            ret.offer(((Number) dictionaryReader.get(dictionaryIndex)).hashCode());
           } else {
-            ret.add(Integer.MIN_VALUE);
+            ret.offer(Integer.MIN_VALUE);
           }
         }
       }
@@ -86,62 +86,64 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   }
 
   @Override
-  public IntOpenHashSet aggregate(IntOpenHashSet mergedResult, int docId, Block[] block) {
+  public DistinctCountSketch aggregate(DistinctCountSketch mergedResult, int docId, Block[] block) {
     if (mergedResult == null) {
-      mergedResult = new IntOpenHashSet();
+      mergedResult = new DistinctCountSketch();
     }
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
     if (blockValIterator.skipTo(docId)) {
       int dictId = blockValIterator.nextIntVal();
       if (dictId != Dictionary.NULL_VALUE_INDEX) {
         if (block[0].getMetadata().getDataType() == DataType.STRING) {
-          mergedResult.add(block[0].getMetadata().getDictionary().get(dictId).hashCode());
+          mergedResult.offer(block[0].getMetadata().getDictionary().get(dictId).hashCode());
         } else {
-          mergedResult.add(((Number) block[0].getMetadata().getDictionary().get(dictId)).hashCode());
+          mergedResult.offer(((Number) block[0].getMetadata().getDictionary().get(dictId)).hashCode());
         }
       } else {
-        mergedResult.add(Integer.MIN_VALUE);
+        mergedResult.offer(Integer.MIN_VALUE);
       }
     }
     return mergedResult;
   }
 
   @Override
-  public List<IntOpenHashSet> combine(List<IntOpenHashSet> aggregationResultList, CombineLevel combineLevel) {
+  public List<DistinctCountSketch> combine(List<DistinctCountSketch> aggregationResultList,
+      CombineLevel combineLevel) {
     if ((aggregationResultList == null) || aggregationResultList.isEmpty()) {
       return null;
     }
-    IntOpenHashSet intOpenHashSet = aggregationResultList.get(0);
+    DistinctCountSketch sketch = aggregationResultList.get(0);
     for (int i = 1; i < aggregationResultList.size(); ++i) {
-      intOpenHashSet.addAll(aggregationResultList.get(i));
+      sketch.merge(aggregationResultList.get(i));
     }
     aggregationResultList.clear();
-    aggregationResultList.add(intOpenHashSet);
+    aggregationResultList.add(sketch);
     return aggregationResultList;
   }
 
   @Override
-  public IntOpenHashSet combineTwoValues(IntOpenHashSet aggregationResult0, IntOpenHashSet aggregationResult1) {
+  public DistinctCountSketch combineTwoValues(DistinctCountSketch aggregationResult0,
+      DistinctCountSketch aggregationResult1) {
     if (aggregationResult0 == null) {
       return aggregationResult1;
     }
     if (aggregationResult1 == null) {
       return aggregationResult0;
     }
-    aggregationResult0.addAll(aggregationResult1);
+    aggregationResult0.merge(aggregationResult1);
     return aggregationResult0;
   }
 
   @Override
-  public Integer reduce(List<IntOpenHashSet> combinedResultList) {
+  public Integer reduce(List<DistinctCountSketch> combinedResultList) {
     if ((combinedResultList == null) || combinedResultList.isEmpty()) {
       return 0;
     }
-    IntOpenHashSet reducedResult = combinedResultList.get(0);
+    DistinctCountSketch reducedResult = combinedResultList.get(0);
     for (int i = 1; i < combinedResultList.size(); ++i) {
-      reducedResult.addAll(combinedResultList.get(i));
+      reducedResult.merge(combinedResultList.get(i));
     }
-    return reducedResult.size();
+    return (int) reducedResult.cardinality();
   }
 
   @Override
@@ -167,7 +169,7 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
 
   @Override
   public Serializable getDefaultValue() {
-    return new IntOpenHashSet();
+    return new DistinctCountSketch();
   }
 
 }
@@ -15,20 +15,19 @@
  */
 package com.linkedin.pinot.core.query.aggregation.function;
 
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 
 
 public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountAggregationFunction {
 
   @Override
-  public IntOpenHashSet aggregate(Block docIdSetBlock, Block[] block) {
-    IntOpenHashSet ret = new IntOpenHashSet();
+  public DistinctCountSketch aggregate(Block docIdSetBlock, Block[] block) {
+    DistinctCountSketch ret = new DistinctCountSketch();
     int docId = 0;
     BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
@@ -37,7 +36,7 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
     // If data type is String, we shouldn't hit here.
     while ((docId = docIdIterator.next()) != Constants.EOF) {
       if (blockValIterator.skipTo(docId)) {
-        ret.add(blockValIterator.nextIntVal());
+        ret.offer(blockValIterator.nextIntVal());
       }
     }
 
@@ -45,16 +44,16 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
   }
 
   @Override
-  public IntOpenHashSet aggregate(IntOpenHashSet mergedResult, int docId, Block[] block) {
+  public DistinctCountSketch aggregate(DistinctCountSketch mergedResult, int docId, Block[] block) {
     if (mergedResult == null) {
-      mergedResult = new IntOpenHashSet();
+      mergedResult = new DistinctCountSketch();
     }
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
     if (blockValIterator.skipTo(docId)) {
       if (block[0].getMetadata().getDataType() == DataType.STRING) {
-        mergedResult.add(block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal()).hashCode());
+        mergedResult.offer(block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal()).hashCode());
       } else {
-        mergedResult.add(((Number) block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal())).intValue());
+        mergedResult.offer(((Number) block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal())).intValue());
       }
     }
     return mergedResult;
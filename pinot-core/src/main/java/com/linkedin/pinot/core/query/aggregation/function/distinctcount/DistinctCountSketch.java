@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.distinctcount;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Adaptive sketch for the 'distinctcount' aggregation function.
+ * <p>Values (or value hashes) are kept in an exact set as long as the number of distinct values does not exceed the
+ * exact threshold. Past that, the sketch switches to a {@link HyperLogLog}, whose size is bounded by its log2m, so that
+ * the memory and the serialized size of high cardinality distinct counts stay bounded.
+ * <p>Sketches merge in any order: exact sketches merge into an exact sketch (which switches to HyperLogLog if the union
+ * gets too large), and a HyperLogLog merged with any sketch gives a HyperLogLog.
+ */
+public class DistinctCountSketch implements Serializable {
+  public static final int DEFAULT_EXACT_THRESHOLD = 10000;
+  // Relative standard error of 1.04 / sqrt(2^14), i.e. 0.8%, with a serialized size of about 11KB
+  public static final int DEFAULT_LOG2M = 14;
+
+  private static final byte EXACT = 0;
+  private static final byte HLL = 1;
+  private static final int HEADER_SIZE = 1 + 2 * V1Constants.Numbers.INTEGER_SIZE;
+
+  private final int _exactThreshold;
+  private final int _log2m;
+
+  // Exactly one of the value set and the HyperLogLog is not null
+  private IntOpenHashSet _valueSet;
+  private HyperLogLog _hll;
+
+  public DistinctCountSketch() {
+    this(DEFAULT_EXACT_THRESHOLD, DEFAULT_LOG2M);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param exactThreshold Max number of distinct values to count exactly.
+   * @param log2m Log2m of the HyperLogLog used past the exact threshold.
+   */
+  public DistinctCountSketch(int exactThreshold, int log2m) {
+    Preconditions.checkArgument(exactThreshold >= 0);
+    _exactThreshold = exactThreshold;
+    _log2m = log2m;
+    _valueSet = new IntOpenHashSet();
+  }
+
+  private DistinctCountSketch(int exactThreshold, int log2m, HyperLogLog hll) {
+    _exactThreshold = exactThreshold;
+    _log2m = log2m;
+    _hll = hll;
+  }
+
+  /**
+   * Returns whether the distinct count is still exact.
+   */
+  public boolean isExact() {
+    return _hll == null;
+  }
+
+  /**
+   * Offers a value (or value hash) to the sketch.
+   */
+  public void offer(int value) {
+    if (_hll != null) {
+      _hll.offer(value);
+    } else if (_valueSet.add(value) && _valueSet.size() > _exactThreshold) {
+      convertToHll();
+    }
+  }
+
+  /**
+   * Merges another sketch into this one. The other sketch is not modified.
+   */
+  public void merge(DistinctCountSketch other) {
+    if (other._hll == null) {
+      IntIterator iterator = other._valueSet.iterator();
+      while (iterator.hasNext()) {
+        offer(iterator.nextInt());
+      }
+    } else {
+      Preconditions.checkArgument(_log2m == other._log2m, "Cannot merge sketches with log2m: %s and %s", _log2m,
+          other._log2m);
+      if (_hll == null) {
+        convertToHll();
+      }
+      try {
+        _hll.addAll(other._hll);
+      } catch (CardinalityMergeException e) {
+        throw new RuntimeException("Caught exception while merging HyperLogLog", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of distinct values, exact below the exact threshold and estimated above.
+   */
+  public long cardinality() {
+    return (_hll == null) ? _valueSet.size() : _hll.cardinality();
+  }
+
+  private void convertToHll() {
+    HyperLogLog hll = new HyperLogLog(_log2m);
+    IntIterator iterator = _valueSet.iterator();
+    while (iterator.hasNext()) {
+      hll.offer(iterator.nextInt());
+    }
+    _hll = hll;
+    _valueSet = null;
+  }
+
+  /**
+   * Helper method to serialize the sketch into a byte-array: the exact set is serialized as its values, and the
+   * HyperLogLog as its registers.
+   *
+   * @return Serialized byte-array for the sketch.
+   */
+  public byte[] toBytes() {
+    ByteBuffer byteBuffer;
+    if (_hll == null) {
+      int size = _valueSet.size();
+      byteBuffer = ByteBuffer.allocate(HEADER_SIZE + (size + 1) * V1Constants.Numbers.INTEGER_SIZE);
+      putHeader(byteBuffer, EXACT);
+      byteBuffer.putInt(size);
+      IntIterator iterator = _valueSet.iterator();
+      while (iterator.hasNext()) {
+        byteBuffer.putInt(iterator.nextInt());
+      }
+    } else {
+      byte[] hllBytes;
+      try {
+        hllBytes = _hll.getBytes();
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while serializing HyperLogLog", e);
+      }
+      byteBuffer = ByteBuffer.allocate(HEADER_SIZE + hllBytes.length);
+      putHeader(byteBuffer, HLL);
+      byteBuffer.put(hllBytes);
+    }
+    return byteBuffer.array();
+  }
+
+  private void putHeader(ByteBuffer byteBuffer, byte type) {
+    byteBuffer.put(type);
+    byteBuffer.putInt(_exactThreshold);
+    byteBuffer.putInt(_log2m);
+  }
+
+  /**
+   * Helper method to de-serialize a sketch from a byte-array.
+   *
+   * @param bytes Serialized bytes of the sketch
+   * @return De-serialized sketch from the byte-array
+   */
+  public static DistinctCountSketch fromBytes(byte[] bytes) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    byte type = byteBuffer.get();
+    int exactThreshold = byteBuffer.getInt();
+    int log2m = byteBuffer.getInt();
+
+    switch (type) {
+      case EXACT:
+        DistinctCountSketch sketch = new DistinctCountSketch(exactThreshold, log2m);
+        int size = byteBuffer.getInt();
+        sketch._valueSet = new IntOpenHashSet(size);
+        for (int i = 0; i < size; i++) {
+          sketch._valueSet.add(byteBuffer.getInt());
+        }
+        return sketch;
+
+      case HLL:
+        byte[] hllBytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(hllBytes);
+        try {
+          return new DistinctCountSketch(exactThreshold, log2m, HyperLogLog.Builder.build(hllBytes));
+        } catch (IOException e) {
+          throw new RuntimeException("Caught exception while de-serializing HyperLogLog", e);
+        }
+
+      default:
+        throw new RuntimeException("Illegal distinct count sketch type: " + type);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(cardinality());
+  }
+}
@@ -0,0 +1,416 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest;
+
+import com.google.common.base.Preconditions;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Merging t-digest for streaming quantile estimation.
+ *
+ * <p>Values are first collected into a fixed size buffer, which is periodically merged into a sorted list of
+ * centroids (mean, weight). Centroids close to the median are allowed to absorb more weight than the ones at the
+ * tails, which bounds the number of centroids by the compression factor and keeps the relative error small for extreme
+ * quantiles. Memory usage is therefore fixed regardless of the number of values added.</p>
+ *
+ * <p>Two digests can be merged by feeding the centroids of one into the buffer of the other, which makes the digest
+ * suitable for combining per-segment results on the server and per-server results on the broker.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+public class TDigest implements Serializable {
+  public static final double DEFAULT_COMPRESSION = 200;
+
+  // Size of the buffer of un-merged values, relative to compression.
+  private static final int BUFFER_SIZE_FACTOR = 5;
+
+  private final double _compression;
+
+  // Sorted centroids.
+  private double[] _means;
+  private double[] _weights;
+  private int _numCentroids;
+
+  // Buffer of values (or centroids of other digests) not yet merged into the centroids.
+  private final double[] _bufferMeans;
+  private final double[] _bufferWeights;
+  private int _bufferSize;
+
+  private double _totalWeight;
+  private double _min = Double.POSITIVE_INFINITY;
+  private double _max = Double.NEGATIVE_INFINITY;
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param compression Compression factor, higher values give better accuracy at the cost of more centroids.
+   */
+  public TDigest(double compression) {
+    Preconditions.checkArgument(compression >= 10, "Compression must be at least 10, got: " + compression);
+    _compression = compression;
+
+    int capacity = (int) Math.ceil(compression);
+    _means = new double[capacity];
+    _weights = new double[capacity];
+    _numCentroids = 0;
+
+    int bufferCapacity = (int) Math.ceil(compression * BUFFER_SIZE_FACTOR);
+    _bufferMeans = new double[bufferCapacity];
+    _bufferWeights = new double[bufferCapacity];
+    _bufferSize = 0;
+  }
+
+  public double getCompression() {
+    return _compression;
+  }
+
+  public double getCount() {
+    return _totalWeight;
+  }
+
+  public double getMin() {
+    return _min;
+  }
+
+  public double getMax() {
+    return _max;
+  }
+
+  /**
+   * Adds a single value to the digest.
+   *
+   * @param value Value to add
+   */
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  /**
+   * Adds a value with the given weight to the digest.
+   *
+   * @param value Value to add
+   * @param weight Weight of the value, must be positive
+   */
+  public void add(double value, double weight) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (_bufferSize == _bufferMeans.length) {
+      compress();
+    }
+    _bufferMeans[_bufferSize] = value;
+    _bufferWeights[_bufferSize] = weight;
+    _bufferSize++;
+
+    _totalWeight += weight;
+    if (value < _min) {
+      _min = value;
+    }
+    if (value > _max) {
+      _max = value;
+    }
+  }
+
+  /**
+   * Merges the given digest into this one. The other digest is not modified, except for its buffer being merged into
+   * its centroids.
+   *
+   * @param other Digest to merge
+   */
+  public void merge(TDigest other) {
+    if (other == null || other._totalWeight == 0) {
+      return;
+    }
+    other.compress();
+    for (int i = 0; i < other._numCentroids; i++) {
+      if (_bufferSize == _bufferMeans.length) {
+        compress();
+      }
+      _bufferMeans[_bufferSize] = other._means[i];
+      _bufferWeights[_bufferSize] = other._weights[i];
+      _bufferSize++;
+    }
+    _totalWeight += other._totalWeight;
+    _min = Math.min(_min, other._min);
+    _max = Math.max(_max, other._max);
+  }
+
+  /**
+   * Merges a list of digests into a new digest.
+   *
+   * @param digests Digests to merge
+   * @return Merged digest, or null if the list is null or empty
+   */
+  public static TDigest merge(List<TDigest> digests) {
+    if (digests == null || digests.isEmpty()) {
+      return null;
+    }
+
+    TDigest merged = new TDigest(digests.get(0)._compression);
+    for (TDigest digest : digests) {
+      merged.merge(digest);
+    }
+    return merged;
+  }
+
+  /**
+   * Returns the estimated value at the given quantile.
+   *
+   * @param quantile Quantile in the range [0, 1]
+   * @return Estimated value, or NaN if the digest is empty
+   */
+  public double getQuantile(double quantile) {
+    Preconditions.checkArgument(quantile >= 0 && quantile <= 1, "Quantile must be in [0, 1], got: " + quantile);
+    compress();
+
+    if (_numCentroids == 0) {
+      return Double.NaN;
+    }
+    if (_numCentroids == 1) {
+      return _means[0];
+    }
+
+    double index = quantile * _totalWeight;
+
+    // Left of the first centroid center, interpolate from min.
+    double firstHalfWeight = _weights[0] / 2;
+    if (index < firstHalfWeight) {
+      return _min + (_means[0] - _min) * index / firstHalfWeight;
+    }
+
+    // Between two centroid centers.
+    double weightSoFar = firstHalfWeight;
+    for (int i = 0; i < _numCentroids - 1; i++) {
+      double deltaWeight = (_weights[i] + _weights[i + 1]) / 2;
+      if (weightSoFar + deltaWeight > index) {
+        double fraction = (index - weightSoFar) / deltaWeight;
+        return _means[i] + (_means[i + 1] - _means[i]) * fraction;
+      }
+      weightSoFar += deltaWeight;
+    }
+
+    // Right of the last centroid center, interpolate to max.
+    int last = _numCentroids - 1;
+    double lastHalfWeight = _weights[last] / 2;
+    double fraction = Math.min(1.0, (index - weightSoFar) / lastHalfWeight);
+    return _means[last] + (_max - _means[last]) * fraction;
+  }
+
+  /**
+   * Returns the number of centroids after merging the buffer.
+   */
+  public int getNumCentroids() {
+    compress();
+    return _numCentroids;
+  }
+
+  /**
+   * Merges the buffered values into the centroids.
+   */
+  private void compress() {
+    if (_bufferSize == 0) {
+      return;
+    }
+
+    int numValues = _numCentroids + _bufferSize;
+    double[] means = new double[numValues];
+    double[] weights = new double[numValues];
+    System.arraycopy(_means, 0, means, 0, _numCentroids);
+    System.arraycopy(_weights, 0, weights, 0, _numCentroids);
+    System.arraycopy(_bufferMeans, 0, means, _numCentroids, _bufferSize);
+    System.arraycopy(_bufferWeights, 0, weights, _numCentroids, _bufferSize);
+    _bufferSize = 0;
+    sort(means, weights, 0, numValues - 1);
+
+    // Merge adjacent centroids as long as the merged centroid spans at most one unit of the scale function
+    // k(q) = compression / (2 * PI) * asin(2q - 1), which bounds the number of centroids to compression / 2 while
+    // keeping centroids at the tails small.
+    double totalWeight = 0;
+    for (int i = 0; i < numValues; i++) {
+      totalWeight += weights[i];
+    }
+
+    double normalizer = _compression / (2 * Math.PI);
+    int current = 0;
+    double weightBefore = 0;
+    double kLeft = scale(normalizer, 0);
+    for (int i = 1; i < numValues; i++) {
+      double proposedWeight = weights[current] + weights[i];
+      double kRight = scale(normalizer, (weightBefore + proposedWeight) / totalWeight);
+
+      if (kRight - kLeft <= 1) {
+        means[current] += (means[i] - means[current]) * weights[i] / proposedWeight;
+        weights[current] = proposedWeight;
+      } else {
+        weightBefore += weights[current];
+        kLeft = scale(normalizer, weightBefore / totalWeight);
+        current++;
+        means[current] = means[i];
+        weights[current] = weights[i];
+      }
+    }
+
+    _numCentroids = current + 1;
+    if (_numCentroids > _means.length) {
+      _means = Arrays.copyOf(means, _numCentroids);
+      _weights = Arrays.copyOf(weights, _numCentroids);
+    } else {
+      System.arraycopy(means, 0, _means, 0, _numCentroids);
+      System.arraycopy(weights, 0, _weights, 0, _numCentroids);
+    }
+  }
+
+  private static double scale(double normalizer, double quantile) {
+    return normalizer * Math.asin(2 * Math.min(1.0, quantile) - 1);
+  }
+
+  /**
+   * In-place quick sort of the parallel mean/weight arrays on mean.
+   */
+  private static void sort(double[] means, double[] weights, int low, int high) {
+    while (low < high) {
+      if (high - low < 16) {
+        insertionSort(means, weights, low, high);
+        return;
+      }
+
+      double pivot = means[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (means[i] < pivot) {
+          i++;
+        }
+        while (means[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(means, weights, i, j);
+          i++;
+          j--;
+        }
+      }
+
+      // Recurse into the smaller partition to bound the stack depth.
+      if (j - low < high - i) {
+        sort(means, weights, low, j);
+        low = i;
+      } else {
+        sort(means, weights, i, high);
+        high = j;
+      }
+    }
+  }
+
+  private static void insertionSort(double[] means, double[] weights, int low, int high) {
+    for (int i = low + 1; i <= high; i++) {
+      double mean = means[i];
+      double weight = weights[i];
+      int j = i - 1;
+      while (j >= low && means[j] > mean) {
+        means[j + 1] = means[j];
+        weights[j + 1] = weights[j];
+        j--;
+      }
+      means[j + 1] = mean;
+      weights[j + 1] = weight;
+    }
+  }
+
+  private static void swap(double[] means, double[] weights, int i, int j) {
+    double tmp = means[i];
+    means[i] = means[j];
+    means[j] = tmp;
+    tmp = weights[i];
+    weights[i] = weights[j];
+    weights[j] = tmp;
+  }
+
+  /**
+   * Returns the size in bytes of the serialized digest.
+   */
+  public int getSerializedSizeInBytes() {
+    compress();
+    // compression, min, max, number of centroids, centroids.
+    return 3 * (Double.SIZE >> 3) + (Integer.SIZE >> 3) + _numCentroids * 2 * (Double.SIZE >> 3);
+  }
+
+  /**
+   * Serializes the digest into the given output. Buffered values are merged first, so only centroids are written.
+   *
+   * @param output Output to write to
+   * @throws IOException
+   */
+  public void serialize(DataOutput output)
+      throws IOException {
+    compress();
+    output.writeDouble(_compression);
+    output.writeDouble(_min);
+    output.writeDouble(_max);
+    output.writeInt(_numCentroids);
+    for (int i = 0; i < _numCentroids; i++) {
+      output.writeDouble(_means[i]);
+      output.writeDouble(_weights[i]);
+    }
+  }
+
+  /**
+   * De-serializes a digest written by {@link #serialize(DataOutput)}.
+   *
+   * @param input Input to read from
+   * @return De-serialized digest
+   * @throws IOException
+   */
+  public static TDigest deserialize(DataInput input)
+      throws IOException {
+    TDigest digest = new TDigest(input.readDouble());
+    double min = input.readDouble();
+    double max = input.readDouble();
+    int numCentroids = input.readInt();
+
+    if (numCentroids > digest._means.length) {
+      digest._means = new double[numCentroids];
+      digest._weights = new double[numCentroids];
+    }
+    double totalWeight = 0;
+    for (int i = 0; i < numCentroids; i++) {
+      digest._means[i] = input.readDouble();
+      digest._weights[i] = input.readDouble();
+      totalWeight += digest._weights[i];
+    }
+    digest._numCentroids = numCentroids;
+    digest._totalWeight = totalWeight;
+    digest._min = min;
+    digest._max = max;
+    return digest;
+  }
+
+  @Override
+  public String toString() {
+    return "TDigest{compression=" + _compression + ", count=" + _totalWeight + ", numCentroids=" + getNumCentroids()
+        + ", min=" + _min + ", max=" + _max + "}";
+  }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest;
+
+import com.linkedin.pinot.common.Utils;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Locale;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Percentile(Quantile) function implemented using {@link TDigest} estimation.
+ * Unlike the exact percentile, the intermediate result has a fixed size and can be merged across segments and
+ * servers, and unlike the QuantileDigest based estimation it supports non integer columns.
+ */
+public class TDigestAggregationFunction implements AggregationFunction<TDigest, Double> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TDigestAggregationFunction.class);
+
+  private String _columnName;
+  private byte _percentile; // 0-100
+
+  public TDigestAggregationFunction(byte percentile) {
+    _percentile = percentile;
+  }
+
+  @Override
+  public void init(AggregationInfo aggregationInfo) {
+    _columnName = aggregationInfo.getAggregationParams().get("column");
+  }
+
+  private void offerValueToTDigest(int docId, Block[] block, TDigest digest) {
+    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
+    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
+
+    if (blockValIterator.skipTo(docId)) {
+      int dictionaryIndex = blockValIterator.nextIntVal();
+      if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
+        digest.add(dictionaryReader.getDoubleValue(dictionaryIndex));
+      }
+    }
+  }
+
+  @Override
+  public TDigest aggregate(Block docIdSetBlock, Block[] block) {
+    DataType type = block[0].getMetadata().getDataType();
+    if (!type.isNumber()) {
+      throw new RuntimeException("Only number column can be used in percentiletdigest, get: " + type);
+    }
+
+    BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
+    TDigest ret = new TDigest();
+    int docId;
+    while ((docId = docIdIterator.next()) != Constants.EOF) {
+      offerValueToTDigest(docId, block, ret);
+    }
+
+    return ret;
+  }
+
+  @Override
+  public TDigest aggregate(TDigest mergedResult, int docId, Block[] block) {
+    DataType type = block[0].getMetadata().getDataType();
+    if (!type.isNumber()) {
+      throw new RuntimeException("Only number column can be used in percentiletdigest, get: " + type);
+    }
+
+    if (mergedResult == null) {
+      mergedResult = new TDigest();
+    }
+    offerValueToTDigest(docId, block, mergedResult);
+    return mergedResult;
+  }
+
+  @Override
+  public List<TDigest> combine(List<TDigest> aggregationResultList, CombineLevel combineLevel) {
+    if ((aggregationResultList == null) || aggregationResultList.isEmpty()) {
+      return null;
+    }
+
+    TDigest digestResult = TDigest.merge(aggregationResultList);
+    aggregationResultList.clear();
+    aggregationResultList.add(digestResult);
+    return aggregationResultList;
+  }
+
+  @Override
+  public TDigest combineTwoValues(TDigest aggregationResult0, TDigest aggregationResult1) {
+    if (aggregationResult0 == null) {
+      return aggregationResult1;
+    }
+    if (aggregationResult1 == null) {
+      return aggregationResult0;
+    }
+
+    aggregationResult0.merge(aggregationResult1);
+    return aggregationResult0;
+  }
+
+  @Override
+  public Double reduce(List<TDigest> combinedResultList) {
+    if ((combinedResultList == null) || combinedResultList.isEmpty()) {
+      return 0.0;
+    }
+
+    TDigest merged = TDigest.merge(combinedResultList);
+    if (merged.getCount() == 0) {
+      return 0.0;
+    }
+    return merged.getQuantile((_percentile + 0.0) / 100);
+  }
+
+  @Override
+  public JSONObject render(Double finalAggregationResult) {
+    try {
+      return new JSONObject().put("value", String.format(Locale.US, "%1.5f", finalAggregationResult));
+    } catch (JSONException e) {
+      LOGGER.error("Caught exception while rendering aggregation result", e);
+      Utils.rethrowException(e);
+      throw new AssertionError("Should not reach this");
+    }
+  }
+
+  @Override
+  public DataType aggregateResultDataType() {
+    return DataType.OBJECT;
+  }
+
+  @Override
+  public String getFunctionName() {
+    return "percentileTDigest" + _percentile + "_" + _columnName;
+  }
+
+  @Override
+  public Serializable getDefaultValue() {
+    return new TDigest();
+  }
+}
@@ -24,6 +24,7 @@ import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.response.broker.AggregationResult;
 import com.linkedin.pinot.common.response.broker.GroupByResult;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByCombineTable;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
 import java.io.Serializable;
@@ -34,6 +35,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -50,6 +56,9 @@ import org.slf4j.LoggerFactory;
 public class AggregationGroupByOperatorService {
   private static final Logger LOGGER = LoggerFactory.getLogger(AggregationGroupByOperatorService.class);
   private static final String MIN_PREFIX = "min_";
+  // Min number of groups to compute the TOP N of different aggregation functions in parallel
+  private static final int MIN_NUM_GROUPS_FOR_PARALLEL_RENDER = 10000;
+  private final List<AggregationInfo> _aggregationInfos;
   private final List<String> _groupByColumns;
   private final int _groupByTopN;
   private final int _trimThreshold;
@@ -57,6 +66,7 @@ public class AggregationGroupByOperatorService {
   private final List<AggregationFunction> _aggregationFunctionList;
 
   public AggregationGroupByOperatorService(List<AggregationInfo> aggregationInfos, GroupBy groupByQuery) {
+    _aggregationInfos = aggregationInfos;
     _aggregationFunctionList = AggregationFunctionFactory.getAggregationFunction(aggregationInfos);
     _groupByColumns = groupByQuery.getColumns();
     _groupByTopN = (int) groupByQuery.getTopN();
@@ -90,45 +100,6 @@ public class AggregationGroupByOperatorService {
     return _aggregationFunctionList;
   }
 
-  public List<Map<String, Serializable>> reduceGroupByOperators(Map<ServerInstance, DataTable> instanceResponseMap) {
-    if ((instanceResponseMap == null) || instanceResponseMap.isEmpty()) {
-      return null;
-    }
-    List<Map<String, Serializable>> reducedResult = null;
-    for (DataTable toBeReducedGroupByResults : instanceResponseMap.values()) {
-      if (reducedResult == null) {
-        if (toBeReducedGroupByResults != null) {
-          reducedResult = transformDataTableToGroupByResult(toBeReducedGroupByResults);
-        }
-      } else {
-        List<Map<String, Serializable>> toBeReducedResult =
-            transformDataTableToGroupByResult(toBeReducedGroupByResults);
-        for (int i = 0; i < reducedResult.size(); ++i) {
-          for (String key : toBeReducedResult.get(i).keySet()) {
-            if (reducedResult.get(i).containsKey(key)) {
-              reducedResult.get(i).put(key, _aggregationFunctionList.get(i)
-                  .combineTwoValues(reducedResult.get(i).get(key), toBeReducedResult.get(i).get(key)));
-            } else {
-              reducedResult.get(i).put(key, toBeReducedResult.get(i).get(key));
-            }
-          }
-        }
-      }
-    }
-    if (reducedResult != null) {
-      for (int i = 0; i < reducedResult.size(); ++i) {
-        Map<String, Serializable> functionLevelReducedResult = reducedResult.get(i);
-        for (String key : functionLevelReducedResult.keySet()) {
-          if (functionLevelReducedResult.get(key) != null) {
-            functionLevelReducedResult
-                .put(key, _aggregationFunctionList.get(i).reduce(Arrays.asList(functionLevelReducedResult.get(key))));
-          }
-        }
-      }
-    }
-    return reducedResult;
-  }
-
   public List<JSONObject> renderGroupByOperators(List<Map<String, Serializable>> finalAggregationResult) {
     try {
       if (finalAggregationResult == null || finalAggregationResult.size() != _aggregationFunctionList.size()) {
@@ -186,61 +157,84 @@ public class AggregationGroupByOperatorService {
   }
 
   /**
-   * Translate the reducedGroupByResults (output of broker's reduce) to AggregationResult object
-   * to be used to build the BrokerResponse.
+   * Reduce the group by results from all the servers, and render the TOP N groups of each aggregation function to
+   * AggregationResult objects to be used to build the BrokerResponse.
+   * The results are merged into a single {@link GroupByReduceTable}, and the TOP N of different aggregation functions
+   * are computed in parallel on the given executor service if any.
    *
-   * @param reducedGroupByResults
+   * @param instanceResponseMap Map from server to data table.
+   * @param executorService Executor service to compute the TOP N in parallel, or null to compute them sequentially.
    * @return
    */
-  public List<AggregationResult> renderAggregationGroupByResult(List<Map<String, Serializable>> reducedGroupByResults) {
-    if (reducedGroupByResults == null || reducedGroupByResults.size() != _aggregationFunctionList.size()) {
+  public List<AggregationResult> reduceAndRenderGroupByResults(Map<ServerInstance, DataTable> instanceResponseMap,
+      @Nullable ExecutorService executorService) {
+    if ((instanceResponseMap == null) || instanceResponseMap.isEmpty()) {
       return null;
     }
 
-    List<AggregationResult> aggregationResults = new ArrayList<AggregationResult>();
-    for (int i = 0; i < _aggregationFunctionList.size(); ++i) {
-      int groupSize = _groupByColumns.size();
-
-      Map<String, Serializable> reducedGroupByResult = reducedGroupByResults.get(i);
-      AggregationFunction aggregationFunction = _aggregationFunctionList.get(i);
-
-      String functionName = aggregationFunction.getFunctionName();
-      List<GroupByResult> groupByResults = new ArrayList<GroupByResult>();
-
-      if (!reducedGroupByResult.isEmpty()) {
-        /* Reverse sort order for min functions. */
-        boolean reverseOrder = aggregationFunction.getFunctionName().startsWith(MIN_PREFIX);
-
-        // The MinMaxPriorityQueue will only add TOP N
-        MinMaxPriorityQueue<ImmutablePair<Serializable, String>> minMaxPriorityQueue =
-            getMinMaxPriorityQueue(reducedGroupByResult.values().iterator().next(), _groupByTopN, reverseOrder);
-
-        if (minMaxPriorityQueue != null) {
-          for (String groupedKey : reducedGroupByResult.keySet()) {
-            minMaxPriorityQueue.add(new ImmutablePair(reducedGroupByResult.get(groupedKey), groupedKey));
-          }
-
-          ImmutablePair res;
-          while ((res = (ImmutablePair) minMaxPriorityQueue.pollFirst()) != null) {
-            String groupByColumnsString = (String) res.getRight();
-            List<String> groupByColumns = Arrays.asList(groupByColumnsString
-                .split(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter.toString(), groupSize));
+    final GroupByReduceTable reduceTable = new GroupByReduceTable(_aggregationInfos, _aggregationFunctionList);
+    for (DataTable dataTable : instanceResponseMap.values()) {
+      if (dataTable != null) {
+        reduceTable.merge(dataTable);
+      }
+    }
+    if (!reduceTable.hasResults()) {
+      return null;
+    }
 
-            Serializable value = (Serializable) res.getLeft();
-            GroupByResult groupValue = new GroupByResult();
+    int numAggrFunctions = _aggregationFunctionList.size();
+    List<AggregationResult> aggregationResults = new ArrayList<>(numAggrFunctions);
+    if (executorService == null || numAggrFunctions == 1
+        || reduceTable.getNumGroups() < MIN_NUM_GROUPS_FOR_PARALLEL_RENDER) {
+      for (int i = 0; i < numAggrFunctions; i++) {
+        aggregationResults.add(renderAggregationGroupByResult(reduceTable, i));
+      }
+      return aggregationResults;
+    }
 
-            groupValue.setGroup(groupByColumns);
-            groupValue.setValue(formatValue(value));
-            groupByResults.add(groupValue);
-          }
+    List<Future<AggregationResult>> futures = new ArrayList<>(numAggrFunctions);
+    for (int i = 0; i < numAggrFunctions; i++) {
+      final int index = i;
+      futures.add(executorService.submit(new Callable<AggregationResult>() {
+        @Override
+        public AggregationResult call() {
+          return renderAggregationGroupByResult(reduceTable, index);
         }
+      }));
+    }
+    try {
+      for (Future<AggregationResult> future : futures) {
+        aggregationResults.add(future.get());
       }
+    } catch (InterruptedException | ExecutionException e) {
+      for (Future<AggregationResult> future : futures) {
+        future.cancel(true);
+      }
+      throw new RuntimeException("Caught exception while rendering group by results", e);
+    }
+    return aggregationResults;
+  }
 
-      AggregationResult aggregationResult = new AggregationResult(groupByResults, _groupByColumns, functionName);
-      aggregationResults.add(aggregationResult);
+  /**
+   * Render the TOP N groups of the aggregation function at the given index from the reduce table.
+   */
+  private AggregationResult renderAggregationGroupByResult(GroupByReduceTable reduceTable, int index) {
+    int groupSize = _groupByColumns.size();
+    int[] topGroups = reduceTable.reduceAndGetTopGroups(index, _groupByTopN);
+
+    List<GroupByResult> groupByResults = new ArrayList<>(topGroups.length);
+    for (int groupId : topGroups) {
+      List<String> groupByColumns = Arrays.asList(reduceTable.getGroupKey(groupId)
+          .split(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter.toString(), groupSize));
+
+      GroupByResult groupValue = new GroupByResult();
+      groupValue.setGroup(groupByColumns);
+      groupValue.setValue(formatValue(reduceTable.getReducedResult(index, groupId)));
+      groupByResults.add(groupValue);
     }
 
-    return aggregationResults;
+    String functionName = _aggregationFunctionList.get(index).getFunctionName();
+    return new AggregationResult(groupByResults, _groupByColumns, functionName);
   }
 
   private Serializable formatValue(Serializable value) {
@@ -273,91 +267,16 @@ public class AggregationGroupByOperatorService {
   }
 
   /**
-   * Given a map from group by keys to results for multiple aggregation functions, trim the results to desired size and
-   * put them into a list of group by results. This will make it compatible to the old group by code for the upper
-   * layer.
+   * Given a table of combined group by results, trim the results to desired size and put them into a list of group by
+   * results, each of them according to one aggregation function. This will make it compatible to the old group by code
+   * for the upper layer.
    *
-   * @param aggrGroupByResults Map from group by keys to result arrays.
-   * @param numAggrFunctions Number of aggregation functions.
+   * @param combineTable Table of combined group by results.
    * @return Trimmed list of maps containing group by results.
    */
-  public List<Map<String, Serializable>> trimToSize(Map<String, Serializable[]> aggrGroupByResults,
-      int numAggrFunctions) {
-    Preconditions.checkNotNull(aggrGroupByResults);
-
-    List<Map<String, Serializable>> trimmedResults = new ArrayList<>(numAggrFunctions);
-    for (int i = 0; i < numAggrFunctions; i++) {
-      trimmedResults.add(new HashMap<String, Serializable>());
-    }
-
-    if (aggrGroupByResults.size() > _trimThreshold) {
-      trimToSize(_aggregationFunctionList, aggrGroupByResults, trimmedResults, numAggrFunctions, _trimSize);
-    } else {
-      convertGroupByResultsFromMapToList(aggrGroupByResults, trimmedResults, numAggrFunctions);
-    }
-
-    return trimmedResults;
-  }
-
-  /**
-   * Given a map from group by keys to results for multiple aggregation functions, convert it to a list of group by
-   * results, each of them according to one aggregation function.
-   *
-   * @param aggrGroupByResults Map from group by keys to result arrays.
-   * @param aggrGroupByResultList List of maps containing group by results returned.
-   * @param numAggrFunctions Number of aggregation functions.
-   */
-  private static void convertGroupByResultsFromMapToList(Map<String, Serializable[]> aggrGroupByResults,
-      List<Map<String, Serializable>> aggrGroupByResultList, int numAggrFunctions) {
-    for (String key : aggrGroupByResults.keySet()) {
-      Serializable[] results = aggrGroupByResults.get(key);
-      for (int i = 0; i < numAggrFunctions; i++) {
-        aggrGroupByResultList.get(i).put(key, results[i]);
-      }
-    }
-  }
-
-  /**
-   * Given a map from group by keys to results for multiple aggregation functions, trim the results to desired size and
-   * put them into a list of group by results.
-   *
-   * @param aggrFuncList List of aggregation functions.
-   * @param aggrGroupByResults Map from group by keys to result arrays.
-   * @param trimmedGroupByResultList List of maps containing group by results returned.
-   * @param numAggrFunctions Number of aggregation functions.
-   * @param trimSize Desired trim size.
-   */
-  @SuppressWarnings("unchecked")
-  private static void trimToSize(List<AggregationFunction> aggrFuncList, Map<String, Serializable[]> aggrGroupByResults,
-      List<Map<String, Serializable>> trimmedGroupByResultList, int numAggrFunctions, int trimSize) {
-    MinMaxPriorityQueue<ImmutablePair<Serializable, String>>[] heaps = new MinMaxPriorityQueue[numAggrFunctions];
-    for (int i = 0; i < numAggrFunctions; i++) {
-      boolean reverseOrder = aggrFuncList.get(i).getFunctionName().startsWith(MIN_PREFIX);
-      heaps[i] = getMinMaxPriorityQueue(aggrGroupByResults.values().iterator().next()[i], trimSize, reverseOrder);
-    }
-
-    for (String key : aggrGroupByResults.keySet()) {
-      Serializable[] results = aggrGroupByResults.get(key);
-      for (int i = 0; i < numAggrFunctions; i++) {
-        Serializable result = results[i];
-        MinMaxPriorityQueue<ImmutablePair<Serializable, String>> heap = heaps[i];
-        if (heap == null) {
-          trimmedGroupByResultList.get(i).put(key, result);
-        } else {
-          heap.add(new ImmutablePair(result, key));
-        }
-      }
-    }
-
-    for (int i = 0; i < numAggrFunctions; i++) {
-      MinMaxPriorityQueue<ImmutablePair<Serializable, String>> heap = heaps[i];
-      ImmutablePair<Serializable, String> pair;
-      if (heap != null) {
-        while ((pair = heap.pollFirst()) != null) {
-          trimmedGroupByResultList.get(i).put(pair.getRight(), pair.getLeft());
-        }
-      }
-    }
+  public List<Map<String, Serializable>> trimToSize(GroupByCombineTable combineTable) {
+    Preconditions.checkNotNull(combineTable);
+    return combineTable.getResults(_trimThreshold, _trimSize);
   }
 
   /**
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByAccumulator;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.util.BoundedLongHeap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Table to reduce the aggregation group-by results of multiple servers on the broker.
+ * <p>The string group keys of all the servers and aggregation functions are interned into a single table of group ids.
+ * The results of COUNT, SUM, MIN and MAX are accumulated into primitive double arrays, and the results of the other
+ * aggregation functions are combined as objects. The top groups of each aggregation function are then selected with a
+ * bounded heap of group ids.
+ * <p>Merging is not thread-safe, but once all the results are merged, the top groups of different aggregation
+ * functions can be selected concurrently.
+ */
+public class GroupByReduceTable {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final String MIN_PREFIX = "min_";
+
+  private final List<AggregationFunction> _aggregationFunctions;
+  private final int _numAggrFunctions;
+  private final GroupByAccumulator[] _accumulators;
+
+  private final Object2IntOpenHashMap<String> _groupKeyToId = new Object2IntOpenHashMap<>();
+  private String[] _groupKeys = new String[INITIAL_CAPACITY];
+  private int _numGroups = 0;
+
+  // Groups are not necessarily present for all the aggregation functions, as servers trim each function separately
+  private final BitSet[] _presentGroups;
+  private final double[][] _primitiveResults;
+  private final Serializable[][] _objectResults;
+  private boolean _hasResults = false;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param aggregationsInfo Aggregations of the query.
+   * @param aggregationFunctions Aggregation functions to combine and reduce the object results, in the order of the
+   *                             aggregations.
+   */
+  public GroupByReduceTable(List<AggregationInfo> aggregationsInfo, List<AggregationFunction> aggregationFunctions) {
+    Preconditions.checkArgument(aggregationsInfo.size() == aggregationFunctions.size());
+
+    _aggregationFunctions = aggregationFunctions;
+    _numAggrFunctions = aggregationFunctions.size();
+    _accumulators = new GroupByAccumulator[_numAggrFunctions];
+    _presentGroups = new BitSet[_numAggrFunctions];
+    _primitiveResults = new double[_numAggrFunctions][];
+    _objectResults = new Serializable[_numAggrFunctions][];
+    for (int i = 0; i < _numAggrFunctions; i++) {
+      _accumulators[i] = GroupByAccumulator.forAggregationType(aggregationsInfo.get(i).getAggregationType());
+      _presentGroups[i] = new BitSet(INITIAL_CAPACITY);
+      if (_accumulators[i].isPrimitive()) {
+        _primitiveResults[i] = new double[INITIAL_CAPACITY];
+      } else {
+        _objectResults[i] = new Serializable[INITIAL_CAPACITY];
+      }
+    }
+    _groupKeyToId.defaultReturnValue(-1);
+  }
+
+  /**
+   * Merges the group-by results of a server, where row i holds the map from string group key to result of the
+   * aggregation function i.
+   *
+   * @param dataTable Data table returned by a server.
+   */
+  @SuppressWarnings("unchecked")
+  public void merge(DataTable dataTable) {
+    int numRows = Math.min(dataTable.getNumberOfRows(), _numAggrFunctions);
+    for (int i = 0; i < numRows; i++) {
+      Map<String, Serializable> groupByResult = (Map<String, Serializable>) dataTable.getObject(i, 1);
+      GroupByAccumulator accumulator = _accumulators[i];
+      BitSet presentGroups = _presentGroups[i];
+      for (Map.Entry<String, Serializable> entry : groupByResult.entrySet()) {
+        Serializable value = entry.getValue();
+        if (value == null) {
+          continue;
+        }
+        int id = getOrCreateGroupId(entry.getKey());
+        boolean present = presentGroups.get(id);
+        if (accumulator.isPrimitive()) {
+          double doubleValue = ((Number) value).doubleValue();
+          _primitiveResults[i][id] =
+              present ? accumulator.accumulate(_primitiveResults[i][id], doubleValue) : doubleValue;
+        } else {
+          _objectResults[i][id] =
+              present ? _aggregationFunctions.get(i).combineTwoValues(_objectResults[i][id], value) : value;
+        }
+        presentGroups.set(id);
+      }
+      _hasResults = true;
+    }
+  }
+
+  private int getOrCreateGroupId(String groupKey) {
+    int id = _groupKeyToId.getInt(groupKey);
+    if (id < 0) {
+      id = _numGroups++;
+      if (id == _groupKeys.length) {
+        expand();
+      }
+      _groupKeyToId.put(groupKey, id);
+      _groupKeys[id] = groupKey;
+    }
+    return id;
+  }
+
+  private void expand() {
+    int newCapacity = 2 * _groupKeys.length;
+    _groupKeys = Arrays.copyOf(_groupKeys, newCapacity);
+    for (int i = 0; i < _numAggrFunctions; i++) {
+      if (_accumulators[i].isPrimitive()) {
+        _primitiveResults[i] = Arrays.copyOf(_primitiveResults[i], newCapacity);
+      } else {
+        _objectResults[i] = Arrays.copyOf(_objectResults[i], newCapacity);
+      }
+    }
+  }
+
+  /**
+   * Returns whether any server returned group-by results.
+   */
+  public boolean hasResults() {
+    return _hasResults;
+  }
+
+  public int getNumGroups() {
+    return _numGroups;
+  }
+
+  public String getGroupKey(int groupId) {
+    return _groupKeys[groupId];
+  }
+
+  /**
+   * Reduces the results of the aggregation function at the given index, and returns the ids of its top groups ranked
+   * on the reduced results: the smallest results for MIN functions, the largest results otherwise. Returns an empty
+   * array if the reduced results cannot be ranked.
+   * <p>Must be called once all the results are merged, and at most once for each aggregation function. Calls for
+   * different aggregation functions can run concurrently.
+   *
+   * @param index Index of the aggregation function.
+   * @param topN Max number of groups to return.
+   * @return Ids of the top groups, from the highest ranked to the lowest ranked.
+   */
+  @SuppressWarnings("unchecked")
+  public int[] reduceAndGetTopGroups(final int index, int topN) {
+    BitSet presentGroups = _presentGroups[index];
+    final boolean reverseOrder = (_accumulators[index] == GroupByAccumulator.MIN)
+        || _aggregationFunctions.get(index).getFunctionName().startsWith(MIN_PREFIX);
+
+    BoundedLongHeap heap;
+    if (_accumulators[index].isPrimitive()) {
+      final double[] results = _primitiveResults[index];
+      heap = new BoundedLongHeap(Math.min(topN, presentGroups.cardinality())) {
+        @Override
+        protected int compare(long group1, long group2) {
+          int cmp = Double.compare(results[(int) group1], results[(int) group2]);
+          return reverseOrder ? -cmp : cmp;
+        }
+      };
+    } else {
+      // Reduce the object results in place, they are ranked on the reduced results
+      AggregationFunction aggregationFunction = _aggregationFunctions.get(index);
+      final Serializable[] results = _objectResults[index];
+      Serializable sampleResult = null;
+      for (int id = presentGroups.nextSetBit(0); id >= 0; id = presentGroups.nextSetBit(id + 1)) {
+        results[id] = aggregationFunction.reduce(Collections.singletonList(results[id]));
+        if (sampleResult == null) {
+          sampleResult = results[id];
+        }
+      }
+      if (!(sampleResult instanceof Comparable)) {
+        return new int[0];
+      }
+      heap = new BoundedLongHeap(Math.min(topN, presentGroups.cardinality())) {
+        @Override
+        protected int compare(long group1, long group2) {
+          int cmp = ((Comparable) results[(int) group1]).compareTo(results[(int) group2]);
+          return reverseOrder ? -cmp : cmp;
+        }
+      };
+    }
+
+    for (int id = presentGroups.nextSetBit(0); id >= 0; id = presentGroups.nextSetBit(id + 1)) {
+      heap.offer(id);
+    }
+    long[] topGroups = heap.drainSorted();
+    int[] groupIds = new int[topGroups.length];
+    for (int i = 0; i < topGroups.length; i++) {
+      groupIds[i] = (int) topGroups[i];
+    }
+    return groupIds;
+  }
+
+  /**
+   * Returns the reduced result of the aggregation function at the given index for the given group, in the same type as
+   * the result of {@link AggregationFunction#reduce(List)}. Only valid for the groups returned by
+   * {@link #reduceAndGetTopGroups(int, int)}.
+   */
+  public Serializable getReducedResult(int index, int groupId) {
+    switch (_accumulators[index]) {
+      case COUNT:
+        return new MutableLongValue((long) _primitiveResults[index][groupId]);
+      case SUM:
+      case MIN:
+      case MAX:
+        return _primitiveResults[index][groupId];
+      default:
+        return _objectResults[index][groupId];
+    }
+  }
+}
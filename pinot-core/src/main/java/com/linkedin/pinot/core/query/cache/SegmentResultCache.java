@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataTableSerDe;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.util.DataTableCustomSerDe;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>SegmentResultCache</code> class caches per-segment aggregation results for immutable segments.
+ *
+ * <p>Entries are keyed by table name, segment name, segment CRC and the broker request, so an entry can only be hit
+ * by the exact same query on the exact same version of the segment. Results are stored serialized, which both bounds
+ * the memory usage by bytes and makes every hit return a fresh copy that the combine operator is free to merge into.
+ * The least recently used entries are evicted once the total size exceeds the configured limit.</p>
+ *
+ * <p>The cache is owned by the query executor of a server instance and handed to the table data managers, which
+ * invalidate the entries of a segment when the segment is replaced or removed. Hits, misses and evictions are
+ * reported through the server metrics.</p>
+ *
+ * <p>Only aggregation-only queries are cached: group-by results are tied to the segment dictionaries until combined,
+ * and selection results are usually too large to be worth caching.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class SegmentResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCache.class);
+
+  // Rough estimate of the memory used by the key and the bookkeeping of an entry.
+  private static final int ENTRY_OVERHEAD_IN_BYTES = 512;
+
+  private final long _maxSizeInBytes;
+  private final ServerMetrics _serverMetrics;
+  private final LinkedHashMap<CacheKey, CacheEntry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+  // Keys of the entries for each segment, used to invalidate all entries of a segment.
+  private final Map<String, Set<CacheKey>> _segmentKeys = new HashMap<>();
+  private long _sizeInBytes = 0;
+  private long _numHits = 0;
+  private long _numMisses = 0;
+  private long _numEvictions = 0;
+
+  /**
+   * Returns whether the per-segment result of the given query on the given segment can be cached.
+   */
+  public static boolean isCacheable(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    if (!brokerRequest.isSetAggregationsInfo() || brokerRequest.isSetGroupBy() || brokerRequest.isEnableTrace()) {
+      return false;
+    }
+
+    // Only cache immutable segments with a CRC, consuming segments change under the query.
+    return indexSegment instanceof IndexSegmentImpl && indexSegment.getSegmentMetadata().getCrc() != null;
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param maxSizeInBytes Maximum total size in bytes of the cached results.
+   * @param serverMetrics Server metrics to report hits, misses and evictions to, or <code>null</code> to not report.
+   */
+  public SegmentResultCache(long maxSizeInBytes, @Nullable ServerMetrics serverMetrics) {
+    Preconditions.checkArgument(maxSizeInBytes > 0, "Cache size must be positive, got: " + maxSizeInBytes);
+    _maxSizeInBytes = maxSizeInBytes;
+    _serverMetrics = serverMetrics;
+  }
+
+  /**
+   * Creates the cache key for the given query on the given segment.
+   * <p>Should only be called for cacheable queries, see {@link #isCacheable(IndexSegment, BrokerRequest)}.
+   *
+   * @param tableName Name of the table.
+   * @param indexSegment Segment being queried.
+   * @param normalizedBrokerRequest Broker request returned by {@link #normalize(BrokerRequest)}.
+   */
+  public static CacheKey createKey(String tableName, IndexSegment indexSegment,
+      BrokerRequest normalizedBrokerRequest) {
+    return new CacheKey(tableName, indexSegment.getSegmentName(), indexSegment.getSegmentMetadata().getCrc(),
+        normalizedBrokerRequest);
+  }
+
+  /**
+   * Returns a copy of the broker request with the fields that do not affect the per-segment result removed, to be
+   * shared by the cache keys of all segments of a query.
+   */
+  public static BrokerRequest normalize(BrokerRequest brokerRequest) {
+    BrokerRequest normalizedBrokerRequest = new BrokerRequest(brokerRequest);
+    normalizedBrokerRequest.unsetResponseFormat();
+    normalizedBrokerRequest.unsetEnableTrace();
+    return normalizedBrokerRequest;
+  }
+
+  /**
+   * Returns the cached result for the given key, or <code>null</code> if it is not cached.
+   */
+  @Nullable
+  public CachedResult get(CacheKey key) {
+    CacheEntry entry;
+    synchronized (this) {
+      entry = _entries.get(key);
+      if (entry == null) {
+        _numMisses++;
+      } else {
+        _numHits++;
+      }
+    }
+    if (entry == null) {
+      addMeteredValue(ServerMeter.SEGMENT_RESULT_CACHE_MISSES, 1L);
+      return null;
+    }
+    addMeteredValue(ServerMeter.SEGMENT_RESULT_CACHE_HITS, 1L);
+    return new CachedResult(key._brokerRequest, entry);
+  }
+
+  /**
+   * Caches the result of a segment. Results with processing exceptions or null values are not cached.
+   *
+   * @param key Cache key.
+   * @param resultsBlock Per-segment results block, not modified.
+   * @param executionStatistics Execution statistics of the per-segment operator.
+   */
+  public void put(CacheKey key, IntermediateResultsBlock resultsBlock, ExecutionStatistics executionStatistics) {
+    List<ProcessingException> exceptions = resultsBlock.getExceptions();
+    List<Serializable> aggregationResults = resultsBlock.getAggregationResult();
+    if ((exceptions != null && !exceptions.isEmpty()) || aggregationResults == null) {
+      return;
+    }
+
+    int numResults = aggregationResults.size();
+    DataTableSerDe.DataType[] dataTypes = new DataTableSerDe.DataType[numResults];
+    byte[][] serializedResults = new byte[numResults][];
+    long sizeInBytes = ENTRY_OVERHEAD_IN_BYTES;
+    for (int i = 0; i < numResults; i++) {
+      Serializable result = aggregationResults.get(i);
+      if (result == null) {
+        return;
+      }
+      dataTypes[i] = DataTableCustomSerDe.getDataTypeOfObject(result);
+      serializedResults[i] = DataTableCustomSerDe.serializeObject(result);
+      sizeInBytes += serializedResults[i].length;
+    }
+    if (sizeInBytes > _maxSizeInBytes) {
+      return;
+    }
+
+    CacheEntry entry = new CacheEntry(dataTypes, serializedResults, executionStatistics, sizeInBytes);
+    int numEvicted;
+    synchronized (this) {
+      CacheEntry oldEntry = _entries.put(key, entry);
+      if (oldEntry != null) {
+        _sizeInBytes -= oldEntry._sizeInBytes;
+      } else {
+        String segmentKey = getSegmentKey(key._tableName, key._segmentName);
+        Set<CacheKey> keys = _segmentKeys.get(segmentKey);
+        if (keys == null) {
+          keys = new HashSet<>();
+          _segmentKeys.put(segmentKey, keys);
+        }
+        keys.add(key);
+      }
+      _sizeInBytes += sizeInBytes;
+      numEvicted = evictIfNeeded();
+    }
+    if (numEvicted > 0) {
+      addMeteredValue(ServerMeter.SEGMENT_RESULT_CACHE_EVICTIONS, numEvicted);
+    }
+  }
+
+  /**
+   * Removes all the entries for the given segment.
+   */
+  public synchronized void invalidateSegment(String tableName, String segmentName) {
+    Set<CacheKey> keys = _segmentKeys.remove(getSegmentKey(tableName, segmentName));
+    if (keys == null) {
+      return;
+    }
+    for (CacheKey key : keys) {
+      CacheEntry entry = _entries.remove(key);
+      if (entry != null) {
+        _sizeInBytes -= entry._sizeInBytes;
+      }
+    }
+    LOGGER.debug("Invalidated {} cached results for segment {} of table {}", keys.size(), segmentName, tableName);
+  }
+
+  public synchronized long getSizeInBytes() {
+    return _sizeInBytes;
+  }
+
+  public synchronized int getNumEntries() {
+    return _entries.size();
+  }
+
+  public synchronized long getNumHits() {
+    return _numHits;
+  }
+
+  public synchronized long getNumMisses() {
+    return _numMisses;
+  }
+
+  public synchronized long getNumEvictions() {
+    return _numEvictions;
+  }
+
+  /**
+   * Evicts the least recently used entries until the total size is within the limit. Must be called while holding the
+   * lock.
+   *
+   * @return Number of evicted entries.
+   */
+  private int evictIfNeeded() {
+    int numEvicted = 0;
+    Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = _entries.entrySet().iterator();
+    while (_sizeInBytes > _maxSizeInBytes && iterator.hasNext()) {
+      Map.Entry<CacheKey, CacheEntry> eldest = iterator.next();
+      iterator.remove();
+      _sizeInBytes -= eldest.getValue()._sizeInBytes;
+      numEvicted++;
+
+      CacheKey key = eldest.getKey();
+      String segmentKey = getSegmentKey(key._tableName, key._segmentName);
+      Set<CacheKey> keys = _segmentKeys.get(segmentKey);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          _segmentKeys.remove(segmentKey);
+        }
+      }
+    }
+    _numEvictions += numEvicted;
+    return numEvicted;
+  }
+
+  private void addMeteredValue(ServerMeter meter, long unitCount) {
+    if (_serverMetrics != null) {
+      _serverMetrics.addMeteredGlobalValue(meter, unitCount);
+    }
+  }
+
+  private static String getSegmentKey(String tableName, String segmentName) {
+    return tableName + '/' + segmentName;
+  }
+
+  /**
+   * Key of the cache, identifies a query on a specific version of a segment.
+   */
+  public static class CacheKey {
+    private final String _tableName;
+    private final String _segmentName;
+    private final String _crc;
+    private final BrokerRequest _brokerRequest;
+    private final int _hashCode;
+
+    private CacheKey(@Nonnull String tableName, @Nonnull String segmentName, @Nonnull String crc,
+        @Nonnull BrokerRequest brokerRequest) {
+      _tableName = tableName;
+      _segmentName = segmentName;
+      _crc = crc;
+      _brokerRequest = brokerRequest;
+
+      int hashCode = _tableName.hashCode();
+      hashCode = 31 * hashCode + _segmentName.hashCode();
+      hashCode = 31 * hashCode + _crc.hashCode();
+      hashCode = 31 * hashCode + _brokerRequest.hashCode();
+      _hashCode = hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) obj;
+      return _hashCode == that._hashCode && _tableName.equals(that._tableName)
+          && _segmentName.equals(that._segmentName) && _crc.equals(that._crc)
+          && _brokerRequest.equals(that._brokerRequest);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+
+  /**
+   * Serialized per-segment result.
+   */
+  private static class CacheEntry {
+    private final DataTableSerDe.DataType[] _dataTypes;
+    private final byte[][] _serializedResults;
+    private final long _numDocsScanned;
+    private final long _numEntriesScannedInFilter;
+    private final long _numEntriesScannedPostFilter;
+    private final long _numTotalRawDocs;
+    private final long _sizeInBytes;
+
+    private CacheEntry(DataTableSerDe.DataType[] dataTypes, byte[][] serializedResults,
+        ExecutionStatistics executionStatistics, long sizeInBytes) {
+      _dataTypes = dataTypes;
+      _serializedResults = serializedResults;
+      _numDocsScanned = executionStatistics.getNumDocsScanned();
+      _numEntriesScannedInFilter = executionStatistics.getNumEntriesScannedInFilter();
+      _numEntriesScannedPostFilter = executionStatistics.getNumEntriesScannedPostFilter();
+      _numTotalRawDocs = executionStatistics.getNumTotalRawDocs();
+      _sizeInBytes = sizeInBytes;
+    }
+  }
+
+  /**
+   * Cached result returned on a cache hit. Every call to {@link #getResultsBlock()} returns a new copy.
+   */
+  public static class CachedResult {
+    private final BrokerRequest _brokerRequest;
+    private final CacheEntry _entry;
+
+    private CachedResult(BrokerRequest brokerRequest, CacheEntry entry) {
+      _brokerRequest = brokerRequest;
+      _entry = entry;
+    }
+
+    public IntermediateResultsBlock getResultsBlock() {
+      int numResults = _entry._serializedResults.length;
+      List<Serializable> aggregationResults = new ArrayList<>(numResults);
+      for (int i = 0; i < numResults; i++) {
+        aggregationResults.add(
+            DataTableCustomSerDe.<Serializable>deserializeObject(_entry._serializedResults[i], _entry._dataTypes[i]));
+      }
+      return new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_brokerRequest),
+          aggregationResults);
+    }
+
+    /**
+     * Returns the execution statistics recorded when the result was computed, so that the query stats do not depend on
+     * whether the result was cached.
+     */
+    public ExecutionStatistics getExecutionStatistics() {
+      return new ExecutionStatistics(_entry._numDocsScanned, _entry._numEntriesScannedInFilter,
+          _entry._numEntriesScannedPostFilter, _entry._numTotalRawDocs);
+    }
+  }
+}
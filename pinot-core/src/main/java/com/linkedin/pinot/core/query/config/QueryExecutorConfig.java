@@ -32,6 +32,8 @@ public class QueryExecutorConfig {
   public static final String QUERY_PLANNER = "queryPlanner";
   // Prefix key of TimeOut
   public static final String TIME_OUT = "timeout";
+  // Key of the maximum size in bytes of the per-segment result cache, result caching is disabled if not positive
+  public static final String RESULT_CACHE_MAX_SIZE_IN_BYTES = "resultCache.maxSizeInBytes";
 
   private static final String[] REQUIRED_KEYS = {};
 
@@ -39,6 +41,7 @@ public class QueryExecutorConfig {
   private SegmentPrunerConfig _segmentPrunerConfig;
   private QueryPlannerConfig _queryPlannerConfig;
   private final long _timeOutMs;
+  private final long _resultCacheMaxSizeInBytes;
 
   public QueryExecutorConfig(Configuration config) throws ConfigurationException {
     _queryExecutorConfig = config;
@@ -46,6 +49,7 @@ public class QueryExecutorConfig {
     _segmentPrunerConfig = new SegmentPrunerConfig(_queryExecutorConfig.subset(QUERY_PRUNER));
     _queryPlannerConfig = new QueryPlannerConfig(_queryExecutorConfig.subset(QUERY_PLANNER));
     _timeOutMs = _queryExecutorConfig.getLong(TIME_OUT, -1);
+    _resultCacheMaxSizeInBytes = _queryExecutorConfig.getLong(RESULT_CACHE_MAX_SIZE_IN_BYTES, 0);
   }
 
   private void checkRequiredKeys() throws ConfigurationException {
@@ -71,4 +75,8 @@ public class QueryExecutorConfig {
   public long getTimeOut() {
     return _timeOutMs;
   }
+
+  public long getResultCacheMaxSizeInBytes() {
+    return _resultCacheMaxSizeInBytes;
+  }
 }
@@ -16,10 +16,12 @@
 package com.linkedin.pinot.core.query.executor;
 
 import com.linkedin.pinot.common.data.DataManager;
+import com.linkedin.pinot.common.exception.QueryCancelledException;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.query.QueryCancellationToken;
 import com.linkedin.pinot.common.query.QueryExecutor;
 import com.linkedin.pinot.common.query.QueryRequest;
 import com.linkedin.pinot.common.query.context.TimerContext;
@@ -33,9 +35,11 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerService;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerServiceImpl;
+import com.linkedin.pinot.core.segment.memory.MmapBudgetManager;
 import com.linkedin.pinot.core.util.trace.TraceContext;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -59,6 +63,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private boolean _printQueryPlan = false;
   private final Map<String, Long> _resourceTimeOutMsMap = new ConcurrentHashMap<String, Long>();
   private ServerMetrics _serverMetrics;
+  private SegmentResultCache _segmentResultCache = null;
 
   public ServerQueryExecutorV1Impl() {
   }
@@ -79,8 +84,16 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     LOGGER.info("Default timeout for query executor : {}", _defaultTimeOutMs);
     LOGGER.info("Trying to build SegmentPrunerService");
     _segmentPrunerService = new SegmentPrunerServiceImpl(queryExecutorConfig.getPrunerConfig());
+    long resultCacheMaxSizeInBytes = queryExecutorConfig.getResultCacheMaxSizeInBytes();
+    if (resultCacheMaxSizeInBytes > 0) {
+      LOGGER.info("Enabling per-segment result cache of {} bytes", resultCacheMaxSizeInBytes);
+      _segmentResultCache = new SegmentResultCache(resultCacheMaxSizeInBytes, _serverMetrics);
+      if (_instanceDataManager != null) {
+        _instanceDataManager.setSegmentResultCache(_segmentResultCache);
+      }
+    }
     LOGGER.info("Trying to build QueryPlanMaker");
-    _planMaker = new InstancePlanMakerImplV2(queryExecutorConfig);
+    _planMaker = new InstancePlanMakerImplV2(queryExecutorConfig, _segmentResultCache);
     LOGGER.info("Trying to build QueryExecutorTimer");
   }
 
@@ -99,10 +112,21 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     final long requestId = instanceRequest.getRequestId();
     final long nSegmentsInQuery = instanceRequest.getSearchSegmentsSize();
     long nPrunedSegments = -1;
+    final long timeOutMs = getResourceTimeOut(instanceRequest.getQuery());
+    // Operators check the cancellation token of the query at block boundaries, and stop once the broker cancels the
+    // query or the deadline is passed.
+    QueryCancellationToken cancellationToken = queryRequest.getCancellationToken();
+    cancellationToken.setDeadlineMs(System.currentTimeMillis() + timeOutMs);
+    QueryCancellationToken.registerThreadToToken(cancellationToken);
+    // Buffers unmapped to stay within the mmap budget are not released while the query might still read them
+    MmapBudgetManager mmapBudgetManager = MmapBudgetManager.getInstance();
+    long mmapTicket = (mmapBudgetManager != null) ? mmapBudgetManager.enterQuery() : -1L;
     try {
       TraceContext.register(instanceRequest);
       final BrokerRequest brokerRequest = instanceRequest.getQuery();
       LOGGER.debug("Incoming query is : {}", brokerRequest);
+      // The query might have been cancelled while waiting in the scheduler queue.
+      cancellationToken.checkNotCancelled();
 
       TimerContext.Timer segmentPruneTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.SEGMENT_PRUNING);
       queryableSegmentDataManagerList = getPrunedQueryableSegments(instanceRequest);
@@ -117,7 +141,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       TimerContext.Timer planBuildTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.BUILD_QUERY_PLAN);
       final Plan globalQueryPlan = _planMaker.makeInterSegmentPlan(queryableSegmentDataManagerList, brokerRequest,
           _instanceDataManager.getTableDataManager(brokerRequest.getQuerySource().getTableName()).getExecutorService(),
-          getResourceTimeOut(instanceRequest.getQuery()));
+          timeOutMs);
       planBuildTimer.stopAndRecord();
 
       if (_printQueryPlan) {
@@ -148,10 +172,15 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
           queryRequest.getBrokerId());
       return dataTable;
     } catch (Exception e) {
-      _serverMetrics.addMeteredQueryValue(instanceRequest.getQuery(), ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
-      LOGGER.error("Exception processing requestId {}", requestId, e);
       dataTable = new DataTable();
-      dataTable.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+      if (e instanceof QueryCancelledException) {
+        LOGGER.info("RequestId {} cancelled: {}", requestId, e.getMessage());
+        dataTable.addException(QueryException.getException(QueryException.EXECUTION_TIMEOUT_ERROR, e));
+      } else {
+        _serverMetrics.addMeteredQueryValue(instanceRequest.getQuery(), ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
+        LOGGER.error("Exception processing requestId {}", requestId, e);
+        dataTable.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+      }
       TraceContext.logException("ServerQueryExecutorV1Impl", "Exception occurs in processQuery");
       queryProcessingTimer.stopAndRecord();
 
@@ -171,6 +200,12 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         }
       }
       TraceContext.unregister(instanceRequest);
+      // Stop any segment task still running for this query, e.g. after the combine operator timed out.
+      cancellationToken.cancel();
+      QueryCancellationToken.unregisterThreadFromToken();
+      if (mmapBudgetManager != null) {
+        mmapBudgetManager.exitQuery(mmapTicket);
+      }
     }
   }
 
@@ -23,6 +23,7 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterQuery;
 import com.linkedin.pinot.common.request.FilterQueryMap;
 import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 
 
@@ -56,7 +57,7 @@ public class DataSchemaSegmentPruner implements SegmentPruner {
       // Check groupBy columns.
       if ((brokerRequest.getGroupBy() != null) && (brokerRequest.getGroupBy().getColumns() != null)) {
         for (String columnName : brokerRequest.getGroupBy().getColumns()) {
-          if (!schema.hasColumn(columnName)) {
+          if (!schema.hasColumn(TimeBucketExpression.getColumnName(columnName))) {
             return true;
           }
         }
@@ -38,6 +38,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +60,22 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
   // Not used currently, but it records the time spent on server side.
   private static final String TIME_USED_MS = "timeUsedMs";
 
+  private final ExecutorService _executorService;
+
+  public BrokerReduceService() {
+    this(null);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param executorService Executor service to parallelize the reduce of large group by results, or null to reduce
+   *                        them in the calling thread.
+   */
+  public BrokerReduceService(@Nullable ExecutorService executorService) {
+    _executorService = executorService;
+  }
+
   @Override
   public BrokerResponseNative reduceOnDataTable(BrokerRequest brokerRequest,
       Map<ServerInstance, DataTable> dataTableMap) {
@@ -252,10 +270,7 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
       AggregationGroupByOperatorService aggregationGroupByOperatorService,
       Map<ServerInstance, DataTable> instanceResponseMap) {
 
-    List<Map<String, Serializable>> reducedGroupByResults =
-        aggregationGroupByOperatorService.reduceGroupByOperators(instanceResponseMap);
-
-    return aggregationGroupByOperatorService.renderAggregationGroupByResult(reducedGroupByResults);
+    return aggregationGroupByOperatorService.reduceAndRenderGroupByResults(instanceResponseMap, _executorService);
   }
 
   /**
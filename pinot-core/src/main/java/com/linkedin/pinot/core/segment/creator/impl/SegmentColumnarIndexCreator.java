@@ -15,7 +15,9 @@
  */
 package com.linkedin.pinot.core.segment.creator.impl;
 
+import com.google.common.base.Preconditions;
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
 import com.linkedin.pinot.core.data.GenericRow;
@@ -32,6 +34,7 @@ import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueSortedForward
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueUnsortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.inv.OffHeapBitmapInvertedIndexCreator;
 import com.linkedin.pinot.core.startree.hll.HllConfig;
+import com.linkedin.pinot.core.startree.hll.HllUtil;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
@@ -244,10 +247,27 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 
     HllConfig hllConfig = config.getHllConfig();
     Map<String, String> derivedHllFieldToOriginMap = null;
+    Integer hllLog2m = null;
     if (hllConfig != null) {
-      properties.setProperty(SEGMENT_HLL_LOG2M, hllConfig.getHllLog2m());
+      hllLog2m = hllConfig.getHllLog2m();
       derivedHllFieldToOriginMap = hllConfig.getDerivedHllFieldToOriginMap();
     }
+    // HLL columns ingested already serialized carry their log2m in their field size, all HLL columns of the segment
+    // must share the same log2m
+    for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
+      if (isHllColumn(fieldSpec)) {
+        int columnHllLog2m = HllUtil.getLog2mFromHllFieldSize(((MetricFieldSpec) fieldSpec).getFieldSize());
+        if (hllLog2m == null) {
+          hllLog2m = columnHllLog2m;
+        } else {
+          Preconditions.checkState(hllLog2m == columnHllLog2m, "HLL column: %s has log2m: %s, expected: %s",
+              fieldSpec.getName(), columnHllLog2m, hllLog2m);
+        }
+      }
+    }
+    if (hllLog2m != null) {
+      properties.setProperty(SEGMENT_HLL_LOG2M, hllLog2m);
+    }
 
     String timeColumn = config.getTimeColumnName();
     if (indexCreationInfoMap.get(timeColumn) != null) {
@@ -325,9 +345,11 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, IS_AUTO_GENERATED),
         String.valueOf(columnIndexCreationInfo.isAutoGenerated()));
 
-    // HLL derived fields
+    // HLL derived fields, and HLL fields ingested already serialized (without origin column)
     if (hllOriginColumn != null) {
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, ORIGIN_COLUMN), hllOriginColumn);
+    }
+    if (hllOriginColumn != null || isHllColumn(fieldSpec)) {
       properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DERIVED_METRIC_TYPE), "HLL");
     }
 
@@ -339,6 +361,11 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
         String.valueOf(defaultNullValue));
   }
 
+  private static boolean isHllColumn(FieldSpec fieldSpec) {
+    return (fieldSpec instanceof MetricFieldSpec)
+        && ((MetricFieldSpec) fieldSpec).getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL;
+  }
+
   public static void removeColumnMetadataInfo(PropertiesConfiguration properties, String column) {
     properties.clearProperty(getKeyFor(column, CARDINALITY));
     properties.clearProperty(getKeyFor(column, TOTAL_DOCS));
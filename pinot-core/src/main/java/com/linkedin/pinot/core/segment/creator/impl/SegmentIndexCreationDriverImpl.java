@@ -114,11 +114,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // create hll index is true only if we're provided with columns to
       // generate HLL fields
       if (hllConfig.getColumnsToDeriveHllFields() != null) {
-        if (!createStarTree) {
-          throw new IllegalArgumentException("Derived HLL fields generation will not work if StarTree is not enabled.");
-        } else {
-          createHllIndex = true;
-        }
+        createHllIndex = true;
       } // else columnsToDeriveHllFields is null...don't do anything in this case
         // segment seal() will write the log2m value to the metadata
     }
@@ -355,6 +351,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       totalRawDocs++;
       long start = System.currentTimeMillis();
       GenericRow row = readNextRowSanitized();
+      populateDefaultDerivedColumnValues(row);
       long stop = System.currentTimeMillis();
       statsCollector.collectRow(row);
       long stop1 = System.currentTimeMillis();
@@ -374,6 +371,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     while (recordReader.hasNext()) {
       long start = System.currentTimeMillis();
       GenericRow row = readNextRowSanitized();
+      populateDefaultDerivedColumnValues(row);
       long stop = System.currentTimeMillis();
       indexCreator.indexRow(row);
       long stop1 = System.currentTimeMillis();
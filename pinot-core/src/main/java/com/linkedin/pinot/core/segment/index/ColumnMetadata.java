@@ -108,10 +108,11 @@ public class ColumnMetadata {
           try {
             final int hllLog2m = config.getInt(V1Constants.MetadataKeys.Segment.SEGMENT_HLL_LOG2M);
             builder.setFieldSize(HllUtil.getHllFieldSizeFromLog2m(hllLog2m));
-            final String originColumnName = config.getString(getKeyFor(column, ORIGIN_COLUMN));
+            // HLL columns ingested already serialized have no origin column
+            final String originColumnName = config.getString(getKeyFor(column, ORIGIN_COLUMN), null);
             builder.setOriginColumnName(originColumnName);
           } catch (RuntimeException e) {
-            LOGGER.error("Column: " + column + " is HLL derived column, but missing log2m, fieldSize or originColumnName.");
+            LOGGER.error("Column: " + column + " is HLL derived column, but missing log2m or fieldSize.");
             throw e;
           }
           break;
@@ -55,6 +55,10 @@ public class IndexSegmentImpl implements IndexSegment {
     LOGGER.info("Successfully loaded the index segment : " + segmentDirectory);
   }
 
+  public SegmentDirectory getSegmentDirectory() {
+    return segmentDirectory;
+  }
+
   public ImmutableDictionaryReader getDictionaryFor(String column) {
     return indexContainerMap.get(column).getDictionary();
   }
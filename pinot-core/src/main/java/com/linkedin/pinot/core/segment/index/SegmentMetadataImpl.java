@@ -297,7 +297,8 @@ public class SegmentMetadataImpl implements SegmentMetadata {
           ColumnMetadata.fromPropertiesConfiguration(column, _segmentMetadataPropertiesConfiguration);
       _columnMetadataMap.put(column, columnMetadata);
       _schema.addField(columnMetadata.getFieldSpec());
-      if (columnMetadata.getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL) {
+      if (columnMetadata.getDerivedMetricType() == MetricFieldSpec.DerivedMetricType.HLL
+          && columnMetadata.getOriginColumnName() != null) {
         _hllDerivedColumnMap.put(columnMetadata.getOriginColumnName(), columnMetadata.getColumnName());
       }
     }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pre-warms memory mapped segments by touching every page of their index buffers, so that the first queries on a newly
+ * loaded segment do not pay for the page faults.
+ * <p>The dictionaries and the sorted forward indexes of all columns are warmed up, as well as the forward and inverted
+ * indexes of the configured columns. Buffers are touched on a shared pool of threads, and the warm-up I/O of the whole
+ * server is rate limited so that warming up segments does not starve the queries being served.
+ */
+public class SegmentWarmUpper {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentWarmUpper.class);
+
+  public static final int DEFAULT_NUM_THREADS = 2;
+  public static final long DEFAULT_MAX_BYTES_PER_SECOND = 100L * 1024 * 1024;
+
+  private static final int PAGE_SIZE = 4096;
+  // Number of bytes touched for each acquisition from the rate limiter
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private static SegmentWarmUpper _instance;
+
+  private final ExecutorService _executorService;
+  private final RateLimiter _rateLimiter;
+  // Sink for the touched bytes so that the reads cannot be optimized away
+  private volatile long _sink;
+
+  public SegmentWarmUpper(int numThreads, long maxBytesPerSecond) {
+    Preconditions.checkArgument(numThreads > 0, "Invalid number of warm-up threads: %s", numThreads);
+    Preconditions.checkArgument(maxBytesPerSecond > 0, "Invalid warm-up rate: %s", maxBytesPerSecond);
+    _executorService = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setNameFormat("segment-warm-up-%d").setDaemon(true).build());
+    _rateLimiter = RateLimiter.create(maxBytesPerSecond);
+  }
+
+  /**
+   * Initializes the warm-up pool and rate limit shared by all the tables of the server.
+   */
+  public static synchronized void init(int numThreads, long maxBytesPerSecond) {
+    if (_instance != null) {
+      _instance.shutDown();
+    }
+    _instance = new SegmentWarmUpper(numThreads, maxBytesPerSecond);
+    LOGGER.info("Initialized segment warm-up with {} threads and a rate limit of {} bytes per second", numThreads,
+        maxBytesPerSecond);
+  }
+
+  public static synchronized SegmentWarmUpper getInstance() {
+    if (_instance == null) {
+      _instance = new SegmentWarmUpper(DEFAULT_NUM_THREADS, DEFAULT_MAX_BYTES_PER_SECOND);
+    }
+    return _instance;
+  }
+
+  /**
+   * Warms up the given segment, blocking until all its buffers have been touched.
+   *
+   * @param indexSegment segment to warm up
+   * @param columns columns for which to warm up the forward and inverted indexes, or null for none
+   * @return number of bytes warmed up
+   */
+  public long warmUp(IndexSegmentImpl indexSegment, @Nullable Collection<String> columns)
+      throws Exception {
+    long startTime = System.currentTimeMillis();
+    String segmentName = indexSegment.getSegmentName();
+    SegmentDirectory.Reader reader = indexSegment.getSegmentDirectory().createReader();
+    if (reader == null) {
+      LOGGER.warn("Failed to get a reader for segment: {}, skipping warm-up", segmentName);
+      return 0L;
+    }
+
+    try {
+      // Buffers are fetched on the calling thread as the segment directory is not thread-safe, only the page touching
+      // is done in the warm-up pool
+      List<Future<Long>> futures = new ArrayList<>();
+      SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+      for (ColumnMetadata columnMetadata : segmentMetadata.getColumnMetadataMap().values()) {
+        String column = columnMetadata.getColumnName();
+        boolean isConfiguredColumn = columns != null && columns.contains(column);
+        if (reader.hasIndexFor(column, ColumnIndexType.DICTIONARY)) {
+          futures.add(submitTouch(reader.getIndexFor(column, ColumnIndexType.DICTIONARY)));
+        }
+        if ((columnMetadata.isSorted() || isConfiguredColumn)
+            && reader.hasIndexFor(column, ColumnIndexType.FORWARD_INDEX)) {
+          futures.add(submitTouch(reader.getIndexFor(column, ColumnIndexType.FORWARD_INDEX)));
+        }
+        if (isConfiguredColumn && reader.hasIndexFor(column, ColumnIndexType.INVERTED_INDEX)) {
+          futures.add(submitTouch(reader.getIndexFor(column, ColumnIndexType.INVERTED_INDEX)));
+        }
+      }
+
+      long numBytes = 0L;
+      for (Future<Long> future : futures) {
+        numBytes += future.get();
+      }
+      LOGGER.info("Warmed up {} bytes of segment: {} in {}ms", numBytes, segmentName,
+          System.currentTimeMillis() - startTime);
+      return numBytes;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private Future<Long> submitTouch(final PinotDataBuffer buffer) {
+    return _executorService.submit(new Callable<Long>() {
+      @Override
+      public Long call()
+          throws Exception {
+        return touch(buffer);
+      }
+    });
+  }
+
+  /**
+   * Reads one byte per page of the buffer to fault its pages in.
+   */
+  private long touch(PinotDataBuffer buffer) {
+    long size = buffer.size();
+    long sum = 0L;
+    for (long chunkStart = 0L; chunkStart < size; chunkStart += CHUNK_SIZE) {
+      long chunkEnd = Math.min(chunkStart + CHUNK_SIZE, size);
+      _rateLimiter.acquire((int) (chunkEnd - chunkStart));
+      for (long offset = chunkStart; offset < chunkEnd; offset += PAGE_SIZE) {
+        sum += buffer.getByte(offset);
+      }
+    }
+    _sink += sum;
+    return size;
+  }
+
+  public void shutDown() {
+    _executorService.shutdownNow();
+  }
+}
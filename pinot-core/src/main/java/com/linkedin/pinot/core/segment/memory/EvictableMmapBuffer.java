@@ -0,0 +1,367 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.memory;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Read-only memory-mapped buffer whose mapping can be released by the {@link MmapBudgetManager} when the server is over
+ * its mmap budget, and is re-mapped on the next access.
+ * <p>The buffer, its duplicates and views share the same {@link MappedRegion}. Accesses go through the current mapping
+ * of the region, so they are slightly more expensive than accesses to {@link PinotByteBuffer}.
+ */
+class EvictableMmapBuffer extends PinotDataBuffer {
+  private final MappedRegion _region;
+  private final int _offset;
+  private final int _size;
+
+  static PinotDataBuffer mapFromFile(MmapBudgetManager manager, File file, long start, long length, String context)
+      throws IOException {
+    PinotDataBuffer buffer = PinotByteBuffer.mapFromFile(file, start, length, FileChannel.MapMode.READ_ONLY, context);
+    MappedRegion region = new MappedRegion(manager, file, start, length, context, buffer);
+    manager.onRegistered(region);
+    return new EvictableMmapBuffer(region, 0, (int) length, true);
+  }
+
+  private EvictableMmapBuffer(MappedRegion region, int offset, int size, boolean ownership) {
+    _region = region;
+    _offset = offset;
+    _size = size;
+    owner = ownership;
+  }
+
+  private PinotDataBuffer buffer() {
+    return _region.getBuffer();
+  }
+
+  @Override
+  public PinotDataBuffer duplicate() {
+    return new EvictableMmapBuffer(_region, _offset, _size, false);
+  }
+
+  @Override
+  public void close() {
+    if (owner) {
+      _region.close();
+    }
+  }
+
+  @Override
+  public byte getByte(long index) {
+    return buffer().getByte(_offset + index);
+  }
+
+  @Override
+  public byte getByte(int index) {
+    return buffer().getByte(_offset + index);
+  }
+
+  @Override
+  public char getChar(long index) {
+    return buffer().getChar(_offset + index);
+  }
+
+  @Override
+  public char getChar(int index) {
+    return buffer().getChar(_offset + index);
+  }
+
+  @Override
+  public short getShort(int index) {
+    return buffer().getShort(_offset + index);
+  }
+
+  @Override
+  public short getShort(long index) {
+    return buffer().getShort(_offset + index);
+  }
+
+  @Override
+  public int getInt(int index) {
+    return buffer().getInt(_offset + index);
+  }
+
+  @Override
+  public int getInt(long index) {
+    return buffer().getInt(_offset + index);
+  }
+
+  @Override
+  public long getLong(int index) {
+    return buffer().getLong(_offset + index);
+  }
+
+  @Override
+  public long getLong(long index) {
+    return buffer().getLong(_offset + index);
+  }
+
+  @Override
+  public float getFloat(int index) {
+    return buffer().getFloat(_offset + index);
+  }
+
+  @Override
+  public float getFloat(long index) {
+    return buffer().getFloat(_offset + index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return buffer().getDouble(_offset + index);
+  }
+
+  @Override
+  public double getDouble(long index) {
+    return buffer().getDouble(_offset + index);
+  }
+
+  @Override
+  public void putByte(long index, byte val) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putByte(int index, byte value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putChar(long index, char c) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putChar(int index, char value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putShort(int index, short value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putShort(long index, short value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putInt(int index, int value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putInt(long index, int value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putLong(int index, long value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putLong(long index, long l1) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putFloat(int index, float value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putFloat(long index, float v) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putDouble(int index, double value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void putDouble(long index, double value) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public PinotDataBuffer view(long start, long end) {
+    Preconditions.checkArgument(start >= 0 && start <= _size,
+        "View start position is not valid, start: %s, end: %s, buffer size: %s", start, end, _size);
+    Preconditions.checkArgument(end >= start && end <= _size,
+        "View end position is not valid, start: %s, end: %s, buffer size: %s", start, end, _size);
+    return new EvictableMmapBuffer(_region, _offset + (int) start, (int) (end - start), false);
+  }
+
+  @Override
+  public void copyTo(long srcOffset, byte[] destArray, int destOffset, int size) {
+    buffer().copyTo(_offset + srcOffset, destArray, destOffset, size);
+  }
+
+  @Override
+  public int readFrom(byte[] src, long destOffset) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public int readFrom(byte[] src, int srcOffset, long destOffset, int length) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public int readFrom(ByteBuffer sourceBuffer, int srcOffset, long destOffset, int length) {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public void readFrom(File dataFile)
+      throws IOException {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  protected void readFrom(File file, long startPosition, long length)
+      throws IOException {
+    throw new UnsupportedOperationException("Buffer is read-only");
+  }
+
+  @Override
+  public long size() {
+    return _size;
+  }
+
+  @Override
+  public long address() {
+    return 0;
+  }
+
+  /**
+   * The returned ByteBuffer escapes the accounting of accesses, so the region is pinned and never unmapped until closed.
+   */
+  @Override
+  public ByteBuffer toDirectByteBuffer(long bufferOffset, int size) {
+    return _region.pinAndGetBuffer().toDirectByteBuffer(_offset + bufferOffset, size);
+  }
+
+  @Override
+  protected long start() {
+    return 0;
+  }
+
+  /**
+   * Mapping of [start, start + length) of a file, shared by a buffer and all its duplicates and views.
+   */
+  static class MappedRegion {
+    final MmapBudgetManager _manager;
+    final File _file;
+    final long _start;
+    final long _length;
+    final String _context;
+
+    // Current mapping, null if evicted
+    private volatile PinotDataBuffer _buffer;
+    // Set on access, cleared by the clock of the manager. Races are benign.
+    boolean _referenced = true;
+    // Guarded by this
+    private boolean _pinned = false;
+    private boolean _closed = false;
+
+    MappedRegion(MmapBudgetManager manager, File file, long start, long length, String context,
+        PinotDataBuffer buffer) {
+      _manager = manager;
+      _file = file;
+      _start = start;
+      _length = length;
+      _context = context;
+      _buffer = buffer;
+    }
+
+    PinotDataBuffer getBuffer() {
+      PinotDataBuffer buffer = _buffer;
+      if (buffer == null) {
+        buffer = map();
+      }
+      if (!_referenced) {
+        _referenced = true;
+      }
+      return buffer;
+    }
+
+    PinotDataBuffer pinAndGetBuffer() {
+      synchronized (this) {
+        _pinned = true;
+      }
+      return getBuffer();
+    }
+
+    private PinotDataBuffer map() {
+      PinotDataBuffer buffer;
+      boolean remapped = false;
+      synchronized (this) {
+        Preconditions.checkState(!_closed, "Buffer of file: %s, context: %s is closed", _file, _context);
+        buffer = _buffer;
+        if (buffer == null) {
+          try {
+            buffer = PinotByteBuffer.mapFromFile(_file, _start, _length, FileChannel.MapMode.READ_ONLY, _context);
+          } catch (IOException e) {
+            throw new RuntimeException("Failed to re-map file: " + _file + ", context: " + _context, e);
+          }
+          _buffer = buffer;
+          _referenced = true;
+          remapped = true;
+        }
+      }
+      // Call the manager out of the region lock, the manager locks regions while holding its own lock
+      if (remapped) {
+        _manager.onRemapped(this);
+      }
+      return buffer;
+    }
+
+    /**
+     * Detaches the current mapping from the region and returns it, or returns null if the region cannot be evicted.
+     * The caller is responsible for releasing the returned mapping once nothing reads it anymore.
+     */
+    synchronized PinotDataBuffer evict() {
+      if (_pinned || _closed) {
+        return null;
+      }
+      PinotDataBuffer buffer = _buffer;
+      _buffer = null;
+      return buffer;
+    }
+
+    void close() {
+      PinotDataBuffer buffer;
+      synchronized (this) {
+        if (_closed) {
+          return;
+        }
+        _closed = true;
+        buffer = _buffer;
+        _buffer = null;
+      }
+      _manager.onClosed(this, buffer);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.memory;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Per-server budget of memory-mapped bytes for read-only index buffers.
+ * <p>Once enabled through {@link #init(long)}, read-only memory-mapped buffers returned by {@link PinotDataBuffer} are
+ * registered to this manager. When the mapped bytes go over the budget, the buffers not accessed recently are unmapped
+ * (least-recently-used order approximated with the CLOCK algorithm), and are transparently re-mapped on their next
+ * access. Buffers exposed as raw {@link java.nio.ByteBuffer}s are pinned and never unmapped.
+ * <p>Queries must be wrapped with {@link #enterQuery()} and {@link #exitQuery(long)}: an evicted mapping is only
+ * released once all the queries that might still be reading it have exited, and after a grace delay.
+ * <p>This class is thread-safe.
+ */
+public class MmapBudgetManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MmapBudgetManager.class);
+
+  public static final long DEFAULT_UNMAP_DELAY_MS = 10_000L;
+
+  private static volatile MmapBudgetManager _instance;
+
+  private final long _budgetBytes;
+  private final long _unmapDelayMs;
+
+  private final AtomicLong _mappedBytes = new AtomicLong();
+  private final AtomicLong _pendingUnmapBytes = new AtomicLong();
+  private final AtomicLong _numEvictions = new AtomicLong();
+  private final AtomicLong _numRemaps = new AtomicLong();
+
+  private final AtomicLong _ticketCounter = new AtomicLong();
+  private final ConcurrentSkipListSet<Long> _activeTickets = new ConcurrentSkipListSet<>();
+
+  // Guarded by this
+  private final List<EvictableMmapBuffer.MappedRegion> _regions = new ArrayList<>();
+  private final ArrayDeque<RetiredMapping> _retiredMappings = new ArrayDeque<>();
+  private int _clockHand = 0;
+
+  /**
+   * Initializes the mmap budget of the server. A non-positive budget disables the budget, in which case the buffers
+   * stay mapped for their whole lifetime.
+   * <p>Only buffers mapped after this call are accounted for.
+   */
+  public static synchronized void init(long budgetBytes) {
+    if (budgetBytes > 0) {
+      LOGGER.info("Enabling mmap budget of {} bytes", budgetBytes);
+      _instance = new MmapBudgetManager(budgetBytes, DEFAULT_UNMAP_DELAY_MS);
+    } else {
+      _instance = null;
+    }
+  }
+
+  /**
+   * Returns the mmap budget manager of the server, or null if the budget is disabled.
+   */
+  @Nullable
+  public static MmapBudgetManager getInstance() {
+    return _instance;
+  }
+
+  MmapBudgetManager(long budgetBytes, long unmapDelayMs) {
+    Preconditions.checkArgument(budgetBytes > 0);
+    Preconditions.checkArgument(unmapDelayMs >= 0);
+    _budgetBytes = budgetBytes;
+    _unmapDelayMs = unmapDelayMs;
+  }
+
+  /**
+   * Marks the start of a query. Mappings evicted from now on will not be released until {@link #exitQuery(long)} is
+   * called with the returned ticket.
+   */
+  public long enterQuery() {
+    long ticket = _ticketCounter.incrementAndGet();
+    _activeTickets.add(ticket);
+    return ticket;
+  }
+
+  /**
+   * Marks the end of a query started with {@link #enterQuery()}.
+   */
+  public void exitQuery(long ticket) {
+    _activeTickets.remove(ticket);
+    releaseRetiredMappings();
+  }
+
+  public long getBudgetBytes() {
+    return _budgetBytes;
+  }
+
+  /**
+   * Returns the number of bytes currently mapped by the registered buffers.
+   */
+  public long getMappedBytes() {
+    return _mappedBytes.get();
+  }
+
+  /**
+   * Returns the number of bytes evicted but not unmapped yet because queries might still be reading them.
+   */
+  public long getPendingUnmapBytes() {
+    return _pendingUnmapBytes.get();
+  }
+
+  public long getNumEvictions() {
+    return _numEvictions.get();
+  }
+
+  public long getNumRemaps() {
+    return _numRemaps.get();
+  }
+
+  public synchronized int getNumRegions() {
+    return _regions.size();
+  }
+
+  void onRegistered(EvictableMmapBuffer.MappedRegion region) {
+    synchronized (this) {
+      _regions.add(region);
+    }
+    _mappedBytes.addAndGet(region._length);
+    evictIfNeeded(region);
+  }
+
+  void onRemapped(EvictableMmapBuffer.MappedRegion region) {
+    _numRemaps.incrementAndGet();
+    _mappedBytes.addAndGet(region._length);
+    evictIfNeeded(region);
+  }
+
+  /**
+   * Called when the owner of a region closes it. The region is no longer in use, so its mapping is released right
+   * away.
+   */
+  void onClosed(EvictableMmapBuffer.MappedRegion region, @Nullable PinotDataBuffer buffer) {
+    synchronized (this) {
+      int index = _regions.indexOf(region);
+      if (index >= 0) {
+        _regions.remove(index);
+        if (index < _clockHand) {
+          _clockHand--;
+        }
+      }
+    }
+    if (buffer != null) {
+      buffer.close();
+      _mappedBytes.addAndGet(-region._length);
+    }
+  }
+
+  /**
+   * Evicts regions until the mapped bytes are within the budget, or no more region can be evicted. The region just
+   * mapped is about to be accessed, so it is never evicted.
+   */
+  private void evictIfNeeded(EvictableMmapBuffer.MappedRegion mappedRegion) {
+    if (_mappedBytes.get() > _budgetBytes) {
+      synchronized (this) {
+        // Up to two rounds of the clock: the first round clears the reference bits, the second one evicts the regions
+        // not accessed in-between. Pinned and already evicted regions are skipped.
+        int numRegions = _regions.size();
+        for (int i = 0; i < 2 * numRegions && _mappedBytes.get() > _budgetBytes; i++) {
+          if (_clockHand >= numRegions) {
+            _clockHand = 0;
+          }
+          EvictableMmapBuffer.MappedRegion region = _regions.get(_clockHand++);
+          if (region == mappedRegion) {
+            continue;
+          }
+          if (region._referenced) {
+            region._referenced = false;
+            continue;
+          }
+          PinotDataBuffer buffer = region.evict();
+          if (buffer != null) {
+            _mappedBytes.addAndGet(-region._length);
+            _pendingUnmapBytes.addAndGet(region._length);
+            _numEvictions.incrementAndGet();
+            // Queries entered so far might still hold the evicted buffer
+            _retiredMappings.add(
+                new RetiredMapping(buffer, region._length, _ticketCounter.get(), System.currentTimeMillis()));
+          }
+        }
+      }
+    }
+    releaseRetiredMappings();
+  }
+
+  private void releaseRetiredMappings() {
+    List<RetiredMapping> mappingsToRelease = null;
+    synchronized (this) {
+      if (_retiredMappings.isEmpty()) {
+        return;
+      }
+      Long oldestActiveTicket = _activeTickets.ceiling(Long.MIN_VALUE);
+      long now = System.currentTimeMillis();
+      // Retired mappings are queued in ticket and time order
+      while (!_retiredMappings.isEmpty()) {
+        RetiredMapping retiredMapping = _retiredMappings.peek();
+        if ((oldestActiveTicket != null && oldestActiveTicket <= retiredMapping._lastTicket)
+            || now - retiredMapping._retiredTimeMs < _unmapDelayMs) {
+          break;
+        }
+        _retiredMappings.poll();
+        if (mappingsToRelease == null) {
+          mappingsToRelease = new ArrayList<>();
+        }
+        mappingsToRelease.add(retiredMapping);
+      }
+    }
+    if (mappingsToRelease != null) {
+      for (RetiredMapping retiredMapping : mappingsToRelease) {
+        retiredMapping._buffer.close();
+        _pendingUnmapBytes.addAndGet(-retiredMapping._size);
+      }
+    }
+  }
+
+  private static class RetiredMapping {
+    private final PinotDataBuffer _buffer;
+    private final long _size;
+    private final long _lastTicket;
+    private final long _retiredTimeMs;
+
+    private RetiredMapping(PinotDataBuffer buffer, long size, long lastTicket, long retiredTimeMs) {
+      _buffer = buffer;
+      _size = size;
+      _lastTicket = lastTicket;
+      _retiredTimeMs = retiredTimeMs;
+    }
+  }
+}
@@ -87,6 +87,11 @@ public abstract class PinotDataBuffer implements AutoCloseable {
   private static PinotDataBuffer mapFromFile(File file, long startPosition, long length, FileChannel.MapMode openMode,
       String context)
       throws IOException {
+    // Read-only mappings are accounted for in the mmap budget of the server, if any
+    MmapBudgetManager mmapBudgetManager = MmapBudgetManager.getInstance();
+    if (mmapBudgetManager != null && openMode == FileChannel.MapMode.READ_ONLY) {
+      return EvictableMmapBuffer.mapFromFile(mmapBudgetManager, file, startPosition, length, context);
+    }
     if (USE_LBUFFER) {
       return PinotLByteBuffer.mapFromFile(file, startPosition, length, openMode, context);
     } else {
@@ -19,6 +19,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.io.Files;
 import com.linkedin.pinot.common.data.DimensionFieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
@@ -45,6 +46,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.linkedin.pinot.core.startree.hll.HllUtil;
 import org.apache.commons.io.FileUtils;
@@ -125,6 +130,9 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
   private int[] sortOrder;
   private int skipMaterializationCardinalityThreshold;
   private boolean enableOffHeapFormat;
+  private int numBuildThreads;
+  private ExecutorService executorService;
+  private int subTreeFileCounter = 0;
 
   public void init(StarTreeBuilderConfig builderConfig) throws Exception {
     schema = builderConfig.schema;
@@ -134,6 +142,7 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     skipMaterializationForDimensions = builderConfig.getSkipMaterializationForDimensions();
     skipMaterializationCardinalityThreshold = builderConfig.getSkipMaterializationCardinalityThreshold();
     enableOffHeapFormat = builderConfig.isEnableOffHealpFormat();
+    numBuildThreads = builderConfig.getNumBuildThreads();
 
     this.maxLeafRecords = builderConfig.maxLeafRecords;
     this.outDir = builderConfig.getOutDir();
@@ -328,7 +337,19 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     // Sort the data based on default sort order (split order + remaining dimensions)
     sort(dataFile, 0, rawRecordCount);
     // Recursively construct the star tree, continuously sorting the data
-    constructStarTree(starTreeRootIndexNode, 0, rawRecordCount, 0, dataFile);
+    if (numBuildThreads > 1) {
+      executorService = Executors.newFixedThreadPool(numBuildThreads);
+    }
+    try {
+      BuildContext context = new BuildContext();
+      constructStarTree(starTreeRootIndexNode, 0, rawRecordCount, 0, context);
+      aggRecordCount = context.getNumRecords();
+    } finally {
+      if (executorService != null) {
+        executorService.shutdownNow();
+        executorService = null;
+      }
+    }
 
     // Split the leaf nodes on time column. This is only possible if we have not split on time-column name
     // yet, and time column is still preserved (ie not replaced by StarTreeNode.all()).
@@ -419,7 +440,6 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
   private void splitLeafNodesOnTimeColumn() throws Exception {
     Queue<StarTreeIndexNode> nodes = new LinkedList<>();
     nodes.add(starTreeRootIndexNode);
-    StarTreeDataSorter dataSorter = new StarTreeDataSorter(dataFile, dimensionSizeBytes, metricSizeBytes);
     while (!nodes.isEmpty()) {
       StarTreeIndexNode node = nodes.remove();
       if (node.isLeaf()) {
@@ -430,9 +450,11 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
 
           int startDocId = node.getStartDocumentId();
           int endDocId = node.getEndDocumentId();
-          dataSorter.sort(startDocId, endDocId, newSortOrder);
+          StarTreeDataTable dataSorter =
+              new StarTreeDataTable(dataFile, dimensionSizeBytes, metricSizeBytes, newSortOrder);
+          dataSorter.sort(startDocId, endDocId);
           int timeColIndex = dimensionNameToIndexMap.get(timeColumnName);
-          Map<Integer, IntPair> timeColumnRangeMap =
+          Int2ObjectMap<IntPair> timeColumnRangeMap =
               dataSorter.groupByIntColumnCount(startDocId, endDocId, timeColIndex);
 
           node.setChildDimensionName(timeColIndex);
@@ -457,7 +479,6 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
         }
       }
     }
-    dataSorter.close();
   }
 
   /**
@@ -617,24 +638,30 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
     }
   }
 
-  private int constructStarTree(StarTreeIndexNode node, int startDocId, int endDocId, int level,
-      File file) throws Exception {
+  private int constructStarTree(StarTreeIndexNode node, final int startDocId, final int endDocId, final int level,
+      BuildContext context) throws Exception {
     // node.setStartDocumentId(startDocId);
     int docsAdded = 0;
     if (level == dimensionsSplitOrder.size()) {
       return 0;
     }
     String splitDimensionName = dimensionsSplitOrder.get(level);
-    Integer splitDimensionId = dimensionNameToIndexMap.get(splitDimensionName);
+    final int splitDimensionId = dimensionNameToIndexMap.get(splitDimensionName);
     LOG.debug(
         "Building tree at level:{} using file:{} from startDoc:{} endDocId:{} splitting on dimension:{}",
-        level, file.getName(), startDocId, endDocId, splitDimensionName);
-    Map<Integer, IntPair> sortGroupBy = groupBy(startDocId, endDocId, splitDimensionId, file);
+        level, context.getFile(startDocId).getName(), startDocId, endDocId, splitDimensionName);
+    Map<Integer, IntPair> sortGroupBy = groupBy(startDocId, endDocId, splitDimensionId, context);
     LOG.debug("Group stats:{}", sortGroupBy);
     node.setChildDimensionName(splitDimensionId);
     node.setChildren(new HashMap<Integer, StarTreeIndexNode>());
+
+    // The sub-trees under the root are independent, so build them in parallel, each one into its own context. The
+    // contexts are merged in the same order as the sequential build would have appended the records.
+    boolean buildSubTreesInParallel = (level == 0 && executorService != null);
+    List<Pair<StarTreeIndexNode, Future<BuildContext>>> subTreeFutures = new ArrayList<>();
+
     for (int childDimensionValue : sortGroupBy.keySet()) {
-      StarTreeIndexNode child = new StarTreeIndexNode();
+      final StarTreeIndexNode child = new StarTreeIndexNode();
       child.setDimensionName(splitDimensionId);
       child.setDimensionValue(childDimensionValue);
       child.setParent(node);
@@ -645,60 +672,95 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       // Add child to parent
       node.addChild(child, childDimensionValue);
 
-      int childDocs = 0;
-      IntPair range = sortGroupBy.get(childDimensionValue);
-      if (range.getRight() - range.getLeft() > maxLeafRecords) {
-        childDocs = constructStarTree(child, range.getLeft(), range.getRight(), level + 1, file);
-        docsAdded += childDocs;
+      final IntPair range = sortGroupBy.get(childDimensionValue);
+      if (buildSubTreesInParallel && range.getRight() - range.getLeft() > maxLeafRecords) {
+        subTreeFutures.add(Pair.of(child, submitSubTree(new SubTreeBuilder() {
+          @Override
+          public void build(BuildContext subTreeContext) throws Exception {
+            constructChild(child, range.getLeft(), range.getRight(), level + 1, subTreeContext);
+          }
+        })));
+      } else {
+        docsAdded += constructChild(child, range.getLeft(), range.getRight(), level + 1, context);
       }
+    }
+
+    // Create star node if needed.
+    if (skipStarNodeCreationForDimensions == null || !skipStarNodeCreationForDimensions.contains(splitDimensionName)) {
+      final StarTreeIndexNode starChild = new StarTreeIndexNode();
+      starChild.setDimensionName(splitDimensionId);
+      starChild.setDimensionValue(StarTreeIndexNodeInterf.ALL);
+      starChild.setParent(node);
+      starChild.setLevel(node.getLevel() + 1);
+      // n.b. We will number the nodes later using BFS after fully split
+
+      // Add child to parent
+      node.addChild(starChild, StarTreeIndexNodeInterf.ALL);
 
-      // Either range <= maxLeafRecords, or we did not split further (last level).
-      if (childDocs == 0) {
-        child.setStartDocumentId(range.getLeft());
-        child.setEndDocumentId(range.getRight());
+      if (buildSubTreesInParallel) {
+        subTreeFutures.add(Pair.of(starChild, submitSubTree(new SubTreeBuilder() {
+          @Override
+          public void build(BuildContext subTreeContext) throws Exception {
+            constructStarChild(starChild, startDocId, endDocId, splitDimensionId, level, subTreeContext);
+          }
+        })));
+      } else {
+        docsAdded += constructStarChild(starChild, startDocId, endDocId, splitDimensionId, level, context);
       }
     }
 
-    // Return if star node does not need to be created.
-    if (skipStarNodeCreationForDimensions != null
-        && skipStarNodeCreationForDimensions.contains(splitDimensionName)) {
-      return docsAdded;
+    for (Pair<StarTreeIndexNode, Future<BuildContext>> subTreeFuture : subTreeFutures) {
+      docsAdded += mergeSubTree(subTreeFuture.getLeft(), subTreeFuture.getRight().get(), context);
     }
+    // node.setEndDocumentId(endDocId + docsAdded);
+    return docsAdded;
+  }
 
-    // create star node
-    StarTreeIndexNode starChild = new StarTreeIndexNode();
-    starChild.setDimensionName(splitDimensionId);
-    starChild.setDimensionValue(StarTreeIndexNodeInterf.ALL);
-    starChild.setParent(node);
-    starChild.setLevel(node.getLevel() + 1);
-    // n.b. We will number the nodes later using BFS after fully split
+  /**
+   * Splits the given (non star) child further if it has too many records, and returns the number of records added.
+   */
+  private int constructChild(StarTreeIndexNode child, int startDocId, int endDocId, int level, BuildContext context)
+      throws Exception {
+    int childDocs = 0;
+    if (endDocId - startDocId > maxLeafRecords) {
+      childDocs = constructStarTree(child, startDocId, endDocId, level, context);
+    }
 
-    // Add child to parent
-    node.addChild(starChild, StarTreeIndexNodeInterf.ALL);
+    // Either range <= maxLeafRecords, or we did not split further (last level).
+    if (childDocs == 0) {
+      child.setStartDocumentId(startDocId);
+      child.setEndDocumentId(endDocId);
+    }
+    return childDocs;
+  }
 
+  /**
+   * Creates the records for the given star child by aggregating the records of its parent on the split dimension,
+   * splits the star child further if needed, and returns the number of records added.
+   */
+  private int constructStarChild(StarTreeIndexNode starChild, int startDocId, int endDocId, int splitDimensionId,
+      int level, BuildContext context) throws Exception {
     Iterator<Pair<DimensionBuffer, MetricBuffer>> iterator =
-        uniqueCombinations(startDocId, endDocId, file, splitDimensionId);
+        uniqueCombinations(startDocId, endDocId, context, splitDimensionId);
     int rowsAdded = 0;
-    int startOffset = rawRecordCount + aggRecordCount;
+    int startOffset = context.getNextDocId();
     while (iterator.hasNext()) {
       Pair<DimensionBuffer, MetricBuffer> next = iterator.next();
       DimensionBuffer dimension = next.getLeft();
       MetricBuffer metricsHolder = next.getRight();
       LOG.debug("Adding row:{}", dimension);
-      appendToAggBuffer(dimension, metricsHolder);
+      context.append(dimension, metricsHolder);
       rowsAdded++;
     }
-    docsAdded += rowsAdded;
     LOG.debug("Added {} additional records at level {}", rowsAdded, level);
     // flush
-    dataBuffer.flush();
+    context.flush();
 
     int childDocs = 0;
     if (rowsAdded >= maxLeafRecords) {
-      sort(dataFile, startOffset, startOffset + rowsAdded);
-      childDocs =
-          constructStarTree(starChild, startOffset, startOffset + rowsAdded, level + 1, dataFile);
-      docsAdded += childDocs;
+      int fileOffset = context.getFileOffset(startOffset);
+      sort(context.getFile(startOffset), startOffset - fileOffset, startOffset + rowsAdded - fileOffset);
+      childDocs = constructStarTree(starChild, startOffset, startOffset + rowsAdded, level + 1, context);
     }
 
     // Either rowsAdded < maxLeafRecords, or we did not split further (last level).
@@ -706,8 +768,145 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
       starChild.setStartDocumentId(startOffset);
       starChild.setEndDocumentId(startOffset + rowsAdded);
     }
-    // node.setEndDocumentId(endDocId + docsAdded);
-    return docsAdded;
+    return rowsAdded + childDocs;
+  }
+
+  /**
+   * Builds a sub-tree asynchronously into a new context backed by its own file.
+   */
+  private Future<BuildContext> submitSubTree(final SubTreeBuilder subTreeBuilder) throws IOException {
+    final BuildContext subTreeContext =
+        new BuildContext(new File(outDir, dataFile.getName() + "_" + subTreeFileCounter++ + ".subtree.tmp"),
+            rawRecordCount);
+    return executorService.submit(new Callable<BuildContext>() {
+      @Override
+      public BuildContext call() throws Exception {
+        try {
+          subTreeBuilder.build(subTreeContext);
+          return subTreeContext;
+        } finally {
+          subTreeContext.close();
+        }
+      }
+    });
+  }
+
+  /**
+   * Appends the records of the sub-tree context to the given context, shifts the document ids of the aggregated
+   * records referenced by the sub-tree accordingly, and returns the number of records added.
+   */
+  private int mergeSubTree(StarTreeIndexNode subTreeRoot, BuildContext subTreeContext, BuildContext context)
+      throws IOException {
+    int docIdShift = context.getNextDocId() - subTreeContext.getFileStartDocId();
+    if (docIdShift != 0) {
+      shiftAggregatedDocIds(subTreeRoot, docIdShift);
+    }
+    int numRecords = subTreeContext.getNumRecords();
+    context.append(subTreeContext.getFile(rawRecordCount), numRecords);
+    FileUtils.deleteQuietly(subTreeContext.getFile(rawRecordCount));
+    return numRecords;
+  }
+
+  private void shiftAggregatedDocIds(StarTreeIndexNode node, int docIdShift) {
+    // Raw document ids are not affected by merging.
+    if (node.getStartDocumentId() >= rawRecordCount) {
+      node.setStartDocumentId(node.getStartDocumentId() + docIdShift);
+      node.setEndDocumentId(node.getEndDocumentId() + docIdShift);
+    }
+    if (!node.isLeaf()) {
+      Iterator<StarTreeIndexNode> childrenIterator = node.getChildrenIterator();
+      while (childrenIterator.hasNext()) {
+        shiftAggregatedDocIds(childrenIterator.next(), docIdShift);
+      }
+    }
+  }
+
+  /**
+   * Builds (part of) the tree into a given context.
+   */
+  private interface SubTreeBuilder {
+    void build(BuildContext context) throws Exception;
+  }
+
+  /**
+   * Holds the aggregated records created while building (part of) the tree.
+   * <p>The raw records always live in the data file. The aggregated records appended to a context get consecutive
+   * document ids starting from the number of raw records, and are written to the file of the context. The main context
+   * writes into the data file itself, while each sub-tree built in parallel writes into a separate file, which is
+   * appended to the data file once the sub-tree is built.
+   */
+  private class BuildContext {
+    private final File file;
+    private final int fileStartDocId;
+    private final DataOutputStream output;
+    private int numRecords;
+
+    /**
+     * Main context, appending to the data file.
+     */
+    BuildContext() {
+      file = dataFile;
+      fileStartDocId = 0;
+      output = dataBuffer;
+      numRecords = aggRecordCount;
+    }
+
+    /**
+     * Sub-tree context, appending to the given file, whose first record has the given document id.
+     */
+    BuildContext(File file, int fileStartDocId) throws IOException {
+      this.file = file;
+      this.fileStartDocId = fileStartDocId;
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Returns the file holding the record with the given document id.
+     */
+    File getFile(int docId) {
+      return docId < rawRecordCount ? dataFile : file;
+    }
+
+    /**
+     * Returns the document id of the first record of the file holding the record with the given document id.
+     */
+    int getFileOffset(int docId) {
+      return docId < rawRecordCount ? 0 : fileStartDocId;
+    }
+
+    int getFileStartDocId() {
+      return fileStartDocId;
+    }
+
+    int getNumRecords() {
+      return numRecords;
+    }
+
+    int getNextDocId() {
+      return rawRecordCount + numRecords;
+    }
+
+    void append(DimensionBuffer dimension, MetricBuffer metrics) throws IOException {
+      appendToBuffer(output, dimension, metrics);
+      numRecords++;
+    }
+
+    void append(File recordFile, int numRecordsInFile) throws IOException {
+      Files.copy(recordFile, output);
+      numRecords += numRecordsInFile;
+    }
+
+    String getName() {
+      return file.getName();
+    }
+
+    void flush() throws IOException {
+      output.flush();
+    }
+
+    void close() throws IOException {
+      output.close();
+    }
   }
 
   /**
@@ -722,12 +921,14 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
    * @throws Exception
    */
   private Iterator<Pair<DimensionBuffer, MetricBuffer>> uniqueCombinations(int startDocId,
-      int endDocId, File file, int splitDimensionId) throws Exception {
+      int endDocId, BuildContext context, int splitDimensionId) throws Exception {
+    int fileOffset = context.getFileOffset(startDocId);
     StarTreeDataTable dataSorter =
-        new StarTreeDataTable(file, dimensionSizeBytes, metricSizeBytes, getSortOrder());
-    Iterator<Pair<byte[], byte[]>> iterator1 = dataSorter.iterator(startDocId, endDocId);
+        new StarTreeDataTable(context.getFile(startDocId), dimensionSizeBytes, metricSizeBytes, getSortOrder());
+    Iterator<Pair<byte[], byte[]>> iterator1 = dataSorter.iterator(startDocId - fileOffset, endDocId - fileOffset);
+    // Name the temp file after the context, as sub-trees built in parallel might aggregate the same raw range.
     File tempFile =
-        new File(outDir, file.getName() + "_" + startDocId + "_" + endDocId + ".unique.tmp");
+        new File(outDir, context.getName() + "_" + startDocId + "_" + endDocId + ".unique.tmp");
     DataOutputStream dos =
         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
     while (iterator1.hasNext()) {
@@ -805,13 +1006,22 @@ public class OffHeapStarTreeBuilder implements StarTreeBuilder {
    * @param startDocId
    * @param endDocId
    * @param dimension
-   * @param file
+   * @param context
    * @return
    */
-  private Int2ObjectMap<IntPair> groupBy(int startDocId, int endDocId, Integer dimension, File file) {
+  private Int2ObjectMap<IntPair> groupBy(int startDocId, int endDocId, Integer dimension, BuildContext context) {
+    int fileOffset = context.getFileOffset(startDocId);
     StarTreeDataTable dataSorter =
-        new StarTreeDataTable(file, dimensionSizeBytes, metricSizeBytes, getSortOrder());
-    return dataSorter.groupByIntColumnCount(startDocId, endDocId, dimension);
+        new StarTreeDataTable(context.getFile(startDocId), dimensionSizeBytes, metricSizeBytes, getSortOrder());
+    Int2ObjectMap<IntPair> rangeMap =
+        dataSorter.groupByIntColumnCount(startDocId - fileOffset, endDocId - fileOffset, dimension);
+    if (fileOffset != 0) {
+      for (Int2ObjectMap.Entry<IntPair> entry : rangeMap.int2ObjectEntrySet()) {
+        IntPair range = entry.getValue();
+        entry.setValue(new IntPair(range.getLeft() + fileOffset, range.getRight() + fileOffset));
+      }
+    }
+    return rangeMap;
   }
 
   /**
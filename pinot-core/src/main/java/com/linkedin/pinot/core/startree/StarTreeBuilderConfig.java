@@ -38,6 +38,7 @@ public class StarTreeBuilderConfig {
   private int skipMaterializationCardinalityThreshold =
       StarTreeIndexSpec.DEFAULT_SKIP_MATERIALIZATION_CARDINALITY_THRESHOLD;
   private boolean enableOffHealpFormat;
+  private int numBuildThreads = Runtime.getRuntime().availableProcessors();
 
   public StarTreeBuilderConfig() {
   }
@@ -124,4 +125,20 @@ public class StarTreeBuilderConfig {
   public void setEnableOffHealpFormat(boolean enableOffHealpFormat) {
     this.enableOffHealpFormat = enableOffHealpFormat;
   }
+
+  /**
+   * Returns the number of threads used to build the sub-trees under the root in parallel.
+   * @return
+   */
+  public int getNumBuildThreads() {
+    return numBuildThreads;
+  }
+
+  /**
+   * Set the number of threads used to build the sub-trees under the root in parallel, 1 to build sequentially.
+   * @param numBuildThreads
+   */
+  public void setNumBuildThreads(int numBuildThreads) {
+    this.numBuildThreads = numBuildThreads;
+  }
 }
@@ -17,10 +17,9 @@ package com.linkedin.pinot.core.startree;
 
 import com.linkedin.pinot.common.utils.Pairs.IntPair;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
-import it.unimi.dsi.fastutil.Arrays;
-import it.unimi.dsi.fastutil.Swapper;
 import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.ints.IntComparator;
 import java.io.File;
 import java.io.IOException;
@@ -30,7 +29,6 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import xerial.larray.buffer.LBuffer;
-import xerial.larray.buffer.LBufferAPI;
 import xerial.larray.mmap.MMapBuffer;
 import xerial.larray.mmap.MMapMode;
 
@@ -51,23 +49,12 @@ public class StarTreeDataTable {
   private int totalSizeInBytes;
   final int[] sortOrder;
 
-  // Re-usable buffers
-  private LBuffer dimLbuf1;
-  private LBuffer dimLbuf2;
-  private LBufferAPI dimMetLbuf1;
-  private LBufferAPI dimMetLbuf2;
-
   public StarTreeDataTable(File file, int dimensionSizeInBytes, int metricSizeInBytes, int[] sortOrder) {
     this.file = file;
     this.dimensionSizeInBytes = dimensionSizeInBytes;
     this.metricSizeInBytes = metricSizeInBytes;
     this.sortOrder = sortOrder;
     this.totalSizeInBytes = dimensionSizeInBytes + metricSizeInBytes;
-
-    dimLbuf1 = new LBuffer(dimensionSizeInBytes);
-    dimLbuf2 = new LBuffer(dimensionSizeInBytes);
-    dimMetLbuf1 = new LBuffer(totalSizeInBytes);
-    dimMetLbuf2 = new LBuffer(totalSizeInBytes);
   }
 
   /**
@@ -83,7 +70,7 @@ public class StarTreeDataTable {
 
       // Sort the docIds without actually moving the docs themselves.
       mappedByteBuffer = new MMapBuffer(file, startOffset, numRecords * (long) totalSizeInBytes, MMapMode.READ_WRITE);
-      final int[] sortedDocIds = getSortedDocIds(mappedByteBuffer, totalSizeInBytes, dimensionSizeInBytes, numRecords);
+      final int[] sortedDocIds = getSortedDocIds(mappedByteBuffer, totalSizeInBytes, numRecords);
 
       // Re-arrange the docs as per the sorted docId order.
       sortMmapBuffer(mappedByteBuffer, totalSizeInBytes, numRecords, sortedDocIds);
@@ -94,59 +81,66 @@ public class StarTreeDataTable {
 
   /**
    * Helper method that returns an array of docIds sorted as per dimension sort order.
+   * <p>The sort columns of all the docs are first copied into a contiguous off-heap buffer (in native byte order), so
+   * that comparing two docs only reads a few ints from that buffer instead of copying and decoding both docs from the
+   * mmapped file.
    *
    * @param mappedByteBuffer Mmap buffer containing docs to sort
    * @param recordSizeInBytes Size of one record in bytes
-   * @param dimensionSizeInBytes Size of dimension columns in bytes
    * @param numRecords Number of records
    * @return DocId array in sorted order
    */
-  private int[] getSortedDocIds(final MMapBuffer mappedByteBuffer, final long recordSizeInBytes,
-      final long dimensionSizeInBytes, int numRecords) {
-    final int[] ids = new int[numRecords];
-    for (int i = 0; i < ids.length; i++) {
-      ids[i] = i;
-    }
-
-    IntComparator comparator = new IntComparator() {
-      @Override
-      public int compare(int i1, int i2) {
-        long pos1 = (ids[i1]) * recordSizeInBytes;
-        long pos2 = (ids[i2]) * recordSizeInBytes;
-
-        mappedByteBuffer.copyTo(pos1, dimLbuf1, 0, dimensionSizeInBytes);
-        mappedByteBuffer.copyTo(pos2, dimLbuf2, 0, dimensionSizeInBytes);
+  private int[] getSortedDocIds(MMapBuffer mappedByteBuffer, long recordSizeInBytes, int numRecords) {
+    final int numSortColumns = sortOrder.length;
+    final long keySizeInBytes = numSortColumns * (long) V1Constants.Numbers.INTEGER_SIZE;
+    final LBuffer keyBuffer = new LBuffer(Math.max(numRecords * keySizeInBytes, 1L));
+    try {
+      for (int i = 0; i < numRecords; i++) {
+        long recordOffset = i * recordSizeInBytes;
+        long keyOffset = i * keySizeInBytes;
+        for (int j = 0; j < numSortColumns; j++) {
+          int value = flipEndiannessIfNeeded(
+              mappedByteBuffer.getInt(recordOffset + sortOrder[j] * V1Constants.Numbers.INTEGER_SIZE));
+          keyBuffer.putInt(keyOffset + j * V1Constants.Numbers.INTEGER_SIZE, value);
+        }
+      }
 
-        for (int dimIndex : sortOrder) {
-          int v1 = flipEndiannessIfNeeded(dimLbuf1.getInt(dimIndex * V1Constants.Numbers.INTEGER_SIZE));
-          int v2 = flipEndiannessIfNeeded(dimLbuf2.getInt(dimIndex * V1Constants.Numbers.INTEGER_SIZE));
-          if (v1 != v2) {
-            return v1 - v2;
+      IntComparator comparator = new IntComparator() {
+        @Override
+        public int compare(int docId1, int docId2) {
+          long keyOffset1 = docId1 * keySizeInBytes;
+          long keyOffset2 = docId2 * keySizeInBytes;
+          for (int j = 0; j < numSortColumns; j++) {
+            int v1 = keyBuffer.getInt(keyOffset1 + j * V1Constants.Numbers.INTEGER_SIZE);
+            int v2 = keyBuffer.getInt(keyOffset2 + j * V1Constants.Numbers.INTEGER_SIZE);
+            if (v1 != v2) {
+              return v1 < v2 ? -1 : 1;
+            }
           }
+          return 0;
         }
-        return 0;
-      }
 
-      @Override
-      public int compare(Integer o1, Integer o2) {
-        return compare(o1.intValue(), o2.intValue());
-      }
-    };
+        @Override
+        public int compare(Integer o1, Integer o2) {
+          return compare(o1.intValue(), o2.intValue());
+        }
+      };
 
-    Swapper swapper = new Swapper() {
-      @Override
-      public void swap(int i, int j) {
-        int tmp = ids[i];
-        ids[i] = ids[j];
-        ids[j] = tmp;
+      int[] ids = new int[numRecords];
+      for (int i = 0; i < numRecords; i++) {
+        ids[i] = i;
       }
-    };
-    Arrays.quickSort(0, numRecords, comparator, swapper);
-    return ids;
+      IntArrays.quickSort(ids, 0, numRecords, comparator);
+      return ids;
+    } finally {
+      keyBuffer.release();
+    }
   }
 
   /**
    * Helper method to re-arrange the given MMap buffer as per the sorted docId order.
+   * <p>The permutation is applied cycle by cycle, so that each record is moved exactly once (plus one extra copy per
+   * cycle).
    *
    * @param mappedByteBuffer Mmap buffer to re-arrange
    * @param recordSizeInBytes Size of one record in bytes
@@ -156,38 +150,30 @@ public class StarTreeDataTable {
    */
   private void sortMmapBuffer(MMapBuffer mappedByteBuffer, long recordSizeInBytes, int numRecords, int[] sortedDocIds)
       throws IOException {
-    int[] currentPositions = new int[numRecords];
-    int[] indexToRecordIdMapping = new int[numRecords];
-
-    for (int i = 0; i < numRecords; i++) {
-      currentPositions[i] = i;
-      indexToRecordIdMapping[i] = i;
-    }
-    for (int i = 0; i < numRecords; i++) {
-      int thisRecordId = indexToRecordIdMapping[i];
-      int thisRecordIdPos = currentPositions[thisRecordId];
-
-      int thatRecordId = sortedDocIds[i];
-      int thatRecordIdPos = currentPositions[thatRecordId];
-
-      // Swap the buffers
-      long thisOffset = thisRecordIdPos *  recordSizeInBytes;
-      long thatOffset = thatRecordIdPos *  recordSizeInBytes;
-
-      mappedByteBuffer.copyTo(thisOffset, dimMetLbuf1, 0, recordSizeInBytes);
-      mappedByteBuffer.copyTo(thatOffset, dimMetLbuf2, 0, recordSizeInBytes);
-
-      dimMetLbuf1.copyTo(0, mappedByteBuffer, thatOffset, recordSizeInBytes);
-      dimMetLbuf2.copyTo(0, mappedByteBuffer, thisOffset, recordSizeInBytes);
-
-      indexToRecordIdMapping[i] = thatRecordId;
-      indexToRecordIdMapping[thatRecordIdPos] = thisRecordId;
-
-      currentPositions[thatRecordId] = i;
-      currentPositions[thisRecordId] = thatRecordIdPos;
-    }
+    LBuffer recordBuffer = new LBuffer(recordSizeInBytes);
+    try {
+      boolean[] inPlace = new boolean[numRecords];
+      for (int i = 0; i < numRecords; i++) {
+        if (inPlace[i] || sortedDocIds[i] == i) {
+          continue;
+        }
 
-    if (mappedByteBuffer != null) {
+        // Save the record at the start of the cycle, then move each record of the cycle to its sorted position.
+        mappedByteBuffer.copyTo(i * recordSizeInBytes, recordBuffer, 0, recordSizeInBytes);
+        int position = i;
+        int sourcePosition = sortedDocIds[i];
+        while (sourcePosition != i) {
+          mappedByteBuffer.copyTo(sourcePosition * recordSizeInBytes, mappedByteBuffer, position * recordSizeInBytes,
+              recordSizeInBytes);
+          inPlace[position] = true;
+          position = sourcePosition;
+          sourcePosition = sortedDocIds[position];
+        }
+        recordBuffer.copyTo(0, mappedByteBuffer, position * recordSizeInBytes, recordSizeInBytes);
+        inPlace[position] = true;
+      }
+    } finally {
+      recordBuffer.release();
       mappedByteBuffer.flush();
       mappedByteBuffer.close();
     }
@@ -27,7 +27,12 @@ import org.codehaus.jackson.annotate.JsonIgnore;
  * HllConfig is used at segment generation.
  *
  * If columnsToDeriveHllFields are specified and not empty,
- * segment builder will generate corresponding hll derived fields on the fly.
+ * segment builder will generate corresponding hll derived fields on the fly,
+ * with or without star tree.
+ *
+ * HLL metric columns ingested already serialized (derived metric type HLL in the schema, values
+ * serialized with {@link HllUtil#convertHllToString}) do not need an HllConfig, but if one is set,
+ * its log2m must match their field size.
  */
 public class HllConfig {
   private int hllLog2m = HllConstants.DEFAULT_LOG2M;
@@ -18,4 +18,6 @@ package com.linkedin.pinot.core.startree.hll;
 public class HllConstants {
     public static final int DEFAULT_LOG2M = 8;
     public static final String DEFAULT_HLL_DERIVE_COLUMN_SUFFIX = "_hll";
+    // Aggregation param holding the log2m of the HLL values merged by 'fasthll', set when pre-processing the request.
+    public static final String HLL_LOG2M_AGGREGATION_PARAM = "hllLog2m";
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Bounded heap of primitive longs to select the top N elements, where the elements are typically references to values
+ * stored elsewhere (e.g. group ids), ranked by {@link #compare(long, long)}.
+ * <p>The lowest ranked selected element is kept at the root, so that offering an element costs O(log(N)) at most, and
+ * O(1) for elements ranked lower than all the selected ones.
+ */
+public abstract class BoundedLongHeap {
+  private final long[] _heap;
+  private int _size = 0;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param maxSize Max number of elements to select.
+   */
+  public BoundedLongHeap(int maxSize) {
+    Preconditions.checkArgument(maxSize >= 0);
+    _heap = new long[maxSize];
+  }
+
+  /**
+   * Compares two elements, a positive value means the first element ranks higher.
+   */
+  protected abstract int compare(long element1, long element2);
+
+  /**
+   * Offers an element, which is selected if the heap is not full or if it ranks higher than the lowest ranked selected
+   * element.
+   */
+  public void offer(long element) {
+    if (_size < _heap.length) {
+      siftUp(_size++, element);
+    } else if (_size > 0 && compare(element, _heap[0]) > 0) {
+      siftDown(element);
+    }
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Returns the selected elements in no particular order.
+   */
+  public long[] getElements() {
+    long[] elements = new long[_size];
+    System.arraycopy(_heap, 0, elements, 0, _size);
+    return elements;
+  }
+
+  /**
+   * Removes and returns the selected elements, from the highest ranked to the lowest ranked.
+   */
+  public long[] drainSorted() {
+    long[] elements = new long[_size];
+    while (_size > 0) {
+      elements[_size - 1] = _heap[0];
+      long last = _heap[--_size];
+      if (_size > 0) {
+        siftDown(last);
+      }
+    }
+    return elements;
+  }
+
+  private void siftUp(int position, long element) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (compare(element, _heap[parent]) >= 0) {
+        break;
+      }
+      _heap[position] = _heap[parent];
+      position = parent;
+    }
+    _heap[position] = element;
+  }
+
+  /**
+   * Replaces the root with the given element and restores the heap order.
+   */
+  private void siftDown(long element) {
+    int position = 0;
+    int child;
+    while ((child = 2 * position + 1) < _size) {
+      if (child + 1 < _size && compare(_heap[child + 1], _heap[child]) < 0) {
+        child++;
+      }
+      if (compare(element, _heap[child]) <= 0) {
+        break;
+      }
+      _heap[position] = _heap[child];
+      position = child;
+    }
+    _heap[position] = element;
+  }
+}
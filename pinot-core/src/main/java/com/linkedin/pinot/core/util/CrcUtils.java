@@ -28,6 +28,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.Adler32;
 import java.util.zip.CheckedInputStream;
 import java.util.zip.Checksum;
@@ -42,6 +43,7 @@ import org.slf4j.LoggerFactory;
 public class CrcUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(CrcUtils.class);
   private static final int BUFFER_SIZE = 65536;
+  private static final long ADLER32_BASE = 65521L;
 
   private final List<File> filesToProcess;
 
@@ -103,6 +105,49 @@ public class CrcUtils {
     return checksum.getValue();
   }
 
+  /**
+   * Computes the same CRC as {@link #computeCrc()} from the Adler32 checksums of the individual files, e.g. computed
+   * while the files were written, without reading the files back.
+   *
+   * @return the CRC, or null if the checksum of one of the files is missing
+   */
+  public Long computeCrc(Map<File, Long> fileChecksums) {
+    long crc = new Adler32().getValue();
+    for (final File file : filesToProcess) {
+      Long fileChecksum = fileChecksums.get(file);
+      if (fileChecksum == null) {
+        return null;
+      }
+      crc = combineAdler32(crc, fileChecksum, file.length());
+    }
+    return crc;
+  }
+
+  /**
+   * Returns the Adler32 checksum of the concatenation of two byte sequences given their checksums and the length of the
+   * second one (same as adler32_combine() in zlib).
+   */
+  static long combineAdler32(long adler1, long adler2, long length2) {
+    long remainder = length2 % ADLER32_BASE;
+    long sum1 = adler1 & 0xffff;
+    long sum2 = (remainder * sum1) % ADLER32_BASE;
+    sum1 += (adler2 & 0xffff) + ADLER32_BASE - 1;
+    sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER32_BASE - remainder;
+    if (sum1 >= ADLER32_BASE) {
+      sum1 -= ADLER32_BASE;
+    }
+    if (sum1 >= ADLER32_BASE) {
+      sum1 -= ADLER32_BASE;
+    }
+    if (sum2 >= (ADLER32_BASE << 1)) {
+      sum2 -= (ADLER32_BASE << 1);
+    }
+    if (sum2 >= ADLER32_BASE) {
+      sum2 -= ADLER32_BASE;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
   public String computeMD5() throws NoSuchAlgorithmException, IOException {
 
     final MessageDigest digest = MessageDigest.getInstance("md5");
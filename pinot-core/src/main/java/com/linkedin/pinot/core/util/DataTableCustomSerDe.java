@@ -22,7 +22,9 @@ import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.common.utils.DataTableJavaSerDe;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest.TDigest;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
@@ -138,12 +140,18 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
       case QuantileDigest:
         return (T) deserializeQuantileDigest(bytes);
 
+      case TDigest:
+        return (T) deserializeTDigest(bytes);
+
       case HashMap:
         return (T) deserializeHashMap(bytes);
 
       case IntOpenHashSet:
         return (T) deserializeIntOpenHashSet(bytes);
 
+      case DistinctCountSketch:
+        return (T) DistinctCountSketch.fromBytes(bytes);
+
       case Object:
         return (T) deserializeJavaObject(bytes);
 
@@ -204,6 +212,10 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
       QuantileDigest quantileDigest = (QuantileDigest) object;
       return serializeQuantileDigest(quantileDigest);
 
+    } else if (object instanceof TDigest) {
+      TDigest tDigest = (TDigest) object;
+      return serializeTDigest(tDigest);
+
     } else if (object instanceof HashMap) {
       HashMap<Object, Object> map = (HashMap<Object, Object>) object;
       return serializeHashMap(map);
@@ -212,6 +224,10 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
       IntOpenHashSet hashSet = (IntOpenHashSet) object;
       return serializeIntOpenHashSet(hashSet);
 
+    } else if (object instanceof DistinctCountSketch) {
+      DistinctCountSketch distinctCountSketch = (DistinctCountSketch) object;
+      return distinctCountSketch.toBytes();
+
     } else {
       return serializeJavaObject(object);
     }
@@ -257,12 +273,18 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
     } else if (object instanceof QuantileDigest) {
       return DataType.QuantileDigest;
 
+    } else if (object instanceof TDigest) {
+      return DataType.TDigest;
+
     } else if (object instanceof HashMap) {
       return DataType.HashMap;
 
     } else if (object instanceof IntOpenHashSet) {
       return DataType.IntOpenHashSet;
 
+    } else if (object instanceof DistinctCountSketch) {
+      return DataType.DistinctCountSketch;
+
     } else {
       return DataType.Object;
     }
@@ -434,6 +456,44 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
     }
   }
 
+  /**
+   * Helper method to serialize TDigest into a byte-array
+   *
+   * @param tDigest to serialize
+   * @return Serialized byte-array for the TDigest.
+   */
+  public static byte[] serializeTDigest(TDigest tDigest) {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(tDigest.getSerializedSizeInBytes());
+
+    try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+      tDigest.serialize(dataOutputStream);
+      dataOutputStream.flush();
+      return byteArrayOutputStream.toByteArray();
+
+    } catch (IOException e) {
+      LOGGER.error("Exception caught while serializing TDigest", e);
+      throw new RuntimeException("Serialization error for TDigest", e);
+    }
+  }
+
+  /**
+   * Helper method to de-serialize TDigest from a byte-array
+   *
+   * @param bytes Serialized bytes for the TDigest object
+   * @return De-serialized TDigest from the given byte-array
+   */
+  public static TDigest deserializeTDigest(byte[] bytes) {
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
+
+    try (DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream)) {
+      return TDigest.deserialize(dataInputStream);
+
+    } catch (IOException e) {
+      LOGGER.error("De-serialization error for TDigest", e);
+      throw new RuntimeException("TDigest de-serialization error", e);
+    }
+  }
+
   /**
    * Helper method to serialize IntOpenHashSet into a byte-array
    *
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.util.trace;
 
+import com.linkedin.pinot.common.query.QueryCancellationToken;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +25,7 @@ import java.util.concurrent.Callable;
 /**
  * Wrap a {@link Callable} so that the thread executes this job
  * will be automatically registered/unregistered to/from a request.
+ * The query cancellation token of the calling thread is propagated the same way.
  *
  */
 public abstract class TraceCallable<V> implements Callable<V> {
@@ -32,6 +34,8 @@ public abstract class TraceCallable<V> implements Callable<V> {
 
   private final InstanceRequest request;
   private final Trace parent;
+  // Captured from the thread creating this job
+  private final QueryCancellationToken cancellationToken = QueryCancellationToken.getTokenForCurrentThread();
 
   public TraceCallable(InstanceRequest request, Trace parent) {
     if (request == null) {
@@ -51,9 +55,11 @@ public abstract class TraceCallable<V> implements Callable<V> {
   @Override
   public V call() throws Exception {
     if (request != null) TraceContext.registerThreadToRequest(request, parent);
+    if (cancellationToken != null) QueryCancellationToken.registerThreadToToken(cancellationToken);
     try {
       return callJob();
     } finally {
+      if (cancellationToken != null) QueryCancellationToken.unregisterThreadFromToken();
       if (request != null) TraceContext.unregisterThreadFromRequest();
     }
   }
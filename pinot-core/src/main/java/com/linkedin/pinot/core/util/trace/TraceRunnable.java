@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.util.trace;
 
+import com.linkedin.pinot.common.query.QueryCancellationToken;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,6 +23,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Wrap a {@link Runnable} so that the thread executes this job
  * will be automatically registered/unregistered to/from a request.
+ * The query cancellation token of the calling thread is propagated the same way.
  *
  */
 public abstract class TraceRunnable implements Runnable {
@@ -30,6 +32,8 @@ public abstract class TraceRunnable implements Runnable {
 
   private final InstanceRequest request;
   private final Trace parent;
+  // Captured from the thread creating this job
+  private final QueryCancellationToken cancellationToken = QueryCancellationToken.getTokenForCurrentThread();
 
   private TraceRunnable(InstanceRequest request, Trace parent) {
     if (request == null) {
@@ -49,9 +53,11 @@ public abstract class TraceRunnable implements Runnable {
   @Override
   public void run() {
     if (request != null) TraceContext.registerThreadToRequest(request, parent);
+    if (cancellationToken != null) QueryCancellationToken.registerThreadToToken(cancellationToken);
     try {
       runJob();
     } finally {
+      if (cancellationToken != null) QueryCancellationToken.unregisterThreadFromToken();
       if (request != null) TraceContext.unregisterThreadFromRequest();
     }
   }
@@ -44,6 +44,7 @@ import com.linkedin.pinot.core.data.manager.offline.OfflineTableDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.yammer.metrics.core.MetricsRegistry;
 import static org.mockito.Mockito.*;
 
@@ -198,6 +199,48 @@ public class OfflineTableDataManagerTest {
     tableDataManager.shutDown();
   }
 
+  @Test
+  public void tryIncrementRefCntTest() throws Exception {
+    SegmentDataManager segmentDataManager = new OfflineSegmentDataManager(makeIndexSegment("TestSegment", 1));
+    Assert.assertTrue(segmentDataManager.tryIncrementRefCnt());
+    verifyCount(segmentDataManager, 2);
+    segmentDataManager.decrementRefCnt();
+    segmentDataManager.decrementRefCnt();
+    // Once the reference count dropped to 0, the segment can no longer be acquired.
+    Assert.assertFalse(segmentDataManager.tryIncrementRefCnt());
+    verifyCount(segmentDataManager, 0);
+  }
+
+  @Test
+  public void segmentResultCacheInvalidationTest() throws Exception {
+    OfflineTableDataManager tableDataManager = makeTestableManager();
+    SegmentResultCache segmentResultCache = mock(SegmentResultCache.class);
+    tableDataManager.setSegmentResultCache(segmentResultCache);
+    final String segmentName = "TestSegment";
+
+    // Adding a new segment has no cached results to invalidate.
+    tableDataManager.addSegment(makeIndexSegment(segmentName, 1));
+    verify(segmentResultCache, never()).invalidateSegment(anyString(), anyString());
+
+    // Replacing the segment invalidates the cached results of the old version.
+    tableDataManager.addSegment(makeIndexSegment(segmentName, 2));
+    verify(segmentResultCache, times(1)).invalidateSegment(tableName, segmentName);
+
+    // Removing the segment invalidates its cached results, removing it again is a no-op.
+    tableDataManager.removeSegment(segmentName);
+    verify(segmentResultCache, times(2)).invalidateSegment(tableName, segmentName);
+    tableDataManager.removeSegment(segmentName);
+    verify(segmentResultCache, times(2)).invalidateSegment(tableName, segmentName);
+
+    // Once the cache is unset, nothing is invalidated.
+    tableDataManager.setSegmentResultCache(null);
+    tableDataManager.addSegment(makeIndexSegment(segmentName, 3));
+    tableDataManager.addSegment(makeIndexSegment(segmentName, 4));
+    tableDataManager.removeSegment(segmentName);
+    verify(segmentResultCache, times(2)).invalidateSegment(anyString(), anyString());
+    tableDataManager.shutDown();
+  }
+
   /*
    * These tests simulate the access of segments via OfflineTableDataManager.
    * Two flavors are simulated : One to replace segments via OFFLINE/ONLINE transitions
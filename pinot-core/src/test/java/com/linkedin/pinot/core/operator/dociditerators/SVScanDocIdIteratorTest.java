@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.dociditerators;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.predicate.EqPredicate;
+import com.linkedin.pinot.core.operator.filter.predicate.EqualsPredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Unit test for {@link SVScanDocIdIterator}, which scans the forward index a block of 256 docs at a time.
+ */
+public class SVScanDocIdIteratorTest {
+  private static final int NUM_DOCS = 1000;
+  // Every 7th doc matches: 3, 10, 17, ..., and 255 and 262 lie on both sides of the first block boundary
+  private static final int PERIOD = 7;
+  private static final int MATCHING_DICT_ID = 3;
+
+  @Test
+  public void testNext() {
+    SVScanDocIdIterator iterator = newIterator(0, NUM_DOCS - 1);
+    for (int docId = MATCHING_DICT_ID; docId < NUM_DOCS; docId += PERIOD) {
+      Assert.assertEquals(iterator.next(), docId);
+      Assert.assertEquals(iterator.currentDocId(), docId);
+    }
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+    Assert.assertEquals(iterator.getNumEntriesScanned(), NUM_DOCS);
+  }
+
+  @Test
+  public void testAdvance() {
+    SVScanDocIdIterator iterator = newIterator(0, NUM_DOCS - 1);
+
+    // Advance to a matching doc, then to a non matching doc within the same block
+    Assert.assertEquals(iterator.advance(10), 10);
+    Assert.assertEquals(iterator.advance(11), 17);
+    // Advancing to the current doc or before it does not move
+    Assert.assertEquals(iterator.advance(17), 17);
+    Assert.assertEquals(iterator.advance(5), 17);
+    Assert.assertEquals(iterator.next(), 24);
+
+    // Advance across the block boundary, the next match is in the next block
+    Assert.assertEquals(iterator.advance(256), 262);
+    Assert.assertEquals(iterator.next(), 269);
+    // Advance past several blocks
+    Assert.assertEquals(iterator.advance(800), 801);
+    Assert.assertEquals(iterator.next(), 808);
+
+    // Advance to the last doc, then past the end
+    Assert.assertEquals(iterator.advance(997), 997);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+    Assert.assertEquals(newIterator(0, NUM_DOCS - 1).advance(NUM_DOCS), Constants.EOF);
+  }
+
+  @Test
+  public void testRangeBounds() {
+    // Docs 3 and 997 match but are out of the range
+    SVScanDocIdIterator iterator = newIterator(4, 996);
+    Assert.assertEquals(iterator.next(), 10);
+    Assert.assertEquals(iterator.advance(990), 990);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+
+    // Advancing before the start doc goes to the first match in the range
+    iterator = newIterator(300, 500);
+    Assert.assertEquals(iterator.advance(0), 304);
+
+    // Range which ends within the first block
+    iterator = newIterator(0, 20);
+    Assert.assertEquals(iterator.next(), 3);
+    Assert.assertEquals(iterator.next(), 10);
+    Assert.assertEquals(iterator.next(), 17);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+    Assert.assertEquals(iterator.getNumEntriesScanned(), 21);
+
+    // Random probes are within the range too
+    iterator = newIterator(4, 996);
+    Assert.assertTrue(iterator.isMatch(10));
+    Assert.assertFalse(iterator.isMatch(11));
+  }
+
+  private static SVScanDocIdIterator newIterator(int startDocId, int endDocId) {
+    final int[] dictIds = new int[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; i++) {
+      dictIds[i] = i % PERIOD;
+    }
+    BlockValSet blockValSet = mock(BlockValSet.class);
+    when(blockValSet.iterator()).thenReturn(new ArraySingleValIterator(dictIds));
+    BlockMetadata blockMetadata = mock(BlockMetadata.class);
+    when(blockMetadata.getStartDocId()).thenReturn(startDocId);
+    when(blockMetadata.getEndDocId()).thenReturn(endDocId);
+
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.indexOf(Integer.toString(MATCHING_DICT_ID))).thenReturn(MATCHING_DICT_ID);
+    EqPredicate predicate = new EqPredicate("column", Collections.singletonList(Integer.toString(MATCHING_DICT_ID)));
+    return new SVScanDocIdIterator("column", blockValSet, blockMetadata,
+        new EqualsPredicateEvaluator(predicate, dictionary));
+  }
+
+  /**
+   * Single value iterator over an array of dictionary ids.
+   */
+  private static class ArraySingleValIterator extends BlockSingleValIterator {
+    private final int[] _dictIds;
+    private int _docId = 0;
+
+    ArraySingleValIterator(int[] dictIds) {
+      _dictIds = dictIds;
+    }
+
+    @Override
+    public int nextIntVal() {
+      return _dictIds[_docId++];
+    }
+
+    @Override
+    public boolean skipTo(int docId) {
+      if (docId >= _dictIds.length) {
+        return false;
+      }
+      _docId = docId;
+      return true;
+    }
+
+    @Override
+    public int currentDocId() {
+      return _docId;
+    }
+
+    @Override
+    public boolean reset() {
+      _docId = 0;
+      return true;
+    }
+
+    @Override
+    public boolean next() {
+      return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _docId < _dictIds.length;
+    }
+
+    @Override
+    public int size() {
+      return _dictIds.length;
+    }
+
+    @Override
+    public FieldSpec.DataType getValueType() {
+      return FieldSpec.DataType.INT;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.Constants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.mockito.Mockito;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for materializing AND/OR of index based doc id sets as a single bitmap.
+ */
+public class IndexBasedDocIdSetsTest {
+  private static final int NUM_DOCS = 100;
+
+  @Test
+  public void testAndOr() {
+    // (docId % 2 == 0 AND docId in [10, 40]) OR docId % 5 == 0
+    FilterBlockDocIdSet even = bitmapDocIdSet(2);
+    FilterBlockDocIdSet range = new SortedDocIdSet("sorted", Arrays.asList(new IntPair(10, 40)));
+    AndBlockDocIdSet and = new AndBlockDocIdSet(new ArrayList<>(Arrays.asList(even, range)));
+    Assert.assertTrue(and.isIndexBased());
+    OrBlockDocIdSet or = new OrBlockDocIdSet(
+        new ArrayList<>(Arrays.<FilterBlockDocIdSet>asList(and, bitmapDocIdSet(5))));
+    Assert.assertTrue(or.isIndexBased());
+
+    List<Integer> expected = new ArrayList<>();
+    for (int docId = 0; docId < NUM_DOCS; docId++) {
+      if ((docId % 2 == 0 && docId >= 10 && docId <= 40) || docId % 5 == 0) {
+        expected.add(docId);
+      }
+    }
+
+    List<Integer> actual = new ArrayList<>();
+    BlockDocIdIterator iterator = or.iterator();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      actual.add(docId);
+    }
+    Assert.assertEquals(actual, expected);
+    Assert.assertEquals(
+        IndexBasedDocIdSets.getNumDocsInRange(IndexBasedDocIdSets.toBitmap(or), or.getMinDocId(), or.getMaxDocId()),
+        expected.size());
+  }
+
+  @Test
+  public void testBitmapBoundedByRange() {
+    // Bitmap with docs past the end of the segment range, e.g. star tree aggregated docs
+    MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+    bitmap.add(0, 2 * NUM_DOCS);
+    OrBlockDocIdSet or = new OrBlockDocIdSet(
+        new ArrayList<>(Arrays.asList(bitmapDocIdSet(bitmap), bitmapDocIdSet(5))));
+    Assert.assertEquals(IndexBasedDocIdSets.toBitmap(or).getCardinality(), NUM_DOCS);
+
+    // (docId % 2 == 0 OR docId % 5 == 0) AND docId in [10, 40], the OR is bounded by the range of the AND
+    or = new OrBlockDocIdSet(new ArrayList<>(Arrays.asList(bitmapDocIdSet(2), bitmapDocIdSet(5))));
+    FilterBlockDocIdSet range = new SortedDocIdSet("sorted", Arrays.asList(new IntPair(10, 40)));
+    AndBlockDocIdSet and = new AndBlockDocIdSet(new ArrayList<>(Arrays.<FilterBlockDocIdSet>asList(or, range)));
+    int expected = 0;
+    for (int docId = 10; docId <= 40; docId++) {
+      if (docId % 2 == 0 || docId % 5 == 0) {
+        expected++;
+      }
+    }
+    ImmutableRoaringBitmap orBitmap = IndexBasedDocIdSets.toBitmap(or);
+    Assert.assertEquals(orBitmap.getCardinality(), expected);
+    Assert.assertEquals(orBitmap.getIntIterator().next(), 10);
+    Assert.assertEquals(IndexBasedDocIdSets.toBitmap(and).getCardinality(), expected);
+  }
+
+  @Test
+  public void testNumDocsInRange() {
+    MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+    bitmap.add(0, NUM_DOCS);
+    Assert.assertEquals(IndexBasedDocIdSets.getNumDocsInRange(bitmap, 0, NUM_DOCS - 1), NUM_DOCS);
+    Assert.assertEquals(IndexBasedDocIdSets.getNumDocsInRange(bitmap, 10, 19), 10);
+    Assert.assertEquals(IndexBasedDocIdSets.getNumDocsInRange(bitmap, 95, 200), 5);
+    Assert.assertEquals(IndexBasedDocIdSets.getNumDocsInRange(bitmap, 20, 10), 0);
+  }
+
+  @Test
+  public void testNotIndexBased() {
+    FilterBlockDocIdSet sizeBased = new SizeBasedDocIdSet(NUM_DOCS);
+    Assert.assertFalse(IndexBasedDocIdSets.isIndexBased(sizeBased));
+  }
+
+  private static FilterBlockDocIdSet bitmapDocIdSet(int divisor) {
+    MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+    for (int docId = 0; docId < NUM_DOCS; docId += divisor) {
+      bitmap.add(docId);
+    }
+    return bitmapDocIdSet(bitmap);
+  }
+
+  private static FilterBlockDocIdSet bitmapDocIdSet(MutableRoaringBitmap bitmap) {
+    BlockMetadata blockMetadata = Mockito.mock(BlockMetadata.class);
+    Mockito.when(blockMetadata.getStartDocId()).thenReturn(0);
+    Mockito.when(blockMetadata.getEndDocId()).thenReturn(NUM_DOCS - 1);
+    return new BitmapDocIdSet("bitmap", blockMetadata, 0, NUM_DOCS - 1, bitmap);
+  }
+}
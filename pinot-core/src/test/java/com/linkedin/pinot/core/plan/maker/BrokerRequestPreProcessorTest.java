@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan.maker;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.startree.hll.HllConstants;
+import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.Arrays;
+import java.util.List;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class BrokerRequestPreProcessorTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String HLL_COLUMN = "hllColumn";
+  private static final String QUERY =
+      "SELECT distinctcounthll(" + HLL_COLUMN + "), distinctcounthll(column) FROM testTable";
+
+  @Test
+  public void testRewriteDistinctCountHllOnHllColumn() {
+    List<IndexSegment> indexSegments = Arrays.asList(getIndexSegment("segment0", true, HllConstants.DEFAULT_LOG2M),
+        getIndexSegment("segment1", true, HllConstants.DEFAULT_LOG2M));
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(QUERY);
+    BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
+
+    // Only the HLL column is rewritten, its name is kept as it has no origin column.
+    AggregationInfo hllColumnAggregationInfo = brokerRequest.getAggregationsInfo().get(0);
+    Assert.assertEquals(hllColumnAggregationInfo.getAggregationType(), "fasthll");
+    Assert.assertEquals(hllColumnAggregationInfo.getAggregationParams().get("column"), HLL_COLUMN);
+    Assert.assertEquals(hllColumnAggregationInfo.getAggregationParams().get(HllConstants.HLL_LOG2M_AGGREGATION_PARAM),
+        Integer.toString(HllConstants.DEFAULT_LOG2M));
+    Assert.assertEquals(brokerRequest.getAggregationsInfo().get(1).getAggregationType(), "distinctcounthll");
+  }
+
+  @Test
+  public void testRewriteOnNonDefaultLog2m() {
+    List<IndexSegment> indexSegments =
+        Arrays.asList(getIndexSegment("segment0", true, 9), getIndexSegment("segment1", true, 9));
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(QUERY);
+    BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
+
+    // The HLL column is rewritten, with the log2m of the segments to merge the stored HLLs.
+    AggregationInfo hllColumnAggregationInfo = brokerRequest.getAggregationsInfo().get(0);
+    Assert.assertEquals(hllColumnAggregationInfo.getAggregationType(), "fasthll");
+    Assert.assertEquals(hllColumnAggregationInfo.getAggregationParams().get(HllConstants.HLL_LOG2M_AGGREGATION_PARAM),
+        "9");
+    Assert.assertEquals(brokerRequest.getAggregationsInfo().get(1).getAggregationType(), "distinctcounthll");
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testInconsistentLog2m() {
+    List<IndexSegment> indexSegments = Arrays.asList(getIndexSegment("segment0", true, HllConstants.DEFAULT_LOG2M),
+        getIndexSegment("segment1", true, 9));
+    BrokerRequestPreProcessor.preProcess(indexSegments, COMPILER.compileToBrokerRequest(QUERY));
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testInconsistentHllColumn() {
+    List<IndexSegment> indexSegments = Arrays.asList(getIndexSegment("segment0", true, HllConstants.DEFAULT_LOG2M),
+        getIndexSegment("segment1", false, HllConstants.DEFAULT_LOG2M));
+    BrokerRequestPreProcessor.preProcess(indexSegments, COMPILER.compileToBrokerRequest(QUERY));
+  }
+
+  private static IndexSegment getIndexSegment(String segmentName, boolean isHllColumn, int log2m) {
+    Schema schema = new Schema();
+    if (isHllColumn) {
+      schema.addField(new MetricFieldSpec(HLL_COLUMN, FieldSpec.DataType.STRING,
+          HllUtil.getHllFieldSizeFromLog2m(log2m), MetricFieldSpec.DerivedMetricType.HLL));
+    } else {
+      schema.addField(new MetricFieldSpec(HLL_COLUMN, FieldSpec.DataType.STRING));
+    }
+    schema.addField(new MetricFieldSpec("column", FieldSpec.DataType.INT));
+
+    SegmentMetadata segmentMetadata = Mockito.mock(SegmentMetadata.class);
+    Mockito.when(segmentMetadata.getName()).thenReturn(segmentName);
+    Mockito.when(segmentMetadata.getSchema()).thenReturn(schema);
+    Mockito.when(segmentMetadata.getHllLog2m()).thenReturn(log2m);
+    IndexSegment indexSegment = Mockito.mock(IndexSegment.class);
+    Mockito.when(indexSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return indexSegment;
+  }
+}
@@ -48,6 +48,13 @@ public class RangeOfflineDictionaryPredicateEvaluatorTest {
       int[] dictIds = new int[]{1, 3, 7};
       Assert.assertTrue(evaluator.apply(dictIds));
       Assert.assertFalse(evaluator.apply(dictIds, 1));
+
+      int[] matchingPositions = new int[dictIds.length];
+      Assert.assertEquals(evaluator.applyBatch(dictIds, dictIds.length, matchingPositions), 1);
+      Assert.assertEquals(matchingPositions[0], 1);
+      Assert.assertEquals(evaluator.applyBatch(new int[]{2, 6, 5, 4}, 4, new int[4]), 3);
+      Assert.assertEquals(evaluator.applyBatch(dictIds, 1, matchingPositions), 0);
+
       dictIds = evaluator.getMatchingDictionaryIds();
       verifyDictId(dictIds, rangeStart, rangeEnd);
     }
@@ -69,6 +76,8 @@ public class RangeOfflineDictionaryPredicateEvaluatorTest {
       Assert.assertFalse(evaluator.apply(dictIds, 1));
       dictIds = evaluator.getMatchingDictionaryIds();
       verifyDictId(dictIds, rangeStart + 1, rangeEnd);
+      Assert.assertEquals(((RangeOfflineDictionaryPredicateEvaluator) evaluator).getNumMatchingDictionaryIds(),
+          rangeEnd - rangeStart);
     }
     {
       // (2,5]
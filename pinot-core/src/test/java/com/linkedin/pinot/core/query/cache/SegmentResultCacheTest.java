@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the per-segment result cache.
+ */
+public class SegmentResultCacheTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+
+  @Test
+  public void testPutAndGet() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024, null);
+    BrokerRequest brokerRequest = SegmentResultCache.normalize(getBrokerRequest("sum"));
+    SegmentResultCache.CacheKey key =
+        SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment", "crc"), brokerRequest);
+    Assert.assertNull(cache.get(key));
+
+    cache.put(key, getResultsBlock(brokerRequest, 10.0), new ExecutionStatistics(5, 10, 15, 20));
+    Assert.assertEquals(cache.getNumEntries(), 1);
+
+    // Same query on the same segment version.
+    SegmentResultCache.CacheKey sameKey = SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment", "crc"),
+        SegmentResultCache.normalize(getBrokerRequest("sum")));
+    SegmentResultCache.CachedResult cachedResult = cache.get(sameKey);
+    Assert.assertNotNull(cachedResult);
+    IntermediateResultsBlock resultsBlock = cachedResult.getResultsBlock();
+    Assert.assertEquals(resultsBlock.getAggregationResult().get(0), 10.0);
+    ExecutionStatistics executionStatistics = cachedResult.getExecutionStatistics();
+    Assert.assertEquals(executionStatistics.getNumDocsScanned(), 5);
+    Assert.assertEquals(executionStatistics.getNumTotalRawDocs(), 20);
+
+    // Every hit returns a new copy.
+    resultsBlock.getAggregationResult().set(0, 20.0);
+    Assert.assertEquals(cache.get(sameKey).getResultsBlock().getAggregationResult().get(0), 10.0);
+
+    // Different segment version or query.
+    Assert.assertNull(cache.get(
+        SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment", "newCrc"), brokerRequest)));
+    Assert.assertNull(cache.get(SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment", "crc"),
+        SegmentResultCache.normalize(getBrokerRequest("max")))));
+
+    Assert.assertEquals(cache.getNumHits(), 2);
+    Assert.assertEquals(cache.getNumMisses(), 3);
+  }
+
+  @Test
+  public void testEviction() {
+    // Room for about two entries.
+    SegmentResultCache cache = new SegmentResultCache(1200, null);
+    BrokerRequest brokerRequest = SegmentResultCache.normalize(getBrokerRequest("sum"));
+    List<SegmentResultCache.CacheKey> keys = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      keys.add(SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment" + i, "crc"), brokerRequest));
+    }
+
+    cache.put(keys.get(0), getResultsBlock(brokerRequest, 0.0), new ExecutionStatistics());
+    cache.put(keys.get(1), getResultsBlock(brokerRequest, 1.0), new ExecutionStatistics());
+    // Access the first entry so that the second one is the least recently used.
+    Assert.assertNotNull(cache.get(keys.get(0)));
+    cache.put(keys.get(2), getResultsBlock(brokerRequest, 2.0), new ExecutionStatistics());
+
+    Assert.assertEquals(cache.getNumEntries(), 2);
+    Assert.assertTrue(cache.getSizeInBytes() <= 1200);
+    Assert.assertNotNull(cache.get(keys.get(0)));
+    Assert.assertNull(cache.get(keys.get(1)));
+    Assert.assertNotNull(cache.get(keys.get(2)));
+  }
+
+  @Test
+  public void testMetrics() {
+    ServerMetrics serverMetrics = Mockito.mock(ServerMetrics.class);
+    // Room for about two entries.
+    SegmentResultCache cache = new SegmentResultCache(1200, serverMetrics);
+    BrokerRequest brokerRequest = SegmentResultCache.normalize(getBrokerRequest("sum"));
+    List<SegmentResultCache.CacheKey> keys = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      keys.add(SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment" + i, "crc"), brokerRequest));
+    }
+
+    Assert.assertNull(cache.get(keys.get(0)));
+    for (int i = 0; i < 3; i++) {
+      cache.put(keys.get(i), getResultsBlock(brokerRequest, i), new ExecutionStatistics());
+    }
+    Assert.assertNotNull(cache.get(keys.get(2)));
+    Assert.assertNotNull(cache.get(keys.get(1)));
+
+    Assert.assertEquals(cache.getNumHits(), 2);
+    Assert.assertEquals(cache.getNumMisses(), 1);
+    Assert.assertEquals(cache.getNumEvictions(), 1);
+    Mockito.verify(serverMetrics, Mockito.times(2)).addMeteredGlobalValue(ServerMeter.SEGMENT_RESULT_CACHE_HITS, 1L);
+    Mockito.verify(serverMetrics).addMeteredGlobalValue(ServerMeter.SEGMENT_RESULT_CACHE_MISSES, 1L);
+    Mockito.verify(serverMetrics).addMeteredGlobalValue(ServerMeter.SEGMENT_RESULT_CACHE_EVICTIONS, 1L);
+  }
+
+  @Test
+  public void testInvalidation() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024, null);
+    BrokerRequest sumRequest = SegmentResultCache.normalize(getBrokerRequest("sum"));
+    BrokerRequest maxRequest = SegmentResultCache.normalize(getBrokerRequest("max"));
+    IndexSegment segment0 = getIndexSegment("segment0", "crc");
+    IndexSegment segment1 = getIndexSegment("segment1", "crc");
+    cache.put(SegmentResultCache.createKey(TABLE_NAME, segment0, sumRequest), getResultsBlock(sumRequest, 1.0),
+        new ExecutionStatistics());
+    cache.put(SegmentResultCache.createKey(TABLE_NAME, segment0, maxRequest), getResultsBlock(maxRequest, 1.0),
+        new ExecutionStatistics());
+    cache.put(SegmentResultCache.createKey(TABLE_NAME, segment1, sumRequest), getResultsBlock(sumRequest, 1.0),
+        new ExecutionStatistics());
+    Assert.assertEquals(cache.getNumEntries(), 3);
+
+    cache.invalidateSegment(TABLE_NAME, "segment0");
+    Assert.assertEquals(cache.getNumEntries(), 1);
+    Assert.assertNull(cache.get(SegmentResultCache.createKey(TABLE_NAME, segment0, sumRequest)));
+    Assert.assertNotNull(cache.get(SegmentResultCache.createKey(TABLE_NAME, segment1, sumRequest)));
+
+    cache.invalidateSegment(TABLE_NAME, "segment1");
+    Assert.assertEquals(cache.getNumEntries(), 0);
+    Assert.assertEquals(cache.getSizeInBytes(), 0);
+  }
+
+  @Test
+  public void testResultsWithExceptionsNotCached() {
+    SegmentResultCache cache = new SegmentResultCache(1024 * 1024, null);
+    BrokerRequest brokerRequest = SegmentResultCache.normalize(getBrokerRequest("sum"));
+    SegmentResultCache.CacheKey key =
+        SegmentResultCache.createKey(TABLE_NAME, getIndexSegment("segment", "crc"), brokerRequest);
+    cache.put(key, new IntermediateResultsBlock(new RuntimeException()), new ExecutionStatistics());
+    Assert.assertEquals(cache.getNumEntries(), 0);
+  }
+
+  private static BrokerRequest getBrokerRequest(String aggregationType) {
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType(aggregationType);
+    aggregationInfo.setAggregationParams(Collections.singletonMap("column", "met"));
+    BrokerRequest brokerRequest = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(TABLE_NAME);
+    brokerRequest.setQuerySource(querySource);
+    brokerRequest.setAggregationsInfo(Collections.singletonList(aggregationInfo));
+    return brokerRequest;
+  }
+
+  private static IndexSegment getIndexSegment(String segmentName, String crc) {
+    SegmentMetadata segmentMetadata = Mockito.mock(SegmentMetadata.class);
+    Mockito.when(segmentMetadata.getCrc()).thenReturn(crc);
+    IndexSegment indexSegment = Mockito.mock(IndexSegment.class);
+    Mockito.when(indexSegment.getSegmentName()).thenReturn(segmentName);
+    Mockito.when(indexSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return indexSegment;
+  }
+
+  private static IntermediateResultsBlock getResultsBlock(BrokerRequest brokerRequest, double value) {
+    List<Serializable> aggregationResults = new ArrayList<>();
+    aggregationResults.add(value);
+    return new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(brokerRequest),
+        aggregationResults);
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.reduce;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that reducing group by results in parallel on the broker (<code>pinot.broker.numReduceThreads</code> > 1)
+ * returns the same results as reducing them in the calling thread.
+ */
+public class BrokerReduceServiceParallelTest {
+  private static final String QUERY =
+      "SELECT SUM(met), COUNT(*), MIN(met), MAX(met), AVG(met) FROM testTable GROUP BY dim1, dim2 TOP 100";
+  private static final int NUM_SERVERS = 3;
+  // Large enough for the TOP N of the aggregation functions to be computed in parallel.
+  private static final int NUM_GROUPS = 20000;
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+
+  private ExecutorService _executorService;
+
+  @BeforeClass
+  public void setUp() {
+    _executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Test
+  public void testParallelReduceMatchesSerialReduce()
+      throws Exception {
+    BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest(QUERY);
+    List<DataTable> dataTables = getGroupByDataTables(brokerRequest);
+
+    BrokerResponseNative serialResponse =
+        new BrokerReduceService().reduceOnDataTable(brokerRequest, getDataTableMap(dataTables));
+    BrokerResponseNative parallelResponse =
+        new BrokerReduceService(_executorService).reduceOnDataTable(brokerRequest, getDataTableMap(dataTables));
+
+    Assert.assertTrue(serialResponse.getProcessingExceptions().isEmpty());
+    Assert.assertTrue(parallelResponse.getProcessingExceptions().isEmpty());
+    List<AggregationResult> serialResults = serialResponse.getAggregationResults();
+    List<AggregationResult> parallelResults = parallelResponse.getAggregationResults();
+    int numAggregations = brokerRequest.getAggregationsInfoSize();
+    Assert.assertEquals(serialResults.size(), numAggregations);
+    Assert.assertEquals(parallelResults.size(), numAggregations);
+    for (int i = 0; i < numAggregations; i++) {
+      AggregationResult serialResult = serialResults.get(i);
+      AggregationResult parallelResult = parallelResults.get(i);
+      Assert.assertEquals(parallelResult.getFunction(), serialResult.getFunction());
+      Assert.assertEquals(parallelResult.getGroupByColumns(), serialResult.getGroupByColumns());
+
+      List<GroupByResult> serialGroups = serialResult.getGroupByResult();
+      List<GroupByResult> parallelGroups = parallelResult.getGroupByResult();
+      Assert.assertEquals(serialGroups.size(), 100, "Random seed: " + RANDOM_SEED);
+      Assert.assertEquals(parallelGroups.size(), serialGroups.size(), "Random seed: " + RANDOM_SEED);
+      for (int j = 0; j < serialGroups.size(); j++) {
+        Assert.assertEquals(parallelGroups.get(j).getGroup(), serialGroups.get(j).getGroup(),
+            "Random seed: " + RANDOM_SEED);
+        Assert.assertEquals(parallelGroups.get(j).getValue(), serialGroups.get(j).getValue(),
+            "Random seed: " + RANDOM_SEED);
+      }
+    }
+  }
+
+  /**
+   * Builds the group by data tables returned by the servers. Each server returns a random subset of the groups.
+   */
+  private static List<DataTable> getGroupByDataTables(BrokerRequest brokerRequest)
+      throws Exception {
+    List<AggregationFunction> aggregationFunctions = AggregationFunctionFactory.getAggregationFunction(brokerRequest);
+    int numAggregations = aggregationFunctions.size();
+    Random random = new Random(RANDOM_SEED);
+
+    List<DataTable> dataTables = new ArrayList<>(NUM_SERVERS);
+    for (int i = 0; i < NUM_SERVERS; i++) {
+      List<Map<String, Serializable>> groupByResults = new ArrayList<>(numAggregations);
+      for (int j = 0; j < numAggregations; j++) {
+        groupByResults.add(new HashMap<String, Serializable>());
+      }
+      for (int groupId = 0; groupId < NUM_GROUPS; groupId++) {
+        if (random.nextInt(4) == 0) {
+          continue;
+        }
+        String groupKey = "dim1_" + (groupId % 100) + GroupByConstants.GroupByDelimiter.groupByMultiDelimeter + "dim2_"
+            + groupId;
+        double value = random.nextInt(100000);
+        long count = random.nextInt(100) + 1;
+        groupByResults.get(0).put(groupKey, value * count);
+        groupByResults.get(1).put(groupKey, count);
+        groupByResults.get(2).put(groupKey, value);
+        groupByResults.get(3).put(groupKey, value + random.nextInt(1000));
+        groupByResults.get(4).put(groupKey, new AvgAggregationFunction.AvgPair(value * count, count));
+      }
+      dataTables.add(new IntermediateResultsBlock(aggregationFunctions, groupByResults, true).getDataTable());
+    }
+    return dataTables;
+  }
+
+  private static Map<ServerInstance, DataTable> getDataTableMap(List<DataTable> dataTables) {
+    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>();
+    for (int i = 0; i < dataTables.size(); i++) {
+      dataTableMap.put(new ServerInstance("localhost", 1234 + i), dataTables.get(i));
+    }
+    return dataTableMap;
+  }
+}
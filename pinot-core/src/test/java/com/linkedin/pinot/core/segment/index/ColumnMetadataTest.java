@@ -219,5 +219,33 @@ public class ColumnMetadataTest {
       }
     }
   }
-}
 
+  @Test
+  public void testHllIndexRelatedMetadataWithoutStarTree() throws Exception {
+    SegmentWithHllIndexCreateHelper helper = null;
+    try {
+      // Build the Segment metadata, HLL derived fields do not require star tree.
+      helper = new SegmentWithHllIndexCreateHelper("testHllIndexRelatedMetadataWithoutStarTree",
+          getClass().getClassLoader().getResource("data/test_data-sv.avro"), "daysSinceEpoch", TimeUnit.DAYS,
+          "rawSegment");
+      helper.build(false, new HllConfig(9, new HashSet<String>(Arrays.asList("column7")), "_hllSuffix"));
+
+      // Load segment metadata.
+      IndexSegment segment = Loaders.IndexSegment.load(helper.getSegmentDirectory(), ReadMode.mmap);
+      SegmentMetadataImpl metadata = (SegmentMetadataImpl) segment.getSegmentMetadata();
+      Assert.assertEquals(metadata.getHllLog2m(), 9);
+      Assert.assertNull(metadata.getStarTreeMetadata());
+
+      // Verify Hll Related Info
+      ColumnMetadata column = metadata.getColumnMetadataFor("column7_hllSuffix");
+      Assert.assertEquals(column.getDerivedMetricType(), MetricFieldSpec.DerivedMetricType.HLL);
+      Assert.assertEquals(column.getOriginColumnName(), "column7");
+      Assert.assertEquals(metadata.getDerivedColumn("column7", MetricFieldSpec.DerivedMetricType.HLL),
+          "column7_hllSuffix");
+    } finally {
+      if (helper != null) {
+        helper.cleanTempDir();
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader;
+
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class SegmentWarmUpperTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private File INDEX_DIR;
+  private IndexSegmentImpl indexSegment;
+  private SegmentWarmUpper warmUpper;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    INDEX_DIR = Files.createTempDirectory(SegmentWarmUpperTest.class.getName() + "_segmentDir").toFile();
+    final String filePath = TestUtils.getFileFromResourceUrl(Loaders.class.getClassLoader().getResource(AVRO_DATA));
+    final SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "daysSinceEpoch",
+            TimeUnit.HOURS, "testTable");
+    config.setSegmentNamePostfix("1");
+    config.setTimeColumnName("daysSinceEpoch");
+    final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    indexSegment =
+        (IndexSegmentImpl) Loaders.IndexSegment.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.mmap);
+    warmUpper = new SegmentWarmUpper(2, Long.MAX_VALUE);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    warmUpper.shutDown();
+    indexSegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testWarmUp()
+      throws Exception {
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+    String warmUpColumn = null;
+    long expectedBytes = 0L;
+    long expectedColumnBytes = 0L;
+    SegmentDirectory.Reader reader = indexSegment.getSegmentDirectory().createReader();
+    try {
+      for (ColumnMetadata columnMetadata : segmentMetadata.getColumnMetadataMap().values()) {
+        String column = columnMetadata.getColumnName();
+        expectedBytes += reader.getIndexFor(column, ColumnIndexType.DICTIONARY).size();
+        if (columnMetadata.isSorted()) {
+          expectedBytes += reader.getIndexFor(column, ColumnIndexType.FORWARD_INDEX).size();
+        } else if (warmUpColumn == null) {
+          warmUpColumn = column;
+          expectedColumnBytes = reader.getIndexFor(column, ColumnIndexType.FORWARD_INDEX).size();
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    Assert.assertNotNull(warmUpColumn);
+
+    // Dictionaries and sorted indexes only.
+    Assert.assertEquals(warmUpper.warmUp(indexSegment, null), expectedBytes);
+
+    // Forward index of the configured column as well.
+    Assert.assertEquals(warmUpper.warmUp(indexSegment, Collections.singleton(warmUpColumn)),
+        expectedBytes + expectedColumnBytes);
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.memory;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class MmapBudgetManagerTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "MmapBudgetManagerTest");
+  private static final int NUM_FILES = 8;
+  private static final int NUM_INTS_PER_FILE = 1024;
+  private static final int FILE_SIZE = NUM_INTS_PER_FILE * 4;
+
+  private final File[] _files = new File[NUM_FILES];
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    TEMP_DIR.mkdirs();
+    for (int i = 0; i < NUM_FILES; i++) {
+      _files[i] = new File(TEMP_DIR, "file" + i);
+      try (DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(_files[i]))) {
+        for (int j = 0; j < NUM_INTS_PER_FILE; j++) {
+          outputStream.writeInt(i * NUM_INTS_PER_FILE + j);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEvictionAndRemap()
+      throws IOException {
+    MmapBudgetManager manager = new MmapBudgetManager(2 * FILE_SIZE, 0L);
+    PinotDataBuffer[] buffers = new PinotDataBuffer[NUM_FILES];
+    for (int i = 0; i < NUM_FILES; i++) {
+      buffers[i] = EvictableMmapBuffer.mapFromFile(manager, _files[i], 0, FILE_SIZE, "test");
+      Assert.assertTrue(manager.getMappedBytes() <= 2 * FILE_SIZE);
+    }
+    Assert.assertEquals(manager.getNumRegions(), NUM_FILES);
+    Assert.assertTrue(manager.getNumEvictions() > 0);
+
+    // Evicted buffers are transparently re-mapped, views and duplicates share the mapping of their buffer
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < NUM_FILES; i++) {
+        PinotDataBuffer view = buffers[i].view(4, FILE_SIZE);
+        PinotDataBuffer duplicate = buffers[i].duplicate();
+        for (int j = 0; j < NUM_INTS_PER_FILE; j++) {
+          Assert.assertEquals(duplicate.getInt(j * 4), i * NUM_INTS_PER_FILE + j);
+        }
+        Assert.assertEquals(view.size(), FILE_SIZE - 4);
+        Assert.assertEquals(view.getInt(0), i * NUM_INTS_PER_FILE + 1);
+        Assert.assertTrue(manager.getMappedBytes() <= 2 * FILE_SIZE);
+      }
+    }
+    Assert.assertTrue(manager.getNumRemaps() > 0);
+    Assert.assertEquals(manager.getPendingUnmapBytes(), 0L);
+
+    for (PinotDataBuffer buffer : buffers) {
+      buffer.close();
+    }
+    Assert.assertEquals(manager.getNumRegions(), 0);
+    Assert.assertEquals(manager.getMappedBytes(), 0L);
+  }
+
+  @Test
+  public void testPinnedBufferNotEvicted()
+      throws IOException {
+    MmapBudgetManager manager = new MmapBudgetManager(FILE_SIZE, 0L);
+    PinotDataBuffer pinnedBuffer = EvictableMmapBuffer.mapFromFile(manager, _files[0], 0, FILE_SIZE, "test");
+    ByteBuffer byteBuffer = pinnedBuffer.toDirectByteBuffer(0, FILE_SIZE);
+
+    PinotDataBuffer[] buffers = new PinotDataBuffer[NUM_FILES - 1];
+    for (int i = 1; i < NUM_FILES; i++) {
+      buffers[i - 1] = EvictableMmapBuffer.mapFromFile(manager, _files[i], 0, FILE_SIZE, "test");
+      buffers[i - 1].getInt(0);
+    }
+    for (int j = 0; j < NUM_INTS_PER_FILE; j++) {
+      Assert.assertEquals(byteBuffer.getInt(j * 4), j);
+    }
+
+    pinnedBuffer.close();
+    for (PinotDataBuffer buffer : buffers) {
+      buffer.close();
+    }
+    Assert.assertEquals(manager.getMappedBytes(), 0L);
+  }
+
+  @Test
+  public void testUnmapDeferredUntilQueriesExit()
+      throws IOException {
+    MmapBudgetManager manager = new MmapBudgetManager(FILE_SIZE, 0L);
+    long ticket = manager.enterQuery();
+    PinotDataBuffer[] buffers = new PinotDataBuffer[NUM_FILES];
+    for (int i = 0; i < NUM_FILES; i++) {
+      buffers[i] = EvictableMmapBuffer.mapFromFile(manager, _files[i], 0, FILE_SIZE, "test");
+    }
+    Assert.assertTrue(manager.getNumEvictions() > 0);
+    Assert.assertEquals(manager.getPendingUnmapBytes(), manager.getNumEvictions() * FILE_SIZE);
+
+    manager.exitQuery(ticket);
+    Assert.assertEquals(manager.getPendingUnmapBytes(), 0L);
+
+    for (PinotDataBuffer buffer : buffers) {
+      buffer.close();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
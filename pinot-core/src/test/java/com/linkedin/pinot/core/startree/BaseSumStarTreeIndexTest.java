@@ -26,12 +26,18 @@ import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.common.DataSource;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.filter.StarTreeIndexOperator;
 import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -62,7 +68,101 @@ public class BaseSumStarTreeIndexTest {
           "select sum(m1) from T where d1 <> 'd1-v1' group by d2",
           "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') group by d2",
           "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1') group by d3",
-          "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1') group by d3, d4"};
+          "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1') group by d3, d4",
+          "select sum(m1) from T where d1 = 'd1-v1' or d1 = 'd1-v2'",
+          "select sum(m1) from T where (d1 = 'd1-v1' or d1 = 'd1-v2') and d2 <> 'd2-v1' group by d3"};
+
+  // Queries with aggregation functions that cannot be computed on the aggregated docs of the star tree.
+  protected String[] _nonStarTreeQueries =
+      new String[]{
+          "select count(*) from T",
+          "select min(m1) from T where d1 = 'd1-v1'",
+          "select max(m1) from T where d1 <> 'd1-v1' group by d2",
+          "select avg(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1')",
+          "select minmaxrange(m1) from T where d1 = 'd1-v1' or d1 between 'd1-v3' and 'd1-v4'",
+          "select count(*) from T where (d1 = 'd1-v1' or d1 = 'd1-v2') and d2 <> 'd2-v1' group by d3",
+          "select sum(m1), count(*) from T where d1 = 'd1-v2' group by d2"};
+
+  /**
+   * Ensures that queries with aggregation functions that cannot be computed on the aggregated docs are kept off the
+   * star tree, and are solved with the regular filter operators.
+   */
+  protected void testNonStarTreeQueries(IndexSegment segment) {
+    SegmentMetadata segmentMetadata = segment.getSegmentMetadata();
+
+    for (String query : _nonStarTreeQueries) {
+      Pql2Compiler compiler = new Pql2Compiler();
+      BrokerRequest brokerRequest = compiler.compileToBrokerRequest(query);
+      FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+      Assert.assertFalse(RequestUtils.isFitForStarTreeIndex(segmentMetadata, filterQueryTree, brokerRequest), query);
+
+      Operator filterOperator = new FilterPlanNode(segment, brokerRequest).run();
+      Assert.assertFalse(filterOperator instanceof StarTreeIndexOperator, query);
+    }
+  }
+
+  // Queries mixing sum with functions that cannot be computed on the aggregated docs.
+  protected String[] _mixedAggregationQueries =
+      new String[]{
+          "select sum(m1), count(*) from T",
+          "select sum(m1), avg(m2) from T where d1 = 'd1-v1'",
+          "select sum(m1), count(*), min(m2), max(m2) from T where d1 <> 'd1-v1' and d2 in ('d2-v1', 'd2-v2')",
+          "select sum(m1), count(*), avg(m1) from T group by d1",
+          "select sum(m1), sum(m2), count(*) from T where d1 = 'd1-v1' or d1 = 'd1-v2' group by d3",
+          "select count(*), sum(m2), minmaxrange(m1) from T where d2 not in ('d2-v1') group by d1, d4"};
+
+  /**
+   * Ensures that queries mixing sum with other aggregation functions are kept off the star tree, and return the same
+   * results as with the star tree explicitly disabled.
+   */
+  protected void testMixedAggregationQueries(IndexSegment segment) {
+    InstancePlanMakerImplV2 planMaker = new InstancePlanMakerImplV2();
+
+    for (String query : _mixedAggregationQueries) {
+      Pql2Compiler compiler = new Pql2Compiler();
+      BrokerRequest brokerRequest = compiler.compileToBrokerRequest(query);
+      FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+      Assert.assertFalse(
+          RequestUtils.isFitForStarTreeIndex(segment.getSegmentMetadata(), filterQueryTree, brokerRequest), query);
+      Map<String, String> actualResult = getAggregationResult(planMaker, segment, brokerRequest);
+
+      brokerRequest.setDebugOptions(Collections.singletonMap("useStarTree", "false"));
+      Map<String, String> expectedResult = getAggregationResult(planMaker, segment, brokerRequest);
+
+      Assert.assertEquals(actualResult, expectedResult, "Mis-match in aggregation results for query: " + query);
+    }
+  }
+
+  /**
+   * Runs the inner segment plan for the given query, and returns the results of all the aggregation functions keyed
+   * by group key and function index.
+   */
+  private static Map<String, String> getAggregationResult(InstancePlanMakerImplV2 planMaker, IndexSegment segment,
+      BrokerRequest brokerRequest) {
+    Operator operator = planMaker.makeInnerSegmentPlan(segment, brokerRequest).run();
+    operator.open();
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) operator.nextBlock();
+    operator.close();
+
+    int numAggregations = brokerRequest.getAggregationsInfoSize();
+    Map<String, String> result = new HashMap<>();
+    if (brokerRequest.isSetGroupBy()) {
+      AggregationGroupByResult groupByResult = resultsBlock.getAggregationGroupByResult();
+      Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupByResult.getGroupKeyIterator();
+      while (groupKeyIterator.hasNext()) {
+        GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+        for (int i = 0; i < numAggregations; i++) {
+          result.put(groupKey.getStringKey() + "_" + i, String.valueOf(groupByResult.getResultForKey(groupKey, i)));
+        }
+      }
+    } else {
+      List<Serializable> aggregationResult = resultsBlock.getAggregationResult();
+      for (int i = 0; i < numAggregations; i++) {
+        result.put(Integer.toString(i), String.valueOf(aggregationResult.get(i)));
+      }
+    }
+    return result;
+  }
 
   protected void testHardCodedQueries(IndexSegment segment, Schema schema) {
     // Test against all metric columns, instead of just the aggregation column in the query.
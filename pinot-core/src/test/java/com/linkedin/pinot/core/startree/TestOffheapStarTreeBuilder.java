@@ -20,12 +20,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.math.util.MathUtils;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.linkedin.pinot.common.data.DimensionFieldSpec;
@@ -171,4 +173,65 @@ public class TestOffheapStarTreeBuilder {
     FileUtils.deleteDirectory(builderConfig.outDir);
   }
 
+  /**
+   * Test that building the sub-trees in parallel generates the same records and tree as the sequential build.
+   * @throws Exception
+   */
+  @Test
+  public void testParallelBuild() throws Exception {
+    long seed = System.currentTimeMillis();
+    List<GenericRow> sequentialRows = new ArrayList<>();
+    StarTreeIndexNodeInterf sequentialRoot = buildRandom(seed, 1, sequentialRows);
+    List<GenericRow> parallelRows = new ArrayList<>();
+    StarTreeIndexNodeInterf parallelRoot = buildRandom(seed, 4, parallelRows);
+    Assert.assertEquals(parallelRows.size(), sequentialRows.size(), "Seed: " + seed);
+    for (int i = 0; i < sequentialRows.size(); i++) {
+      Assert.assertEquals(parallelRows.get(i).toString(), sequentialRows.get(i).toString(), "Seed: " + seed);
+    }
+    // Compares the whole tree, including the document ranges of the nodes.
+    Assert.assertEquals(parallelRoot, sequentialRoot, "Seed: " + seed);
+  }
+
+  private StarTreeIndexNodeInterf buildRandom(long seed, int numBuildThreads, List<GenericRow> rows) throws Exception {
+    int ROWS = 1000;
+    int numDimensions = 4;
+    StarTreeBuilderConfig builderConfig = new StarTreeBuilderConfig();
+    Schema schema = new Schema();
+    builderConfig.dimensionsSplitOrder = new ArrayList<>();
+    for (int i = 0; i < numDimensions; i++) {
+      String dimName = "d" + (i + 1);
+      schema.addField(new DimensionFieldSpec(dimName, DataType.STRING, true));
+      builderConfig.dimensionsSplitOrder.add(dimName);
+    }
+    schema.setTimeFieldSpec(new TimeFieldSpec("daysSinceEpoch", DataType.INT, TimeUnit.DAYS));
+    schema.addField(new MetricFieldSpec("m1", DataType.INT));
+    builderConfig.maxLeafRecords = 10;
+    builderConfig.schema = schema;
+    builderConfig.outDir = new File("/tmp/startree");
+    builderConfig.setNumBuildThreads(numBuildThreads);
+    OffHeapStarTreeBuilder builder = new OffHeapStarTreeBuilder();
+    builder.init(builderConfig);
+    Random r = new Random(seed);
+    HashMap<String, Object> map = new HashMap<>();
+    for (int row = 0; row < ROWS; row++) {
+      for (int i = 0; i < numDimensions; i++) {
+        String dimName = "d" + (i + 1);
+        map.put(dimName, dimName + "-v" + r.nextInt(numDimensions - i + 2));
+      }
+      map.put("daysSinceEpoch", r.nextInt(10));
+      map.put("m1", r.nextInt(100));
+      GenericRow genericRow = new GenericRow();
+      genericRow.init(map);
+      builder.append(genericRow);
+    }
+    builder.build();
+    int totalDocs = builder.getTotalRawDocumentCount() + builder.getTotalAggregateDocumentCount();
+    Iterator<GenericRow> iterator = builder.iterator(0, totalDocs);
+    while (iterator.hasNext()) {
+      rows.add(iterator.next());
+    }
+    StarTreeIndexNodeInterf root = builder.getTree().getRoot();
+    FileUtils.deleteDirectory(builderConfig.outDir);
+    return root;
+  }
 }
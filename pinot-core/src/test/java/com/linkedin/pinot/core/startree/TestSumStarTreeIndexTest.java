@@ -61,4 +61,21 @@ public class TestSumStarTreeIndexTest extends BaseSumStarTreeIndexTest {
       throws Exception {
     testHardCodedQueries(_segment, _schema);
   }
+
+  /**
+   * This test ensures that queries with aggregation functions other than sum do not use the star-tree index operator.
+   */
+  @Test
+  public void testNonStarTreeQueries() {
+    testNonStarTreeQueries(_segment);
+  }
+
+  /**
+   * This test ensures that queries mixing sum with count, avg, min, max or minmaxrange return the same results with
+   * and without the star tree explicitly disabled.
+   */
+  @Test
+  public void testMixedAggregationQueries() {
+    testMixedAggregationQueries(_segment);
+  }
 }
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.hll;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.plan.maker.BrokerRequestPreProcessor;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.util.TestDataRecordReader;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests segments with HLL metric columns ingested already serialized, without origin column and without HllConfig.
+ */
+public class PreSerializedHllIndexCreationTest {
+  private static final String SEGMENT_NAME = "PreSerializedHllIndexCreationTestSegment";
+  private static final String INDEX_DIR_PATH = FileUtils.getTempDirectoryPath() + File.separator + SEGMENT_NAME;
+  private static final String DIMENSION_COLUMN = "dimension";
+  private static final String HLL_COLUMN = "hllColumn";
+  private static final String OTHER_HLL_COLUMN = "otherHllColumn";
+  private static final int NUM_ROWS = 1000;
+  private static final int MAX_NUM_VALUES_PER_HLL = 10;
+
+  private final long _randomSeed = System.currentTimeMillis();
+  private final Random _random = new Random(_randomSeed);
+  private final String _errorMessage = "Random seed is: " + _randomSeed;
+
+  @BeforeMethod
+  public void setUp() {
+    FileUtils.deleteQuietly(new File(INDEX_DIR_PATH));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(new File(INDEX_DIR_PATH));
+  }
+
+  @Test
+  public void testDefaultLog2m()
+      throws Exception {
+    HyperLogLog expectedHll = new HyperLogLog(HllConstants.DEFAULT_LOG2M);
+    GenericRow[] rows = getRows(Collections.singletonMap(HLL_COLUMN, HllConstants.DEFAULT_LOG2M), expectedHll);
+    IndexSegment indexSegment =
+        buildSegment(Collections.singletonMap(HLL_COLUMN, HllConstants.DEFAULT_LOG2M), rows, null);
+
+    // The HLL column has no origin column, and the segment log2m is inferred from its field size.
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+    Assert.assertEquals(segmentMetadata.getHllLog2m(), HllConstants.DEFAULT_LOG2M);
+    ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(HLL_COLUMN);
+    Assert.assertEquals(columnMetadata.getDerivedMetricType(), MetricFieldSpec.DerivedMetricType.HLL);
+    Assert.assertNull(columnMetadata.getOriginColumnName());
+
+    // 'distinctcounthll' on the HLL column is rewritten to 'fasthll', which merges the stored HLLs.
+    BrokerRequest brokerRequest =
+        new Pql2Compiler().compileToBrokerRequest("SELECT distinctcounthll(" + HLL_COLUMN + ") FROM testTable");
+    BrokerRequestPreProcessor.preProcess(Collections.singletonList(indexSegment), brokerRequest);
+    Assert.assertEquals(brokerRequest.getAggregationsInfo().get(0).getAggregationType(), "fasthll");
+
+    Operator operator = new InstancePlanMakerImplV2().makeInnerSegmentPlan(indexSegment, brokerRequest).run();
+    operator.open();
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) operator.nextBlock();
+    operator.close();
+    HyperLogLog actualHll = (HyperLogLog) resultsBlock.getAggregationResult().get(0);
+    Assert.assertEquals(actualHll.cardinality(), expectedHll.cardinality(), _errorMessage);
+  }
+
+  @Test
+  public void testNonDefaultLog2m()
+      throws Exception {
+    // Keep the queried HLL column first, as only its values are offered to the expected HLL.
+    Map<String, Integer> hllColumnToLog2m = new LinkedHashMap<>();
+    hllColumnToLog2m.put(HLL_COLUMN, 9);
+    hllColumnToLog2m.put(OTHER_HLL_COLUMN, 9);
+    HyperLogLog expectedHll = new HyperLogLog(9);
+    GenericRow[] rows = getRows(hllColumnToLog2m, expectedHll);
+    IndexSegment indexSegment = buildSegment(hllColumnToLog2m, rows, null);
+
+    SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) indexSegment.getSegmentMetadata();
+    Assert.assertEquals(segmentMetadata.getHllLog2m(), 9);
+    Assert.assertEquals(segmentMetadata.getColumnMetadataFor(OTHER_HLL_COLUMN).getDerivedMetricType(),
+        MetricFieldSpec.DerivedMetricType.HLL);
+
+    // 'distinctcounthll' on the HLL column is rewritten to 'fasthll', which merges the stored HLLs with their log2m.
+    BrokerRequest brokerRequest =
+        new Pql2Compiler().compileToBrokerRequest("SELECT distinctcounthll(" + HLL_COLUMN + ") FROM testTable");
+    BrokerRequestPreProcessor.preProcess(Collections.singletonList(indexSegment), brokerRequest);
+    Assert.assertEquals(brokerRequest.getAggregationsInfo().get(0).getAggregationType(), "fasthll");
+
+    Operator operator = new InstancePlanMakerImplV2().makeInnerSegmentPlan(indexSegment, brokerRequest).run();
+    operator.open();
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) operator.nextBlock();
+    operator.close();
+    HyperLogLog actualHll = (HyperLogLog) resultsBlock.getAggregationResult().get(0);
+    Assert.assertEquals(actualHll.cardinality(), expectedHll.cardinality(), _errorMessage);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testInconsistentLog2mAcrossHllColumns()
+      throws Exception {
+    Map<String, Integer> hllColumnToLog2m = new HashMap<>();
+    hllColumnToLog2m.put(HLL_COLUMN, HllConstants.DEFAULT_LOG2M);
+    hllColumnToLog2m.put(OTHER_HLL_COLUMN, 9);
+    buildSegment(hllColumnToLog2m, getRows(hllColumnToLog2m, new HyperLogLog(HllConstants.DEFAULT_LOG2M)), null);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testInconsistentLog2mWithHllConfig()
+      throws Exception {
+    Map<String, Integer> hllColumnToLog2m = Collections.singletonMap(HLL_COLUMN, HllConstants.DEFAULT_LOG2M);
+    buildSegment(hllColumnToLog2m, getRows(hllColumnToLog2m, new HyperLogLog(HllConstants.DEFAULT_LOG2M)),
+        new HllConfig(9));
+  }
+
+  /**
+   * Generates rows with a random dimension value and an HLL of random values serialized for each HLL column. The
+   * values offered to the HLLs of the first HLL column are also offered to the given HLL.
+   */
+  private GenericRow[] getRows(Map<String, Integer> hllColumnToLog2m, HyperLogLog expectedHll) {
+    GenericRow[] rows = new GenericRow[NUM_ROWS];
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> map = new HashMap<>();
+      map.put(DIMENSION_COLUMN, _random.nextInt(100));
+      boolean isFirstHllColumn = true;
+      for (Map.Entry<String, Integer> entry : hllColumnToLog2m.entrySet()) {
+        HyperLogLog hll = new HyperLogLog(entry.getValue());
+        int numValues = 1 + _random.nextInt(MAX_NUM_VALUES_PER_HLL);
+        for (int j = 0; j < numValues; j++) {
+          long value = _random.nextInt(NUM_ROWS * MAX_NUM_VALUES_PER_HLL);
+          hll.offer(value);
+          if (isFirstHllColumn) {
+            expectedHll.offer(value);
+          }
+        }
+        isFirstHllColumn = false;
+        map.put(entry.getKey(), HllUtil.convertHllToString(hll));
+      }
+      GenericRow row = new GenericRow();
+      row.init(map);
+      rows[i] = row;
+    }
+    return rows;
+  }
+
+  private static IndexSegment buildSegment(Map<String, Integer> hllColumnToLog2m, GenericRow[] rows,
+      HllConfig hllConfig)
+      throws Exception {
+    Schema schema = new Schema();
+    schema.addField(new DimensionFieldSpec(DIMENSION_COLUMN, FieldSpec.DataType.INT, true));
+    for (Map.Entry<String, Integer> entry : hllColumnToLog2m.entrySet()) {
+      schema.addField(new MetricFieldSpec(entry.getKey(), FieldSpec.DataType.STRING,
+          HllUtil.getHllFieldSizeFromLog2m(entry.getValue()), MetricFieldSpec.DerivedMetricType.HLL));
+    }
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setOutDir(INDEX_DIR_PATH);
+    config.setSegmentName(SEGMENT_NAME);
+    config.setHllConfig(hllConfig);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestDataRecordReader(schema, rows));
+    driver.build();
+
+    return Loaders.IndexSegment.load(new File(INDEX_DIR_PATH, SEGMENT_NAME), ReadMode.heap);
+  }
+}
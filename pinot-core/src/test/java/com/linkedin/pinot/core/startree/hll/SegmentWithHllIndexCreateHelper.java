@@ -129,15 +129,15 @@ public class SegmentWithHllIndexCreateHelper {
 
     if (enableStarTree) {
       setupStarTreeConfig(segmentGenConfig);
-      segmentGenConfig.setHllConfig(hllConfig);
     }
+    segmentGenConfig.setHllConfig(hllConfig);
 
     final SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
     driver.init(segmentGenConfig);
     /**
      * derived field (hll) is added during the segment build process
      *
-     * {@link SegmentIndexCreationDriverImpl#buildStarTree}
+     * {@link SegmentIndexCreationDriverImpl#buildStarTree} or {@link SegmentIndexCreationDriverImpl#buildRaw}
      * {@link SegmentIndexCreationDriverImpl#augmentSchemaWithDerivedColumns}
      * {@link SegmentIndexCreationDriverImpl#populateDefaultDerivedColumnValues}
      */
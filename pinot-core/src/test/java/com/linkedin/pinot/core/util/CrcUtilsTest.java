@@ -17,6 +17,9 @@ package com.linkedin.pinot.core.util;
 
 import com.linkedin.pinot.util.TestUtils;
 import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.FileUtils;
@@ -25,6 +28,7 @@ import org.testng.annotations.Test;
 
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.core.chunk.creator.impl.ChunkIndexCreationDriverImplTest;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
@@ -73,6 +77,33 @@ public class CrcUtilsTest {
 
   }
 
+  @Test
+  public void testCrcFromFileChecksums() throws Exception {
+    if (INDEX_DIR.exists()) {
+      FileUtils.deleteQuietly(INDEX_DIR);
+    }
+
+    final File segmentDir = new File(makeSegmentAndReturnPath());
+    final long expectedCrc = CrcUtils.forAllFilesInFolder(segmentDir).computeCrc();
+
+    // Untar the segment from a stream, computing the file checksums on the fly.
+    final String tarGzPath = TarGzCompressionUtils.createTarGzOfDirectory(segmentDir.getAbsolutePath(),
+        new File(INDEX_DIR, "segment").getAbsolutePath());
+    final File untarDir = new File(INDEX_DIR, "untarred");
+    final Map<File, Long> fileChecksums = new HashMap<>();
+    TarGzCompressionUtils.unTar(new FileInputStream(tarGzPath), untarDir, fileChecksums);
+    final File untarredSegmentDir = untarDir.listFiles()[0];
+
+    Assert.assertEquals(CrcUtils.forAllFilesInFolder(untarredSegmentDir).computeCrc(fileChecksums),
+        Long.valueOf(expectedCrc));
+    Assert.assertEquals(CrcUtils.forAllFilesInFolder(untarredSegmentDir).computeCrc(), expectedCrc);
+
+    // Missing checksum.
+    Assert.assertNull(CrcUtils.forAllFilesInFolder(untarredSegmentDir).computeCrc(new HashMap<File, Long>()));
+
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
   private String makeSegmentAndReturnPath() throws Exception {
     final String filePath = TestUtils
         .getFileFromResourceUrl(ChunkIndexCreationDriverImplTest.class.getClassLoader().getResource(AVRO_DATA));
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Random;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class FixedBitSingleValueTest {
@@ -53,6 +54,14 @@ public class FixedBitSingleValueTest {
       }
       LOGGER.trace(Arrays.toString(data));
       LOGGER.trace(Arrays.toString(read));
+
+      // Batch read of an unaligned range must match the single value reads.
+      int startRow = 7;
+      int[] batch = new int[ROWS - startRow];
+      reader.getIntBatch(startRow, batch.length, batch);
+      for (int i = 0; i < batch.length; i++) {
+        Assert.assertEquals(batch[i], read[startRow + i], "Failed for bit:" + numBits + " at " + (startRow + i));
+      }
       reader.close();
       heapBuffer.close();
       file.delete();
@@ -19,6 +19,7 @@ import com.linkedin.pinot.common.data.DimensionFieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.TimeBucketExpression;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.DataFetcher;
 import com.linkedin.pinot.core.common.DataSource;
@@ -31,6 +32,7 @@ import com.linkedin.pinot.core.operator.aggregation.groupby.DefaultGroupKeyGener
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupKeyGenerator;
 import com.linkedin.pinot.core.operator.blocks.DocIdSetBlock;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
 import com.linkedin.pinot.util.TestDataRecordReader;
@@ -158,7 +160,7 @@ public class DefaultGroupKeyGeneratorTest {
     defaultGroupKeyGenerator.generateKeysForBlock(_projectionBlock, _singleValueGroupKeyBuffer);
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), 100, _errorMessage);
     compareSingleValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), 2);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, 2);
   }
 
   @Test
@@ -177,7 +179,7 @@ public class DefaultGroupKeyGeneratorTest {
     defaultGroupKeyGenerator.generateKeysForBlock(_projectionBlock, _singleValueGroupKeyBuffer);
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), 2, _errorMessage);
     compareSingleValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), 2);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, 2);
   }
 
   @Test
@@ -195,7 +197,33 @@ public class DefaultGroupKeyGeneratorTest {
     defaultGroupKeyGenerator.generateKeysForBlock(_projectionBlock, _singleValueGroupKeyBuffer);
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), 2, _errorMessage);
     compareSingleValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), 2);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, 2);
+  }
+
+  @Test
+  public void testTimeBucketSingleValue() {
+    // Bucket size 1 gives the same groups as the column itself.
+    String[] groupByColumns = {new TimeBucketExpression("s1", 1).toString()};
+
+    DefaultGroupKeyGenerator defaultGroupKeyGenerator = new DefaultGroupKeyGenerator(_projectionBlock, groupByColumns);
+    Assert.assertEquals(defaultGroupKeyGenerator.getGlobalGroupKeyUpperBound(), UNIQUE_ROWS, _errorMessage);
+    defaultGroupKeyGenerator.generateKeysForBlock(_projectionBlock, _singleValueGroupKeyBuffer);
+    compareSingleValueBuffer();
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, 2);
+
+    // Bucket larger than all the values maps all of them into the bucket starting at 0.
+    groupByColumns = new String[]{new TimeBucketExpression("s1", Integer.MAX_VALUE).toString(), "s2"};
+
+    defaultGroupKeyGenerator = new DefaultGroupKeyGenerator(_projectionBlock, groupByColumns);
+    Assert.assertEquals(defaultGroupKeyGenerator.getGlobalGroupKeyUpperBound(), UNIQUE_ROWS, _errorMessage);
+    defaultGroupKeyGenerator.generateKeysForBlock(_projectionBlock, _singleValueGroupKeyBuffer);
+    compareSingleValueBuffer();
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, 2);
+
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = defaultGroupKeyGenerator.getUniqueGroupKeysWithValues();
+    while (groupKeyIterator.hasNext()) {
+      Assert.assertEquals(groupKeyIterator.next().getValues()[0], 0, _errorMessage);
+    }
   }
 
   /**
@@ -228,7 +256,7 @@ public class DefaultGroupKeyGeneratorTest {
     int numUniqueKeys = _multiValueGroupKeyBuffer[0].length + _multiValueGroupKeyBuffer[1].length;
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), groupKeyUpperBound, _errorMessage);
     compareMultiValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), numUniqueKeys);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, numUniqueKeys);
   }
 
   @Test
@@ -246,7 +274,7 @@ public class DefaultGroupKeyGeneratorTest {
     int numUniqueKeys = _multiValueGroupKeyBuffer[0].length + _multiValueGroupKeyBuffer[1].length;
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), numUniqueKeys, _errorMessage);
     compareMultiValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), numUniqueKeys);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, numUniqueKeys);
   }
 
   @Test
@@ -264,7 +292,7 @@ public class DefaultGroupKeyGeneratorTest {
     int numUniqueKeys = _multiValueGroupKeyBuffer[0].length + _multiValueGroupKeyBuffer[1].length;
     Assert.assertEquals(defaultGroupKeyGenerator.getCurrentGroupKeyUpperBound(), numUniqueKeys, _errorMessage);
     compareMultiValueBuffer();
-    testGetUniqueGroupKeys(defaultGroupKeyGenerator.getUniqueGroupKeys(), numUniqueKeys);
+    testGetUniqueGroupKeys(defaultGroupKeyGenerator, numUniqueKeys);
   }
 
   /**
@@ -291,26 +319,42 @@ public class DefaultGroupKeyGeneratorTest {
   }
 
   /**
-   * Helper method to test the group key iterator returned by getUniqueGroupKeys().
+   * Helper method to test the group key iterators returned by getUniqueGroupKeys() and getUniqueGroupKeysWithValues().
    *
-   * @param groupKeyIterator group key iterator.
+   * @param groupKeyGenerator group key generator.
    * @param numUniqueKeys number of unique keys.
    */
-  private void testGetUniqueGroupKeys(Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator, int numUniqueKeys) {
+  private void testGetUniqueGroupKeys(GroupKeyGenerator groupKeyGenerator, int numUniqueKeys) {
     int count = 0;
-    Set<Integer> idSet = new HashSet<>();
+    Map<Integer, String> idToGroupKey = new HashMap<>();
     Set<String> groupKeySet = new HashSet<>();
 
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = groupKeyGenerator.getUniqueGroupKeys();
     while (groupKeyIterator.hasNext()) {
       count++;
       GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
-      idSet.add(groupKey.getFirst());
+      idToGroupKey.put(groupKey.getFirst(), groupKey.getStringKey());
       groupKeySet.add(groupKey.getStringKey());
     }
 
     Assert.assertEquals(count, numUniqueKeys, _errorMessage);
-    Assert.assertEquals(idSet.size(), numUniqueKeys, _errorMessage);
+    Assert.assertEquals(idToGroupKey.size(), numUniqueKeys, _errorMessage);
     Assert.assertEquals(groupKeySet.size(), numUniqueKeys, _errorMessage);
+
+    // The values of the group-by columns should match the string group keys.
+    count = 0;
+    groupKeyIterator = groupKeyGenerator.getUniqueGroupKeysWithValues();
+    while (groupKeyIterator.hasNext()) {
+      count++;
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      Object[] values = groupKey.getValues();
+      StringBuilder builder = new StringBuilder(values[0].toString());
+      for (int i = 1; i < values.length; i++) {
+        builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter).append(values[i]);
+      }
+      Assert.assertEquals(builder.toString(), idToGroupKey.get(groupKey.getFirst()), _errorMessage);
+    }
+    Assert.assertEquals(count, numUniqueKeys, _errorMessage);
   }
 
   @AfterClass
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.operator.aggregation;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction.ResultDataType;
+import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.operator.aggregation.groupby.DoubleGroupByResultHolder;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByCombineTable;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.operator.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.operator.aggregation.groupby.ObjectGroupByResultHolder;
+import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class GroupByCombineTableTest {
+  private static final ResultDataType[] RESULT_DATA_TYPES =
+      {ResultDataType.DOUBLE, ResultDataType.LONG, ResultDataType.DOUBLE, ResultDataType.DISTINCTCOUNT_SET};
+
+  private final List<AggregationInfo> _aggregationsInfo = new ArrayList<>();
+
+  public GroupByCombineTableTest() {
+    _aggregationsInfo.add(newAggregationInfo("sum", "met"));
+    _aggregationsInfo.add(newAggregationInfo("count", "*"));
+    _aggregationsInfo.add(newAggregationInfo("min", "met"));
+    _aggregationsInfo.add(newAggregationInfo("distinctCount", "dim"));
+  }
+
+  @Test
+  public void testMerge() {
+    GroupByCombineTable combineTable = newCombineTable(2);
+
+    // Segment 0 has groups (a, 0) to (a, 9), segment 1 has groups (a, 5) to (a, 14)
+    for (int segment = 0; segment < 2; segment++) {
+      List<Object[]> keys = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        keys.add(new Object[]{"a", 5 * segment + i});
+      }
+      combineTable.merge(newGroupByResult(keys, segment));
+    }
+    Assert.assertEquals(combineTable.size(), 15);
+
+    List<Map<String, Serializable>> results = combineTable.getResults(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    Assert.assertEquals(results.size(), 4);
+    for (int i = 0; i < 15; i++) {
+      String groupKey = "a\t" + i;
+      boolean inBothSegments = i >= 5 && i < 10;
+      double value = inBothSegments ? (2 * i + 100) : (i < 5 ? i : i + 100);
+      Assert.assertEquals(results.get(0).get(groupKey), value);
+      Assert.assertEquals(((MutableLongValue) results.get(1).get(groupKey)).getValue(), inBothSegments ? 2L : 1L);
+      Assert.assertEquals(results.get(2).get(groupKey), (i < 10) ? (double) i : (double) (i + 100));
+      Assert.assertEquals(((DistinctCountSketch) results.get(3).get(groupKey)).cardinality(), inBothSegments ? 2 : 1);
+    }
+  }
+
+  @Test
+  public void testTrim() {
+    GroupByCombineTable combineTable = newCombineTable(1);
+    List<Object[]> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      keys.add(new Object[]{i});
+    }
+    Collections.shuffle(keys);
+    combineTable.merge(newGroupByResult(keys, 0));
+
+    List<Map<String, Serializable>> results = combineTable.getResults(100, 10);
+
+    // Largest sums, smallest mins
+    Assert.assertEquals(results.get(0).size(), 10);
+    Assert.assertEquals(results.get(2).size(), 10);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(results.get(0).get(Integer.toString(999 - i)), (double) (999 - i));
+      Assert.assertEquals(results.get(2).get(Integer.toString(i)), (double) i);
+    }
+    Assert.assertEquals(results.get(1).size(), 10);
+
+    // Results that cannot be ordered are not trimmed
+    Assert.assertEquals(results.get(3).size(), 1000);
+  }
+
+  private GroupByCombineTable newCombineTable(int numGroupByColumns) {
+    return new GroupByCombineTable(_aggregationsInfo,
+        AggregationFunctionFactory.getAggregationFunction(_aggregationsInfo), numGroupByColumns);
+  }
+
+  private static AggregationInfo newAggregationInfo(String aggregationType, String column) {
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType(aggregationType);
+    Map<String, String> aggregationParams = new HashMap<>();
+    aggregationParams.put("column", column);
+    aggregationInfo.setAggregationParams(aggregationParams);
+    return aggregationInfo;
+  }
+
+  /**
+   * Builds the group-by result of a segment, where the metric of group (x, i) is (i + 100 * segment).
+   */
+  private static AggregationGroupByResult newGroupByResult(List<Object[]> keys, int segment) {
+    int numGroups = keys.size();
+    GroupByResultHolder sumHolder = new DoubleGroupByResultHolder(numGroups, numGroups, numGroups, 0.0);
+    GroupByResultHolder countHolder = new DoubleGroupByResultHolder(numGroups, numGroups, numGroups, 0.0);
+    GroupByResultHolder minHolder = new DoubleGroupByResultHolder(numGroups, numGroups, numGroups, 0.0);
+    GroupByResultHolder distinctCountHolder = new ObjectGroupByResultHolder(numGroups, numGroups, numGroups);
+    for (int groupId = 0; groupId < numGroups; groupId++) {
+      Object[] key = keys.get(groupId);
+      double value = (Integer) key[key.length - 1] + 100 * segment;
+      sumHolder.setValueForKey(groupId, value);
+      countHolder.setValueForKey(groupId, 1.0);
+      minHolder.setValueForKey(groupId, value);
+      DistinctCountSketch sketch = new DistinctCountSketch();
+      sketch.offer(segment);
+      distinctCountHolder.setValueForKey(groupId, sketch);
+    }
+    return new AggregationGroupByResult(new TestGroupKeyGenerator(keys),
+        new GroupByResultHolder[]{sumHolder, countHolder, minHolder, distinctCountHolder}, RESULT_DATA_TYPES);
+  }
+
+  /**
+   * Group key generator over a fixed list of keys, where the group id is the index of the key.
+   */
+  private static class TestGroupKeyGenerator implements GroupKeyGenerator {
+    private final List<Object[]> _keys;
+
+    TestGroupKeyGenerator(List<Object[]> keys) {
+      _keys = keys;
+    }
+
+    @Override
+    public int getGlobalGroupKeyUpperBound() {
+      return _keys.size();
+    }
+
+    @Override
+    public boolean hasMultiValueGroupByColumn() {
+      return false;
+    }
+
+    @Override
+    public void generateKeysForBlock(ProjectionBlock projectionBlock, int[] docIdToGroupKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void generateKeysForBlock(ProjectionBlock projectionBlock, int[][] docIdToGroupKeys) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getCurrentGroupKeyUpperBound() {
+      return _keys.size();
+    }
+
+    @Override
+    public Iterator<GroupKey> getUniqueGroupKeys() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<GroupKey> getUniqueGroupKeysWithValues() {
+      return new Iterator<GroupKey>() {
+        private int _index = 0;
+
+        @Override
+        public boolean hasNext() {
+          return _index < _keys.size();
+        }
+
+        @Override
+        public GroupKey next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          GroupKey groupKey = new GroupKey(_index, _keys.get(_index));
+          _index++;
+          return groupKey;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public void purgeKeys(int[] keysToPurge) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
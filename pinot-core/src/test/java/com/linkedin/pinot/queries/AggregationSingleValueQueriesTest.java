@@ -18,11 +18,13 @@ package com.linkedin.pinot.queries;
 import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.operator.ExecutionStatistics;
 import com.linkedin.pinot.core.operator.aggregation.AggregationOperator;
+import com.linkedin.pinot.core.operator.aggregation.MetadataBasedAggregationOperator;
 import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByOperator;
 import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByResult;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupKeyGenerator;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
 import java.io.Serializable;
 import java.util.List;
 import org.testng.Assert;
@@ -79,6 +81,39 @@ public class AggregationSingleValueQueriesTest extends BaseSingleValueQueriesTes
     Assert.assertEquals(avgResult.getSecond().longValue(), 6129L);
   }
 
+  @Test
+  public void testMetadataBasedAggregation() {
+    String query = "SELECT COUNT(*), MAX(column3), MIN(column6), MINMAXRANGE(daysSinceEpoch) FROM testTable";
+
+    // Test query without filter.
+    MetadataBasedAggregationOperator metadataBasedAggregationOperator = getOperatorForQuery(query);
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) metadataBasedAggregationOperator.nextBlock();
+    ExecutionStatistics executionStatistics = metadataBasedAggregationOperator.getExecutionStatistics();
+    Assert.assertEquals(executionStatistics.getNumDocsScanned(), 30000L);
+    Assert.assertEquals(executionStatistics.getNumEntriesScannedInFilter(), 0L);
+    Assert.assertEquals(executionStatistics.getNumEntriesScannedPostFilter(), 0L);
+    Assert.assertEquals(executionStatistics.getNumTotalRawDocs(), 30000L);
+    List<Serializable> aggregationResult = resultsBlock.getAggregationResult();
+    Assert.assertEquals(((MutableLongValue) aggregationResult.get(0)).getValue(), 30000L);
+    Assert.assertEquals(((Double) aggregationResult.get(1)).intValue(), 2147419555);
+    Assert.assertEquals(((Double) aggregationResult.get(2)).intValue(), 1689277);
+    MinMaxRangeAggregationFunction.MinMaxRangePair minMaxRangeResult =
+        (MinMaxRangeAggregationFunction.MinMaxRangePair) aggregationResult.get(3);
+    Assert.assertEquals(minMaxRangeResult.getFirst().intValue(), 126164076);
+    Assert.assertEquals(minMaxRangeResult.getSecond().intValue(), 167572854);
+
+    // Test query with a time filter covering the entire segment.
+    metadataBasedAggregationOperator =
+        getOperatorForQuery(query + " WHERE daysSinceEpoch BETWEEN 126164076 AND 167572854");
+    resultsBlock = (IntermediateResultsBlock) metadataBasedAggregationOperator.nextBlock();
+    aggregationResult = resultsBlock.getAggregationResult();
+    Assert.assertEquals(((MutableLongValue) aggregationResult.get(0)).getValue(), 30000L);
+
+    // Test query with a filter not covering the entire segment.
+    Assert.assertTrue(getOperatorForQuery(query + " WHERE daysSinceEpoch > 126164076") instanceof AggregationOperator);
+    Assert.assertTrue(getOperatorForQueryWithFilter(query) instanceof AggregationOperator);
+  }
+
   @Test
   public void testSmallAggregationGroupBy() {
     String query = "SELECT" + AGGREGATION + " FROM testTable" + SMALL_GROUP_BY;
@@ -131,6 +131,10 @@ public abstract class BaseSingleValueQueriesTest {
     FileUtils.deleteQuietly(INDEX_DIR);
   }
 
+  protected IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
   /**
    * Run query on the single index segment.
    *
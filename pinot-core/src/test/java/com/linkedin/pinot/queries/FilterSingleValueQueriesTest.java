@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.aggregation.CountStarOperator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.filter.AndOperator;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class FilterSingleValueQueriesTest extends BaseSingleValueQueriesTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+
+  private final Map<String, String[]> _columnValues = new HashMap<>();
+
+  @Test
+  public void testAndChildrenOrderedBySelectivity() {
+    // Both columns have inverted index, column7 = 1985159279 matches 1118 docs and column11 = 'P' matches 20409 docs,
+    // so the filter on column7 should drive the iteration whatever the order in the query.
+    String[] filters = new String[]{
+        "column11 = 'P' AND column7 = 1985159279", "column7 = 1985159279 AND column11 = 'P'"
+    };
+    for (String filter : filters) {
+      Operator filterOperator = getFilterOperator(filter);
+      Assert.assertTrue(filterOperator instanceof AndOperator);
+      List<Operator> childOperators = ((AndOperator) filterOperator).getChildOperators();
+      Assert.assertEquals(childOperators.size(), 2);
+      Assert.assertEquals(getNumMatchingDocs(childOperators.get(0)), 1118, filter);
+      Assert.assertEquals(getNumMatchingDocs(childOperators.get(1)), 20409, filter);
+    }
+  }
+
+  @Test
+  public void testCountStar() {
+    // AND, OR and nested filters on sorted and bitmap inverted indexes, which are counted from the bitmap cardinality,
+    // and a filter with a scan, which is counted through the filter iterator.
+    Map<String, DocPredicate> filters = new HashMap<>();
+    filters.put("column11 = 'P' AND column7 = 1985159279", new DocPredicate() {
+      @Override
+      public boolean matches(int docId) {
+        return value("column11", docId).equals("P") && value("column7", docId).equals("1985159279");
+      }
+    });
+    filters.put("column11 = 'o' OR column6 = 296467636", new DocPredicate() {
+      @Override
+      public boolean matches(int docId) {
+        return value("column11", docId).equals("o") || value("column6", docId).equals("296467636");
+      }
+    });
+    filters.put("(column11 = 't' OR column7 = 788414092) AND column17 = 1799989276", new DocPredicate() {
+      @Override
+      public boolean matches(int docId) {
+        return (value("column11", docId).equals("t") || value("column7", docId).equals("788414092"))
+            && value("column17", docId).equals("1799989276");
+      }
+    });
+    filters.put("column11 NOT IN ('P', 'o') AND (column6 = 296467636 OR daysSinceEpoch = 167572854)",
+        new DocPredicate() {
+          @Override
+          public boolean matches(int docId) {
+            return !value("column11", docId).equals("P") && !value("column11", docId).equals("o")
+                && (value("column6", docId).equals("296467636") || value("daysSinceEpoch", docId).equals("167572854"));
+          }
+        });
+    filters.put("daysSinceEpoch = 167572854 OR (column17 = 2005789049 AND column18 > 0)", new DocPredicate() {
+      @Override
+      public boolean matches(int docId) {
+        return value("daysSinceEpoch", docId).equals("167572854")
+            || (value("column17", docId).equals("2005789049") && Integer.parseInt(value("column18", docId)) > 0);
+      }
+    });
+    filters.put("column11 = 'P' AND column1 > 100000000", new DocPredicate() {
+      @Override
+      public boolean matches(int docId) {
+        return value("column11", docId).equals("P") && Integer.parseInt(value("column1", docId)) > 100000000;
+      }
+    });
+
+    int numDocs = getIndexSegment().getSegmentMetadata().getTotalRawDocs();
+    for (Map.Entry<String, DocPredicate> entry : filters.entrySet()) {
+      String filter = entry.getKey();
+      long expectedCount = 0;
+      for (int docId = 0; docId < numDocs; docId++) {
+        if (entry.getValue().matches(docId)) {
+          expectedCount++;
+        }
+      }
+      Assert.assertTrue(expectedCount > 0, filter);
+
+      CountStarOperator countStarOperator = getOperatorForQuery("SELECT COUNT(*) FROM testTable WHERE " + filter);
+      IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) countStarOperator.nextBlock();
+      long count = ((MutableLongValue) resultsBlock.getAggregationResult().get(0)).getValue();
+      Assert.assertEquals(count, expectedCount, filter);
+      Assert.assertEquals(countStarOperator.getExecutionStatistics().getNumDocsScanned(), expectedCount, filter);
+    }
+  }
+
+  /**
+   * Returns the value of a column for a doc, read by scanning the forward index.
+   */
+  private String value(String column, int docId) {
+    String[] values = _columnValues.get(column);
+    if (values == null) {
+      DataSource dataSource = getIndexSegment().getDataSource(column);
+      Dictionary dictionary = dataSource.getDictionary();
+      BlockSingleValIterator iterator =
+          (BlockSingleValIterator) dataSource.nextBlock().getBlockValueSet().iterator();
+      values = new String[getIndexSegment().getSegmentMetadata().getTotalRawDocs()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = dictionary.get(iterator.nextIntVal()).toString();
+      }
+      _columnValues.put(column, values);
+    }
+    return values[docId];
+  }
+
+  private interface DocPredicate {
+    boolean matches(int docId);
+  }
+
+  private Operator getFilterOperator(String filter) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM testTable WHERE " + filter);
+    return new FilterPlanNode(getIndexSegment(), brokerRequest).run();
+  }
+
+  private static int getNumMatchingDocs(Operator filterOperator) {
+    filterOperator.open();
+    BlockDocIdIterator iterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    int numMatchingDocs = 0;
+    while (iterator.next() != Constants.EOF) {
+      numMatchingDocs++;
+    }
+    filterOperator.close();
+    return numMatchingDocs;
+  }
+}
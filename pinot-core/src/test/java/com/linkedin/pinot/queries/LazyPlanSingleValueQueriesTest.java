@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.plan.CombinePlanNode;
+import com.linkedin.pinot.core.plan.LazyPlanNode;
+import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that lazily built per-segment plans return the same results as eagerly built ones, and that the operator of
+ * each segment is opened before its block is fetched, and closed.
+ */
+public class LazyPlanSingleValueQueriesTest extends BaseSingleValueQueriesTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final InstancePlanMakerImplV2 PLAN_MAKER = new InstancePlanMakerImplV2();
+  private static final int NUM_SEGMENTS = 3;
+  private static final long TIME_OUT_MS = 10000L;
+
+  private ExecutorService _executorService;
+
+  @BeforeClass
+  public void setUp() {
+    _executorService = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Test
+  public void testLazyPlanMatchesEagerPlan() {
+    String[] queries = new String[]{
+        "SELECT COUNT(*), SUM(column1), MAX(column3), MIN(column6), AVG(column7) FROM testTable",
+        "SELECT COUNT(*), SUM(column1) FROM testTable WHERE column11 = 'P' AND column7 <> 1985159279",
+        "SELECT COUNT(*), SUM(column1), AVG(column3) FROM testTable WHERE column6 > 296467636 GROUP BY column11"};
+
+    for (String query : queries) {
+      final BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+
+      List<RecordingOperator> eagerOperators = new ArrayList<>();
+      List<PlanNode> eagerPlanNodes = new ArrayList<>();
+      for (int i = 0; i < NUM_SEGMENTS; i++) {
+        eagerPlanNodes.add(new RecordingPlanNode(brokerRequest, eagerOperators));
+      }
+      IntermediateResultsBlock eagerResultsBlock = runCombinePlan(eagerPlanNodes, brokerRequest);
+
+      final List<RecordingOperator> lazyOperators = new ArrayList<>();
+      List<PlanNode> lazyPlanNodes = new ArrayList<>();
+      for (int i = 0; i < NUM_SEGMENTS; i++) {
+        lazyPlanNodes.add(new LazyPlanNode() {
+          @Override
+          protected PlanNode makePlanNode() {
+            return new RecordingPlanNode(brokerRequest, lazyOperators);
+          }
+        });
+      }
+      // Lazy plan nodes do not build any operator until their block is fetched.
+      Operator lazyCombineOperator = new CombinePlanNode(lazyPlanNodes, brokerRequest, _executorService,
+          TIME_OUT_MS).run();
+      Assert.assertTrue(lazyOperators.isEmpty(), query);
+      IntermediateResultsBlock lazyResultsBlock = runCombineOperator(lazyCombineOperator);
+
+      Assert.assertNull(eagerResultsBlock.getExceptions(), query);
+      Assert.assertNull(lazyResultsBlock.getExceptions(), query);
+      Assert.assertEquals(getResults(lazyResultsBlock), getResults(eagerResultsBlock), query);
+      Assert.assertEquals(lazyResultsBlock.getNumDocsScanned(), eagerResultsBlock.getNumDocsScanned(), query);
+      Assert.assertEquals(lazyResultsBlock.getNumEntriesScannedInFilter(),
+          eagerResultsBlock.getNumEntriesScannedInFilter(), query);
+      Assert.assertEquals(lazyResultsBlock.getNumEntriesScannedPostFilter(),
+          eagerResultsBlock.getNumEntriesScannedPostFilter(), query);
+
+      checkOpenedAndClosed(eagerOperators, query);
+      checkOpenedAndClosed(lazyOperators, query);
+    }
+  }
+
+  private IntermediateResultsBlock runCombinePlan(List<PlanNode> planNodes, BrokerRequest brokerRequest) {
+    return runCombineOperator(new CombinePlanNode(planNodes, brokerRequest, _executorService, TIME_OUT_MS).run());
+  }
+
+  private static IntermediateResultsBlock runCombineOperator(Operator combineOperator) {
+    combineOperator.open();
+    IntermediateResultsBlock resultsBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+    combineOperator.close();
+    return resultsBlock;
+  }
+
+  private static void checkOpenedAndClosed(List<RecordingOperator> operators, String query) {
+    Assert.assertEquals(operators.size(), NUM_SEGMENTS, query);
+    for (RecordingOperator operator : operators) {
+      Assert.assertEquals(operator._numOpenCalls, 1, query);
+      Assert.assertTrue(operator._openedBeforeNextBlock, query);
+      Assert.assertEquals(operator._numCloseCalls, 1, query);
+    }
+  }
+
+  /**
+   * Returns the string representation of the aggregation (group-by) results, independent of the order of the groups.
+   */
+  private static String getResults(IntermediateResultsBlock resultsBlock) {
+    List<Map<String, Serializable>> groupByResults = resultsBlock.getAggregationGroupByOperatorResult();
+    if (groupByResults == null) {
+      return String.valueOf(resultsBlock.getAggregationResult());
+    }
+    List<Map<String, String>> results = new ArrayList<>();
+    for (Map<String, Serializable> groupByResult : groupByResults) {
+      Map<String, String> result = new TreeMap<>();
+      for (Map.Entry<String, Serializable> entry : groupByResult.entrySet()) {
+        result.put(entry.getKey(), String.valueOf(entry.getValue()));
+      }
+      results.add(result);
+    }
+    return results.toString();
+  }
+
+  /**
+   * Plan node running the inner-segment plan of the test segment, recording the operators it builds.
+   */
+  private class RecordingPlanNode implements PlanNode {
+    private final PlanNode _planNode;
+    private final List<RecordingOperator> _operators;
+
+    private RecordingPlanNode(BrokerRequest brokerRequest, List<RecordingOperator> operators) {
+      _planNode = PLAN_MAKER.makeInnerSegmentPlan(getIndexSegment(), brokerRequest);
+      _operators = operators;
+    }
+
+    @Override
+    public Operator run() {
+      RecordingOperator operator = new RecordingOperator(_planNode.run());
+      synchronized (_operators) {
+        _operators.add(operator);
+      }
+      return operator;
+    }
+
+    @Override
+    public void showTree(String prefix) {
+      _planNode.showTree(prefix);
+    }
+  }
+
+  /**
+   * Operator delegating to an inner-segment operator, recording the calls to open and close.
+   */
+  private static class RecordingOperator extends BaseOperator {
+    private final Operator _operator;
+    private volatile int _numOpenCalls = 0;
+    private volatile int _numCloseCalls = 0;
+    private volatile boolean _openedBeforeNextBlock = false;
+
+    private RecordingOperator(Operator operator) {
+      _operator = operator;
+    }
+
+    @Override
+    public boolean open() {
+      _numOpenCalls++;
+      return _operator.open();
+    }
+
+    @Override
+    public Block getNextBlock() {
+      _openedBeforeNextBlock = (_numOpenCalls > 0);
+      return _operator.nextBlock();
+    }
+
+    @Override
+    public Block getNextBlock(BlockId blockId) {
+      _openedBeforeNextBlock = (_numOpenCalls > 0);
+      return _operator.nextBlock(blockId);
+    }
+
+    @Override
+    public boolean close() {
+      _numCloseCalls++;
+      return _operator.close();
+    }
+
+    @Override
+    public ExecutionStatistics getExecutionStatistics() {
+      return _operator.getExecutionStatistics();
+    }
+  }
+}
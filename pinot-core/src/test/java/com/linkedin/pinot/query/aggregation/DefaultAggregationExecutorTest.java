@@ -33,6 +33,7 @@ import com.linkedin.pinot.core.operator.aggregation.DefaultAggregationExecutor;
 import com.linkedin.pinot.core.operator.blocks.MatchEntireSegmentDocIdSetBlock;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import com.linkedin.pinot.core.operator.filter.MatchEntireSegmentOperator;
+import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
 import java.io.File;
@@ -61,7 +62,7 @@ import org.testng.annotations.Test;
  * - Asserts that the aggregation results returned by the class are the same as
  *   returned by the local computations.
  *
- * Currently tests 'sum', 'min' & 'max' functions, and can be easily extended to
+ * Currently tests 'sum', 'min', 'max' & 'minmaxrange' functions, and can be easily extended to
  * test other functions as well.
  * Asserts that aggregation results returned by the executor are as expected.
  */
@@ -72,7 +73,7 @@ public class DefaultAggregationExecutorTest {
   private static final String SEGMENT_NAME = "TestAggregation";
 
   private static final String METRIC_PREFIX = "metric_";
-  private static final String[] AGGREGATION_FUNCTIONS = {"sum", "max", "min"};
+  private static final String[] AGGREGATION_FUNCTIONS = {"sum", "max", "min", "minmaxrange"};
 
   private static final int NUM_METRIC_COLUMNS = AGGREGATION_FUNCTIONS.length;
   private static final double MAX_VALUE = Integer.MAX_VALUE;
@@ -120,7 +121,7 @@ public class DefaultAggregationExecutorTest {
   }
 
   /**
-   * Runs 'sum', 'min' & 'max' aggregation functions on the DefaultAggregationExecutor.
+   * Runs 'sum', 'min', 'max' & 'minmaxrange' aggregation functions on the DefaultAggregationExecutor.
    * Asserts that the aggregation results returned by the executor are as expected.
    */
   @Test
@@ -141,7 +142,15 @@ public class DefaultAggregationExecutorTest {
 
     List<Serializable> result = aggregationExecutor.getResult();
     for (int i = 0; i < result.size(); i++) {
-      double actual = (double) result.get(i);
+      Serializable resultValue = result.get(i);
+      double actual;
+      if (resultValue instanceof MinMaxRangeAggregationFunction.MinMaxRangePair) {
+        MinMaxRangeAggregationFunction.MinMaxRangePair minMaxRangePair =
+            (MinMaxRangeAggregationFunction.MinMaxRangePair) resultValue;
+        actual = minMaxRangePair.getSecond() - minMaxRangePair.getFirst();
+      } else {
+        actual = (double) resultValue;
+      }
       double expected = computeAggregation(AGGREGATION_FUNCTIONS[i], _inputData[i]);
       Assert.assertEquals(actual, expected,
           "Aggregation mis-match for function " + AGGREGATION_FUNCTIONS[i] + ", Expected: " + expected + " Actual: "
@@ -245,6 +254,9 @@ public class DefaultAggregationExecutorTest {
       case "min":
         return computeMin(values);
 
+      case "minmaxrange":
+        return computeMax(values) - computeMin(values);
+
       default:
         throw new RuntimeException("Unsupported function " + functionName);
     }
@@ -21,6 +21,7 @@ import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
 import com.linkedin.pinot.core.query.aggregation.function.DistinctCountAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.DistinctCountHLLAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
 import com.linkedin.pinot.util.TestUtils;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
@@ -140,6 +141,13 @@ public class DistinctCountHLLTest {
                 hashSet.add(arr[i]);
             }
         }
+
+        public void offerNumberInRangeTo(DistinctCountSketch sketch, int start, int end) {
+            end = Math.min(end, arr.length);
+            for (int i = start; i < end; i++) {
+                sketch.offer(arr[i]);
+            }
+        }
     }
 
     @Test
@@ -212,7 +220,7 @@ public class DistinctCountHLLTest {
 
         final int numOfItemsPerList = 100;
         final int numOfListCombined = 10000;
-        println("#list_combined, HLL_time(nano), IntOpenHashSet(nano), time_ratio, estimate, precise, error");
+        println("#list_combined, HLL_time(nano), DistinctCountSketch(nano), time_ratio, estimate, precise, error");
         // Test combine
         StringBuilder sb1 = new StringBuilder();
         StringBuilder sb2 = new StringBuilder();
@@ -227,7 +235,7 @@ public class DistinctCountHLLTest {
             List<Serializable> hllCombinedResult = hllAggregationFunction.combine(hllAggregationResults, CombineLevel.SEGMENT);
             long t2 = System.nanoTime();
 
-            List<Serializable> setAggregationResults = getIntOpenHashSets(arr, i, numOfItemsPerList);
+            List<Serializable> setAggregationResults = getDistinctCountSketches(arr, i, numOfItemsPerList);
             long t3 = System.nanoTime();
             List<Serializable> setCombinedResult = setAggregationFunction.combine(setAggregationResults, CombineLevel.SEGMENT);
             long t4 = System.nanoTime();
@@ -238,7 +246,14 @@ public class DistinctCountHLLTest {
             println(i + ", " + (t2 - t1) + ", " + (t4 - t3) + ", " + (t2 - t1 + 0.0) / (t4 - t3 + 0.0) + ", "
                     + estimate + ", " + precise + ", " + getErrorString(precise, estimate));
             TestUtils.assertApproximation(estimate, precise, 0.15);
-            Assert.assertEquals(((IntOpenHashSet) (setCombinedResult.get(0))).size(), precise);
+            DistinctCountSketch sketch = (DistinctCountSketch) setCombinedResult.get(0);
+            if (precise <= DistinctCountSketch.DEFAULT_EXACT_THRESHOLD) {
+                Assert.assertTrue(sketch.isExact());
+                Assert.assertEquals(sketch.cardinality(), precise);
+            } else {
+                Assert.assertFalse(sketch.isExact());
+                TestUtils.assertApproximation(sketch.cardinality(), precise, 0.05);
+            }
         }
     }
 
@@ -337,13 +352,13 @@ public class DistinctCountHLLTest {
         return hllResultList;
     }
 
-    private static List<Serializable> getIntOpenHashSets(RandomNumberArray arr, int numberOfListCombined, int numOfItemsPerList) {
-        List<Serializable> intOpenHashSets = new ArrayList<Serializable>();
+    private static List<Serializable> getDistinctCountSketches(RandomNumberArray arr, int numberOfListCombined, int numOfItemsPerList) {
+        List<Serializable> sketches = new ArrayList<Serializable>();
         for (int i = 0; i < numberOfListCombined; ++i) {
-            IntOpenHashSet intOpenHashSet = new IntOpenHashSet();
-            arr.offerNumberInRangeTo(intOpenHashSet, i*numOfItemsPerList, (i+1)*numOfItemsPerList);
-            intOpenHashSets.add(intOpenHashSet);
+            DistinctCountSketch sketch = new DistinctCountSketch();
+            arr.offerNumberInRangeTo(sketch, i*numOfItemsPerList, (i+1)*numOfItemsPerList);
+            sketches.add(sketch);
         }
-        return intOpenHashSets;
+        return sketches;
     }
 }
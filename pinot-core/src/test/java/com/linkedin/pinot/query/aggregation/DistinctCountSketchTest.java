@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
+import com.linkedin.pinot.util.TestUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link DistinctCountSketch} class.
+ */
+public class DistinctCountSketchTest {
+  private static final int EXACT_THRESHOLD = 1000;
+
+  @Test
+  public void testExact() {
+    DistinctCountSketch sketch = new DistinctCountSketch(EXACT_THRESHOLD, DistinctCountSketch.DEFAULT_LOG2M);
+    for (int i = 0; i < 3 * EXACT_THRESHOLD; i++) {
+      sketch.offer(i % EXACT_THRESHOLD);
+    }
+    Assert.assertTrue(sketch.isExact());
+    Assert.assertEquals(sketch.cardinality(), EXACT_THRESHOLD);
+
+    sketch.offer(EXACT_THRESHOLD);
+    Assert.assertFalse(sketch.isExact());
+    TestUtils.assertApproximation(sketch.cardinality(), EXACT_THRESHOLD + 1, 0.05);
+  }
+
+  @Test
+  public void testMerge() {
+    // Exact sketches with overlapping values stay exact
+    DistinctCountSketch sketch1 = newSketch(0, 400);
+    DistinctCountSketch sketch2 = newSketch(200, 600);
+    sketch1.merge(sketch2);
+    Assert.assertTrue(sketch1.isExact());
+    Assert.assertEquals(sketch1.cardinality(), 600);
+    Assert.assertEquals(sketch2.cardinality(), 400);
+
+    // Exact sketches switch to HyperLogLog once their union exceeds the exact threshold
+    sketch1.merge(newSketch(600, 1200));
+    Assert.assertFalse(sketch1.isExact());
+    TestUtils.assertApproximation(sketch1.cardinality(), 1200, 0.05);
+
+    // Merging a HyperLogLog into an exact sketch, and an exact sketch into a HyperLogLog
+    DistinctCountSketch exactSketch = newSketch(1000, 1500);
+    exactSketch.merge(sketch1);
+    Assert.assertFalse(exactSketch.isExact());
+    TestUtils.assertApproximation(exactSketch.cardinality(), 1500, 0.05);
+    sketch1.merge(newSketch(1200, 2000));
+    TestUtils.assertApproximation(sketch1.cardinality(), 2000, 0.05);
+
+    // Merging HyperLogLogs
+    DistinctCountSketch hllSketch = newSketch(0, 100000);
+    hllSketch.merge(newSketch(50000, 200000));
+    TestUtils.assertApproximation(hllSketch.cardinality(), 200000, 0.05);
+  }
+
+  /**
+   * Returns a sketch with values from start (inclusive) to end (exclusive).
+   */
+  private static DistinctCountSketch newSketch(int start, int end) {
+    DistinctCountSketch sketch = new DistinctCountSketch(EXACT_THRESHOLD, DistinctCountSketch.DEFAULT_LOG2M);
+    for (int i = start; i < end; i++) {
+      sketch.offer(i);
+    }
+    return sketch;
+  }
+}
@@ -16,7 +16,6 @@
 package com.linkedin.pinot.query.aggregation;
 
 import static org.testng.Assert.assertEquals;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -39,6 +38,7 @@ import com.linkedin.pinot.core.query.aggregation.function.MinAggregationFunction
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction.MinMaxRangePair;
 import com.linkedin.pinot.core.query.aggregation.function.SumAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
 
 public class SimpleAggregationFunctionsTest {
 
@@ -209,14 +209,14 @@ public class SimpleAggregationFunctionsTest {
 
     // Test combine
     for (int i = 1; i <= _sizeOfCombineList; ++i) {
-      List<Serializable> aggregationResults = getIntOpenHashSets(i);
+      List<Serializable> aggregationResults = getDistinctCountSketches(i);
       List<Serializable> combinedResult = aggregationFunction.combine(aggregationResults, CombineLevel.SEGMENT);
-      assertEquals(((IntOpenHashSet) (combinedResult.get(0))).size(), i);
+      assertEquals(((DistinctCountSketch) (combinedResult.get(0))).cardinality(), i);
     }
 
     // Test reduce
     for (int i = 1; i <= _sizeOfCombineList; ++i) {
-      List<Serializable> combinedResults = getIntOpenHashSets(i);
+      List<Serializable> combinedResults = getDistinctCountSketches(i);
       int reduceSize = (Integer) aggregationFunction.reduce(combinedResults);
       assertEquals(reduceSize, i);
     }
@@ -256,13 +256,13 @@ public class SimpleAggregationFunctionsTest {
     return minMaxRangePairList;
   }
 
-  private static List<Serializable> getIntOpenHashSets(int numberOfElements) {
-    List<Serializable> intOpenHashSets = new ArrayList<Serializable>();
+  private static List<Serializable> getDistinctCountSketches(int numberOfElements) {
+    List<Serializable> sketches = new ArrayList<Serializable>();
     for (int i = 0; i < numberOfElements; ++i) {
-      IntOpenHashSet intOpenHashSet = new IntOpenHashSet();
-      intOpenHashSet.add(i);
-      intOpenHashSets.add(intOpenHashSet);
+      DistinctCountSketch sketch = new DistinctCountSketch();
+      sketch.offer(i);
+      sketches.add(sketch);
     }
-    return intOpenHashSets;
+    return sketches;
   }
 }
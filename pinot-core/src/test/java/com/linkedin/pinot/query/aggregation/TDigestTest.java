@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentiletdigest50;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentiletdigest90;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentiletdigest95;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentiletdigest99;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest.TDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link TDigest} and the 'percentiletdigest' aggregation functions.
+ */
+public class TDigestTest {
+  private static final int NUM_DIGESTS = 20;
+  private static final int NUM_VALUES_PER_DIGEST = 50000;
+  // Maximum error allowed on the rank of the estimated value.
+  private static final double MAX_RANK_ERROR = 0.01;
+
+  private static AggregationInfo _paramsInfo;
+  private long _randomSeed;
+  private double[] _sortedValues;
+  private List<TDigest> _digests;
+
+  @BeforeClass
+  public void setup() {
+    Map<String, String> params = new HashMap<>();
+    params.put("column", "met");
+    _paramsInfo = new AggregationInfo();
+    _paramsInfo.setAggregationType("");
+    _paramsInfo.setAggregationParams(params);
+
+    _randomSeed = System.currentTimeMillis();
+    Random random = new Random(_randomSeed);
+
+    _sortedValues = new double[NUM_DIGESTS * NUM_VALUES_PER_DIGEST];
+    _digests = new ArrayList<>(NUM_DIGESTS);
+    int index = 0;
+    for (int i = 0; i < NUM_DIGESTS; i++) {
+      TDigest digest = new TDigest();
+      for (int j = 0; j < NUM_VALUES_PER_DIGEST; j++) {
+        // Skewed distribution to exercise the tails.
+        double value = Math.exp(random.nextGaussian());
+        digest.add(value);
+        _sortedValues[index++] = value;
+      }
+      _digests.add(digest);
+    }
+    Arrays.sort(_sortedValues);
+  }
+
+  @Test
+  public void testQuantiles() {
+    TDigest merged = TDigest.merge(_digests);
+    Assert.assertEquals(merged.getCount(), (double) _sortedValues.length);
+    Assert.assertEquals(merged.getQuantile(0), _sortedValues[0]);
+    Assert.assertEquals(merged.getQuantile(1), _sortedValues[_sortedValues.length - 1]);
+
+    for (double quantile : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999}) {
+      assertRankError(merged.getQuantile(quantile), quantile);
+    }
+  }
+
+  @Test
+  public void testBoundedSize() {
+    TDigest digest = new TDigest();
+    Random random = new Random(_randomSeed);
+    for (int i = 0; i < 1000000; i++) {
+      digest.add(random.nextDouble());
+    }
+    Assert.assertTrue(digest.getNumCentroids() <= TDigest.DEFAULT_COMPRESSION, "Random seed: " + _randomSeed);
+  }
+
+  @Test
+  public void testAggregationFunction() {
+    AggregationFunction[] functions =
+        new AggregationFunction[]{new Percentiletdigest50(), new Percentiletdigest90(), new Percentiletdigest95(),
+            new Percentiletdigest99()};
+    double[] quantiles = new double[]{0.5, 0.9, 0.95, 0.99};
+
+    for (int i = 0; i < functions.length; i++) {
+      AggregationFunction function = functions[i];
+      function.init(_paramsInfo);
+
+      // Combine half the digests at segment level, and reduce the combined result along with the rest.
+      List<TDigest> segmentResults = new ArrayList<>();
+      List<TDigest> serverResults = new ArrayList<>();
+      for (int j = 0; j < NUM_DIGESTS; j++) {
+        TDigest copy = TDigest.merge(_digests.subList(j, j + 1));
+        if (j % 2 == 0) {
+          segmentResults.add(copy);
+        } else {
+          serverResults.add(copy);
+        }
+      }
+      List<TDigest> combined = function.combine(segmentResults, CombineLevel.SEGMENT);
+      Assert.assertEquals(combined.size(), 1);
+      serverResults.add(combined.get(0));
+
+      double estimate = (Double) function.reduce(serverResults);
+      assertRankError(estimate, quantiles[i]);
+    }
+  }
+
+  private void assertRankError(double estimate, double quantile) {
+    int rank = Arrays.binarySearch(_sortedValues, estimate);
+    if (rank < 0) {
+      rank = -rank - 1;
+    }
+    double actualQuantile = (double) rank / _sortedValues.length;
+    Assert.assertEquals(actualQuantile, quantile, MAX_RANK_ERROR,
+        "Quantile: " + quantile + ", estimate: " + estimate + ", random seed: " + _randomSeed);
+  }
+}
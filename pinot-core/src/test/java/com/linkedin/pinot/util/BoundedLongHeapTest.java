@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.util;
+
+import com.linkedin.pinot.core.util.BoundedLongHeap;
+import java.util.Arrays;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link BoundedLongHeap} class
+ */
+public class BoundedLongHeapTest {
+  private static final int NUM_ELEMENTS = 1000;
+  private static final long RANDOM_SEED = System.nanoTime();
+
+  /**
+   * Test that the largest elements are selected, from the largest to the smallest.
+   */
+  @Test
+  public void testLargest() {
+    long[] elements = randomElements();
+    BoundedLongHeap heap = new BoundedLongHeap(10) {
+      @Override
+      protected int compare(long element1, long element2) {
+        return Long.compare(element1, element2);
+      }
+    };
+    for (long element : elements) {
+      heap.offer(element);
+    }
+    Assert.assertEquals(heap.size(), 10);
+
+    Arrays.sort(elements);
+    long[] topElements = heap.drainSorted();
+    Assert.assertEquals(heap.size(), 0);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(topElements[i], elements[NUM_ELEMENTS - 1 - i], "Random seed: " + RANDOM_SEED);
+    }
+  }
+
+  /**
+   * Test that the smallest elements are selected with a reversed comparison.
+   */
+  @Test
+  public void testSmallest() {
+    long[] elements = randomElements();
+    BoundedLongHeap heap = new BoundedLongHeap(10) {
+      @Override
+      protected int compare(long element1, long element2) {
+        return Long.compare(element2, element1);
+      }
+    };
+    for (long element : elements) {
+      heap.offer(element);
+    }
+
+    Arrays.sort(elements);
+    long[] topElements = heap.drainSorted();
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(topElements[i], elements[i], "Random seed: " + RANDOM_SEED);
+    }
+  }
+
+  /**
+   * Test a heap that is not full, and a heap with max size 0.
+   */
+  @Test
+  public void testPartial() {
+    BoundedLongHeap heap = new BoundedLongHeap(10) {
+      @Override
+      protected int compare(long element1, long element2) {
+        return Long.compare(element1, element2);
+      }
+    };
+    heap.offer(3L);
+    heap.offer(1L);
+    heap.offer(2L);
+    Assert.assertTrue(Arrays.equals(heap.drainSorted(), new long[]{3L, 2L, 1L}));
+
+    BoundedLongHeap emptyHeap = new BoundedLongHeap(0) {
+      @Override
+      protected int compare(long element1, long element2) {
+        return Long.compare(element1, element2);
+      }
+    };
+    emptyHeap.offer(1L);
+    Assert.assertEquals(emptyHeap.size(), 0);
+    Assert.assertEquals(emptyHeap.drainSorted().length, 0);
+  }
+
+  private static long[] randomElements() {
+    Random random = new Random(RANDOM_SEED);
+    long[] elements = new long[NUM_ELEMENTS];
+    for (int i = 0; i < NUM_ELEMENTS; i++) {
+      elements[i] = random.nextLong();
+    }
+    return elements;
+  }
+}
@@ -20,6 +20,8 @@ import com.linkedin.pinot.common.utils.DataTableSerDeRegistry;
 import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.distinctcount.DistinctCountSketch;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.tdigest.TDigest;
 import com.linkedin.pinot.core.util.DataTableCustomSerDe;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntIterator;
@@ -186,4 +188,56 @@ public class DataTableCustomSerDeTest {
       }
     }
   }
+
+  /**
+   * Test for ser/de of DistinctCountSketch, in both exact and HyperLogLog modes.
+   */
+  @Test
+  public void testDistinctCountSketch() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int size = random.nextInt(200);
+
+      DistinctCountSketch expected = new DistinctCountSketch(100, 10);
+      for (int j = 0; j < size; j++) {
+        expected.offer(random.nextInt());
+      }
+
+      byte[] bytes = serde.serialize(expected);
+      DistinctCountSketch actual = serde.deserialize(bytes, DataTableSerDe.DataType.DistinctCountSketch);
+
+      Assert.assertEquals(actual.isExact(), expected.isExact(), "Random seed: " + randomSeed);
+      Assert.assertEquals(actual.cardinality(), expected.cardinality(), "Random seed: " + randomSeed);
+
+      // Merging the de-serialized sketch into an empty one gives the same distinct count
+      DistinctCountSketch merged = new DistinctCountSketch(100, 10);
+      merged.merge(actual);
+      Assert.assertEquals(merged.cardinality(), expected.cardinality(), "Random seed: " + randomSeed);
+    }
+  }
+
+  /**
+   * Test for ser/de of TDigest
+   */
+  @Test
+  public void testTDigest() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      TDigest expected = new TDigest();
+
+      int size = random.nextInt(10000);
+      for (int j = 0; j < size; j++) {
+        expected.add(random.nextDouble());
+      }
+
+      byte[] bytes = serde.serialize(expected);
+      TDigest actual = serde.deserialize(bytes, DataTableSerDe.DataType.TDigest);
+
+      Assert.assertEquals(actual.getCount(), expected.getCount(), "Random seed: " + randomSeed);
+      Assert.assertEquals(actual.getNumCentroids(), expected.getNumCentroids(), "Random seed: " + randomSeed);
+      for (int percentile = 0; percentile <= 100; percentile += 10) {
+        double quantile = percentile / 100.0;
+        Assert.assertEquals(actual.getQuantile(quantile), expected.getQuantile(quantile),
+            "Random seed: " + randomSeed);
+      }
+    }
+  }
 }
@@ -23,6 +23,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.restlet.resource.ResourceException;
 import com.linkedin.pinot.common.utils.MmapUtils;
+import com.linkedin.pinot.core.segment.memory.MmapBudgetManager;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
@@ -70,4 +71,37 @@ public class MmapDebugResource {
     allocationMap.put("allocations", allocations);
     return allocationMap;
   }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class MmapBudgetInfo {
+    public boolean enabled;
+    public long budgetBytes;
+    public long mappedBytes;
+    public long pendingUnmapBytes;
+    public int numRegions;
+    public long numEvictions;
+    public long numRemaps;
+  }
+
+  @GET
+  @Path("memory/mmapBudget")
+  @ApiOperation(value = "View the mmap budget usage",
+      notes = "Shows the bytes mapped under the mmap budget and the number of buffers unmapped and re-mapped")
+  @ApiResponses(value = {@ApiResponse(code=200, message = "Success")})
+  @Produces(MediaType.APPLICATION_JSON)
+  public MmapBudgetInfo getMmapBudget()
+      throws ResourceException {
+    MmapBudgetInfo info = new MmapBudgetInfo();
+    MmapBudgetManager mmapBudgetManager = MmapBudgetManager.getInstance();
+    if (mmapBudgetManager != null) {
+      info.enabled = true;
+      info.budgetBytes = mmapBudgetManager.getBudgetBytes();
+      info.mappedBytes = mmapBudgetManager.getMappedBytes();
+      info.pendingUnmapBytes = mmapBudgetManager.getPendingUnmapBytes();
+      info.numRegions = mmapBudgetManager.getNumRegions();
+      info.numEvictions = mmapBudgetManager.getNumEvictions();
+      info.numRemaps = mmapBudgetManager.getNumRemaps();
+    }
+    return info;
+  }
 }
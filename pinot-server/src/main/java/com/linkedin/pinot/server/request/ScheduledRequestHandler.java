@@ -16,6 +16,7 @@
 
 package com.linkedin.pinot.server.request;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -28,12 +29,15 @@ import com.linkedin.pinot.common.query.context.TimerContext;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
 import com.linkedin.pinot.serde.SerDe;
 import com.linkedin.pinot.transport.netty.NettyServer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Nullable;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.slf4j.Logger;
@@ -45,6 +49,8 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
 
   private final ServerMetrics serverMetrics;
   private final QueryScheduler queryScheduler;
+  // Queries submitted to the scheduler and not completed yet, keyed by broker id, request id and table name
+  private final ConcurrentMap<String, QueryRequest> inFlightQueries = new ConcurrentHashMap<>();
 
   public ScheduledRequestHandler(QueryScheduler queryScheduler, ServerMetrics serverMetrics) {
     this.queryScheduler = queryScheduler;
@@ -80,8 +86,15 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
         timerContext.startNewPhaseTimerAtNs(ServerQueryPhase.REQUEST_DESERIALIZATION, queryStartTime);
     deserializationTimer.stopAndRecord();
 
+    final String queryKey = getQueryKey(instanceRequest);
+    if (instanceRequest.isCancelQuery()) {
+      cancelQuery(queryKey);
+      return Futures.immediateFuture(new byte[0]);
+    }
+
     LOGGER.debug("Processing requestId:{},request={}", instanceRequest.getRequestId(), instanceRequest);
 
+    inFlightQueries.put(queryKey, queryRequest);
     ListenableFuture<DataTable> queryTask = queryScheduler.submit(queryRequest);
 
     // following future will provide default response in case of uncaught
@@ -104,6 +117,7 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
       @Nullable
       @Override
       public byte[] apply(@Nullable DataTable instanceResponse) {
+        inFlightQueries.remove(queryKey, queryRequest);
         return serializeDataTable(queryRequest, instanceResponse);
       }
     });
@@ -111,6 +125,38 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
     return serializedQueryResponse;
   }
 
+  /**
+   * Returns the key of the query in the in-flight queries. The OFFLINE and REALTIME sub-requests of a query on a hybrid
+   * table share the same request id, so the table name is part of the key.
+   */
+  private static String getQueryKey(InstanceRequest instanceRequest) {
+    String key = instanceRequest.getBrokerId() + "_" + instanceRequest.getRequestId();
+    BrokerRequest brokerRequest = instanceRequest.getQuery();
+    if (brokerRequest != null && brokerRequest.getQuerySource() != null) {
+      key += "_" + brokerRequest.getQuerySource().getTableName();
+    }
+    return key;
+  }
+
+  @VisibleForTesting
+  int getNumInFlightQueries() {
+    return inFlightQueries.size();
+  }
+
+  /**
+   * Cancels the in-flight query with the given key, so that its operators stop at the next block boundary. The broker
+   * sends the cancel request once it stops waiting for the response, e.g. on timeout.
+   */
+  private void cancelQuery(String queryKey) {
+    QueryRequest queryRequest = inFlightQueries.remove(queryKey);
+    if (queryRequest == null) {
+      LOGGER.debug("No in-flight query to cancel for: {}", queryKey);
+      return;
+    }
+    LOGGER.info("Cancelling query: {}", queryKey);
+    queryRequest.getCancellationToken().cancel();
+  }
+
   static byte[] serializeDataTable(QueryRequest queryRequest, DataTable instanceResponse) {
     byte[] responseByte;
 
@@ -125,6 +171,9 @@ public class ScheduledRequestHandler implements NettyServer.RequestHandler {
       if (instanceResponse == null) {
         LOGGER.warn("Instance response is null for requestId: {}, brokerId: {}", requestId, brokerId);
         responseByte = new byte[0];
+      } else if (instanceRequest != null
+          && RequestUtils.getMaxDataTableVersion(instanceRequest.getQuery()) >= DataTable.Version.V3.getValue()) {
+        responseByte = instanceResponse.toBytes(DataTable.Version.V3);
       } else {
         responseByte = instanceResponse.toBytes();
       }
@@ -86,6 +86,11 @@ public class SimpleRequestHandler implements RequestHandler {
         return Futures.immediateFuture(
             ScheduledRequestHandler.serializeDataTable(queryRequest, instanceResponse));
       }
+      if (instanceRequest.isCancelQuery()) {
+        // Queries are processed synchronously by this handler, so there is nothing left to cancel.
+        LOGGER.debug("Ignoring cancel request for requestId: {}", instanceRequest.getRequestId());
+        return Futures.immediateFuture(new byte[0]);
+      }
       queryRequest = new QueryRequest(instanceRequest, _serverMetrics);
       timerContext = queryRequest.getTimerContext();
       timerContext.setQueryArrivalTimeNs(queryStartTimeNs);
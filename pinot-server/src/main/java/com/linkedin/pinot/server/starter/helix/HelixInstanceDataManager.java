@@ -29,10 +29,13 @@ import com.linkedin.pinot.core.data.manager.offline.InstanceDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManagerProvider;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import com.linkedin.pinot.core.segment.index.loader.SegmentWarmUpper;
+import com.linkedin.pinot.core.segment.memory.MmapBudgetManager;
 import java.io.File;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
@@ -52,10 +55,11 @@ public class HelixInstanceDataManager implements InstanceDataManager {
 
   public static final Logger LOGGER = LoggerFactory.getLogger(HelixInstanceDataManager.class);
   private HelixInstanceDataManagerConfig _instanceDataManagerConfig;
-  private Map<String, TableDataManager> _tableDataManagerMap = new HashMap<String, TableDataManager>();
+  private Map<String, TableDataManager> _tableDataManagerMap = new ConcurrentHashMap<String, TableDataManager>();
   private boolean _isStarted = false;
   private SegmentMetadataLoader _segmentMetadataLoader;
   private final Object _globalLock = new Object();
+  private SegmentResultCache _segmentResultCache = null;
 
   public HelixInstanceDataManager() {
   }
@@ -79,6 +83,9 @@ public class HelixInstanceDataManager implements InstanceDataManager {
       if (!instanceSegmentTarDir.exists()) {
         instanceSegmentTarDir.mkdirs();
       }
+      SegmentWarmUpper.init(_instanceDataManagerConfig.getWarmUpNumThreads(),
+          _instanceDataManagerConfig.getWarmUpMaxBytesPerSecond());
+      MmapBudgetManager.init(_instanceDataManagerConfig.getMmapBudgetBytes());
       try {
         _segmentMetadataLoader = getSegmentMetadataLoader(_instanceDataManagerConfig.getSegmentMetadataLoaderClass());
         LOGGER.info("Loaded SegmentMetadataLoader for class name : "
@@ -120,9 +127,18 @@ public class HelixInstanceDataManager implements InstanceDataManager {
   }
 
   public synchronized void addTableDataManager(String tableName, TableDataManager tableDataManager) {
+    tableDataManager.setSegmentResultCache(_segmentResultCache);
     _tableDataManagerMap.put(tableName, tableDataManager);
   }
 
+  @Override
+  public synchronized void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
+    for (TableDataManager tableDataManager : _tableDataManagerMap.values()) {
+      tableDataManager.setSegmentResultCache(segmentResultCache);
+    }
+  }
+
   @Override
   public @Nonnull Collection<TableDataManager> getTableDataManagers() {
     return _tableDataManagerMap.values();
@@ -148,8 +164,10 @@ public class HelixInstanceDataManager implements InstanceDataManager {
   }
 
   // Called for offline segments only
+  // Not synchronized so that segments can be loaded in parallel by concurrent state transitions, the table data manager
+  // handles concurrent segment additions.
   @Override
-  public synchronized void addSegment(SegmentMetadata segmentMetadata, AbstractTableConfig tableConfig, Schema schema)
+  public void addSegment(SegmentMetadata segmentMetadata, AbstractTableConfig tableConfig, Schema schema)
       throws Exception {
     if (segmentMetadata == null || segmentMetadata.getTableName() == null) {
       throw new RuntimeException("Error: adding invalid SegmentMetadata!");
@@ -166,7 +184,7 @@ public class HelixInstanceDataManager implements InstanceDataManager {
     }
     if (!_tableDataManagerMap.containsKey(tableName)) {
       LOGGER.info("Trying to add TableDataManager for table name: " + tableName);
-      synchronized (_globalLock) {
+      synchronized (this) {
         if (!_tableDataManagerMap.containsKey(tableName)) {
           addTableIfNeed(tableConfig, tableName, null);
         }
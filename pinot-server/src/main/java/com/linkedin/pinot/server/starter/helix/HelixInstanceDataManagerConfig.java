@@ -21,6 +21,7 @@ import org.apache.commons.configuration.ConfigurationException;
 
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.data.manager.config.InstanceDataManagerConfig;
+import com.linkedin.pinot.core.segment.index.loader.SegmentWarmUpper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +53,12 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   public static final String SEGMENT_FORMAT_VERSION = "segment.format.version";
   // Key of whether to enable default columns
   private static final String ENABLE_DEFAULT_COLUMNS = "enable.default.columns";
+  // Key of the number of threads used to warm up segments
+  public static final String WARM_UP_NUM_THREADS = "warm.up.num.threads";
+  // Key of the maximum number of bytes per second read to warm up segments
+  public static final String WARM_UP_MAX_BYTES_PER_SECOND = "warm.up.max.bytes.per.second";
+  // Key of the maximum number of bytes of read-only index buffers kept memory mapped, non-positive to disable
+  public static final String MMAP_BUDGET_BYTES = "mmap.budget.bytes";
 
   private final static String[] REQUIRED_KEYS = { INSTANCE_ID, INSTANCE_DATA_DIR, READ_MODE };
   private Configuration _instanceDataManagerConfiguration = null;
@@ -120,6 +127,19 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _instanceDataManagerConfiguration.getBoolean(ENABLE_DEFAULT_COLUMNS, false);
   }
 
+  public int getWarmUpNumThreads() {
+    return _instanceDataManagerConfiguration.getInt(WARM_UP_NUM_THREADS, SegmentWarmUpper.DEFAULT_NUM_THREADS);
+  }
+
+  public long getWarmUpMaxBytesPerSecond() {
+    return _instanceDataManagerConfiguration.getLong(WARM_UP_MAX_BYTES_PER_SECOND,
+        SegmentWarmUpper.DEFAULT_MAX_BYTES_PER_SECOND);
+  }
+
+  public long getMmapBudgetBytes() {
+    return _instanceDataManagerConfiguration.getLong(MMAP_BUDGET_BYTES, 0L);
+  }
+
   @Override
   public String toString() {
     String configString = "";
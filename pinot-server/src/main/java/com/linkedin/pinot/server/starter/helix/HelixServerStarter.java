@@ -103,7 +103,7 @@ public class HelixServerStarter {
     _helixManager.connect();
     ZkHelixPropertyStore<ZNRecord> zkPropertyStore = ZkUtils.getZkPropertyStore(_helixManager, helixClusterName);
 
-    SegmentFetcherAndLoader fetcherAndLoader = new SegmentFetcherAndLoader(_serverInstance.getInstanceDataManager(),
+    final SegmentFetcherAndLoader fetcherAndLoader = new SegmentFetcherAndLoader(_serverInstance.getInstanceDataManager(),
         new ColumnarSegmentMetadataLoader(), zkPropertyStore, pinotHelixProperties, _instanceId);
 
     // Register state model factory
@@ -135,6 +135,47 @@ public class HelixServerStarter {
               }
             });
 
+    // Create metrics for the progress of the segment loading
+    _serverInstance.getServerMetrics().addCallbackGauge(
+        "segmentLoader.numSegmentsDownloading", new Callable<Long>() {
+              @Override
+              public Long call() throws Exception {
+                return (long) fetcherAndLoader.getNumSegmentsDownloading();
+              }
+            });
+
+    _serverInstance.getServerMetrics().addCallbackGauge(
+        "segmentLoader.numSegmentsUntarring", new Callable<Long>() {
+              @Override
+              public Long call() throws Exception {
+                return (long) fetcherAndLoader.getNumSegmentsUntarring();
+              }
+            });
+
+    _serverInstance.getServerMetrics().addCallbackGauge(
+        "segmentLoader.numSegmentsLoading", new Callable<Long>() {
+              @Override
+              public Long call() throws Exception {
+                return (long) fetcherAndLoader.getNumSegmentsLoading();
+              }
+            });
+
+    _serverInstance.getServerMetrics().addCallbackGauge(
+        "segmentLoader.numSegmentsLoaded", new Callable<Long>() {
+              @Override
+              public Long call() throws Exception {
+                return fetcherAndLoader.getNumSegmentsLoaded();
+              }
+            });
+
+    _serverInstance.getServerMetrics().addCallbackGauge(
+        "segmentLoader.numSegmentsFailed", new Callable<Long>() {
+              @Override
+              public Long call() throws Exception {
+                return fetcherAndLoader.getNumSegmentsFailed();
+              }
+            });
+
     _helixManager.addPreConnectCallback(new PreConnectCallback() {
           @Override
           public void onPreConnect() {
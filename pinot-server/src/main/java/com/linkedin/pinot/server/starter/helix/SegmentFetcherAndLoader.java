@@ -19,7 +19,12 @@ import com.linkedin.pinot.common.utils.SchemaUtils;
 import com.linkedin.pinot.core.segment.index.loader.V3RemoveIndexException;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FileUtils;
 import org.apache.helix.ZNRecord;
@@ -34,11 +39,14 @@ import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadataLoader;
+import com.linkedin.pinot.common.segment.fetcher.SegmentFetcher;
 import com.linkedin.pinot.common.segment.fetcher.SegmentFetcherFactory;
+import com.linkedin.pinot.common.segment.fetcher.StreamingSegmentFetcher;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.common.utils.helix.PinotHelixPropertyStoreZnRecordProvider;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.util.CrcUtils;
 
 public class SegmentFetcherAndLoader {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentFetcherAndLoader.class);
@@ -51,6 +59,20 @@ public class SegmentFetcherAndLoader {
   private final int _segmentLoadMaxRetryCount;
   private final long _segmentLoadMinRetryDelayMs; // Min delay (in msecs) between retries
 
+  // State transitions are processed in parallel by the Helix message handling threads. These semaphores bound the number
+  // of segments concurrently in each phase, so that the network, the disk and the CPU are each kept busy without being
+  // oversubscribed.
+  private final Semaphore _downloadSemaphore;
+  private final Semaphore _untarSemaphore;
+  private final Semaphore _loadSemaphore;
+
+  // Progress of the segment loading, exposed as server gauges
+  private final AtomicInteger _numSegmentsDownloading = new AtomicInteger();
+  private final AtomicInteger _numSegmentsUntarring = new AtomicInteger();
+  private final AtomicInteger _numSegmentsLoading = new AtomicInteger();
+  private final AtomicLong _numSegmentsLoaded = new AtomicLong();
+  private final AtomicLong _numSegmentsFailed = new AtomicLong();
+
   public SegmentFetcherAndLoader(DataManager dataManager, SegmentMetadataLoader metadataLoader,
       ZkHelixPropertyStore<ZNRecord> propertyStore, Configuration pinotHelixProperties,
       String instanceId) {
@@ -78,9 +100,32 @@ public class SegmentFetcherAndLoader {
     }
     _segmentLoadMinRetryDelayMs = minRetryDelayMillis;
 
+    _downloadSemaphore = new Semaphore(getParallelism(pinotHelixProperties,
+        CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_PARALLELISM,
+        Integer.parseInt(CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_PARALLELISM)));
+    _untarSemaphore = new Semaphore(getParallelism(pinotHelixProperties,
+        CommonConstants.Server.CONFIG_OF_SEGMENT_UNTAR_PARALLELISM,
+        Integer.parseInt(CommonConstants.Server.DEFAULT_SEGMENT_UNTAR_PARALLELISM)));
+    _loadSemaphore = new Semaphore(getParallelism(pinotHelixProperties,
+        CommonConstants.Server.CONFIG_OF_SEGMENT_LOAD_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+
     SegmentFetcherFactory.initSegmentFetcherFactory(pinotHelixProperties);
   }
 
+  private static int getParallelism(Configuration pinotHelixProperties, String key, int defaultValue) {
+    int parallelism = defaultValue;
+    try {
+      parallelism = pinotHelixProperties.getInt(key, defaultValue);
+    } catch (Exception e) {
+      // Keep the default value
+    }
+    if (parallelism <= 0) {
+      LOGGER.warn("Invalid value {} for {}, using default value {}", parallelism, key, defaultValue);
+      parallelism = defaultValue;
+    }
+    return parallelism;
+  }
+
   public void addOrReplaceOfflineSegment(String tableName, String segmentId, boolean retryOnFailure) {
     OfflineSegmentZKMetadata offlineSegmentZKMetadata =
         ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, tableName, segmentId);
@@ -121,7 +166,7 @@ public class SegmentFetcherAndLoader {
               LOGGER.info("Segment metadata same as before, loading {} of table {} (crc {}) from disk", segmentId,
                   tableName, localSegmentMetadata.getCrc());
               AbstractTableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
-              _dataManager.addSegment(localSegmentMetadata, tableConfig, schema);
+              loadSegment(localSegmentMetadata, tableConfig, schema);
               // TODO Update zk metadata with CRC for this instance
               return;
             }
@@ -165,10 +210,11 @@ public class SegmentFetcherAndLoader {
           try {
             AbstractTableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
             final String uri = offlineSegmentZKMetadata.getDownloadUrl();
-            final String localSegmentDir = downloadSegmentToLocal(uri, tableName, segmentId);
+            final String localSegmentDir = downloadSegmentToLocal(uri, tableName, segmentId,
+                offlineSegmentZKMetadata.getCrc());
             final SegmentMetadata segmentMetadata =
                 _metadataLoader.loadIndexSegmentMetadataFromDir(localSegmentDir);
-            _dataManager.addSegment(segmentMetadata, tableConfig, schema);
+            loadSegment(segmentMetadata, tableConfig, schema);
             LOGGER.info("Downloaded segment {} of table {} crc {} from controller", segmentId, tableName, segmentMetadata.getCrc());
 
             // Successfully loaded the segment, break out of the retry loop
@@ -210,12 +256,26 @@ public class SegmentFetcherAndLoader {
         LOGGER.info("Got already loaded segment {} of table {} crc {} again, will do nothing.", segmentId, tableName, localSegmentMetadata.getCrc());
       }
     } catch (final Exception e) {
+      _numSegmentsFailed.incrementAndGet();
       LOGGER.error("Cannot load segment : " + segmentId + " for table " + tableName, e);
       Utils.rethrowException(e);
       throw new AssertionError("Should not reach this");
     }
   }
 
+  private void loadSegment(SegmentMetadata segmentMetadata, AbstractTableConfig tableConfig, Schema schema)
+      throws Exception {
+    _loadSemaphore.acquire();
+    _numSegmentsLoading.incrementAndGet();
+    try {
+      _dataManager.addSegment(segmentMetadata, tableConfig, schema);
+    } finally {
+      _numSegmentsLoading.decrementAndGet();
+      _loadSemaphore.release();
+    }
+    _numSegmentsLoaded.incrementAndGet();
+  }
+
   private Schema getSchema(String schemaName)
       throws IOException {
     PinotHelixPropertyStoreZnRecordProvider propertyStoreHelper =
@@ -245,32 +305,71 @@ public class SegmentFetcherAndLoader {
     return true;
   }
 
-  private String downloadSegmentToLocal(String uri, String tableName, String segmentId)
+  private String downloadSegmentToLocal(String uri, String tableName, String segmentId, long expectedCrc)
       throws Exception {
     File tempSegmentFile = null;
     File tempFile = null;
     try {
       tempSegmentFile = new File(_dataManager.getSegmentFileDirectory() + "/"
           + tableName + "/temp_" + segmentId + "_" + System.currentTimeMillis());
-      tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
-      SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri).fetchSegmentToLocal(uri, tempFile);
-      LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri, tempFile,
-          tempFile.length(), segmentId, tableName);
-      LOGGER.info("Trying to uncompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile, tableName);
+      SegmentFetcher segmentFetcher = SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri);
+      if (segmentFetcher instanceof StreamingSegmentFetcher) {
+        // Untar the segment while it is being downloaded instead of writing the tar file to disk first, and verify the
+        // segment CRC from the checksums computed while the files are written
+        LOGGER.info("Trying to download and uncompress segment from {} to {} for table {}", uri, tempSegmentFile,
+            tableName);
+        Map<File, Long> fileChecksums = new HashMap<>();
+        _downloadSemaphore.acquire();
+        _numSegmentsDownloading.incrementAndGet();
+        try {
+          ((StreamingSegmentFetcher) segmentFetcher).fetchAndUntarSegmentToLocal(uri, tempSegmentFile, fileChecksums);
+        } finally {
+          _numSegmentsDownloading.decrementAndGet();
+          _downloadSemaphore.release();
+        }
+        verifyCrc(tempSegmentFile.listFiles()[0], fileChecksums, expectedCrc, segmentId, tableName);
+      } else {
+        tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
+        _downloadSemaphore.acquire();
+        _numSegmentsDownloading.incrementAndGet();
+        try {
+          segmentFetcher.fetchSegmentToLocal(uri, tempFile);
+        } finally {
+          _numSegmentsDownloading.decrementAndGet();
+          _downloadSemaphore.release();
+        }
+        LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri,
+            tempFile, tempFile.length(), segmentId, tableName);
+        LOGGER.info("Trying to uncompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile,
+            tableName);
+
+        _untarSemaphore.acquire();
+        _numSegmentsUntarring.incrementAndGet();
+        try {
+          TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
+          FileUtils.deleteQuietly(tempFile);
+        } finally {
+          _numSegmentsUntarring.decrementAndGet();
+          _untarSemaphore.release();
+        }
+      }
 
-      TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
-      FileUtils.deleteQuietly(tempFile);
       final File segmentDir = new File(new File(_dataManager.getSegmentDataDirectory(), tableName), segmentId);
-      Thread.sleep(1000);
-      if (segmentDir.exists()) {
-        LOGGER.info("Deleting the directory {} and recreating it again table {} ", segmentDir.getAbsolutePath(), tableName);
-        FileUtils.deleteDirectory(segmentDir);
+      _untarSemaphore.acquire();
+      _numSegmentsUntarring.incrementAndGet();
+      try {
+        if (segmentDir.exists()) {
+          LOGGER.info("Deleting the directory {} and recreating it again table {} ", segmentDir.getAbsolutePath(), tableName);
+          FileUtils.deleteDirectory(segmentDir);
+        }
+        LOGGER.info("Move the dir - " + tempSegmentFile.listFiles()[0] + " to "
+            + segmentDir.getAbsolutePath() + " for " + segmentId + " of table " + tableName);
+        FileUtils.moveDirectory(tempSegmentFile.listFiles()[0], segmentDir);
+        FileUtils.deleteDirectory(tempSegmentFile);
+      } finally {
+        _numSegmentsUntarring.decrementAndGet();
+        _untarSemaphore.release();
       }
-      LOGGER.info("Move the dir - " + tempSegmentFile.listFiles()[0] + " to "
-          + segmentDir.getAbsolutePath() + " for " + segmentId + " of table " + tableName);
-      FileUtils.moveDirectory(tempSegmentFile.listFiles()[0], segmentDir);
-      FileUtils.deleteDirectory(tempSegmentFile);
-      Thread.sleep(1000);
       LOGGER.info("Was able to succesfully rename the dir to match the segment {} for table {}", segmentId, tableName);
 
       new File(segmentDir, "finishedLoading").createNewFile();
@@ -284,7 +383,50 @@ public class SegmentFetcherAndLoader {
     }
   }
 
+  /**
+   * Verifies the CRC of the untarred segment against the one in the segment ZK metadata, using the checksums of the
+   * segment files computed while they were untarred.
+   */
+  private static void verifyCrc(File indexDir, Map<File, Long> fileChecksums, long expectedCrc, String segmentId,
+      String tableName) {
+    if (expectedCrc < 0) {
+      LOGGER.info("No CRC in ZK metadata for segment {} of table {}, skipping CRC verification", segmentId, tableName);
+      return;
+    }
+    Long crc = CrcUtils.forAllFilesInFolder(indexDir).computeCrc(fileChecksums);
+    if (crc == null) {
+      LOGGER.info("Cannot compute CRC of segment {} of table {} from its untarred files, skipping CRC verification",
+          segmentId, tableName);
+      return;
+    }
+    if (crc != expectedCrc) {
+      throw new RuntimeException("CRC mismatch for segment " + segmentId + " of table " + tableName + ": expected "
+          + expectedCrc + ", got " + crc);
+    }
+    LOGGER.info("Verified CRC {} of segment {} of table {}", crc, segmentId, tableName);
+  }
+
   public String getSegmentLocalDirectory(String tableName, String segmentId) {
     return _dataManager.getSegmentDataDirectory() + "/" + tableName + "/" + segmentId;
   }
+
+  public int getNumSegmentsDownloading() {
+    return _numSegmentsDownloading.get();
+  }
+
+  public int getNumSegmentsUntarring() {
+    return _numSegmentsUntarring.get();
+  }
+
+  public int getNumSegmentsLoading() {
+    return _numSegmentsLoading.get();
+  }
+
+  public long getNumSegmentsLoaded() {
+    return _numSegmentsLoaded.get();
+  }
+
+  public long getNumSegmentsFailed() {
+    return _numSegmentsFailed.get();
+  }
 }
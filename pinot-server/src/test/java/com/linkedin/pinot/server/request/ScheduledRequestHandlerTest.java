@@ -17,12 +17,14 @@
 package com.linkedin.pinot.server.request;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.query.QueryRequest;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.request.QuerySource;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.common.utils.DataTableBuilder;
 import com.linkedin.pinot.core.query.scheduler.QueryScheduler;
@@ -33,6 +35,8 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import java.net.InetSocketAddress;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -179,4 +183,59 @@ public class ScheduledRequestHandlerTest {
     Assert.assertEquals(responseDT.getInt(1, 1), 100);
   }
 
+  @Test
+  public void testCancelSubRequestsSharingRequestId()
+      throws Exception {
+    // Queries are kept in flight until their futures are completed.
+    final Map<String, QueryRequest> queryRequests = new HashMap<>();
+    final Map<String, SettableFuture<DataTable>> queryFutures = new HashMap<>();
+    ScheduledRequestHandler handler = new ScheduledRequestHandler(new QueryScheduler(null) {
+      @Override
+      public ListenableFuture<DataTable> submit(QueryRequest queryRequest) {
+        String tableName = queryRequest.getInstanceRequest().getQuery().getQuerySource().getTableName();
+        SettableFuture<DataTable> queryFuture = SettableFuture.create();
+        queryRequests.put(tableName, queryRequest);
+        queryFutures.put(tableName, queryFuture);
+        return queryFuture;
+      }
+    }, serverMetrics);
+
+    // OFFLINE and REALTIME sub-requests of a hybrid table query share the broker id and request id.
+    ListenableFuture<byte[]> offlineResponse = handler.processRequest(channelHandlerContext,
+        getSerializedInstanceRequest(getInstanceRequest("myTable_OFFLINE", false)));
+    ListenableFuture<byte[]> realtimeResponse = handler.processRequest(channelHandlerContext,
+        getSerializedInstanceRequest(getInstanceRequest("myTable_REALTIME", false)));
+    Assert.assertEquals(handler.getNumInFlightQueries(), 2);
+
+    // Cancelling one sub-request must not cancel the other one.
+    ListenableFuture<byte[]> cancelResponse = handler.processRequest(channelHandlerContext,
+        getSerializedInstanceRequest(getInstanceRequest("myTable_OFFLINE", true)));
+    Assert.assertTrue(cancelResponse.isDone());
+    Assert.assertTrue(queryRequests.get("myTable_OFFLINE").getCancellationToken().isCancelled());
+    Assert.assertFalse(queryRequests.get("myTable_REALTIME").getCancellationToken().isCancelled());
+    Assert.assertEquals(handler.getNumInFlightQueries(), 1);
+
+    // Completed queries are cleaned up.
+    queryFutures.get("myTable_OFFLINE").set(new DataTable());
+    queryFutures.get("myTable_REALTIME").set(new DataTable());
+    offlineResponse.get(2, TimeUnit.SECONDS);
+    realtimeResponse.get(2, TimeUnit.SECONDS);
+    Assert.assertEquals(handler.getNumInFlightQueries(), 0);
+
+    // Cancelling a completed query is a no-op.
+    handler.processRequest(channelHandlerContext,
+        getSerializedInstanceRequest(getInstanceRequest("myTable_REALTIME", true)));
+    Assert.assertFalse(queryRequests.get("myTable_REALTIME").getCancellationToken().isCancelled());
+  }
+
+  private InstanceRequest getInstanceRequest(String tableName, boolean cancelQuery) {
+    InstanceRequest request = getInstanceRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(tableName);
+    request.getQuery().setQuerySource(querySource);
+    if (cancelQuery) {
+      request.setCancelQuery(true);
+    }
+    return request;
+  }
 }
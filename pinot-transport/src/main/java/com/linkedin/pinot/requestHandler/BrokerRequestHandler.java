@@ -36,6 +36,7 @@ import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.pql.parsers.Pql2Compiler;
 import com.linkedin.pinot.routing.RoutingTable;
 import com.linkedin.pinot.routing.RoutingTableLookupRequest;
@@ -94,6 +95,7 @@ public class BrokerRequestHandler {
   private final long _brokerTimeOutMs;
   private final BrokerRequestOptimizer _optimizer;
   private final int _queryResponseLimit;
+  private final DataTable.Version _maxDataTableVersion;
   private AtomicLong _requestIdGenerator;
   private Configuration _config;
   private final String _brokerId;
@@ -115,6 +117,8 @@ public class BrokerRequestHandler {
   public  static final long DEFAULT_BROKER_TIME_OUT_MS = 10 * 1000L;
   private static final String BROKER_TIME_OUT_CONFIG = "pinot.broker.timeoutMs";
   public static final String BROKER_ID_CONFIG_KEY = "pinot.broker.id";
+  // Highest data table version servers may use for their responses, set to 2 to keep the previous wire format
+  private static final String BROKER_MAX_DATA_TABLE_VERSION_CONFIG = "pinot.broker.maxDataTableVersion";
 
   public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
       ScatterGather scatterGatherer, ReduceServiceRegistry reduceServiceRegistry, BrokerMetrics brokerMetrics,
@@ -131,9 +135,12 @@ public class BrokerRequestHandler {
     _queryResponseLimit = _config.getInt(BROKER_QUERY_RESPONSE_LIMIT_CONFIG, DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
     _brokerTimeOutMs = _config.getLong(BROKER_TIME_OUT_CONFIG, DEFAULT_BROKER_TIME_OUT_MS);
     _brokerId = _config.getString(BROKER_ID_CONFIG_KEY, DEFAULT_BROKER_ID);
+    _maxDataTableVersion = DataTable.Version.valueOf(
+        _config.getInt(BROKER_MAX_DATA_TABLE_VERSION_CONFIG, DataTable.Version.V3.getValue()));
     LOGGER.info("Broker response limit is: " + _queryResponseLimit);
     LOGGER.info("Broker timeout is - " + _brokerTimeOutMs + " ms");
     LOGGER.info("Broker id: " + _brokerId);
+    LOGGER.info("Broker max data table version: " + _maxDataTableVersion);
   }
 
   public BrokerResponse handleRequest(JSONObject request) throws Exception {
@@ -273,6 +280,11 @@ public class BrokerRequestHandler {
       return new BrokerResponseNative();
     }
 
+    // Servers not aware of the option respond with the data table version they are configured with
+    if (_maxDataTableVersion.getValue() >= DataTable.Version.V3.getValue()) {
+      RequestUtils.setMaxDataTableVersion(request, _maxDataTableVersion);
+    }
+
     List<String> matchedTables = getMatchedTables(request);
     ReduceService<? extends BrokerResponse> reduceService = _reduceServiceRegistry.get(responseType);
 
@@ -438,6 +450,8 @@ public class BrokerRequestHandler {
       final long scatterGatherTime = System.nanoTime() - scatterGatherStartTime;
       _brokerMetrics.addPhaseTiming(request, BrokerQueryPhase.SCATTER_GATHER, scatterGatherTime);
 
+      cancelUnfinishedRequests(request, segmentServices, response, responses, requestId);
+
       final long deserializationStartTime = System.nanoTime();
 
       Map<ServerInstance, Throwable> errors = response.getError();
@@ -497,6 +511,8 @@ public class BrokerRequestHandler {
     long queryRoutingTime = 0;
     Map<BrokerRequest, Pair<CompositeFuture<ServerInstance, ByteBuf>, ScatterGatherStats>> responseFuturesList =
         new HashMap<BrokerRequest, Pair<CompositeFuture<ServerInstance, ByteBuf>, ScatterGatherStats>>();
+    Map<BrokerRequest, Map<ServerInstance, SegmentIdSet>> segmentServicesMap =
+        new HashMap<BrokerRequest, Map<ServerInstance, SegmentIdSet>>();
     for (BrokerRequest request : requests) {
       final long routingStartTime = System.nanoTime();
       RoutingTableLookupRequest rtRequest = new RoutingTableLookupRequest(request.getQuerySource().getTableName(),
@@ -522,6 +538,7 @@ public class BrokerRequestHandler {
               overriddenSelection, requestId, _brokerTimeOutMs, _brokerId);
       responseFuturesList.put(request,
           Pair.of(_scatterGatherer.scatterGather(scatterRequest, scatterGatherStats, _brokerMetrics), respStats));
+      segmentServicesMap.put(request, segmentServices);
     }
     _brokerMetrics.addPhaseTiming(federatedBrokerRequest, BrokerQueryPhase.QUERY_ROUTING, queryRoutingTime);
 
@@ -551,6 +568,8 @@ public class BrokerRequestHandler {
 
         scatterGatherTime += System.nanoTime() - scatterGatherStartTime;
 
+        cancelUnfinishedRequests(request, segmentServicesMap.get(request), compositeFuture, responseMap, requestId);
+
         final long deserializationStartTime = System.nanoTime();
 
         Map<ServerInstance, Throwable> errors = compositeFuture.getError();
@@ -609,6 +628,41 @@ public class BrokerRequestHandler {
     }
   }
 
+  /**
+   * Sends cancel requests to the servers that failed or did not respond in time, so that they stop processing the query
+   * instead of running it to completion for a response that will be dropped. The cancel requests are fire-and-forget.
+   */
+  private void cancelUnfinishedRequests(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
+      CompositeFuture<ServerInstance, ByteBuf> response, Map<ServerInstance, ByteBuf> responses, long requestId)
+      throws InterruptedException {
+    Map<ServerInstance, Throwable> errors = response.getError();
+    if (errors == null || errors.isEmpty()) {
+      return;
+    }
+
+    Map<ServerInstance, SegmentIdSet> serversToCancel = new HashMap<ServerInstance, SegmentIdSet>();
+    for (ServerInstance serverInstance : errors.keySet()) {
+      SegmentIdSet segmentIdSet = segmentServices.get(serverInstance);
+      if (segmentIdSet != null && (responses == null || !responses.containsKey(serverInstance))) {
+        serversToCancel.put(serverInstance, segmentIdSet);
+      }
+    }
+    if (serversToCancel.isEmpty()) {
+      return;
+    }
+
+    LOGGER.info("Cancelling requestId: {} on servers: {}", requestId, serversToCancel.keySet());
+    ScatterGatherRequestImpl cancelRequest = new ScatterGatherRequestImpl(request, serversToCancel, _replicaSelection,
+        ReplicaSelectionGranularity.SEGMENT_ID_SET, request.getBucketHashKey(), 0, null, requestId, _brokerTimeOutMs,
+        _brokerId);
+    cancelRequest.setCancelQuery(true);
+    try {
+      _scatterGatherer.scatterGather(cancelRequest, new ScatterGatherStats(), _brokerMetrics);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Caught exception while sending cancel requests for requestId: {}", requestId, e);
+    }
+  }
+
   private List<String> extractRoutingOptionsFromBrokerRequest(BrokerRequest request) {
     if (request.getDebugOptions() == null) {
       return Collections.emptyList();
@@ -634,6 +688,7 @@ public class BrokerRequestHandler {
     private final long _requestId;
     private final long _requestTimeoutMs;
     private final String _brokerId;
+    private boolean _cancelQuery = false;
 
     public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
         ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
@@ -651,6 +706,13 @@ public class BrokerRequestHandler {
       _brokerId = brokerId;
     }
 
+    /**
+     * Turns the request into a request cancelling the query with the same request id on the servers.
+     */
+    public void setCancelQuery(boolean cancelQuery) {
+      _cancelQuery = cancelQuery;
+    }
+
     @Override
     public Map<ServerInstance, SegmentIdSet> getSegmentsServicesMap() {
       return _segmentServices;
@@ -664,6 +726,9 @@ public class BrokerRequestHandler {
       r.setQuery(_brokerRequest);
       r.setSearchSegments(querySegments.getSegmentsNameList());
       r.setBrokerId(_brokerId);
+      if (_cancelQuery) {
+        r.setCancelQuery(true);
+      }
       // _serde is not threadsafe.
       return getSerde().serialize(r);
       //      return _serde.serialize(r);
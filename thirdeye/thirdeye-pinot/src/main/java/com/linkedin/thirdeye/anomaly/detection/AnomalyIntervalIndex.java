@@ -0,0 +1,77 @@
+package com.linkedin.thirdeye.anomaly.detection;
+
+import com.linkedin.thirdeye.datalayer.dto.MergedAnomalyResultDTO;
+import com.linkedin.thirdeye.datalayer.dto.RawAnomalyResultDTO;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * An index of the time intervals of existing anomalies, which answers whether a given interval is contained in any of
+ * them in O(log n) time.
+ *
+ * The intervals are sorted by their start time, along with the running max of their end times. The intervals that
+ * start no later than a given interval are a prefix of the sorted intervals, and one of them contains the given
+ * interval if and only if the max end time of this prefix is no earlier than the end time of the given interval.
+ */
+public class AnomalyIntervalIndex {
+  private final long[] startTimes;
+  private final long[] maxEndTimes;
+
+  /**
+   * Builds the index from the given intervals, where intervals[i] = {start, end}.
+   */
+  AnomalyIntervalIndex(long[][] intervals) {
+    Arrays.sort(intervals, Comparator.comparingLong(interval -> interval[0]));
+    startTimes = new long[intervals.length];
+    maxEndTimes = new long[intervals.length];
+    long maxEndTime = Long.MIN_VALUE;
+    for (int i = 0; i < intervals.length; i++) {
+      startTimes[i] = intervals[i][0];
+      maxEndTime = Math.max(maxEndTime, intervals[i][1]);
+      maxEndTimes[i] = maxEndTime;
+    }
+  }
+
+  public static AnomalyIntervalIndex fromMergedAnomalies(Collection<MergedAnomalyResultDTO> anomalies) {
+    long[][] intervals = new long[anomalies.size()][];
+    int i = 0;
+    for (MergedAnomalyResultDTO anomaly : anomalies) {
+      intervals[i++] = new long[] { anomaly.getStartTime(), anomaly.getEndTime() };
+    }
+    return new AnomalyIntervalIndex(intervals);
+  }
+
+  public static AnomalyIntervalIndex fromRawAnomalies(Collection<RawAnomalyResultDTO> anomalies) {
+    long[][] intervals = new long[anomalies.size()][];
+    int i = 0;
+    for (RawAnomalyResultDTO anomaly : anomalies) {
+      intervals[i++] = new long[] { anomaly.getStartTime(), anomaly.getEndTime() };
+    }
+    return new AnomalyIntervalIndex(intervals);
+  }
+
+  public boolean isEmpty() {
+    return startTimes.length == 0;
+  }
+
+  /**
+   * Returns true if any indexed interval contains the given interval, boundaries included.
+   *
+   * @param startTime the start time of the given interval
+   * @param endTime the end time of the given interval
+   */
+  public boolean contains(long startTime, long endTime) {
+    // Index of the last interval that starts no later than the given start time
+    int index = Arrays.binarySearch(startTimes, startTime);
+    if (index >= 0) {
+      // Move to the last one of the intervals with the same start time
+      while (index + 1 < startTimes.length && startTimes[index + 1] == startTime) {
+        index++;
+      }
+    } else {
+      index = -(index + 1) - 1;
+    }
+    return index >= 0 && maxEndTimes[index] >= endTime;
+  }
+}
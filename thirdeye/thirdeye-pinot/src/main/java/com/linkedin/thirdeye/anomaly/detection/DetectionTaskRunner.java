@@ -1,6 +1,7 @@
 package com.linkedin.thirdeye.anomaly.detection;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.pinot.pql.parsers.utils.Pair;
 import com.linkedin.thirdeye.anomaly.merge.AnomalyMergeExecutor;
 import com.linkedin.thirdeye.anomaly.override.OverrideConfigHelper;
@@ -19,6 +20,14 @@ import java.util.List;
 import java.util.Map;
 
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.collections.CollectionUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -41,6 +50,13 @@ public class DetectionTaskRunner implements TaskRunner {
   private static final Logger LOG = LoggerFactory.getLogger(DetectionTaskRunner.class);
   public static final String BACKFILL_PREFIX = "adhoc_";
 
+  // Each detection task analyzes its dimensions on its own bounded pool of daemon threads, so that the detection tasks
+  // running concurrently on this worker do not wait for each other's analyses
+  private static final int MAX_PARALLEL_DIMENSION_ANALYSIS = Math.max(2, Runtime.getRuntime().availableProcessors());
+  private static final long DIMENSION_ANALYSIS_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final ThreadFactory DIMENSION_ANALYSIS_THREAD_FACTORY =
+      new ThreadFactoryBuilder().setNameFormat("dimension-analysis-%d").setDaemon(true).build();
+
   private MergedAnomalyResultManager mergedResultDAO;
   private RawAnomalyResultManager rawAnomalyDAO;
   private OverrideConfigManager overrideConfigDAO;
@@ -124,8 +140,6 @@ public class DetectionTaskRunner implements TaskRunner {
   }
 
   private void exploreDimensionsAndAnalyze(Map<DimensionKey, MetricTimeSeries> dimensionKeyMetricTimeSeriesMap) {
-    int anomalyCounter = 0;
-
     // Sort the known merged and raw anomalies by their dimension names
     ArrayListMultimap<DimensionMap, MergedAnomalyResultDTO> dimensionNamesToKnownMergedAnomalies = ArrayListMultimap.create();
     for (MergedAnomalyResultDTO knownMergedAnomaly : knownMergedAnomalies) {
@@ -136,7 +150,30 @@ public class DetectionTaskRunner implements TaskRunner {
       dimensionNamesToKnownRawAnomalies.put(existingRawAnomaly.getDimensions(), existingRawAnomaly);
     }
 
-    String metricName = anomalyFunction.getSpec().getMetric();
+    // Analyze the dimensions in parallel; the results are saved by this thread, so that the results of a dimension
+    // whose analysis timed out are never saved
+    ExecutorService dimensionAnalysisExecutor =
+        Executors.newFixedThreadPool(MAX_PARALLEL_DIMENSION_ANALYSIS, DIMENSION_ANALYSIS_THREAD_FACTORY);
+    int anomalyCounter;
+    try {
+      anomalyCounter = analyzeDimensions(dimensionKeyMetricTimeSeriesMap, dimensionNamesToKnownMergedAnomalies,
+          dimensionNamesToKnownRawAnomalies, dimensionAnalysisExecutor);
+    } finally {
+      dimensionAnalysisExecutor.shutdownNow();
+    }
+    LOG.info("{} anomalies found in total", anomalyCounter);
+  }
+
+  /**
+   * Submits the analysis of each dimension to the given executor, saves their results, and returns the number of
+   * anomalies found.
+   */
+  private int analyzeDimensions(Map<DimensionKey, MetricTimeSeries> dimensionKeyMetricTimeSeriesMap,
+      ArrayListMultimap<DimensionMap, MergedAnomalyResultDTO> dimensionNamesToKnownMergedAnomalies,
+      ArrayListMultimap<DimensionMap, RawAnomalyResultDTO> dimensionNamesToKnownRawAnomalies,
+      ExecutorService dimensionAnalysisExecutor) {
+    int anomalyCounter = 0;
+    List<Pair<DimensionMap, DimensionAnalysis>> analysisFutures = new ArrayList<>();
     for (Map.Entry<DimensionKey, MetricTimeSeries> entry : dimensionKeyMetricTimeSeriesMap.entrySet()) {
       DimensionKey dimensionKey = entry.getKey();
       DimensionMap exploredDimensions = DimensionMap.fromDimensionKey(dimensionKey, collectionDimensions);
@@ -146,46 +183,24 @@ public class DetectionTaskRunner implements TaskRunner {
         continue;
       }
 
-      // Get current entry's knownMergedAnomalies, which should have the same explored dimensions
+      // Get current entry's known merged and raw anomalies, which should have the same explored dimensions
       List<MergedAnomalyResultDTO> knownMergedAnomaliesOfAnEntry = dimensionNamesToKnownMergedAnomalies.get(exploredDimensions);
+      List<RawAnomalyResultDTO> existingRawAnomaliesOfAnEntry =
+          dimensionNamesToKnownRawAnomalies.get(exploredDimensions);
+      MetricTimeSeries metricTimeSeries = entry.getValue();
+      DimensionAnalysis analysisFuture = new DimensionAnalysis(
+          () -> analyzeDimension(exploredDimensions, metricTimeSeries, knownMergedAnomaliesOfAnEntry,
+              existingRawAnomaliesOfAnEntry));
+      dimensionAnalysisExecutor.execute(analysisFuture);
+      analysisFutures.add(new Pair<>(exploredDimensions, analysisFuture));
+    }
 
+    // The timeout of an analysis starts when the analysis starts, so the analyses waiting for a thread are not dropped
+    for (Pair<DimensionMap, DimensionAnalysis> analysisFuture : analysisFutures) {
+      DimensionMap exploredDimensions = analysisFuture.getFirst();
+      DimensionAnalysis future = analysisFuture.getSecond();
       try {
-        // Run algorithm
-        MetricTimeSeries metricTimeSeries = entry.getValue();
-        LOG.info("Analyzing anomaly function with explored dimensions: {}, windowStart: {}, windowEnd: {}",
-            exploredDimensions, windowStart, windowEnd);
-
-        List<MergedAnomalyResultDTO> historyMergedAnomalies;
-        if (anomalyFunction.useHistoryAnomaly()) {
-          historyMergedAnomalies = retainHistoryMergedAnomalies(windowStart.getMillis(), knownMergedAnomaliesOfAnEntry);
-        } else {
-          historyMergedAnomalies = Collections.emptyList();
-        }
-
-        LOG.info("Checking if any known anomalies overlap with the monitoring window of anomaly detection, which could result in unwanted holes in current values.");
-        AnomalyUtils.logAnomaliesOverlapWithWindow(windowStart, windowEnd, historyMergedAnomalies);
-
-        // Scaling time series according to the scaling factor
-        if (CollectionUtils.isNotEmpty(scalingFactors)) {
-          Properties properties = anomalyFunction.getProperties();
-          MetricTransfer.rescaleMetric(metricTimeSeries, windowStart.getMillis(), scalingFactors,
-              metricName, properties);
-        }
-
-        List<RawAnomalyResultDTO> resultsOfAnEntry = anomalyFunction
-            .analyze(exploredDimensions, metricTimeSeries, windowStart, windowEnd, historyMergedAnomalies);
-
-        // Remove detected anomalies that have existed in database
-        if (CollectionUtils.isNotEmpty(resultsOfAnEntry)) {
-          List<RawAnomalyResultDTO> existingRawAnomaliesOfAnEntry =
-              dimensionNamesToKnownRawAnomalies.get(exploredDimensions);
-          resultsOfAnEntry = removeFromExistingRawAnomalies(resultsOfAnEntry, existingRawAnomaliesOfAnEntry);
-        }
-        if (CollectionUtils.isNotEmpty(resultsOfAnEntry)) {
-          List<MergedAnomalyResultDTO> existingMergedAnomalies =
-              retainExistingMergedAnomalies(windowStart.getMillis(), windowEnd.getMillis(), knownMergedAnomaliesOfAnEntry);
-          resultsOfAnEntry = removeFromExistingMergedAnomalies(resultsOfAnEntry, existingMergedAnomalies);
-        }
+        List<RawAnomalyResultDTO> resultsOfAnEntry = future.getWithinTimeout(DIMENSION_ANALYSIS_TIMEOUT_MILLIS);
 
         // Handle results
         handleResults(resultsOfAnEntry);
@@ -193,11 +208,108 @@ public class DetectionTaskRunner implements TaskRunner {
         LOG.info("Dimension {} has {} anomalies in window {} to {}", exploredDimensions, resultsOfAnEntry.size(),
             windowStart, windowEnd);
         anomalyCounter += resultsOfAnEntry.size();
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        LOG.error("Timed out after {} ms computing for {}", DIMENSION_ANALYSIS_TIMEOUT_MILLIS, exploredDimensions);
+      } catch (InterruptedException e) {
+        LOG.error("Interrupted while computing for {}, cancelling the remaining dimensions", exploredDimensions);
+        for (Pair<DimensionMap, DimensionAnalysis> remainingFuture : analysisFutures) {
+          remainingFuture.getSecond().cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        break;
       } catch (Exception e) {
         LOG.error("Could not compute for {}", exploredDimensions, e);
       }
     }
-    LOG.info("{} anomalies found in total", anomalyCounter);
+    return anomalyCounter;
+  }
+
+  /**
+   * The analysis of a dimension, which records when it starts running so that it can be timed out from its start
+   * rather than from its submission.
+   */
+  private static class DimensionAnalysis extends FutureTask<List<RawAnomalyResultDTO>> {
+    private volatile long startTimeMillis = -1L;
+
+    DimensionAnalysis(Callable<List<RawAnomalyResultDTO>> callable) {
+      super(callable);
+    }
+
+    @Override
+    public void run() {
+      startTimeMillis = System.currentTimeMillis();
+      super.run();
+    }
+
+    /**
+     * Waits for the result of the analysis for at most the given timeout after the analysis starts. Waits without
+     * time limit while the analysis has not started.
+     */
+    List<RawAnomalyResultDTO> getWithinTimeout(long timeoutMillis)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      while (true) {
+        long startTime = startTimeMillis;
+        long remainingMillis =
+            (startTime < 0) ? timeoutMillis : startTime + timeoutMillis - System.currentTimeMillis();
+        try {
+          return get(Math.max(remainingMillis, 0L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (startTimeMillis >= 0 && System.currentTimeMillis() - startTimeMillis >= timeoutMillis) {
+            throw e;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the anomaly function on the time series of the given dimensions, and returns the detected anomalies that are
+   * not contained in the existing raw or merged anomalies of these dimensions. Runs on the dimension analysis executor,
+   * so it must not modify the state of this runner.
+   */
+  private List<RawAnomalyResultDTO> analyzeDimension(DimensionMap exploredDimensions, MetricTimeSeries metricTimeSeries,
+      List<MergedAnomalyResultDTO> knownMergedAnomaliesOfAnEntry,
+      List<RawAnomalyResultDTO> existingRawAnomaliesOfAnEntry) throws Exception {
+    // Run algorithm
+    LOG.info("Analyzing anomaly function with explored dimensions: {}, windowStart: {}, windowEnd: {}",
+        exploredDimensions, windowStart, windowEnd);
+
+    List<MergedAnomalyResultDTO> historyMergedAnomalies;
+    if (anomalyFunction.useHistoryAnomaly()) {
+      historyMergedAnomalies = retainHistoryMergedAnomalies(windowStart.getMillis(), knownMergedAnomaliesOfAnEntry);
+    } else {
+      historyMergedAnomalies = Collections.emptyList();
+    }
+
+    LOG.info("Checking if any known anomalies overlap with the monitoring window of anomaly detection, which could result in unwanted holes in current values.");
+    AnomalyUtils.logAnomaliesOverlapWithWindow(windowStart, windowEnd, historyMergedAnomalies);
+
+    // Scaling time series according to the scaling factor
+    if (CollectionUtils.isNotEmpty(scalingFactors)) {
+      Properties properties = anomalyFunction.getProperties();
+      MetricTransfer.rescaleMetric(metricTimeSeries, windowStart.getMillis(), scalingFactors,
+          anomalyFunction.getSpec().getMetric(), properties);
+    }
+
+    List<RawAnomalyResultDTO> resultsOfAnEntry = anomalyFunction
+        .analyze(exploredDimensions, metricTimeSeries, windowStart, windowEnd, historyMergedAnomalies);
+    if (resultsOfAnEntry == null) {
+      return Collections.emptyList();
+    }
+
+    // Remove detected anomalies that have existed in database
+    if (CollectionUtils.isNotEmpty(resultsOfAnEntry)) {
+      resultsOfAnEntry = removeContainedAnomalies(resultsOfAnEntry,
+          AnomalyIntervalIndex.fromRawAnomalies(existingRawAnomaliesOfAnEntry));
+    }
+    if (CollectionUtils.isNotEmpty(resultsOfAnEntry)) {
+      List<MergedAnomalyResultDTO> existingMergedAnomalies =
+          retainExistingMergedAnomalies(windowStart.getMillis(), windowEnd.getMillis(), knownMergedAnomaliesOfAnEntry);
+      resultsOfAnEntry = removeContainedAnomalies(resultsOfAnEntry,
+          AnomalyIntervalIndex.fromMergedAnomalies(existingMergedAnomalies));
+    }
+    return resultsOfAnEntry;
   }
 
   /**
@@ -290,58 +402,21 @@ public class DetectionTaskRunner implements TaskRunner {
 
   /**
    * Given a list of raw anomalies, this method returns a list of raw anomalies that are not contained in any existing
-   * merged anomalies.
+   * raw or merged anomalies.
    *
-   * @param rawAnomalies
-   * @param existingAnomalies
-   * @return
+   * @param rawAnomalies the detected raw anomalies
+   * @param existingAnomalyIndex the index of the intervals of the existing anomalies
+   * @return the raw anomalies that are not contained in any existing anomaly
    */
-  private List<RawAnomalyResultDTO> removeFromExistingMergedAnomalies(List<RawAnomalyResultDTO> rawAnomalies,
-      List<MergedAnomalyResultDTO> existingAnomalies) {
-    if (CollectionUtils.isEmpty(rawAnomalies) || CollectionUtils.isEmpty(existingAnomalies)) {
+  private List<RawAnomalyResultDTO> removeContainedAnomalies(List<RawAnomalyResultDTO> rawAnomalies,
+      AnomalyIntervalIndex existingAnomalyIndex) {
+    if (CollectionUtils.isEmpty(rawAnomalies) || existingAnomalyIndex.isEmpty()) {
       return rawAnomalies;
     }
     List<RawAnomalyResultDTO> newRawAnomalies = new ArrayList<>();
 
     for (RawAnomalyResultDTO rawAnomaly : rawAnomalies) {
-      boolean isContained = false;
-      for (MergedAnomalyResultDTO existingAnomaly : existingAnomalies) {
-        if (existingAnomaly.getStartTime().compareTo(rawAnomaly.getStartTime()) <= 0
-            && rawAnomaly.getEndTime().compareTo(existingAnomaly.getEndTime()) <= 0) {
-          isContained = true;
-          break;
-        }
-      }
-      if (!isContained) {
-        newRawAnomalies.add(rawAnomaly);
-      }
-    }
-
-    return newRawAnomalies;
-  }
-
-  /**
-   * Given a list of raw anomalies, this method returns a list of raw anomalies that are not contained in any existing
-   * raw anomalies.
-   *
-   * @param rawAnomalies
-   * @param existingRawAnomalies
-   * @return
-   */
-  private List<RawAnomalyResultDTO> removeFromExistingRawAnomalies(List<RawAnomalyResultDTO> rawAnomalies,
-      List<RawAnomalyResultDTO> existingRawAnomalies) {
-    List<RawAnomalyResultDTO> newRawAnomalies = new ArrayList<>();
-
-    for (RawAnomalyResultDTO rawAnomaly : rawAnomalies) {
-      boolean matched = false;
-      for (RawAnomalyResultDTO existingAnomaly : existingRawAnomalies) {
-        if (existingAnomaly.getStartTime().compareTo(rawAnomaly.getStartTime()) <= 0
-            && rawAnomaly.getEndTime().compareTo(existingAnomaly.getEndTime()) <= 0) {
-          matched = true;
-          break;
-        }
-      }
-      if (!matched) {
+      if (!existingAnomalyIndex.contains(rawAnomaly.getStartTime(), rawAnomaly.getEndTime())) {
         newRawAnomalies.add(rawAnomaly);
       }
     }
@@ -45,6 +45,10 @@ public class MetricSchema {
     return coloffsets[mapping.get(name)];
   }
 
+  public int getMetricIndex(String name) {
+    return mapping.get(name);
+  }
+
   public int getNumMetrics() {
     return types.size();
   }
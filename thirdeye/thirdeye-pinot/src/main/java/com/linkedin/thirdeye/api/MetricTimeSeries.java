@@ -4,36 +4,64 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
-import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.AbstractSet;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.linkedin.thirdeye.util.NumberUtils;
 
 /**
+ * A time series of the metrics of a schema, stored column by column: the time windows are kept in a sorted long[],
+ * and the values of each metric in one primitive array aligned with the time windows. SHORT, INT and LONG values are
+ * stored in a long[], FLOAT and DOUBLE values in a double[], and are truncated to their metric type on every write.
+ *
+ * The time series is dense as long as its time windows are evenly spaced, which is the case for the time buckets
+ * returned by Pinot. The index of a time window is then computed from its offset to the first time window. Once a time
+ * window breaks the spacing, the time series becomes sparse and time windows are looked up by binary search.
+ *
+ * The serialized format of {@link #toBytes()} and {@link #fromBytes(byte[], MetricSchema)} is the row format of the
+ * previous implementation: the number of time windows and the row size, then for each time window, the time window
+ * followed by the big-endian values of all the metrics.
+ *
  * @author kgopalak
  */
 public class MetricTimeSeries {
-  private static final Logger LOGGER = LoggerFactory.getLogger(MetricTimeSeries.class);
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final MetricSchema schema;
+
+  // Time windows in ascending order, the values of timeWindows[i] are at index i of the metric arrays
+  private long[] timeWindows = new long[INITIAL_CAPACITY];
+  private int size = 0;
 
-  Map<Long, ByteBuffer> timeseries;
+  // Values of metric i, in longValues[i] for SHORT, INT and LONG metrics, in doubleValues[i] for FLOAT and DOUBLE ones
+  private final long[][] longValues;
+  private final double[][] doubleValues;
 
-  private MetricSchema schema;
+  // Whether the time windows are evenly spaced by timeWindowStep
+  private boolean dense = true;
+  private long timeWindowStep = 0;
 
   /**
    * @param schema
    */
   public MetricTimeSeries(MetricSchema schema) {
-    timeseries = new HashMap<Long, ByteBuffer>();
     this.schema = schema;
+    int numMetrics = schema.getNumMetrics();
+    longValues = new long[numMetrics][];
+    doubleValues = new double[numMetrics][];
+    for (int i = 0; i < numMetrics; i++) {
+      if (isFloatingPoint(schema.getMetricType(i))) {
+        doubleValues[i] = new double[INITIAL_CAPACITY];
+      } else {
+        longValues[i] = new long[INITIAL_CAPACITY];
+      }
+    }
   }
 
   public MetricSchema getSchema() {
@@ -45,123 +73,46 @@ public class MetricTimeSeries {
    * @param value
    */
   public void set(long timeWindow, String name, Number value) {
-    initBufferForTimeWindow(timeWindow);
-    ByteBuffer buffer = timeseries.get(timeWindow);
-    buffer.position(schema.getOffset(name));
-    MetricType metricType = schema.getMetricType(name);
-    switch (metricType) {
-    case SHORT:
-      buffer.putShort(value.shortValue());
-      break;
-    case INT:
-      buffer.putInt(value.intValue());
-      break;
-    case LONG:
-      buffer.putLong(value.longValue());
-      break;
-    case FLOAT:
-      buffer.putFloat(value.floatValue());
-      break;
-    case DOUBLE:
-      buffer.putDouble(value.doubleValue());
-      break;
-    }
-  }
-
-  private void initBufferForTimeWindow(long timeWindow) {
-    if (!timeseries.containsKey(timeWindow)) {
-      byte[] bytes = new byte[schema.getRowSizeInBytes()];
-      timeseries.put(timeWindow, ByteBuffer.wrap(bytes));
-    }
+    int metricIndex = schema.getMetricIndex(name);
+    setValue(metricIndex, getOrCreateIndex(timeWindow), value);
   }
 
   public Number get(long timeWindow, String name) {
-    ByteBuffer buffer = timeseries.get(timeWindow);
-    Number ret = 0;
-
-    if (buffer != null) {
-      buffer = buffer.duplicate();
-      MetricType metricType = schema.getMetricType(name);
-      buffer.position(schema.getOffset(name));
-      switch (metricType) {
-      case SHORT:
-        ret = buffer.getShort();
-        break;
-      case INT:
-        ret = buffer.getInt();
-        break;
-      case LONG:
-        ret = buffer.getLong();
-        break;
-      case FLOAT:
-        ret = buffer.getFloat();
-        break;
-      case DOUBLE:
-        ret = buffer.getDouble();
-        break;
-      }
+    int metricIndex = schema.getMetricIndex(name);
+    int index = indexOf(timeWindow);
+    if (index < 0) {
+      return 0;
     }
-    return ret;
+    return getValue(metricIndex, index);
   }
 
   public void increment(long timeWindow, String name, Number delta) {
-    initBufferForTimeWindow(timeWindow);
-    ByteBuffer buffer = timeseries.get(timeWindow);
-    Number newValue;
-
-    if (buffer != null) {
-      // get Old Value
-      Number oldValue = get(timeWindow, name);
-      MetricType metricType = schema.getMetricType(name);
-      switch (metricType) {
-      case SHORT:
-        newValue = oldValue.shortValue() + delta.shortValue();
-        break;
-      case INT:
-        newValue = oldValue.intValue() + delta.intValue();
-        break;
-      case LONG:
-        newValue = oldValue.longValue() + delta.longValue();
-        break;
-      case FLOAT:
-        newValue = oldValue.floatValue() + delta.floatValue();
-        break;
-      case DOUBLE:
-        newValue = oldValue.doubleValue() + delta.doubleValue();
-        break;
-      default:
-        throw new UnsupportedOperationException(
-            "unknown metricType:" + metricType + " for column:" + name);
-      }
-    } else {
-      newValue = delta;
-    }
-    set(timeWindow, name, newValue);
+    int metricIndex = schema.getMetricIndex(name);
+    incrementValue(metricIndex, getOrCreateIndex(timeWindow), delta);
   }
 
   public void aggregate(MetricTimeSeries series) {
-    for (long timeWindow : series.timeseries.keySet()) {
-      for (int i = 0; i < schema.getNumMetrics(); i++) {
-        String metricName = schema.getMetricName(i);
-        Number delta = series.get(timeWindow, metricName);
-        increment(timeWindow, metricName, delta);
-      }
-    }
+    aggregate(series, null);
   }
 
   /**
    * @param series
    *          A time series whose values should be reflected in this time series
    * @param timeRange
-   *          Only include values from series that are in this time range
+   *          Only include values from series that are in this time range, or all values if null
    */
   public void aggregate(MetricTimeSeries series, TimeRange timeRange) {
-    for (long timeWindow : series.timeseries.keySet()) {
-      if (timeRange.contains(timeWindow)) {
-        for (int i = 0; i < schema.getNumMetrics(); i++) {
-          String metricName = schema.getMetricName(i);
-          Number delta = series.get(timeWindow, metricName);
-          increment(timeWindow, metricName, delta);
+    int numMetrics = schema.getNumMetrics();
+    int[] seriesMetricIndexes = new int[numMetrics];
+    for (int i = 0; i < numMetrics; i++) {
+      seriesMetricIndexes[i] = series.schema.getMetricIndex(schema.getMetricName(i));
+    }
+    for (int seriesIndex = 0; seriesIndex < series.size; seriesIndex++) {
+      long timeWindow = series.timeWindows[seriesIndex];
+      if (timeRange == null || timeRange.contains(timeWindow)) {
+        int index = getOrCreateIndex(timeWindow);
+        for (int i = 0; i < numMetrics; i++) {
+          incrementValue(i, index, series.getValue(seriesMetricIndexes[i], seriesIndex));
         }
       }
     }
@@ -172,32 +123,69 @@ public class MetricTimeSeries {
     DataInput in = new DataInputStream(new ByteArrayInputStream(buf));
     int numTimeWindows = in.readInt();
     int bufferSize = in.readInt();
+    byte[] bytes = new byte[bufferSize];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
     for (int i = 0; i < numTimeWindows; i++) {
       long timeWindow = in.readLong();
-      byte[] bytes = new byte[bufferSize];
       in.readFully(bytes);
-      series.timeseries.put(timeWindow, ByteBuffer.wrap(bytes));
+      buffer.rewind();
+      int index = series.getOrCreateIndex(timeWindow);
+      for (int metricIndex = 0; metricIndex < schema.getNumMetrics(); metricIndex++) {
+        series.setValue(metricIndex, index, NumberUtils.readFromBuffer(buffer, schema.getMetricType(metricIndex)));
+      }
     }
     return series;
   }
 
   /**
-   * @return
+   * Returns a read-only view of the time windows, in ascending order.
    */
   public Set<Long> getTimeWindowSet() {
-    return timeseries.keySet();
+    return new AbstractSet<Long>() {
+      @Override
+      public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext() {
+            return index < size;
+          }
+
+          @Override
+          public Long next() {
+            if (index >= size) {
+              throw new NoSuchElementException();
+            }
+            return timeWindows[index++];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return (o instanceof Long) && indexOf((Long) o) >= 0;
+      }
+    };
   }
 
   public byte[] toBytes() throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutput out = new DataOutputStream(baos);
+    DataOutputStream out = new DataOutputStream(baos);
     // write the number of timeWindows
-    out.writeInt(timeseries.size());
+    out.writeInt(size);
     // write the size of the metric buffer for each timeWindow
     out.writeInt(schema.getRowSizeInBytes());
-    for (long time : timeseries.keySet()) {
-      out.writeLong(time);
-      out.write(timeseries.get(time).array());
+    for (int index = 0; index < size; index++) {
+      out.writeLong(timeWindows[index]);
+      for (int metricIndex = 0; metricIndex < schema.getNumMetrics(); metricIndex++) {
+        NumberUtils.addToDataOutputStream(out, getValue(metricIndex, index), schema.getMetricType(metricIndex));
+      }
     }
     return baos.toByteArray();
   }
@@ -206,20 +194,18 @@ public class MetricTimeSeries {
   public String toString() {
     StringBuilder sb = new StringBuilder();
     sb.append("(");
-    for (long timeWindow : timeseries.keySet()) {
+    for (int index = 0; index < size; index++) {
       sb.append("[");
       String delim = "";
-      ByteBuffer buffer = timeseries.get(timeWindow);
-      buffer.rewind();
       for (int i = 0; i < schema.getNumMetrics(); i++) {
         if (i > 0) {
           delim = ",";
         }
-        sb.append(delim).append(NumberUtils.readFromBuffer(buffer, schema.getMetricType(i)));
+        sb.append(delim).append(getValue(i, index));
       }
       sb.append("]");
       sb.append("@");
-      sb.append(timeWindow);
+      sb.append(timeWindows[index]);
       sb.append(" ");
     }
     sb.setLength(sb.length() - 1);
@@ -233,32 +219,56 @@ public class MetricTimeSeries {
     for (int i = 0; i < schema.getNumMetrics(); i++) {
       result[i] = 0;
     }
+    if (size == 0) {
+      return result;
+    }
 
-    for (Long time : timeseries.keySet()) {
-      for (int i = 0; i < schema.getNumMetrics(); i++) {
-        String metricName = schema.getMetricName(i);
-        MetricType metricType = schema.getMetricType(i);
-        Number metricValue = get(time, metricName);
-
-        switch (metricType) {
-        case INT:
-          result[i] = result[i].intValue() + metricValue.intValue();
-          break;
-        case SHORT:
-          result[i] = result[i].shortValue() + metricValue.shortValue();
-          break;
-        case LONG:
-          result[i] = result[i].longValue() + metricValue.longValue();
-          break;
-        case FLOAT:
-          result[i] = result[i].floatValue() + metricValue.floatValue();
-          break;
-        case DOUBLE:
-          result[i] = result[i].doubleValue() + metricValue.doubleValue();
-          break;
-        default:
-          throw new IllegalStateException();
+    // The sums have the types of the previous implementation, which summed the boxed values
+    for (int i = 0; i < schema.getNumMetrics(); i++) {
+      MetricType metricType = schema.getMetricType(i);
+      switch (metricType) {
+      case SHORT: {
+        int sum = 0;
+        for (int index = 0; index < size; index++) {
+          sum = (short) sum + (short) longValues[i][index];
+        }
+        result[i] = sum;
+        break;
+      }
+      case INT: {
+        int sum = 0;
+        for (int index = 0; index < size; index++) {
+          sum += (int) longValues[i][index];
+        }
+        result[i] = sum;
+        break;
+      }
+      case LONG: {
+        long sum = 0;
+        for (int index = 0; index < size; index++) {
+          sum += longValues[i][index];
+        }
+        result[i] = sum;
+        break;
+      }
+      case FLOAT: {
+        float sum = 0;
+        for (int index = 0; index < size; index++) {
+          sum += (float) doubleValues[i][index];
+        }
+        result[i] = sum;
+        break;
+      }
+      case DOUBLE: {
+        double sum = 0;
+        for (int index = 0; index < size; index++) {
+          sum += doubleValues[i][index];
         }
+        result[i] = sum;
+        break;
+      }
+      default:
+        throw new IllegalStateException();
       }
     }
 
@@ -267,7 +277,7 @@ public class MetricTimeSeries {
 
   @Override
   public int hashCode() {
-    return timeseries.keySet().hashCode() + 13 * schema.hashCode();
+    return getTimeWindowSet().hashCode() + 13 * schema.hashCode();
   }
 
   @Override
@@ -281,4 +291,151 @@ public class MetricTimeSeries {
     return getTimeWindowSet().equals(ts.getTimeWindowSet())
         && Arrays.equals(getMetricSums(), ts.getMetricSums());
   }
+
+  private static boolean isFloatingPoint(MetricType metricType) {
+    return metricType == MetricType.FLOAT || metricType == MetricType.DOUBLE;
+  }
+
+  private Number getValue(int metricIndex, int index) {
+    switch (schema.getMetricType(metricIndex)) {
+    case SHORT:
+      return (short) longValues[metricIndex][index];
+    case INT:
+      return (int) longValues[metricIndex][index];
+    case LONG:
+      return longValues[metricIndex][index];
+    case FLOAT:
+      return (float) doubleValues[metricIndex][index];
+    case DOUBLE:
+      return doubleValues[metricIndex][index];
+    default:
+      throw new IllegalStateException();
+    }
+  }
+
+  private void setValue(int metricIndex, int index, Number value) {
+    switch (schema.getMetricType(metricIndex)) {
+    case SHORT:
+      longValues[metricIndex][index] = value.shortValue();
+      break;
+    case INT:
+      longValues[metricIndex][index] = value.intValue();
+      break;
+    case LONG:
+      longValues[metricIndex][index] = value.longValue();
+      break;
+    case FLOAT:
+      doubleValues[metricIndex][index] = value.floatValue();
+      break;
+    case DOUBLE:
+      doubleValues[metricIndex][index] = value.doubleValue();
+      break;
+    }
+  }
+
+  private void incrementValue(int metricIndex, int index, Number delta) {
+    MetricType metricType = schema.getMetricType(metricIndex);
+    switch (metricType) {
+    case SHORT:
+      longValues[metricIndex][index] = (short) (longValues[metricIndex][index] + delta.shortValue());
+      break;
+    case INT:
+      longValues[metricIndex][index] = (int) (longValues[metricIndex][index] + delta.intValue());
+      break;
+    case LONG:
+      longValues[metricIndex][index] += delta.longValue();
+      break;
+    case FLOAT:
+      doubleValues[metricIndex][index] = (float) doubleValues[metricIndex][index] + delta.floatValue();
+      break;
+    case DOUBLE:
+      doubleValues[metricIndex][index] += delta.doubleValue();
+      break;
+    default:
+      throw new UnsupportedOperationException(
+          "unknown metricType:" + metricType + " for column:" + schema.getMetricName(metricIndex));
+    }
+  }
+
+  /**
+   * Returns the index of the given time window, or -1 if the time window is not in the time series.
+   */
+  private int indexOf(long timeWindow) {
+    if (size == 0) {
+      return -1;
+    }
+    if (dense) {
+      if (size == 1) {
+        return (timeWindows[0] == timeWindow) ? 0 : -1;
+      }
+      long offset = timeWindow - timeWindows[0];
+      if (offset < 0 || offset % timeWindowStep != 0 || offset / timeWindowStep >= size) {
+        return -1;
+      }
+      return (int) (offset / timeWindowStep);
+    }
+    int index = Arrays.binarySearch(timeWindows, 0, size, timeWindow);
+    return (index >= 0) ? index : -1;
+  }
+
+  /**
+   * Returns the index of the given time window, inserting the time window with zero values if it is not in the time
+   * series.
+   */
+  private int getOrCreateIndex(long timeWindow) {
+    int index = indexOf(timeWindow);
+    if (index >= 0) {
+      return index;
+    }
+
+    // Time windows are usually added in ascending order
+    if (size == 0 || timeWindow > timeWindows[size - 1]) {
+      index = size;
+    } else {
+      index = -(Arrays.binarySearch(timeWindows, 0, size, timeWindow) + 1);
+    }
+    insert(index, timeWindow);
+    return index;
+  }
+
+  private void insert(int index, long timeWindow) {
+    if (size == timeWindows.length) {
+      int newCapacity = 2 * timeWindows.length;
+      timeWindows = Arrays.copyOf(timeWindows, newCapacity);
+      for (int i = 0; i < schema.getNumMetrics(); i++) {
+        if (longValues[i] != null) {
+          longValues[i] = Arrays.copyOf(longValues[i], newCapacity);
+        } else {
+          doubleValues[i] = Arrays.copyOf(doubleValues[i], newCapacity);
+        }
+      }
+    }
+
+    int numToShift = size - index;
+    System.arraycopy(timeWindows, index, timeWindows, index + 1, numToShift);
+    timeWindows[index] = timeWindow;
+    for (int i = 0; i < schema.getNumMetrics(); i++) {
+      if (longValues[i] != null) {
+        System.arraycopy(longValues[i], index, longValues[i], index + 1, numToShift);
+        longValues[i][index] = 0L;
+      } else {
+        System.arraycopy(doubleValues[i], index, doubleValues[i], index + 1, numToShift);
+        doubleValues[i][index] = 0.0;
+      }
+    }
+    size++;
+
+    // The time series stays dense only if the new time window extends the evenly spaced time windows at either end
+    if (dense && size > 1) {
+      if (size == 2) {
+        timeWindowStep = timeWindows[1] - timeWindows[0];
+      } else if (index == size - 1) {
+        dense = (timeWindows[index] - timeWindows[index - 1] == timeWindowStep);
+      } else if (index == 0) {
+        dense = (timeWindows[1] - timeWindows[0] == timeWindowStep);
+      } else {
+        dense = false;
+      }
+    }
+  }
 }
@@ -126,6 +126,7 @@ public class ThirdEyeCacheRegistry {
         .removalListener(listener)
         .expireAfterAccess(1, TimeUnit.HOURS)
         .maximumWeight(maxBucketNumber)
+        .recordStats()
         .weigher((pinotQuery, resultSetGroup) -> {
           int resultSetCount = resultSetGroup.getResultSetCount();
           int weight = 0;
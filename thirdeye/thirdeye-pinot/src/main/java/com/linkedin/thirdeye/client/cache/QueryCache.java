@@ -1,24 +1,77 @@
 package com.linkedin.thirdeye.client.cache;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.linkedin.thirdeye.api.TimeSpec;
+import com.linkedin.thirdeye.client.MetricFunction;
 import com.linkedin.thirdeye.client.ThirdEyeClient;
 import com.linkedin.thirdeye.client.ThirdEyeRequest;
+import com.linkedin.thirdeye.client.ThirdEyeRequest.ThirdEyeRequestBuilder;
 import com.linkedin.thirdeye.client.ThirdEyeResponse;
+import com.linkedin.thirdeye.client.ThirdEyeResponseRow;
+import com.linkedin.thirdeye.client.pinot.PinotThirdEyeResponse;
 
+/**
+ * Executes ThirdEye requests, coalescing identical requests that are in flight at the same time: a request that equals
+ * a request being executed (see {@link ThirdEyeRequest#equals(Object)}, which ignores the request reference) waits for
+ * the response of the latter instead of executing again.
+ *
+ * <p>The responses of requests grouped by time are also cached per time bucket: the range of a request is split into
+ * buckets of its time granularity aligned on its start time, so that requests over overlapping ranges whose starts
+ * are a whole number of buckets apart (e.g. daily buckets starting at midnight) share the buckets they have in common.
+ * Only the missing buckets are queried, one request per range of consecutive missing buckets, and the response is
+ * re-sliced from the buckets with bucket ids relative to the request start. Buckets ending after the max data time of
+ * the collection may still receive data, so they are never cached. The cache is bounded by the number of cells of the
+ * cached rows, and entries expire after one hour.
+ */
 public class QueryCache {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryCache.class);
+  private static final long DEFAULT_MAX_BUCKET_CACHE_WEIGHT = 1_000_000L;
+  private static final long MAX_NUM_BUCKETS = 100_000L;
+
   private final ExecutorService executorService;
   private final ThirdEyeClient client;
+  private final Cache<BucketKey, BucketResult> bucketCache;
+
+  private final ConcurrentMap<ThirdEyeRequest, QueryTask> inFlightRequests = new ConcurrentHashMap<>();
+  private final AtomicLong numRequests = new AtomicLong();
+  private final AtomicLong numCoalescedRequests = new AtomicLong();
 
   public QueryCache(ThirdEyeClient clientMap, ExecutorService executorService) {
+    this(clientMap, executorService, DEFAULT_MAX_BUCKET_CACHE_WEIGHT);
+  }
+
+  /**
+   * @param maxBucketCacheWeight max total number of cells of the rows cached per time bucket
+   */
+  public QueryCache(ThirdEyeClient clientMap, ExecutorService executorService, long maxBucketCacheWeight) {
     this.executorService = executorService;
     this.client = clientMap;
+    this.bucketCache = CacheBuilder.newBuilder()
+        .expireAfterWrite(1, TimeUnit.HOURS)
+        .maximumWeight(maxBucketCacheWeight)
+        .recordStats()
+        .weigher((BucketKey bucketKey, BucketResult bucketResult) -> bucketResult.getWeight())
+        .build();
   }
 
   public ThirdEyeClient getClient() {
@@ -26,32 +79,36 @@ public class QueryCache {
   }
 
   public ThirdEyeResponse getQueryResult(ThirdEyeRequest request) throws Exception {
-    ThirdEyeResponse response = client.execute(request);
-    return response;
+    QueryTask task = new QueryTask(request);
+    QueryTask inFlightTask = getOrRegisterInFlightTask(task);
+    // Run the task in this thread, or join the in flight task, running it here if it has not started yet, so that
+    // this thread never waits on a task queued behind it in the executor
+    inFlightTask.run();
+    try {
+      return inFlightTask.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
   }
 
   public Future<ThirdEyeResponse> getQueryResultAsync(final ThirdEyeRequest request)
       throws Exception {
-    return executorService.submit(new Callable<ThirdEyeResponse>() {
-      @Override
-      public ThirdEyeResponse call() throws Exception {
-        return getQueryResult(request);
-      }
-    });
+    QueryTask task = new QueryTask(request);
+    QueryTask inFlightTask = getOrRegisterInFlightTask(task);
+    if (inFlightTask == task) {
+      executorService.execute(task);
+    }
+    return inFlightTask;
   }
 
   public Map<ThirdEyeRequest, Future<ThirdEyeResponse>> getQueryResultsAsync(
       final List<ThirdEyeRequest> requests) throws Exception {
     Map<ThirdEyeRequest, Future<ThirdEyeResponse>> responseFuturesMap = new LinkedHashMap<>();
     for (final ThirdEyeRequest request : requests) {
-      Future<ThirdEyeResponse> responseFuture =
-          executorService.submit(new Callable<ThirdEyeResponse>() {
-            @Override
-            public ThirdEyeResponse call() throws Exception {
-              return getQueryResult(request);
-            }
-          });
-      responseFuturesMap.put(request, responseFuture);
+      responseFuturesMap.put(request, getQueryResultAsync(request));
     }
     return responseFuturesMap;
   }
@@ -63,22 +120,238 @@ public class QueryCache {
 
   public Map<ThirdEyeRequest, ThirdEyeResponse> getQueryResultsAsyncAndWait(
       final List<ThirdEyeRequest> requests, int timeoutSeconds) throws Exception {
+    Map<ThirdEyeRequest, Future<ThirdEyeResponse>> responseFuturesMap = getQueryResultsAsync(requests);
     Map<ThirdEyeRequest, ThirdEyeResponse> responseMap = new LinkedHashMap<>();
-    for (final ThirdEyeRequest request : requests) {
-      Future<ThirdEyeResponse> responseFuture =
-          executorService.submit(new Callable<ThirdEyeResponse>() {
-            @Override
-            public ThirdEyeResponse call() throws Exception {
-              return getQueryResult(request);
-            }
-          });
-      responseMap.put(request, responseFuture.get(timeoutSeconds, TimeUnit.SECONDS));
+    for (Map.Entry<ThirdEyeRequest, Future<ThirdEyeResponse>> entry : responseFuturesMap.entrySet()) {
+      responseMap.put(entry.getKey(), entry.getValue().get(timeoutSeconds, TimeUnit.SECONDS));
     }
     return responseMap;
   }
 
+  /**
+   * Returns the number of requests received since startup.
+   */
+  public long getNumRequests() {
+    return numRequests.get();
+  }
+
+  /**
+   * Returns the number of requests that were coalesced with an identical in flight request since startup.
+   */
+  public long getNumCoalescedRequests() {
+    return numCoalescedRequests.get();
+  }
+
+  /**
+   * Returns the hit/miss/eviction counts of the time bucket cache.
+   */
+  public CacheStats getBucketCacheStats() {
+    return bucketCache.stats();
+  }
+
   public void clear() throws Exception {
+    bucketCache.invalidateAll();
     client.clear();
   }
 
+  /**
+   * Returns the in flight task of an identical request if any, otherwise registers and returns the given task.
+   */
+  private QueryTask getOrRegisterInFlightTask(QueryTask task) {
+    numRequests.incrementAndGet();
+    while (true) {
+      QueryTask inFlightTask = inFlightRequests.putIfAbsent(task.request, task);
+      if (inFlightTask == null) {
+        return task;
+      }
+      if (!inFlightTask.isDone()) {
+        numCoalescedRequests.incrementAndGet();
+        return inFlightTask;
+      }
+      // The task is done but has not unregistered itself yet, replace it so that the request executes again
+      if (inFlightRequests.replace(task.request, inFlightTask, task)) {
+        return task;
+      }
+    }
+  }
+
+  /**
+   * Executes a request, reusing the cached time buckets if the request is grouped by time.
+   */
+  private ThirdEyeResponse executeWithBucketCache(ThirdEyeRequest request) throws Exception {
+    DateTime start = request.getStartTimeInclusive();
+    DateTime end = request.getEndTimeExclusive();
+    if (request.getGroupByTimeGranularity() == null || start == null || end == null || !end.isAfter(start)) {
+      return client.execute(request);
+    }
+    long startMillis = start.getMillis();
+    long endMillis = end.getMillis();
+    long bucketMillis = request.getGroupByTimeGranularity().toMillis();
+    if (bucketMillis <= 0 || (endMillis - startMillis) / bucketMillis >= MAX_NUM_BUCKETS) {
+      return client.execute(request);
+    }
+    int numBuckets = (int) ((endMillis - startMillis + bucketMillis - 1) / bucketMillis);
+
+    // Only the buckets ending before the max data time are complete and can be cached
+    long maxDataTime = getMaxDataTime(request.getCollection());
+    if (Math.min(startMillis + bucketMillis, endMillis) > maxDataTime) {
+      return client.execute(request);
+    }
+
+    // Key the buckets on the request without its time range
+    ThirdEyeRequest bucketlessRequest = new ThirdEyeRequestBuilder(request)
+        .setStartTimeInclusive((DateTime) null)
+        .setEndTimeExclusive((DateTime) null)
+        .build(null);
+    BucketKey[] bucketKeys = new BucketKey[numBuckets];
+    BucketResult[] bucketResults = new BucketResult[numBuckets];
+    for (int i = 0; i < numBuckets; i++) {
+      long bucketStart = startMillis + i * bucketMillis;
+      bucketKeys[i] = new BucketKey(bucketlessRequest, bucketStart, Math.min(bucketStart + bucketMillis, endMillis));
+      bucketResults[i] = bucketCache.getIfPresent(bucketKeys[i]);
+    }
+
+    // Execute one request per range of consecutive missing buckets, and split its response into buckets
+    int bucketId = 0;
+    while (bucketId < numBuckets) {
+      if (bucketResults[bucketId] != null) {
+        bucketId++;
+        continue;
+      }
+      int firstBucketId = bucketId;
+      while (bucketId < numBuckets && bucketResults[bucketId] == null) {
+        bucketId++;
+      }
+      ThirdEyeRequest rangeRequest = new ThirdEyeRequestBuilder(request)
+          .setStartTimeInclusive(new DateTime(bucketKeys[firstBucketId].startMillis, start.getZone()))
+          .setEndTimeExclusive(new DateTime(bucketKeys[bucketId - 1].endMillis, end.getZone()))
+          .build(request.getRequestReference());
+      ThirdEyeResponse rangeResponse = client.execute(rangeRequest);
+
+      List<List<String[]>> rangeRows = new ArrayList<>();
+      for (int i = firstBucketId; i < bucketId; i++) {
+        rangeRows.add(new ArrayList<>());
+      }
+      for (int rowId = 0; rowId < rangeResponse.getNumRows(); rowId++) {
+        int rangeBucketId = rangeResponse.getRow(rowId).getTimeBucketId();
+        if (rangeBucketId >= 0 && rangeBucketId < rangeRows.size()) {
+          rangeRows.get(rangeBucketId).add(toRow(rangeResponse, rowId));
+        }
+      }
+      for (int i = firstBucketId; i < bucketId; i++) {
+        bucketResults[i] = new BucketResult(rangeResponse.getDataTimeSpec(), rangeRows.get(i - firstBucketId));
+        if (bucketKeys[i].endMillis <= maxDataTime) {
+          bucketCache.put(bucketKeys[i], bucketResults[i]);
+        }
+      }
+    }
+
+    // Re-slice the response from the buckets, with bucket ids relative to the request start
+    List<String[]> rows = new ArrayList<>();
+    for (int i = 0; i < numBuckets; i++) {
+      for (String[] bucketRow : bucketResults[i].rows) {
+        String[] row = bucketRow.clone();
+        row[0] = String.valueOf(i);
+        rows.add(row);
+      }
+    }
+    return new PinotThirdEyeResponse(request, rows, bucketResults[0].dataTimeSpec);
+  }
+
+  private long getMaxDataTime(String collection) {
+    try {
+      return client.getMaxDataTime(collection);
+    } catch (Exception e) {
+      LOG.warn("Failed to get max data time of collection {}, not caching its time buckets", collection, e);
+      return Long.MIN_VALUE;
+    }
+  }
+
+  /**
+   * Returns the given row of a response grouped by time as the time bucket id, the dimension values and the metric
+   * values.
+   */
+  private static String[] toRow(ThirdEyeResponse response, int rowId) {
+    ThirdEyeResponseRow responseRow = response.getRow(rowId);
+    List<String> dimensions = responseRow.getDimensions();
+    List<MetricFunction> metricFunctions = response.getMetricFunctions();
+    String[] row = new String[1 + dimensions.size() + metricFunctions.size()];
+    row[0] = String.valueOf(responseRow.getTimeBucketId());
+    for (int i = 0; i < dimensions.size(); i++) {
+      row[1 + i] = dimensions.get(i);
+    }
+    for (int i = 0; i < metricFunctions.size(); i++) {
+      MetricFunction metricFunction = metricFunctions.get(i);
+      row[1 + dimensions.size() + i] = response.getRow(metricFunction, rowId).get(metricFunction.toString());
+    }
+    return row;
+  }
+
+  /**
+   * Key of a time bucket: the request without its time range, and the time range of the bucket.
+   */
+  private static class BucketKey {
+    private final ThirdEyeRequest bucketlessRequest;
+    private final long startMillis;
+    private final long endMillis;
+
+    BucketKey(ThirdEyeRequest bucketlessRequest, long startMillis, long endMillis) {
+      this.bucketlessRequest = bucketlessRequest;
+      this.startMillis = startMillis;
+      this.endMillis = endMillis;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(bucketlessRequest, startMillis, endMillis);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof BucketKey)) {
+        return false;
+      }
+      BucketKey other = (BucketKey) o;
+      return Objects.equals(bucketlessRequest, other.bucketlessRequest) && startMillis == other.startMillis
+          && endMillis == other.endMillis;
+    }
+  }
+
+  /**
+   * Rows of a time bucket, in the row format of {@link PinotThirdEyeResponse}.
+   */
+  private static class BucketResult {
+    private final TimeSpec dataTimeSpec;
+    private final List<String[]> rows;
+
+    BucketResult(TimeSpec dataTimeSpec, List<String[]> rows) {
+      this.dataTimeSpec = dataTimeSpec;
+      this.rows = rows;
+    }
+
+    int getWeight() {
+      int weight = 1;
+      for (String[] row : rows) {
+        weight += row.length;
+      }
+      return weight;
+    }
+  }
+
+  /**
+   * Executes a request, and unregisters itself from the in flight requests once done.
+   */
+  private class QueryTask extends FutureTask<ThirdEyeResponse> {
+    private final ThirdEyeRequest request;
+
+    QueryTask(final ThirdEyeRequest request) {
+      super(() -> executeWithBucketCache(request));
+      this.request = request;
+    }
+
+    @Override
+    protected void done() {
+      inFlightRequests.remove(request, this);
+    }
+  }
 }
@@ -1,6 +1,8 @@
 package com.linkedin.thirdeye.dashboard.resources;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -12,10 +14,12 @@ import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.linkedin.thirdeye.client.DAORegistry;
 import com.linkedin.thirdeye.client.ThirdEyeCacheRegistry;
 import com.linkedin.thirdeye.client.cache.MetricDataset;
+import com.linkedin.thirdeye.client.cache.QueryCache;
 import com.linkedin.thirdeye.datalayer.dto.DashboardConfigDTO;
 import com.linkedin.thirdeye.datalayer.dto.DatasetConfigDTO;
 import com.linkedin.thirdeye.datalayer.dto.MetricConfigDTO;
@@ -35,6 +39,36 @@ public class CacheResource {
     return "usage";
   }
 
+  /**
+   * Returns the hit rates of the query cache: the requests coalesced with an identical in flight request, the time
+   * buckets answered from the time bucket cache, and the PQL queries answered from the ResultSetGroup cache.
+   */
+  @GET
+  @Path("/stats/query")
+  public Map<String, Object> getQueryCacheStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    QueryCache queryCache = CACHE_INSTANCE.getQueryCache();
+    long numRequests = queryCache.getNumRequests();
+    long numCoalescedRequests = queryCache.getNumCoalescedRequests();
+    stats.put("requestCount", numRequests);
+    stats.put("coalescedRequestCount", numCoalescedRequests);
+    stats.put("coalescedRequestRate", numRequests == 0 ? 0.0 : (double) numCoalescedRequests / numRequests);
+
+    CacheStats bucketCacheStats = queryCache.getBucketCacheStats();
+    stats.put("bucketHitCount", bucketCacheStats.hitCount());
+    stats.put("bucketMissCount", bucketCacheStats.missCount());
+    stats.put("bucketHitRate", bucketCacheStats.hitRate());
+    stats.put("bucketEvictionCount", bucketCacheStats.evictionCount());
+
+    CacheStats resultSetGroupCacheStats = CACHE_INSTANCE.getResultSetGroupCache().stats();
+    stats.put("resultSetGroupHitCount", resultSetGroupCacheStats.hitCount());
+    stats.put("resultSetGroupMissCount", resultSetGroupCacheStats.missCount());
+    stats.put("resultSetGroupHitRate", resultSetGroupCacheStats.hitRate());
+    stats.put("resultSetGroupEvictionCount", resultSetGroupCacheStats.evictionCount());
+    stats.put("resultSetGroupAverageLoadPenaltyMillis", resultSetGroupCacheStats.averageLoadPenalty() / 1000000);
+    return stats;
+  }
+
   @POST
   @Path("/refresh")
   public Response refreshAllCaches() {
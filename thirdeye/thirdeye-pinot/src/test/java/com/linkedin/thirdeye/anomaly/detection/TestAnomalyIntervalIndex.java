@@ -0,0 +1,38 @@
+package com.linkedin.thirdeye.anomaly.detection;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestAnomalyIntervalIndex {
+
+  @Test
+  public void testContains() {
+    AnomalyIntervalIndex index = new AnomalyIntervalIndex(new long[][] {
+        { 50, 60 }, { 10, 40 }, { 20, 30 }, { 10, 15 }, { 70, 100 }
+    });
+    Assert.assertFalse(index.isEmpty());
+
+    // Contained in a single interval, boundaries included
+    Assert.assertTrue(index.contains(10, 40));
+    Assert.assertTrue(index.contains(20, 25));
+    Assert.assertTrue(index.contains(55, 60));
+    Assert.assertTrue(index.contains(70, 100));
+
+    // Contained in an interval that starts before a later starting interval
+    Assert.assertTrue(index.contains(35, 40));
+
+    // Not contained in any interval
+    Assert.assertFalse(index.contains(5, 12));
+    Assert.assertFalse(index.contains(35, 45));
+    Assert.assertFalse(index.contains(40, 50));
+    Assert.assertFalse(index.contains(65, 75));
+    Assert.assertFalse(index.contains(90, 110));
+  }
+
+  @Test
+  public void testEmpty() {
+    AnomalyIntervalIndex index = new AnomalyIntervalIndex(new long[0][]);
+    Assert.assertTrue(index.isEmpty());
+    Assert.assertFalse(index.contains(0, 0));
+  }
+}
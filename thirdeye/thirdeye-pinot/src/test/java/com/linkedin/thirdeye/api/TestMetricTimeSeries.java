@@ -0,0 +1,112 @@
+package com.linkedin.thirdeye.api;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestMetricTimeSeries {
+  private static final MetricSchema SCHEMA = new MetricSchema(
+      Arrays.asList("shortMetric", "intMetric", "longMetric", "floatMetric", "doubleMetric"),
+      Arrays.asList(MetricType.SHORT, MetricType.INT, MetricType.LONG, MetricType.FLOAT, MetricType.DOUBLE));
+
+  @Test
+  public void testSetGetIncrement() {
+    MetricTimeSeries series = new MetricTimeSeries(SCHEMA);
+    series.set(100L, "intMetric", 5);
+    series.increment(100L, "intMetric", 3);
+    series.increment(200L, "shortMetric", Short.MAX_VALUE);
+    series.increment(200L, "shortMetric", 1);
+    series.set(300L, "floatMetric", 1.5);
+    series.increment(300L, "doubleMetric", 2.25);
+    series.increment(300L, "longMetric", Long.MAX_VALUE);
+
+    Assert.assertEquals(series.get(100L, "intMetric"), 8);
+    Assert.assertEquals(series.get(100L, "longMetric"), 0L);
+    Assert.assertEquals(series.get(200L, "shortMetric"), Short.MIN_VALUE);
+    Assert.assertEquals(series.get(300L, "floatMetric"), 1.5f);
+    Assert.assertEquals(series.get(300L, "doubleMetric"), 2.25);
+    Assert.assertEquals(series.get(300L, "longMetric"), Long.MAX_VALUE);
+
+    // Missing time windows read as 0
+    Assert.assertEquals(series.get(150L, "intMetric"), 0);
+    Assert.assertEquals(series.getTimeWindowSet().size(), 3);
+    Assert.assertFalse(series.getTimeWindowSet().contains(150L));
+  }
+
+  @Test
+  public void testDenseAndSparseTimeWindows() {
+    MetricTimeSeries series = new MetricTimeSeries(SCHEMA);
+    // Evenly spaced time windows, added out of order at both ends
+    for (long timeWindow = 50L; timeWindow < 100L; timeWindow += 10L) {
+      series.set(timeWindow, "longMetric", timeWindow);
+    }
+    series.set(40L, "longMetric", 40L);
+    for (long timeWindow = 40L; timeWindow < 100L; timeWindow += 10L) {
+      Assert.assertEquals(series.get(timeWindow, "longMetric"), timeWindow);
+      Assert.assertEquals(series.get(timeWindow + 5L, "longMetric"), 0);
+    }
+
+    // Time windows breaking the spacing, including one in the middle
+    series.set(75L, "longMetric", 75L);
+    series.set(1000L, "longMetric", 1000L);
+    series.set(0L, "longMetric", 0L);
+    long[] expectedTimeWindows = { 0L, 40L, 50L, 60L, 70L, 75L, 80L, 90L, 1000L };
+    Iterator<Long> iterator = series.getTimeWindowSet().iterator();
+    for (long expectedTimeWindow : expectedTimeWindows) {
+      Assert.assertEquals(iterator.next().longValue(), expectedTimeWindow);
+      Assert.assertEquals(series.get(expectedTimeWindow, "longMetric"), expectedTimeWindow);
+    }
+    Assert.assertFalse(iterator.hasNext());
+    Assert.assertEquals(series.get(85L, "longMetric"), 0);
+  }
+
+  @Test
+  public void testAggregate() {
+    MetricTimeSeries series1 = new MetricTimeSeries(SCHEMA);
+    series1.set(10L, "intMetric", 1);
+    series1.set(20L, "doubleMetric", 1.0);
+    MetricTimeSeries series2 = new MetricTimeSeries(SCHEMA);
+    series2.set(20L, "doubleMetric", 2.0);
+    series2.set(30L, "intMetric", 3);
+
+    series1.aggregate(series2);
+    Assert.assertEquals(series1.get(10L, "intMetric"), 1);
+    Assert.assertEquals(series1.get(20L, "doubleMetric"), 3.0);
+    Assert.assertEquals(series1.get(30L, "intMetric"), 3);
+
+    Number[] metricSums = series1.getMetricSums();
+    Assert.assertEquals(metricSums[1], 4);
+    Assert.assertEquals(metricSums[4], 3.0);
+  }
+
+  @Test
+  public void testBytesFormat() throws Exception {
+    // Row format of the previous implementation: number of time windows, row size, then time window and row
+    int rowSize = SCHEMA.getRowSizeInBytes();
+    ByteBuffer buffer = ByteBuffer.allocate(8 + 2 * (8 + rowSize));
+    buffer.putInt(2).putInt(rowSize);
+    buffer.putLong(20L).putShort((short) 1).putInt(2).putLong(3L).putFloat(4.5f).putDouble(5.5);
+    buffer.putLong(10L).putShort((short) 6).putInt(7).putLong(8L).putFloat(9.5f).putDouble(10.5);
+
+    MetricTimeSeries series = MetricTimeSeries.fromBytes(buffer.array(), SCHEMA);
+    Assert.assertEquals(series.get(20L, "shortMetric"), (short) 1);
+    Assert.assertEquals(series.get(20L, "intMetric"), 2);
+    Assert.assertEquals(series.get(20L, "longMetric"), 3L);
+    Assert.assertEquals(series.get(20L, "floatMetric"), 4.5f);
+    Assert.assertEquals(series.get(20L, "doubleMetric"), 5.5);
+    Assert.assertEquals(series.get(10L, "doubleMetric"), 10.5);
+
+    // Time windows are serialized in ascending order
+    MetricTimeSeries deserialized = MetricTimeSeries.fromBytes(series.toBytes(), SCHEMA);
+    Assert.assertEquals(deserialized, series);
+    Assert.assertEquals(deserialized.toString(), series.toString());
+    ByteBuffer bytes = ByteBuffer.wrap(series.toBytes());
+    Assert.assertEquals(bytes.getInt(), 2);
+    Assert.assertEquals(bytes.getInt(), rowSize);
+    Assert.assertEquals(bytes.getLong(), 10L);
+    Assert.assertEquals(bytes.getShort(), 6);
+    Assert.assertEquals(bytes.getInt(), 7);
+  }
+}
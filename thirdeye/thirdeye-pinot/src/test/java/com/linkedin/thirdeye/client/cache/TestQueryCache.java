@@ -0,0 +1,213 @@
+package com.linkedin.thirdeye.client.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.linkedin.thirdeye.api.TimeGranularity;
+import com.linkedin.thirdeye.api.TimeSpec;
+import com.linkedin.thirdeye.client.MetricFunction;
+import com.linkedin.thirdeye.client.ThirdEyeClient;
+import com.linkedin.thirdeye.client.ThirdEyeRequest;
+import com.linkedin.thirdeye.client.ThirdEyeResponse;
+import com.linkedin.thirdeye.client.pinot.PinotThirdEyeResponse;
+import com.linkedin.thirdeye.constant.MetricAggFunction;
+
+public class TestQueryCache {
+  private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final MetricFunction METRIC_FUNCTION = new MetricFunction(MetricAggFunction.SUM, "metric");
+
+  private ExecutorService executorService;
+
+  @BeforeClass
+  public void beforeClass() {
+    executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testCoalesceInFlightRequests() throws Exception {
+    BlockingClient client = new BlockingClient();
+    QueryCache queryCache = new QueryCache(client, executorService);
+
+    Future<ThirdEyeResponse> future1 = queryCache.getQueryResultAsync(buildRequest("collection", "ref1"));
+    Future<ThirdEyeResponse> future2 = queryCache.getQueryResultAsync(buildRequest("collection", "ref2"));
+    Future<ThirdEyeResponse> future3 = queryCache.getQueryResultAsync(buildRequest("otherCollection", "ref3"));
+    Assert.assertSame(future2, future1);
+    Assert.assertNotSame(future3, future1);
+
+    client.latch.countDown();
+    Assert.assertSame(future1.get(10, TimeUnit.SECONDS), client.response);
+    future3.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(client.numExecutions.get(), 2);
+    Assert.assertEquals(queryCache.getNumRequests(), 3);
+    Assert.assertEquals(queryCache.getNumCoalescedRequests(), 1);
+
+    // Completed requests are not in flight anymore and execute again
+    queryCache.getQueryResult(buildRequest("collection", "ref4"));
+    Assert.assertEquals(client.numExecutions.get(), 3);
+    Assert.assertEquals(queryCache.getNumCoalescedRequests(), 1);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testPropagateException() throws Exception {
+    BlockingClient client = new BlockingClient() {
+      @Override
+      public ThirdEyeResponse execute(ThirdEyeRequest request) throws Exception {
+        throw new IllegalStateException();
+      }
+    };
+    new QueryCache(client, executorService).getQueryResult(buildRequest("collection", "ref"));
+  }
+
+  @Test
+  public void testReuseTimeBuckets() throws Exception {
+    HourlyClient client = new HourlyClient(10 * HOUR_MILLIS);
+    QueryCache queryCache = new QueryCache(client, executorService);
+
+    assertHourlyResponse(queryCache.getQueryResult(buildHourlyRequest(0, 4)), 0, 4);
+    Assert.assertEquals(client.executedRanges.size(), 1);
+    assertRange(client.executedRanges.get(0), 0, 4);
+
+    // Only the missing buckets of an overlapping range are queried, and the response is re-sliced from its start
+    assertHourlyResponse(queryCache.getQueryResult(buildHourlyRequest(2, 6)), 2, 6);
+    Assert.assertEquals(client.executedRanges.size(), 2);
+    assertRange(client.executedRanges.get(1), 4, 6);
+
+    // A fully cached range is not queried
+    assertHourlyResponse(queryCache.getQueryResult(buildHourlyRequest(1, 5)), 1, 5);
+    Assert.assertEquals(client.executedRanges.size(), 2);
+    Assert.assertEquals(queryCache.getBucketCacheStats().hitCount(), 2 + 4);
+
+    // Buckets ending after the max data time are queried every time
+    assertHourlyResponse(queryCache.getQueryResult(buildHourlyRequest(8, 12)), 8, 12);
+    assertHourlyResponse(queryCache.getQueryResult(buildHourlyRequest(8, 12)), 8, 12);
+    Assert.assertEquals(client.executedRanges.size(), 4);
+    assertRange(client.executedRanges.get(3), 10, 12);
+  }
+
+  private static ThirdEyeRequest buildHourlyRequest(int startHour, int endHour) {
+    return ThirdEyeRequest.newBuilder()
+        .setCollection("collection")
+        .addMetricFunction(METRIC_FUNCTION)
+        .setGroupByTimeGranularity(new TimeGranularity(1, TimeUnit.HOURS))
+        .setStartTimeInclusive(startHour * HOUR_MILLIS)
+        .setEndTimeExclusive(endHour * HOUR_MILLIS)
+        .build("ref");
+  }
+
+  private static void assertRange(long[] range, int startHour, int endHour) {
+    Assert.assertEquals(range[0], startHour * HOUR_MILLIS);
+    Assert.assertEquals(range[1], endHour * HOUR_MILLIS);
+  }
+
+  private static void assertHourlyResponse(ThirdEyeResponse response, int startHour, int endHour) {
+    Assert.assertEquals(response.getNumRows(), endHour - startHour);
+    for (int rowId = 0; rowId < response.getNumRows(); rowId++) {
+      int timeBucketId = response.getRow(rowId).getTimeBucketId();
+      Assert.assertEquals(timeBucketId, rowId);
+      Assert.assertEquals(response.getRow(rowId).getMetrics().get(0), (double) (startHour + timeBucketId));
+    }
+  }
+
+  private static ThirdEyeRequest buildRequest(String collection, String requestReference) {
+    return ThirdEyeRequest.newBuilder()
+        .setCollection(collection)
+        .setStartTimeInclusive(0L)
+        .setEndTimeExclusive(3600000L)
+        .build(requestReference);
+  }
+
+  /**
+   * Client which blocks the executions until the latch is released, and counts them.
+   */
+  private static class BlockingClient implements ThirdEyeClient {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger numExecutions = new AtomicInteger();
+    final ThirdEyeResponse response = Mockito.mock(ThirdEyeResponse.class);
+
+    @Override
+    public ThirdEyeResponse execute(ThirdEyeRequest request) throws Exception {
+      numExecutions.incrementAndGet();
+      latch.await(10, TimeUnit.SECONDS);
+      return response;
+    }
+
+    @Override
+    public List<String> getCollections() throws Exception {
+      return null;
+    }
+
+    @Override
+    public void clear() throws Exception {
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+
+    @Override
+    public long getMaxDataTime(String collection) throws Exception {
+      return 0;
+    }
+  }
+
+  /**
+   * Client which answers requests grouped by hour with the hour since epoch as metric value, and records the executed
+   * time ranges.
+   */
+  private static class HourlyClient implements ThirdEyeClient {
+    final List<long[]> executedRanges = new ArrayList<>();
+    final long maxDataTime;
+
+    HourlyClient(long maxDataTime) {
+      this.maxDataTime = maxDataTime;
+    }
+
+    @Override
+    public ThirdEyeResponse execute(ThirdEyeRequest request) throws Exception {
+      long startMillis = request.getStartTimeInclusive().getMillis();
+      long endMillis = request.getEndTimeExclusive().getMillis();
+      executedRanges.add(new long[] {startMillis, endMillis});
+      List<String[]> rows = new ArrayList<>();
+      for (long millis = startMillis; millis < endMillis; millis += HOUR_MILLIS) {
+        rows.add(new String[] {String.valueOf(rows.size()), String.valueOf((double) (millis / HOUR_MILLIS))});
+      }
+      return new PinotThirdEyeResponse(request, rows,
+          new TimeSpec("time", new TimeGranularity(1, TimeUnit.HOURS), TimeSpec.SINCE_EPOCH_FORMAT));
+    }
+
+    @Override
+    public List<String> getCollections() throws Exception {
+      return null;
+    }
+
+    @Override
+    public void clear() throws Exception {
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+
+    @Override
+    public long getMaxDataTime(String collection) throws Exception {
+      return maxDataTime;
+    }
+  }
+}